@@ -8,11 +8,15 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Synchronous HTTP client for delivering events to wow-service.
  * Called by OutboxEventPoller — exceptions propagate to trigger retry logic.
+ *
+ * Events are sent either one per request to the per-type endpoints, or many per request
+ * to the batch endpoint, which acknowledges each event by eventId.
  */
 @Component
 public class WowServiceClient {
@@ -29,6 +33,48 @@ public class WowServiceClient {
                 .build();
     }
 
+    /**
+     * One event of a batch request. {@code payload} is the event's outbox payload.
+     */
+    public record BatchEvent(String eventId, String eventType, Map<String, String> payload) {
+    }
+
+    /**
+     * wow-service's verdict on one event of a batch. A rejected event carries the reason.
+     */
+    public record BatchAck(String eventId, boolean accepted, String error) {
+    }
+
+    record BatchRequest(List<BatchEvent> events) {
+    }
+
+    record BatchResponse(List<BatchAck> results) {
+    }
+
+    /**
+     * Deliver events in one request. wow-service processes them in the given order and
+     * deduplicates by eventId, as for single deliveries.
+     *
+     * @return the acknowledgements by eventId; events missing from the response were not processed
+     */
+    public Map<String, BatchAck> deliverBatch(List<BatchEvent> events) {
+        BatchResponse response = restClient.post()
+                .uri("/internal/events/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new BatchRequest(events))
+                .retrieve()
+                .body(BatchResponse.class);
+
+        Map<String, BatchAck> acks = new HashMap<>();
+        if (response != null && response.results() != null) {
+            for (BatchAck ack : response.results()) {
+                acks.put(ack.eventId(), ack);
+            }
+        }
+        logger.info("Delivered batch to wow-service: events={}, acknowledged={}", events.size(), acks.size());
+        return acks;
+    }
+
     public void notifyInvitationAccepted(String invitationId, String targetUserId,
                                           String contextType, String contextId,
                                           String contextRole, String displayName,
@@ -3,6 +3,10 @@ package com.myapp.identityservice.config;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+/**
+ * Scheduled jobs run on Spring Boot's scheduler, sized by {@code spring.task.scheduling.pool.size}
+ * to give every job its own thread.
+ */
 @Configuration
 @EnableScheduling
 public class AsyncConfig {
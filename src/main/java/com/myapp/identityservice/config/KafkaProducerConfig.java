@@ -1,5 +1,6 @@
 package com.myapp.identityservice.config;
 
+import com.myapp.identityservice.event.OutboxKafkaRelay;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
@@ -22,6 +23,18 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
+    @Value("${app.outbox.kafka.linger-ms:10}")
+    private int lingerMs;
+
+    @Value("${app.outbox.kafka.batch-bytes:65536}")
+    private int batchBytes;
+
+    @Value("${app.outbox.kafka.compression:lz4}")
+    private String compression;
+
+    @Value("${app.outbox.kafka.delivery-timeout-ms:60000}")
+    private int deliveryTimeoutMs;
+
     @Bean
     public ProducerFactory<String, String> producerFactory() {
         Map<String, Object> config = new HashMap<>();
@@ -32,8 +45,17 @@ public class KafkaProducerConfig {
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         // Enable idempotent producer to prevent duplicate messages
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        // Retry on transient failures
-        config.put(ProducerConfig.RETRIES_CONFIG, 3);
+        // Retry transient failures until the delivery timeout; the outbox relay retries after that
+        config.put(ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE);
+        config.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs);
+        // Must stay within the outbox lease along with the delivery timeout
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 10000);
+        // The relay sends a claimed batch at once: let records of a partition share a compressed
+        // batch, and keep several batches in flight (at most 5 keeps idempotent ordering)
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchBytes);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
         return new DefaultKafkaProducerFactory<>(config);
     }
 
@@ -44,7 +66,7 @@ public class KafkaProducerConfig {
 
     @Bean
     public NewTopic invitationAcceptedTopic() {
-        return TopicBuilder.name("identity.invitation-accepted")
+        return TopicBuilder.name(OutboxKafkaRelay.TOPIC_INVITATION_ACCEPTED)
                 .partitions(3)
                 .replicas(1)
                 .build();
@@ -52,7 +74,23 @@ public class KafkaProducerConfig {
 
     @Bean
     public NewTopic userNameUpdatedTopic() {
-        return TopicBuilder.name("identity.user-name-updated")
+        return TopicBuilder.name(OutboxKafkaRelay.TOPIC_USER_NAME_UPDATED)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic pendingUserActionTopic() {
+        return TopicBuilder.name(OutboxKafkaRelay.TOPIC_PENDING_USER_ACTION)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic userIdMigratedTopic() {
+        return TopicBuilder.name(OutboxKafkaRelay.TOPIC_USER_ID_MIGRATED)
                 .partitions(3)
                 .replicas(1)
                 .build();
@@ -1,8 +1,12 @@
 package com.myapp.identityservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.myapp.identityservice.dto.request.CreateContextInvitationRequest;
 import com.myapp.identityservice.dto.response.ApiResponse;
 import com.myapp.identityservice.dto.response.ContextInvitationResponse;
+import com.myapp.identityservice.idempotency.IdempotentExecutor;
+import com.myapp.identityservice.idempotency.JsonResultCodec;
+import com.myapp.identityservice.idempotency.ResultCodec;
 import com.myapp.identityservice.security.SecurityUtils;
 import com.myapp.identityservice.service.ContextInvitationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,19 +24,28 @@ public class ContextInvitationController {
 
     private final ContextInvitationService invitationService;
     private final SecurityUtils securityUtils;
+    private final IdempotentExecutor idempotentExecutor;
+    private final ResultCodec<ContextInvitationResponse> invitationResultCodec;
 
     public ContextInvitationController(ContextInvitationService invitationService,
-                                        SecurityUtils securityUtils) {
+                                        SecurityUtils securityUtils,
+                                        IdempotentExecutor idempotentExecutor,
+                                        ObjectMapper objectMapper) {
         this.invitationService = invitationService;
         this.securityUtils = securityUtils;
+        this.idempotentExecutor = idempotentExecutor;
+        this.invitationResultCodec = new JsonResultCodec<>(objectMapper, ContextInvitationResponse.class);
     }
 
     @PostMapping
     @Operation(summary = "Create a context-aware invitation")
     public ResponseEntity<ApiResponse<ContextInvitationResponse>> createInvitation(
-            @Valid @RequestBody CreateContextInvitationRequest request) {
+            @Valid @RequestBody CreateContextInvitationRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         String userId = securityUtils.getCurrentUserId();
-        ContextInvitationResponse response = invitationService.createInvitation(userId, request);
+        // Keys are chosen by clients, so they are scoped to the caller
+        ContextInvitationResponse response = idempotentExecutor.execute("context-invitation:" + userId,
+                idempotencyKey, invitationResultCodec, () -> invitationService.createInvitation(userId, request));
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -3,15 +3,18 @@ package com.myapp.identityservice.controller;
 import com.myapp.identityservice.dto.request.*;
 import com.myapp.identityservice.dto.response.*;
 import com.myapp.identityservice.security.SecurityUtils;
+import com.myapp.identityservice.service.GroupExportService;
 import com.myapp.identityservice.service.GroupService;
 import com.myapp.identityservice.service.InvitationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -19,12 +22,17 @@ import java.util.List;
 @Tag(name = "Groups", description = "Group management endpoints")
 public class GroupController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final GroupService groupService;
+    private final GroupExportService groupExportService;
     private final InvitationService invitationService;
     private final SecurityUtils securityUtils;
 
-    public GroupController(GroupService groupService, InvitationService invitationService, SecurityUtils securityUtils) {
+    public GroupController(GroupService groupService, GroupExportService groupExportService,
+                           InvitationService invitationService, SecurityUtils securityUtils) {
         this.groupService = groupService;
+        this.groupExportService = groupExportService;
         this.invitationService = invitationService;
         this.securityUtils = securityUtils;
     }
@@ -72,6 +80,45 @@ public class GroupController {
         return ResponseEntity.ok(ApiResponse.success(group, "Group deleted successfully"));
     }
 
+    @PatchMapping("/{id}/parent")
+    @Operation(summary = "Move group (with its subtree) under a new parent")
+    public ResponseEntity<ApiResponse<GroupResponse>> moveGroup(
+            @PathVariable String id,
+            @Valid @RequestBody MoveGroupRequest request) {
+        GroupResponse group = groupService.moveGroup(id, request);
+        return ResponseEntity.ok(ApiResponse.success(group, "Group moved successfully"));
+    }
+
+    @GetMapping("/{id}/subtree")
+    @Operation(summary = "Get group and all descendants with depth")
+    public ResponseEntity<ApiResponse<List<GroupResponse>>> getSubtree(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean includeInactive) {
+        List<GroupResponse> groups = groupService.getSubtree(id, includeInactive);
+        return ResponseEntity.ok(ApiResponse.success(groups));
+    }
+
+    @GetMapping("/{id}/ancestors")
+    @Operation(summary = "Get ancestor path of a group, root first")
+    public ResponseEntity<ApiResponse<List<GroupResponse>>> getAncestors(@PathVariable String id) {
+        List<GroupResponse> ancestors = groupService.getAncestors(id);
+        return ResponseEntity.ok(ApiResponse.success(ancestors));
+    }
+
+    @GetMapping("/{id}/subtree/members")
+    @Operation(summary = "Get distinct members across a group and its descendants")
+    public ResponseEntity<ApiResponse<List<UserResponse>>> getSubtreeMembers(@PathVariable String id) {
+        List<UserResponse> members = groupService.getSubtreeMembers(id);
+        return ResponseEntity.ok(ApiResponse.success(members));
+    }
+
+    @DeleteMapping("/{id}/subtree")
+    @Operation(summary = "Delete group and all descendants (soft delete)")
+    public ResponseEntity<ApiResponse<Integer>> deleteSubtree(@PathVariable String id) {
+        int deactivated = groupService.deleteSubtree(id);
+        return ResponseEntity.ok(ApiResponse.success(deactivated, "Group subtree deleted successfully"));
+    }
+
     @PostMapping("/{id}/members")
     @Operation(summary = "Add user to group")
     public ResponseEntity<ApiResponse<MembershipResponse>> addUserToGroup(
@@ -101,6 +148,14 @@ public class GroupController {
         return ResponseEntity.ok(ApiResponse.success(members));
     }
 
+    @GetMapping("/{id}/members/export")
+    @Operation(summary = "Stream all current group members as NDJSON")
+    public void exportGroupMembers(@PathVariable String id, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        groupExportService.exportMembers(id, response.getOutputStream());
+    }
+
     @DeleteMapping("/{id}/members/{userId}")
     @Operation(summary = "Remove user from group")
     public ResponseEntity<ApiResponse<MembershipResponse>> removeUserFromGroup(
@@ -112,12 +167,22 @@ public class GroupController {
     }
 
     @GetMapping("/{id}/history")
-    @Operation(summary = "Get group membership history")
+    @Operation(summary = "Get group membership history",
+            description = "Newest first, keyset-paginated. Pass cursor.nextCursor back as cursor for the next page.")
     public ResponseEntity<ApiResponse<List<MembershipResponse>>> getGroupHistory(
             @PathVariable String id,
-            @RequestParam(required = false) String userId) {
-        List<MembershipResponse> history = groupService.getGroupHistory(id, userId);
-        return ResponseEntity.ok(ApiResponse.success(history));
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(groupService.getGroupHistory(id, userId, cursor, limit));
+    }
+
+    @GetMapping("/{id}/history/export")
+    @Operation(summary = "Stream full group membership history as NDJSON, oldest first")
+    public void exportGroupHistory(@PathVariable String id, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        groupExportService.exportHistory(id, response.getOutputStream());
     }
 
     @PostMapping("/bulk-add-users")
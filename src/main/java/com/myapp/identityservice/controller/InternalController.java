@@ -1,10 +1,14 @@
 package com.myapp.identityservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.myapp.identityservice.dto.request.CreateUserRequest;
 import com.myapp.identityservice.dto.request.OnboardUserRequest;
 import com.myapp.identityservice.dto.response.ApiResponse;
 import com.myapp.identityservice.dto.response.OnboardUserResponse;
 import com.myapp.identityservice.dto.response.UserResponse;
+import com.myapp.identityservice.idempotency.IdempotentExecutor;
+import com.myapp.identityservice.idempotency.JsonResultCodec;
+import com.myapp.identityservice.idempotency.ResultCodec;
 import com.myapp.identityservice.service.InvitationService;
 import com.myapp.identityservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,10 +30,17 @@ public class InternalController {
 
     private final InvitationService invitationService;
     private final UserService userService;
+    private final IdempotentExecutor idempotentExecutor;
+    private final ResultCodec<OnboardUserResponse> onboardResultCodec;
 
-    public InternalController(InvitationService invitationService, UserService userService) {
+    public InternalController(InvitationService invitationService,
+                              UserService userService,
+                              IdempotentExecutor idempotentExecutor,
+                              ObjectMapper objectMapper) {
         this.invitationService = invitationService;
         this.userService = userService;
+        this.idempotentExecutor = idempotentExecutor;
+        this.onboardResultCodec = new JsonResultCodec<>(objectMapper, OnboardUserResponse.class);
     }
 
     /**
@@ -54,14 +65,18 @@ public class InternalController {
      * 3. Adds the user to invited groups
      *
      * This operation is idempotent - calling it multiple times with the same
-     * authUserId will return the same result.
+     * authUserId will return the same result. With an Idempotency-Key header, a retry
+     * that arrives while the first call is still running waits for and returns its result
+     * instead of onboarding concurrently.
      */
     @PostMapping("/users/onboard")
     @Operation(summary = "Onboard a newly signed-up user and resolve pending invitations")
     public ResponseEntity<ApiResponse<OnboardUserResponse>> onboardUser(
-            @Valid @RequestBody OnboardUserRequest request) {
+            @Valid @RequestBody OnboardUserRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-        OnboardUserResponse response = invitationService.onboardUser(request);
+        OnboardUserResponse response = idempotentExecutor.execute("onboard", idempotencyKey,
+                onboardResultCodec, () -> invitationService.onboardUser(request));
 
         String message = response.isUserCreated()
                 ? "User created and invitations resolved"
@@ -0,0 +1,48 @@
+package com.myapp.identityservice.controller;
+
+import com.myapp.identityservice.dto.request.UsageBatchCheckRequest;
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.ApiResponse;
+import com.myapp.identityservice.dto.response.UsageBatchCheckResponse;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
+import com.myapp.identityservice.service.UsageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Internal service-to-service endpoints for settling usage of many users at once, e.g. by
+ * wow-service at the end of a job. Authenticated via API key (X-API-Key header), no JWT required.
+ *
+ * <p>Items that cannot be consumed are reported per item; the call itself only fails for an
+ * invalid request.</p>
+ */
+@RestController
+@RequestMapping("/internal/usage")
+@Tag(name = "Internal Usage", description = "Service-to-service batch usage endpoints")
+public class InternalUsageController {
+
+    private final UsageService usageService;
+
+    public InternalUsageController(UsageService usageService) {
+        this.usageService = usageService;
+    }
+
+    @PostMapping("/check-batch")
+    @Operation(summary = "Check usage for many users (internal)")
+    public ResponseEntity<ApiResponse<UsageBatchCheckResponse>> checkBatch(
+            @Valid @RequestBody UsageBatchCheckRequest request) {
+        UsageBatchCheckResponse result = usageService.checkUsageBatch(request.getItems());
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PostMapping("/consume-batch")
+    @Operation(summary = "Consume usage for many users (internal)")
+    public ResponseEntity<ApiResponse<UsageBatchConsumeResponse>> consumeBatch(
+            @Valid @RequestBody UsageBatchConsumeRequest request) {
+        UsageBatchConsumeResponse result = usageService.consumeUsageBatch(request.getItems());
+        return ResponseEntity.ok(ApiResponse.success(result, "Usage batch processed"));
+    }
+}
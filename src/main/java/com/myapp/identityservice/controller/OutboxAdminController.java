@@ -47,6 +47,7 @@ public class OutboxAdminController {
     public ResponseEntity<ApiResponse<OutboxStats>> getStats() {
         OutboxStats stats = new OutboxStats(
                 outboundEventRepository.countByStatus(EventStatus.PENDING),
+                outboundEventRepository.countByStatus(EventStatus.IN_FLIGHT),
                 outboundEventRepository.countByStatus(EventStatus.FAILED),
                 outboundEventRepository.countByStatus(EventStatus.DELIVERED),
                 outboundEventRepository.countByStatus(EventStatus.PERMANENTLY_FAILED)
@@ -54,5 +55,5 @@ public class OutboxAdminController {
         return ResponseEntity.ok(ApiResponse.success(stats, "Outbox statistics"));
     }
 
-    public record OutboxStats(long pending, long failed, long delivered, long permanentlyFailed) {}
+    public record OutboxStats(long pending, long inFlight, long failed, long delivered, long permanentlyFailed) {}
 }
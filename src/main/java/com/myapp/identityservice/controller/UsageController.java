@@ -1,10 +1,13 @@
 package com.myapp.identityservice.controller;
 
 import com.myapp.identityservice.dto.request.UsageCheckRequest;
+import com.myapp.identityservice.dto.request.UsageCommitRequest;
 import com.myapp.identityservice.dto.request.UsageConsumeRequest;
+import com.myapp.identityservice.dto.request.UsageReserveRequest;
 import com.myapp.identityservice.dto.response.ApiResponse;
 import com.myapp.identityservice.dto.response.UsageCheckResponse;
 import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
 import com.myapp.identityservice.dto.response.UsageResponse;
 import com.myapp.identityservice.service.UsageService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -45,6 +48,35 @@ public class UsageController {
         return ResponseEntity.ok(ApiResponse.success(result, "Usage consumed successfully"));
     }
 
+    @PostMapping("/reservations")
+    @Operation(summary = "Reserve usage for a long-running task")
+    public ResponseEntity<ApiResponse<UsageReservationResponse>> reserveUsage(
+            @PathVariable String id,
+            @Valid @RequestBody UsageReserveRequest request) {
+        UsageReservationResponse result = usageService.reserveUsage(id, request.getAmount(), request.getTtlSeconds());
+        return ResponseEntity.ok(ApiResponse.success(result, "Usage reserved successfully"));
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    @Operation(summary = "Commit all or part of a usage reservation")
+    public ResponseEntity<ApiResponse<UsageConsumeResponse>> commitReservation(
+            @PathVariable String id,
+            @PathVariable String reservationId,
+            @Valid @RequestBody(required = false) UsageCommitRequest request) {
+        Integer amount = request != null ? request.getAmount() : null;
+        UsageConsumeResponse result = usageService.commitReservation(id, reservationId, amount);
+        return ResponseEntity.ok(ApiResponse.success(result, "Usage reservation committed successfully"));
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    @Operation(summary = "Release a usage reservation")
+    public ResponseEntity<ApiResponse<Void>> releaseReservation(
+            @PathVariable String id,
+            @PathVariable String reservationId) {
+        usageService.releaseReservation(id, reservationId);
+        return ResponseEntity.ok(ApiResponse.success(null, "Usage reservation released successfully"));
+    }
+
     @GetMapping("/current")
     @Operation(summary = "Get current month usage")
     public ResponseEntity<ApiResponse<UsageResponse>> getCurrentMonthUsage(@PathVariable String id) {
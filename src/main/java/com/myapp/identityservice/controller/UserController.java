@@ -79,9 +79,13 @@ public class UserController {
     }
 
     @GetMapping("/{id}/groups")
-    @Operation(summary = "Get user's groups")
-    public ResponseEntity<ApiResponse<List<GroupResponse>>> getUserGroups(@PathVariable String id) {
-        List<GroupResponse> groups = groupService.getUserGroups(id);
-        return ResponseEntity.ok(ApiResponse.success(groups));
+    @Operation(summary = "Get user's groups",
+            description = "Returns all current groups, or a keyset page when limit is given. " +
+                    "Pass cursor.nextCursor back as cursor for the next page.")
+    public ResponseEntity<ApiResponse<List<GroupResponse>>> getUserGroups(
+            @PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(groupService.getUserGroups(id, cursor, limit));
     }
 }
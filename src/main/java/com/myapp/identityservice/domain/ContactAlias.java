@@ -11,7 +11,7 @@ import java.time.Instant;
         @Index(name = "idx_contact_aliases_owner", columnList = "owner_user_id"),
         @Index(name = "idx_contact_aliases_target", columnList = "target_user_id")
     })
-public class ContactAlias {
+public class ContactAlias extends PreassignedIdEntity {
 
     @Id
     @Column(length = 30)
@@ -11,7 +11,7 @@ import java.time.Instant;
     @Index(name = "idx_ctx_inv_status", columnList = "status"),
     @Index(name = "idx_ctx_inv_expires_at", columnList = "expires_at")
 })
-public class ContextInvitation {
+public class ContextInvitation extends PreassignedIdEntity {
 
     public enum ContextType {
         TRIP, COLLABORATION, AGREEMENT, EXPENSE_GROUP
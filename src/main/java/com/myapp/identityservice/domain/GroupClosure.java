@@ -0,0 +1,108 @@
+package com.myapp.identityservice.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Closure-table row of the group hierarchy: {@code descendant} sits {@code depth} levels
+ * below {@code ancestor}. Every group has a row with itself at depth 0.
+ * Rows are written only through {@link com.myapp.identityservice.repository.GroupClosureRepository}.
+ */
+@Entity
+@Table(name = "group_closure", indexes = {
+    @Index(name = "idx_group_closure_descendant", columnList = "descendant_id, depth")
+})
+@IdClass(GroupClosure.Key.class)
+public class GroupClosure {
+
+    @Id
+    @Column(name = "ancestor_id", length = 30)
+    private String ancestorId;
+
+    @Id
+    @Column(name = "descendant_id", length = 30)
+    private String descendantId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ancestor_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "fk_group_closure_ancestor"))
+    private UserGroup ancestor;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "descendant_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "fk_group_closure_descendant"))
+    private UserGroup descendant;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    public GroupClosure() {
+    }
+
+    // Getters and Setters
+    public String getAncestorId() {
+        return ancestorId;
+    }
+
+    public void setAncestorId(String ancestorId) {
+        this.ancestorId = ancestorId;
+    }
+
+    public String getDescendantId() {
+        return descendantId;
+    }
+
+    public void setDescendantId(String descendantId) {
+        this.descendantId = descendantId;
+    }
+
+    public UserGroup getAncestor() {
+        return ancestor;
+    }
+
+    public void setAncestor(UserGroup ancestor) {
+        this.ancestor = ancestor;
+    }
+
+    public UserGroup getDescendant() {
+        return descendant;
+    }
+
+    public void setDescendant(UserGroup descendant) {
+        this.descendant = descendant;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public static class Key implements Serializable {
+        private String ancestorId;
+        private String descendantId;
+
+        public Key() {
+        }
+
+        public Key(String ancestorId, String descendantId) {
+            this.ancestorId = ancestorId;
+            this.descendantId = descendantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(ancestorId, key.ancestorId) && Objects.equals(descendantId, key.descendantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ancestorId, descendantId);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.myapp.identityservice.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Current-state membership row. One row exists per (group, user) whose latest
+ * {@link UserGroupMembership} action is ADDED. The audit log stays the source of truth;
+ * this table is maintained alongside it and can be rebuilt from it.
+ */
+@Entity
+@Table(name = "group_members", indexes = {
+    @Index(name = "idx_group_members_user_added", columnList = "user_id, added_at DESC, group_id DESC")
+})
+@IdClass(GroupMember.Key.class)
+public class GroupMember {
+
+    @Id
+    @Column(name = "group_id", length = 30)
+    private String groupId;
+
+    @Id
+    @Column(name = "user_id", length = 30)
+    private String userId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "fk_group_members_group"))
+    private UserGroup group;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "fk_group_members_user"))
+    private User user;
+
+    @Column(name = "membership_id", length = 30, nullable = false)
+    private String membershipId;
+
+    @Column(name = "added_by", length = 30, nullable = false)
+    private String addedBy;
+
+    @Column(name = "added_at", nullable = false)
+    private Instant addedAt;
+
+    public GroupMember() {
+    }
+
+    // Getters and Setters
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public UserGroup getGroup() {
+        return group;
+    }
+
+    public void setGroup(UserGroup group) {
+        this.group = group;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public String getMembershipId() {
+        return membershipId;
+    }
+
+    public void setMembershipId(String membershipId) {
+        this.membershipId = membershipId;
+    }
+
+    public String getAddedBy() {
+        return addedBy;
+    }
+
+    public void setAddedBy(String addedBy) {
+        this.addedBy = addedBy;
+    }
+
+    public Instant getAddedAt() {
+        return addedAt;
+    }
+
+    public void setAddedAt(Instant addedAt) {
+        this.addedAt = addedAt;
+    }
+
+    public static class Key implements Serializable {
+        private String groupId;
+        private String userId;
+
+        public Key() {
+        }
+
+        public Key(String groupId, String userId) {
+            this.groupId = groupId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(groupId, key.groupId) && Objects.equals(userId, key.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupId, userId);
+        }
+    }
+}
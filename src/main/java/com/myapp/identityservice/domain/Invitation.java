@@ -17,7 +17,7 @@ import java.time.temporal.ChronoUnit;
     @Index(name = "idx_invitation_identifier_status", columnList = "identifier, status"),
     @Index(name = "idx_invitation_expires_at", columnList = "expires_at")
 })
-public class Invitation {
+public class Invitation extends PreassignedIdEntity {
 
     private static final int DEFAULT_EXPIRY_DAYS = 30;
 
@@ -85,10 +85,17 @@ public class Invitation {
         Instant now = Instant.now();
         this.createdAt = now;
         if (this.expiresAt == null) {
-            this.expiresAt = now.plus(DEFAULT_EXPIRY_DAYS, ChronoUnit.DAYS);
+            this.expiresAt = defaultExpiry(now);
         }
     }
 
+    /**
+     * Expiry applied to new invitations. Exposed for writers that bypass JPA lifecycle callbacks.
+     */
+    public static Instant defaultExpiry(Instant createdAt) {
+        return createdAt.plus(DEFAULT_EXPIRY_DAYS, ChronoUnit.DAYS);
+    }
+
     /**
      * Check if this invitation has expired.
      */
@@ -4,11 +4,13 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "outbound_events")
-public class OutboundEvent {
+@Table(name = "outbound_events", indexes = {
+    @Index(name = "idx_outbound_events_ordering", columnList = "ordering_key, created_at")
+})
+public class OutboundEvent extends PreassignedIdEntity {
 
     public enum EventStatus {
-        PENDING, DELIVERED, FAILED, PERMANENTLY_FAILED
+        PENDING, IN_FLIGHT, DELIVERED, FAILED, PERMANENTLY_FAILED
     }
 
     @Id
@@ -24,6 +26,10 @@ public class OutboundEvent {
     @Column(columnDefinition = "jsonb", nullable = false)
     private String payload;
 
+    // Events with the same key are delivered in creation order; null if unordered
+    @Column(name = "ordering_key", length = 50)
+    private String orderingKey;
+
     @Enumerated(EnumType.STRING)
     @Column(length = 25, nullable = false)
     private EventStatus status = EventStatus.PENDING;
@@ -40,6 +46,10 @@ public class OutboundEvent {
     @Column(name = "last_error", columnDefinition = "TEXT")
     private String lastError;
 
+    // Claim of the delivery worker while IN_FLIGHT; next_retry_at is then the lease expiry
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -74,9 +84,7 @@ public class OutboundEvent {
             this.status = EventStatus.PERMANENTLY_FAILED;
         } else {
             this.status = EventStatus.FAILED;
-            // Exponential backoff: 30s * 2^retryCount, capped at 1 hour
-            long delaySeconds = Math.min(30L * (1L << this.retryCount), 3600L);
-            this.nextRetryAt = Instant.now().plusSeconds(delaySeconds);
+            this.nextRetryAt = Instant.now().plusSeconds(retryDelaySeconds(this.retryCount));
         }
     }
 
@@ -85,6 +93,15 @@ public class OutboundEvent {
         this.retryCount = 0;
         this.nextRetryAt = Instant.now();
         this.lastError = null;
+        this.claimedBy = null;
+    }
+
+    /**
+     * Exponential backoff before the next attempt after {@code retryCount} failures:
+     * 30s * 2^retryCount, capped at 1 hour.
+     */
+    public static long retryDelaySeconds(int retryCount) {
+        return Math.min(30L * (1L << Math.min(retryCount, 20)), 3600L);
     }
 
     // Getters and Setters
@@ -101,6 +118,9 @@ public class OutboundEvent {
     public String getPayload() { return payload; }
     public void setPayload(String payload) { this.payload = payload; }
 
+    public String getOrderingKey() { return orderingKey; }
+    public void setOrderingKey(String orderingKey) { this.orderingKey = orderingKey; }
+
     public EventStatus getStatus() { return status; }
     public void setStatus(EventStatus status) { this.status = status; }
 
@@ -112,6 +132,7 @@ public class OutboundEvent {
     public void setNextRetryAt(Instant nextRetryAt) { this.nextRetryAt = nextRetryAt; }
 
     public String getLastError() { return lastError; }
+    public String getClaimedBy() { return claimedBy; }
     public Instant getCreatedAt() { return createdAt; }
     public Instant getUpdatedAt() { return updatedAt; }
 }
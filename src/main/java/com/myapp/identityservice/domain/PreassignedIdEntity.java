@@ -0,0 +1,35 @@
+package com.myapp.identityservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Base class for entities whose id is assigned before save (CuidGenerator or auth-service ids).
+ *
+ * Spring Data decides between persist and merge by asking whether an entity is new. With a
+ * pre-assigned id the default check sees a non-null id and merges, which costs a SELECT before
+ * every INSERT. This class tracks new-ness explicitly instead: an instance is new until it has
+ * been persisted or loaded.
+ */
+@MappedSuperclass
+public abstract class PreassignedIdEntity implements Persistable<String> {
+
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PrePersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.myapp.identityservice.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One consume recorded in the append-only usage ledger. The table is partitioned by
+ * (year, month) and is never updated; rows are written only through
+ * {@link com.myapp.identityservice.repository.UsageLedgerRepository}.
+ */
+@Entity
+@Table(name = "usage_events", indexes = {
+    @Index(name = "idx_usage_events_user", columnList = "user_id, year, month, id"),
+    @Index(name = "idx_usage_events_source", columnList = "year, month, source_id", unique = true)
+})
+public class UsageEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id", length = 30, nullable = false)
+    private String userId;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    @Column(name = "month", nullable = false)
+    private int month;
+
+    @Column(name = "amount", nullable = false)
+    private int amount;
+
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    // Redis stream entry the event was copied from; null in the Postgres consume mode
+    @Column(name = "source_id", length = 40)
+    private String sourceId;
+
+    @Column(name = "created_at", nullable = false, updatable = false,
+            columnDefinition = "TIMESTAMP WITH TIME ZONE DEFAULT NOW() NOT NULL")
+    private Instant createdAt;
+
+    public UsageEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,99 @@
+package com.myapp.identityservice.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Quota held for a long-running task in the Postgres consume mode, counted as utilised until
+ * it is committed, released or {@code expiresAt} passes.
+ */
+@Entity
+@Table(name = "usage_reservations", indexes = {
+    @Index(name = "idx_usage_reservations_user", columnList = "user_id, year, month, expires_at"),
+    @Index(name = "idx_usage_reservations_expires", columnList = "expires_at")
+})
+public class UsageReservation extends PreassignedIdEntity {
+
+    @Id
+    @Column(name = "id", length = 30)
+    private String id;
+
+    @Column(name = "user_id", length = 30, nullable = false)
+    private String userId;
+
+    @Column(name = "year", nullable = false)
+    private int year;
+
+    @Column(name = "month", nullable = false)
+    private int month;
+
+    @Column(name = "amount", nullable = false)
+    private int amount;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public UsageReservation() {
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public void setMonth(int month) {
+        this.month = month;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -16,7 +16,7 @@ import java.util.List;
     @Index(name = "idx_identity_key", columnList = "identity_key"),
     @Index(name = "idx_identity_type", columnList = "identity_type")
 })
-public class User {
+public class User extends PreassignedIdEntity {
 
     @Id
     @Column(name = "id", length = 30)
@@ -12,7 +12,7 @@ import java.util.List;
     @Index(name = "idx_group_name", columnList = "name"),
     @Index(name = "idx_group_created_by", columnList = "created_by")
 })
-public class UserGroup {
+public class UserGroup extends PreassignedIdEntity {
 
     @Id
     @Column(name = "id", length = 30)
@@ -40,6 +40,15 @@ public class UserGroup {
     @Column(name = "created_by", length = 30)
     private String createdBy;
 
+    // Maintained in SQL by UserGroupRepository.refreshMemberFingerprint — never written through JPA
+    @Column(name = "member_count", insertable = false, updatable = false,
+            columnDefinition = "INT DEFAULT 0 NOT NULL")
+    private int memberCount;
+
+    @Column(name = "member_set_hash", insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long memberSetHash;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -125,6 +134,14 @@ public class UserGroup {
         this.createdBy = createdBy;
     }
 
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public long getMemberSetHash() {
+        return memberSetHash;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -6,11 +6,11 @@ import java.time.Instant;
 @Entity
 @Table(name = "user_group_memberships", indexes = {
     @Index(name = "idx_membership_user_id", columnList = "user_id"),
-    @Index(name = "idx_membership_group_id", columnList = "group_id"),
+    @Index(name = "idx_membership_group_created", columnList = "group_id, created_at DESC, id DESC"),
     @Index(name = "idx_membership_user_group", columnList = "user_id, group_id"),
     @Index(name = "idx_membership_created_at", columnList = "created_at")
 })
-public class UserGroupMembership {
+public class UserGroupMembership extends PreassignedIdEntity {
 
     @Id
     @Column(name = "id", length = 30)
@@ -14,7 +14,7 @@ import java.time.Instant;
         @Index(name = "idx_usage_user_year_month", columnList = "user_id, year, month")
     }
 )
-public class UserMonthlyUsage {
+public class UserMonthlyUsage extends PreassignedIdEntity {
 
     @Id
     @Column(name = "id", length = 30)
@@ -39,6 +39,11 @@ public class UserMonthlyUsage {
     @Column(name = "utilised", nullable = false)
     private int utilised = 0;
 
+    // Last usage_events id folded into utilised; written only by UsageLedgerAggregator
+    @Column(name = "ledger_position", insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long ledgerPosition;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -113,6 +118,10 @@ public class UserMonthlyUsage {
         this.utilised = utilised;
     }
 
+    public long getLedgerPosition() {
+        return ledgerPosition;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
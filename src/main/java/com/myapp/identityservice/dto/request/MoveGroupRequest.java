@@ -0,0 +1,20 @@
+package com.myapp.identityservice.dto.request;
+
+/**
+ * Move a group (with its whole subtree) under a new parent. A null parent makes it a root group.
+ */
+public class MoveGroupRequest {
+
+    private String parentGroupId;
+
+    public MoveGroupRequest() {
+    }
+
+    public String getParentGroupId() {
+        return parentGroupId;
+    }
+
+    public void setParentGroupId(String parentGroupId) {
+        this.parentGroupId = parentGroupId;
+    }
+}
@@ -0,0 +1,66 @@
+package com.myapp.identityservice.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request DTO for pre-flight usage checks for many users in one call.
+ */
+public class UsageBatchCheckRequest {
+
+    @NotEmpty(message = "Items list cannot be empty")
+    @Size(max = 1000, message = "At most 1000 items per batch")
+    @Valid
+    private List<Item> items;
+
+    public UsageBatchCheckRequest() {
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public static class Item {
+
+        @NotBlank(message = "User ID is required")
+        private String userId;
+
+        @NotNull(message = "Amount is required")
+        @Min(value = 1, message = "Amount must be greater than 0")
+        private Integer amount;
+
+        public Item() {
+        }
+
+        public Item(String userId, Integer amount) {
+            this.userId = userId;
+            this.amount = amount;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public Integer getAmount() {
+            return amount;
+        }
+
+        public void setAmount(Integer amount) {
+            this.amount = amount;
+        }
+    }
+}
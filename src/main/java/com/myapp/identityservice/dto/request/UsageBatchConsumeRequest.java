@@ -0,0 +1,78 @@
+package com.myapp.identityservice.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request DTO for consuming usage for many users in one call, e.g. when a job settles.
+ * Items are applied in order against the current month.
+ */
+public class UsageBatchConsumeRequest {
+
+    @NotEmpty(message = "Items list cannot be empty")
+    @Size(max = 1000, message = "At most 1000 items per batch")
+    @Valid
+    private List<Item> items;
+
+    public UsageBatchConsumeRequest() {
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public static class Item {
+
+        @NotBlank(message = "User ID is required")
+        private String userId;
+
+        @NotNull(message = "Amount is required")
+        @Min(value = 1, message = "Amount must be greater than 0")
+        private Integer amount;
+
+        private String idempotencyKey;
+
+        public Item() {
+        }
+
+        public Item(String userId, Integer amount, String idempotencyKey) {
+            this.userId = userId;
+            this.amount = amount;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public Integer getAmount() {
+            return amount;
+        }
+
+        public void setAmount(Integer amount) {
+            this.amount = amount;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public void setIdempotencyKey(String idempotencyKey) {
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.myapp.identityservice.dto.request;
+
+import jakarta.validation.constraints.Min;
+
+public class UsageCommitRequest {
+
+    // Defaults to the full reserved amount
+    @Min(value = 0, message = "Amount must not be negative")
+    private Integer amount;
+
+    public UsageCommitRequest() {
+    }
+
+    public Integer getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,33 @@
+package com.myapp.identityservice.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public class UsageReserveRequest {
+
+    @NotNull(message = "Amount is required")
+    @Min(value = 1, message = "Amount must be greater than 0")
+    private Integer amount;
+
+    @Min(value = 1, message = "TTL must be greater than 0")
+    private Integer ttlSeconds;
+
+    public UsageReserveRequest() {
+    }
+
+    public Integer getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+
+    public Integer getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(Integer ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
@@ -10,6 +10,7 @@ public class ApiResponse<T> {
     private T data;
     private String error;
     private PaginationInfo pagination;
+    private CursorInfo cursor;
 
     public ApiResponse() {
     }
@@ -37,6 +38,14 @@ public class ApiResponse<T> {
         return response;
     }
 
+    public static <T> ApiResponse<T> success(T data, CursorInfo cursor) {
+        ApiResponse<T> response = new ApiResponse<>();
+        response.success = true;
+        response.data = data;
+        response.cursor = cursor;
+        return response;
+    }
+
     public static <T> ApiResponse<T> error(String error) {
         ApiResponse<T> response = new ApiResponse<>();
         response.success = false;
@@ -91,4 +100,12 @@ public class ApiResponse<T> {
     public void setPagination(PaginationInfo pagination) {
         this.pagination = pagination;
     }
+
+    public CursorInfo getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(CursorInfo cursor) {
+        this.cursor = cursor;
+    }
 }
@@ -0,0 +1,47 @@
+package com.myapp.identityservice.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Keyset pagination metadata. Pass {@code nextCursor} back as {@code cursor} to fetch the next page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorInfo {
+
+    private int limit;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public CursorInfo() {
+    }
+
+    public CursorInfo(int limit, String nextCursor) {
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,19 @@
+package com.myapp.identityservice.dto.response;
+
+import com.myapp.identityservice.domain.UserStatus;
+
+import java.time.Instant;
+
+/**
+ * One NDJSON line of a group member export. Built directly by the export query,
+ * so rows are never managed entities.
+ */
+public record GroupMemberExportRow(
+        String userId,
+        String name,
+        String email,
+        String phone,
+        UserStatus status,
+        String addedBy,
+        Instant addedAt) {
+}
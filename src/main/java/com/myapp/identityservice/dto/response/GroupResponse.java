@@ -20,8 +20,10 @@ public class GroupResponse {
     private Instant createdAt;
     private Instant updatedAt;
     private List<MembershipResponse> memberships;
+    private CursorInfo membershipsCursor;
     private List<UserResponse> currentMembers;
     private CountInfo _count;
+    private Integer depth;
 
     public GroupResponse() {
     }
@@ -53,6 +55,18 @@ public class GroupResponse {
         return response;
     }
 
+    public static GroupResponse fromEntityWithDepth(UserGroup group, int depth) {
+        GroupResponse response = fromEntity(group);
+        response.depth = depth;
+        return response;
+    }
+
+    public static GroupResponse fromEntityWithChildCounts(UserGroup group, int childCount, int activeChildCount) {
+        GroupResponse response = fromEntityWithParent(group);
+        response._count = new CountInfo(childCount, activeChildCount);
+        return response;
+    }
+
     public String getId() {
         return id;
     }
@@ -141,6 +155,14 @@ public class GroupResponse {
         this.memberships = memberships;
     }
 
+    public CursorInfo getMembershipsCursor() {
+        return membershipsCursor;
+    }
+
+    public void setMembershipsCursor(CursorInfo membershipsCursor) {
+        this.membershipsCursor = membershipsCursor;
+    }
+
     public List<UserResponse> getCurrentMembers() {
         return currentMembers;
     }
@@ -157,8 +179,18 @@ public class GroupResponse {
         this._count = _count;
     }
 
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class CountInfo {
         private int childGroups;
+        private Integer activeChildGroups;
 
         public CountInfo() {
         }
@@ -167,6 +199,11 @@ public class GroupResponse {
             this.childGroups = childGroups;
         }
 
+        public CountInfo(int childGroups, int activeChildGroups) {
+            this.childGroups = childGroups;
+            this.activeChildGroups = activeChildGroups;
+        }
+
         public int getChildGroups() {
             return childGroups;
         }
@@ -174,5 +211,13 @@ public class GroupResponse {
         public void setChildGroups(int childGroups) {
             this.childGroups = childGroups;
         }
+
+        public Integer getActiveChildGroups() {
+            return activeChildGroups;
+        }
+
+        public void setActiveChildGroups(Integer activeChildGroups) {
+            this.activeChildGroups = activeChildGroups;
+        }
     }
 }
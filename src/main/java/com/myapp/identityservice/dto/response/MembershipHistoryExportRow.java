@@ -0,0 +1,18 @@
+package com.myapp.identityservice.dto.response;
+
+import com.myapp.identityservice.domain.GroupMembershipAction;
+
+import java.time.Instant;
+
+/**
+ * One NDJSON line of a membership history export. Built directly by the export query,
+ * so rows are never managed entities.
+ */
+public record MembershipHistoryExportRow(
+        String id,
+        String userId,
+        String userName,
+        GroupMembershipAction action,
+        String performedBy,
+        Instant createdAt) {
+}
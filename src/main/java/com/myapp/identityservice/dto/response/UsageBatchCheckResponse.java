@@ -0,0 +1,118 @@
+package com.myapp.identityservice.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Response DTO for a batch usage check. Results are in request order, one per item.
+ */
+public class UsageBatchCheckResponse {
+
+    private List<ItemResult> results;
+
+    public UsageBatchCheckResponse() {
+    }
+
+    public UsageBatchCheckResponse(List<ItemResult> results) {
+        this.results = results;
+    }
+
+    public List<ItemResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<ItemResult> results) {
+        this.results = results;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private String userId;
+        private boolean found;
+        private Boolean allowed;
+        private Integer monthlyLimit;
+        private Integer utilised;
+        private Integer remaining;
+        private Boolean isUnlimited;
+
+        public ItemResult() {
+        }
+
+        public static ItemResult from(String userId, int monthlyLimit, int utilised, int requestedAmount) {
+            UsageCheckResponse check = UsageCheckResponse.from(monthlyLimit, utilised, requestedAmount);
+            ItemResult result = new ItemResult();
+            result.userId = userId;
+            result.found = true;
+            result.allowed = check.isAllowed();
+            result.monthlyLimit = check.getMonthlyLimit();
+            result.utilised = check.getUtilised();
+            result.remaining = check.getRemaining();
+            result.isUnlimited = check.isUnlimited();
+            return result;
+        }
+
+        public static ItemResult notFound(String userId) {
+            ItemResult result = new ItemResult();
+            result.userId = userId;
+            result.found = false;
+            return result;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        public void setFound(boolean found) {
+            this.found = found;
+        }
+
+        public Boolean getAllowed() {
+            return allowed;
+        }
+
+        public void setAllowed(Boolean allowed) {
+            this.allowed = allowed;
+        }
+
+        public Integer getMonthlyLimit() {
+            return monthlyLimit;
+        }
+
+        public void setMonthlyLimit(Integer monthlyLimit) {
+            this.monthlyLimit = monthlyLimit;
+        }
+
+        public Integer getUtilised() {
+            return utilised;
+        }
+
+        public void setUtilised(Integer utilised) {
+            this.utilised = utilised;
+        }
+
+        public Integer getRemaining() {
+            return remaining;
+        }
+
+        public void setRemaining(Integer remaining) {
+            this.remaining = remaining;
+        }
+
+        public Boolean getIsUnlimited() {
+            return isUnlimited;
+        }
+
+        public void setIsUnlimited(Boolean isUnlimited) {
+            this.isUnlimited = isUnlimited;
+        }
+    }
+}
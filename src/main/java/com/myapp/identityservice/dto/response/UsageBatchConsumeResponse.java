@@ -0,0 +1,138 @@
+package com.myapp.identityservice.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Response DTO for a batch consume. Results are in request order, one per item.
+ */
+public class UsageBatchConsumeResponse {
+
+    private List<ItemResult> results;
+
+    public UsageBatchConsumeResponse() {
+    }
+
+    public UsageBatchConsumeResponse(List<ItemResult> results) {
+        this.results = results;
+    }
+
+    public List<ItemResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<ItemResult> results) {
+        this.results = results;
+    }
+
+    public enum Status {
+        CONSUMED,
+        LIMIT_EXCEEDED,
+        // The idempotency key was already used; the usage values are those recorded for it
+        DUPLICATE,
+        NOT_FOUND
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private String userId;
+        private String idempotencyKey;
+        private Status status;
+        private Integer monthlyLimit;
+        private Integer utilised;
+        private Integer remaining;
+        private Boolean isUnlimited;
+
+        public ItemResult() {
+        }
+
+        public static ItemResult consumed(String userId, String idempotencyKey, int monthlyLimit, int utilised) {
+            return of(userId, idempotencyKey, Status.CONSUMED, UsageConsumeResponse.from(monthlyLimit, utilised));
+        }
+
+        public static ItemResult limitExceeded(String userId, String idempotencyKey, int monthlyLimit, int utilised) {
+            return of(userId, idempotencyKey, Status.LIMIT_EXCEEDED, UsageConsumeResponse.from(monthlyLimit, utilised));
+        }
+
+        public static ItemResult duplicate(String userId, String idempotencyKey, UsageConsumeResponse recorded) {
+            return of(userId, idempotencyKey, Status.DUPLICATE, recorded);
+        }
+
+        public static ItemResult notFound(String userId, String idempotencyKey) {
+            ItemResult result = new ItemResult();
+            result.userId = userId;
+            result.idempotencyKey = idempotencyKey;
+            result.status = Status.NOT_FOUND;
+            return result;
+        }
+
+        private static ItemResult of(String userId, String idempotencyKey, Status status, UsageConsumeResponse usage) {
+            ItemResult result = new ItemResult();
+            result.userId = userId;
+            result.idempotencyKey = idempotencyKey;
+            result.status = status;
+            result.monthlyLimit = usage.getMonthlyLimit();
+            result.utilised = usage.getUtilised();
+            result.remaining = usage.getRemaining();
+            result.isUnlimited = usage.isUnlimited();
+            return result;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public void setIdempotencyKey(String idempotencyKey) {
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public Integer getMonthlyLimit() {
+            return monthlyLimit;
+        }
+
+        public void setMonthlyLimit(Integer monthlyLimit) {
+            this.monthlyLimit = monthlyLimit;
+        }
+
+        public Integer getUtilised() {
+            return utilised;
+        }
+
+        public void setUtilised(Integer utilised) {
+            this.utilised = utilised;
+        }
+
+        public Integer getRemaining() {
+            return remaining;
+        }
+
+        public void setRemaining(Integer remaining) {
+            this.remaining = remaining;
+        }
+
+        public Boolean getIsUnlimited() {
+            return isUnlimited;
+        }
+
+        public void setIsUnlimited(Boolean isUnlimited) {
+            this.isUnlimited = isUnlimited;
+        }
+    }
+}
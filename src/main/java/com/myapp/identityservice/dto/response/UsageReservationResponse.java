@@ -0,0 +1,92 @@
+package com.myapp.identityservice.dto.response;
+
+import java.time.Instant;
+
+public class UsageReservationResponse {
+
+    private String reservationId;
+    private int amount;
+    private Instant expiresAt;
+    private int monthlyLimit;
+    private int utilised;
+    private int remaining;
+    private boolean isUnlimited;
+
+    public UsageReservationResponse() {
+    }
+
+    /**
+     * @param utilised utilised count including outstanding reservations, this one among them
+     */
+    public static UsageReservationResponse from(String reservationId, int amount, Instant expiresAt,
+                                                int monthlyLimit, int utilised) {
+        UsageReservationResponse response = new UsageReservationResponse();
+        boolean isUnlimited = monthlyLimit < 0;
+
+        response.reservationId = reservationId;
+        response.amount = amount;
+        response.expiresAt = expiresAt;
+        response.monthlyLimit = monthlyLimit;
+        response.utilised = utilised;
+        response.remaining = isUnlimited ? -1 : Math.max(0, monthlyLimit - utilised);
+        response.isUnlimited = isUnlimited;
+
+        return response;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public int getMonthlyLimit() {
+        return monthlyLimit;
+    }
+
+    public void setMonthlyLimit(int monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+
+    public int getUtilised() {
+        return utilised;
+    }
+
+    public void setUtilised(int utilised) {
+        this.utilised = utilised;
+    }
+
+    public int getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(int remaining) {
+        this.remaining = remaining;
+    }
+
+    public boolean isUnlimited() {
+        return isUnlimited;
+    }
+
+    public void setUnlimited(boolean unlimited) {
+        isUnlimited = unlimited;
+    }
+}
@@ -2,7 +2,8 @@ package com.myapp.identityservice.event;
 
 /**
  * Abstraction for publishing domain events to wow-service.
- * Implementations: KafkaEventPublisher (preferred) and OutboxEventPublisher (HTTP fallback).
+ * Implemented by OutboxEventPublisher; the outbox is relayed over HTTP or to Kafka
+ * depending on {@code app.events.transport}.
  *
  * <h3>Event ID Contract</h3>
  * Every event carries a deterministic {@code eventId} derived from business state,
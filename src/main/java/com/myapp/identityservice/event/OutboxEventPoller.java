@@ -1,25 +1,46 @@
 package com.myapp.identityservice.event;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.myapp.identityservice.client.WowServiceClient;
-import com.myapp.identityservice.domain.OutboundEvent;
-import com.myapp.identityservice.domain.OutboundEvent.EventStatus;
-import com.myapp.identityservice.repository.OutboundEventRepository;
+import com.myapp.identityservice.client.WowServiceClient.BatchAck;
+import com.myapp.identityservice.client.WowServiceClient.BatchEvent;
+import com.myapp.identityservice.repository.OutboxClaimRepository;
+import com.myapp.identityservice.repository.OutboxClaimRepository.ClaimedEvent;
+import com.myapp.identityservice.repository.OutboxClaimRepository.Failure;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Polls outbound_events table and delivers events to downstream services via HTTP.
@@ -27,6 +48,34 @@ import java.util.Map;
  * and includes a simple circuit breaker to prevent retry exhaustion during
  * downstream outages.
  *
+ * <h3>Claiming</h3>
+ * Every instance runs this poller. Each batch is claimed through
+ * {@link OutboxClaimRepository#claim} (FOR UPDATE SKIP LOCKED, marked IN_FLIGHT with a
+ * lease), so instances deliver disjoint batches. The claim commits before delivery, no
+ * connection is held during HTTP calls, and the batch's results are written back in one
+ * short transaction. An instance that dies mid-batch leaves its events IN_FLIGHT until the
+ * lease runs out; they are then claimed again and redelivered (consumers dedup by eventId).
+ * An event is only claimed once the older events of its ordering key are settled, so per-key
+ * order holds across batches and instances, not just within a batch.
+ *
+ * <h3>Partitioned workers</h3>
+ * A claimed batch is split into {@code workers} partitions by the event's ordering key
+ * (see {@link #orderingKey(String, Map)}). Each partition is delivered in order on its own
+ * virtual thread, so events of one key keep their order while unrelated keys are delivered
+ * in parallel; {@code max-in-flight} caps the HTTP calls open at once. Delivery lag and
+ * queued events are reported per partition.
+ *
+ * <h3>Batch delivery</h3>
+ * With {@code batch-delivery.enabled}, each partition sends its events to wow-service's batch
+ * endpoint, up to {@code max-events} events or about {@code max-bytes} of payload per request,
+ * and settles every event by the acknowledgement returned for its eventId. Events without an
+ * acknowledgement are retried.
+ *
+ * <h3>Wake-ups</h3>
+ * New events are usually delivered right after they commit: {@link OutboxNotificationListener}
+ * calls {@link #wakeUp()} when Postgres notifies it. The scheduled poll is the safety net for
+ * missed notifications and for retries, which become due later.
+ *
  * <h3>Circuit Breaker</h3>
  * <ul>
  *   <li>CLOSED (normal): delivers events. Tracks consecutive delivery failures.</li>
@@ -43,47 +92,121 @@ import java.util.Map;
  */
 @Component
 @ConditionalOnProperty(name = "app.events.transport", havingValue = "http", matchIfMissing = true)
-public class OutboxEventPoller {
+public class OutboxEventPoller implements OutboxRelay {
 
     private static final Logger logger = LoggerFactory.getLogger(OutboxEventPoller.class);
     private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<>() {};
+    // Types wow-service consumes; the rest are settled locally by deliverEvent
+    private static final Set<String> BATCHED_EVENT_TYPES =
+            Set.of("INVITATION_ACCEPTED", "USER_NAME_UPDATED", "USER_ID_MIGRATED");
 
-    private final OutboundEventRepository outboundEventRepository;
+    private final OutboxClaimRepository claimRepository;
     private final WowServiceClient wowServiceClient;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
     private final Counter permanentlyFailedCounter;
     private final Counter circuitOpenCounter;
+    private final Counter lostClaimsCounter;
+    private final int workers;
+    private final Semaphore inFlightPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicIntegerArray backlog;
+    private final List<Timer> lagTimers;
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+    private final ExecutorService wakeupExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("outbox-wakeup").factory());
+    private final AtomicBoolean wakeupQueued = new AtomicBoolean();
 
-    @Value("${app.outbox.batch-size:50}")
-    private int batchSize;
-
-    @Value("${app.outbox.circuit-breaker.failure-threshold:5}")
-    private int failureThreshold;
-
-    @Value("${app.outbox.circuit-breaker.cooldown-seconds:60}")
-    private long cooldownSeconds;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final int failureThreshold;
+    private final long cooldownSeconds;
+    private final boolean batchDelivery;
+    private final int batchMaxEvents;
+    private final int batchMaxBytes;
+    private final DistributionSummary batchSizeSummary;
 
-    // Circuit breaker state — accessed only from the single @Scheduled thread
+    // Circuit breaker state — guarded by this poller's monitor
     private int consecutiveFailures = 0;
     private Instant circuitOpenUntil = Instant.EPOCH;
 
-    public OutboxEventPoller(OutboundEventRepository outboundEventRepository,
+    public OutboxEventPoller(OutboxClaimRepository claimRepository,
                               WowServiceClient wowServiceClient,
                               ObjectMapper objectMapper,
-                              MeterRegistry meterRegistry) {
-        this.outboundEventRepository = outboundEventRepository;
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.outbox.batch-size:50}") int batchSize,
+                              @Value("${app.outbox.lease-seconds:120}") long leaseSeconds,
+                              @Value("${app.outbox.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                              @Value("${app.outbox.circuit-breaker.cooldown-seconds:60}") long cooldownSeconds,
+                              @Value("${app.outbox.workers:8}") int workers,
+                              @Value("${app.outbox.max-in-flight:8}") int maxInFlight,
+                              @Value("${app.outbox.batch-delivery.enabled:false}") boolean batchDelivery,
+                              @Value("${app.outbox.batch-delivery.max-events:100}") int batchMaxEvents,
+                              @Value("${app.outbox.batch-delivery.max-bytes:262144}") int batchMaxBytes) {
+        this.claimRepository = claimRepository;
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        this.failureThreshold = failureThreshold;
+        this.cooldownSeconds = cooldownSeconds;
+        this.batchDelivery = batchDelivery;
+        this.batchMaxEvents = Math.max(1, batchMaxEvents);
+        this.batchMaxBytes = batchMaxBytes;
+        this.batchSizeSummary = DistributionSummary.builder("outbox.delivery.batch.size")
+                .description("Events sent per batch request to wow-service")
+                .register(meterRegistry);
         this.wowServiceClient = wowServiceClient;
         this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.permanentlyFailedCounter = Counter.builder("outbox.events.permanently_failed")
                 .description("Count of events that exhausted all retries")
                 .register(meterRegistry);
         this.circuitOpenCounter = Counter.builder("outbox.circuit_breaker.opened")
                 .description("Count of times the circuit breaker opened")
                 .register(meterRegistry);
+        this.lostClaimsCounter = Counter.builder("outbox.claims.lost")
+                .description("Count of events whose lease ran out before their result was written")
+                .register(meterRegistry);
+        this.workers = Math.max(1, workers);
+        this.inFlightPermits = new Semaphore(Math.max(1, maxInFlight));
+        this.backlog = new AtomicIntegerArray(this.workers);
+        List<Timer> timers = new ArrayList<>(this.workers);
+        for (int i = 0; i < this.workers; i++) {
+            int partition = i;
+            String tag = String.valueOf(i);
+            timers.add(Timer.builder("outbox.delivery.lag")
+                    .description("Time from an event being written to its delivery")
+                    .tag("partition", tag)
+                    .register(meterRegistry));
+            Gauge.builder("outbox.partition.backlog", backlog, b -> b.get(partition))
+                    .description("Claimed events waiting for their partition's worker")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+        }
+        this.lagTimers = List.copyOf(timers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wakeupExecutor.shutdownNow();
+        executor.shutdown();
+    }
+
+    @Override
+    public void wakeUp() {
+        if (wakeupQueued.compareAndSet(false, true)) {
+            wakeupExecutor.execute(() -> {
+                wakeupQueued.set(false);
+                try {
+                    pollAndDeliver();
+                } catch (RuntimeException e) {
+                    logger.error("Outbox: delivery round after wake-up failed: {}", e.getMessage(), e);
+                }
+            });
+        }
     }
 
     @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:5000}")
-    @Transactional
     public void pollAndDeliver() {
         // Circuit breaker: skip if circuit is open
         if (isCircuitOpen()) {
@@ -92,56 +215,318 @@ public class OutboxEventPoller {
             return;
         }
 
-        List<OutboundEvent> events = outboundEventRepository.findEventsToDeliver(
-                Instant.now(), PageRequest.of(0, batchSize));
+        // One round at a time per instance, so a key's events are not split across rounds
+        deliveryLock.lock();
+        try {
+            // Keep going until nothing is due: a batch takes at most one event per key, so
+            // even a partial batch may have unblocked the next events of its keys
+            int claimed;
+            do {
+                claimed = claimAndDeliver();
+            } while (claimed > 0 && !isCircuitOpen());
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * Claim one batch, deliver it without holding a transaction, and write the results back.
+     *
+     * @return the number of events claimed
+     */
+    private int claimAndDeliver() {
+        String claimId = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        List<ClaimedEvent> events = claimRepository.claim(
+                claimId, now, now.plusSeconds(leaseSeconds), batchSize);
 
         if (events.isEmpty()) {
-            return;
+            return 0;
+        }
+
+        logger.debug("Outbox poller: claimed {} events to deliver", events.size());
+
+        // Claimed events are oldest first, so each partition's list keeps per-key order
+        List<List<ClaimedEvent>> partitions = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
         }
+        for (ClaimedEvent event : events) {
+            partitions.get(partition(orderingKey(event))).add(event);
+        }
+
+        List<Future<PartitionResult>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            int partition = i;
+            List<ClaimedEvent> queued = partitions.get(i);
+            if (!queued.isEmpty()) {
+                backlog.addAndGet(partition, queued.size());
+                futures.add(executor.submit(() -> deliverPartition(partition, queued)));
+            }
+        }
+
+        PartitionResult result = new PartitionResult();
+        for (Future<PartitionResult> future : futures) {
+            result.addAll(await(future));
+        }
+        if (!result.unattempted.isEmpty()) {
+            logger.info("Outbox poller: circuit breaker tripped mid-batch, releasing {} events",
+                    result.unattempted.size());
+        }
+
+        writeBack(claimId, result);
+        return events.size();
+    }
+
+    /**
+     * Deliver one partition's events in order. After a retryable failure, later events of the
+     * same key are not attempted; they are deferred to the failed event's retry time, so that
+     * they are claimed again after it rather than overtaking it.
+     *
+     * In batch mode, consecutive events bound for wow-service are sent together, up to the
+     * batch's event and byte limits. A batch is delivered in order, so a key's events within
+     * one batch are all sent even if an earlier one is rejected.
+     */
+    private PartitionResult deliverPartition(int partition, List<ClaimedEvent> events) {
+        PartitionResult result = new PartitionResult();
+        Map<String, Instant> blockedUntil = new HashMap<>();
+        List<ClaimedEvent> chunk = new ArrayList<>();
+        List<BatchEvent> chunkEvents = new ArrayList<>();
+        int chunkBytes = 0;
+        int dequeued = 0;
+        try {
+            for (ClaimedEvent event : events) {
+                backlog.decrementAndGet(partition);
+                dequeued++;
+                // A full batch is sent before this event is looked at, so that its failures block it
+                int size = estimatedSize(event);
+                if (!chunk.isEmpty() && (chunk.size() >= batchMaxEvents || chunkBytes + size > batchMaxBytes)) {
+                    deliverChunk(partition, chunk, chunkEvents, result, blockedUntil);
+                    chunk = new ArrayList<>();
+                    chunkEvents = new ArrayList<>();
+                    chunkBytes = 0;
+                }
 
-        logger.debug("Outbox poller: found {} events to deliver", events.size());
+                String key = orderingKey(event);
+                Instant blocked = blockedUntil.get(key);
+                if (blocked != null) {
+                    result.deferred.computeIfAbsent(blocked, t -> new ArrayList<>()).add(event.id());
+                    continue;
+                }
+                // Re-check circuit after each event — stop immediately if it trips mid-batch
+                if (isCircuitOpen()) {
+                    result.unattempted.add(event.id());
+                    continue;
+                }
 
-        for (OutboundEvent event : events) {
-            // Re-check circuit after each event — stop immediately if it trips mid-batch
-            if (isCircuitOpen()) {
-                logger.info("Outbox poller: circuit breaker tripped mid-batch, stopping delivery");
-                break;
+                BatchEvent batchEvent = batchDelivery ? toBatchEvent(event) : null;
+                if (batchEvent == null) {
+                    deliverOne(partition, event, key, result, blockedUntil);
+                    continue;
+                }
+                chunk.add(event);
+                chunkEvents.add(batchEvent);
+                chunkBytes += size;
             }
+            if (!chunk.isEmpty()) {
+                deliverChunk(partition, chunk, chunkEvents, result, blockedUntil);
+            }
+        } finally {
+            // Leaves the gauge consistent if delivery was cut short
+            backlog.addAndGet(partition, dequeued - events.size());
+        }
+        return result;
+    }
+
+    private void deliverOne(int partition, ClaimedEvent event, String key,
+                            PartitionResult result, Map<String, Instant> blockedUntil) {
+        try {
+            deliverWithPermit(event);
+            recordDelivered(partition, event, result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.unattempted.add(event.id());
+        } catch (Exception e) {
+            onDeliveryFailure();
+            recordFailure(event, key, e.getMessage(), result, blockedUntil);
+        }
+    }
+
+    private void deliverChunk(int partition, List<ClaimedEvent> chunk, List<BatchEvent> chunkEvents,
+                              PartitionResult result, Map<String, Instant> blockedUntil) {
+        if (isCircuitOpen()) {
+            chunk.forEach(event -> result.unattempted.add(event.id()));
+            return;
+        }
 
+        Map<String, BatchAck> acks;
+        try {
+            inFlightPermits.acquire();
             try {
-                deliverEvent(event);
-                event.markDelivered();
-                onDeliverySuccess();
-                logger.info("Outbox: delivered event type={}, eventId={}",
-                        event.getEventType(), event.getEventId());
-            } catch (Exception e) {
-                EventStatus previousStatus = event.getStatus();
-                event.markFailed(e.getMessage());
+                acks = wowServiceClient.deliverBatch(chunkEvents);
+            } finally {
+                inFlightPermits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            chunk.forEach(event -> result.unattempted.add(event.id()));
+            return;
+        } catch (Exception e) {
+            // The request as a whole failed: one failure for the circuit breaker, every event retried
+            onDeliveryFailure();
+            for (ClaimedEvent event : chunk) {
+                recordFailure(event, orderingKey(event), e.getMessage(), result, blockedUntil);
+            }
+            return;
+        }
+
+        batchSizeSummary.record(chunk.size());
+        for (ClaimedEvent event : chunk) {
+            BatchAck ack = acks.get(event.eventId());
+            if (ack != null && ack.accepted()) {
+                recordDelivered(partition, event, result);
+            } else {
                 onDeliveryFailure();
+                recordFailure(event, orderingKey(event),
+                        ack != null ? ack.error() : "Not acknowledged by wow-service", result, blockedUntil);
+            }
+        }
+    }
+
+    private void recordDelivered(int partition, ClaimedEvent event, PartitionResult result) {
+        result.delivered.add(event.id());
+        lagTimers.get(partition).record(Duration.between(event.createdAt(), Instant.now()));
+        onDeliverySuccess();
+        logger.info("Outbox: delivered event type={}, eventId={}",
+                event.eventType(), event.eventId());
+    }
+
+    private void recordFailure(ClaimedEvent event, String key, String error,
+                               PartitionResult result, Map<String, Instant> blockedUntil) {
+        Failure failure = Failure.of(event, error, Instant.now());
+        result.failures.add(failure);
+
+        if (failure.isPermanent()) {
+            permanentlyFailedCounter.increment();
+            logger.error("Outbox: event PERMANENTLY_FAILED — eventId={}, eventType={}, " +
+                            "retryCount={}, lastError={}, payload={}, createdAt={}",
+                    event.eventId(), event.eventType(),
+                    failure.retryCount(), failure.error(),
+                    event.payload(), event.createdAt());
+        } else {
+            blockedUntil.putIfAbsent(key, failure.nextRetryAt());
+            logger.warn("Outbox: delivery failed, will retry — eventId={}, retryCount={}, " +
+                            "nextRetryAt={}, error={}",
+                    event.eventId(), failure.retryCount(),
+                    failure.nextRetryAt(), error);
+        }
+    }
+
+    /**
+     * The event as an item of a batch request, or null if it is not sent to wow-service or its
+     * payload cannot be read (it then goes through single delivery, which records the error).
+     */
+    private BatchEvent toBatchEvent(ClaimedEvent event) {
+        if (!BATCHED_EVENT_TYPES.contains(event.eventType())) {
+            return null;
+        }
+        try {
+            return new BatchEvent(event.eventId(), event.eventType(), readPayload(event));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static int estimatedSize(ClaimedEvent event) {
+        // JSON framing of one batch item is well under this allowance
+        return event.payload().length() + event.eventId().length() + event.eventType().length() + 64;
+    }
+
+    private void deliverWithPermit(ClaimedEvent event) throws Exception {
+        inFlightPermits.acquire();
+        try {
+            deliverEvent(event);
+        } finally {
+            inFlightPermits.release();
+        }
+    }
 
-                if (event.getStatus() == EventStatus.PERMANENTLY_FAILED
-                        && previousStatus != EventStatus.PERMANENTLY_FAILED) {
-                    permanentlyFailedCounter.increment();
-                    logger.error("Outbox: event PERMANENTLY_FAILED — eventId={}, eventType={}, " +
-                                    "retryCount={}, lastError={}, payload={}, createdAt={}",
-                            event.getEventId(), event.getEventType(),
-                            event.getRetryCount(), event.getLastError(),
-                            event.getPayload(), event.getCreatedAt());
-                } else {
-                    logger.warn("Outbox: delivery failed, will retry — eventId={}, retryCount={}, " +
-                                    "nextRetryAt={}, error={}",
-                            event.getEventId(), event.getRetryCount(),
-                            event.getNextRetryAt(), e.getMessage());
+    private PartitionResult await(Future<PartitionResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // The partition's events stay IN_FLIGHT and are delivered again once the lease runs out
+            future.cancel(true);
+            return new PartitionResult();
+        } catch (ExecutionException e) {
+            logger.error("Outbox: partition delivery failed unexpectedly: {}", e.getCause().getMessage(), e.getCause());
+            return new PartitionResult();
+        }
+    }
+
+    private void writeBack(String claimId, PartitionResult result) {
+        int expected = result.size();
+        try {
+            Integer written = transactionTemplate.execute(status -> {
+                int count = claimRepository.markDelivered(claimId, result.delivered)
+                        + claimRepository.markFailed(claimId, result.failures)
+                        + claimRepository.release(claimId, result.unattempted, Instant.now());
+                for (Map.Entry<Instant, List<String>> deferred : result.deferred.entrySet()) {
+                    count += claimRepository.release(claimId, deferred.getValue(), deferred.getKey());
                 }
+                return count;
+            });
+            int lost = expected - (written != null ? written : 0);
+            if (lost > 0) {
+                // The lease ran out and another worker took these events over; it delivers them again
+                lostClaimsCounter.increment(lost);
+                logger.warn("Outbox: {} of {} events were reclaimed before their results were written, " +
+                        "consider raising app.outbox.lease-seconds", lost, expected);
             }
-            outboundEventRepository.save(event);
+        } catch (DataAccessException e) {
+            // The events stay IN_FLIGHT and are delivered again once the lease runs out
+            logger.error("Outbox: failed to record delivery results for {} events, claimId={}: {}",
+                    expected, claimId, e.getMessage());
+        }
+    }
+
+    private int partition(String orderingKey) {
+        return Math.floorMod(orderingKey.hashCode(), workers);
+    }
+
+    /**
+     * The key whose events must be delivered in order, which is also the record key
+     * {@link OutboxKafkaRelay} partitions the event's topic by.
+     */
+    static String orderingKey(String eventType, Map<String, String> payload) {
+        String key = switch (eventType) {
+            case "INVITATION_ACCEPTED" -> payload.get("contextId");
+            case "USER_NAME_UPDATED" -> payload.get("userId");
+            case "PENDING_USER_ACTION" -> payload.get("targetUserId");
+            case "USER_ID_MIGRATED" -> payload.get("oldUserId");
+            default -> null;
+        };
+        return key != null ? key : "";
+    }
+
+    private String orderingKey(ClaimedEvent event) {
+        try {
+            return orderingKey(event.eventType(), readPayload(event));
+        } catch (JsonProcessingException e) {
+            // Delivery fails on the same payload and records the error
+            return "";
         }
     }
 
-    private void deliverEvent(OutboundEvent event) throws Exception {
-        Map<String, String> payload = objectMapper.readValue(event.getPayload(), MAP_TYPE);
+    private Map<String, String> readPayload(ClaimedEvent event) throws JsonProcessingException {
+        return objectMapper.readValue(event.payload(), MAP_TYPE);
+    }
+
+    private void deliverEvent(ClaimedEvent event) throws Exception {
+        Map<String, String> payload = readPayload(event);
 
-        switch (event.getEventType()) {
+        switch (event.eventType()) {
             case "INVITATION_ACCEPTED" -> wowServiceClient.notifyInvitationAccepted(
                     payload.get("invitationId"),
                     payload.get("targetUserId"),
@@ -150,17 +535,17 @@ public class OutboxEventPoller {
                     payload.get("contextRole"),
                     payload.get("displayName"),
                     payload.get("addedBy"),
-                    event.getEventId()
+                    event.eventId()
             );
             case "USER_NAME_UPDATED" -> wowServiceClient.notifyUserNameUpdated(
                     payload.get("userId"),
                     payload.get("newDisplayName"),
-                    event.getEventId()
+                    event.eventId()
             );
             case "USER_ID_MIGRATED" -> wowServiceClient.notifyUserIdMigrated(
                     payload.get("oldUserId"),
                     payload.get("newUserId"),
-                    event.getEventId()
+                    event.eventId()
             );
             case "PENDING_USER_ACTION" -> {
                 // Notification event — no downstream consumer yet.
@@ -170,18 +555,43 @@ public class OutboxEventPoller {
                                 "no notification consumer configured, marking delivered",
                         payload.get("invitationId"), payload.get("targetUserId"));
             }
-            default -> throw new IllegalArgumentException("Unknown event type: " + event.getEventType());
+            default -> throw new IllegalArgumentException("Unknown event type: " + event.eventType());
+        }
+    }
+
+    /**
+     * Outcome of delivering a partition, or of a whole batch once partitions are merged.
+     */
+    private static final class PartitionResult {
+        private final List<String> delivered = new ArrayList<>();
+        private final List<Failure> failures = new ArrayList<>();
+        private final List<String> unattempted = new ArrayList<>();
+        // Events held back behind a failed event of the same key, by the time they are due again
+        private final Map<Instant, List<String>> deferred = new HashMap<>();
+
+        void addAll(PartitionResult other) {
+            delivered.addAll(other.delivered);
+            failures.addAll(other.failures);
+            unattempted.addAll(other.unattempted);
+            other.deferred.forEach((dueAt, ids) ->
+                    deferred.computeIfAbsent(dueAt, t -> new ArrayList<>()).addAll(ids));
+        }
+
+        int size() {
+            return delivered.size() + failures.size() + unattempted.size()
+                    + deferred.values().stream().mapToInt(List::size).sum();
         }
     }
 
     // --- Circuit breaker logic ---
+    // Shared by the partition workers, hence synchronized
 
-    private boolean isCircuitOpen() {
+    private synchronized boolean isCircuitOpen() {
         return consecutiveFailures >= failureThreshold
                 && Instant.now().isBefore(circuitOpenUntil);
     }
 
-    private void onDeliverySuccess() {
+    private synchronized void onDeliverySuccess() {
         if (consecutiveFailures > 0) {
             logger.info("Outbox poller: delivery succeeded, resetting circuit breaker " +
                     "(was at {} consecutive failures)", consecutiveFailures);
@@ -189,7 +599,7 @@ public class OutboxEventPoller {
         consecutiveFailures = 0;
     }
 
-    private void onDeliveryFailure() {
+    private synchronized void onDeliveryFailure() {
         consecutiveFailures++;
         if (consecutiveFailures >= failureThreshold) {
             circuitOpenUntil = Instant.now().plusSeconds(cooldownSeconds);
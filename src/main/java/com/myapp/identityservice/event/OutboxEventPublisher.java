@@ -4,10 +4,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.myapp.identityservice.domain.OutboundEvent;
 import com.myapp.identityservice.repository.OutboundEventRepository;
+import com.myapp.identityservice.repository.OutboxClaimRepository;
 import com.myapp.identityservice.util.CuidGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
@@ -15,24 +15,29 @@ import java.util.Map;
 /**
  * Transactional Outbox publisher — writes events to outbound_events table
  * within the caller's transaction. Events are delivered asynchronously
- * by OutboxEventPoller.
+ * by the {@link OutboxRelay} of the configured transport (HTTP or Kafka),
+ * which is woken by a Postgres notification sent when the transaction commits.
  *
- * This replaces HttpEventPublisher for durable, retryable event delivery.
+ * This is the only EventPublisher: events are never sent from inside the
+ * business transaction, so a rolled-back transaction emits nothing and a
+ * transport failure is retried rather than lost.
  */
 @Component
-@ConditionalOnProperty(name = "app.events.transport", havingValue = "http", matchIfMissing = true)
 public class OutboxEventPublisher implements EventPublisher {
 
     private static final Logger logger = LoggerFactory.getLogger(OutboxEventPublisher.class);
 
     private final OutboundEventRepository outboundEventRepository;
+    private final OutboxClaimRepository claimRepository;
     private final CuidGenerator cuidGenerator;
     private final ObjectMapper objectMapper;
 
     public OutboxEventPublisher(OutboundEventRepository outboundEventRepository,
+                                 OutboxClaimRepository claimRepository,
                                  CuidGenerator cuidGenerator,
                                  ObjectMapper objectMapper) {
         this.outboundEventRepository = outboundEventRepository;
+        this.claimRepository = claimRepository;
         this.cuidGenerator = cuidGenerator;
         this.objectMapper = objectMapper;
     }
@@ -105,7 +110,11 @@ public class OutboxEventPublisher implements EventPublisher {
             event.setEventType(eventType);
             event.setEventId(eventId);
             event.setPayload(objectMapper.writeValueAsString(payload));
+            String orderingKey = OutboxEventPoller.orderingKey(eventType, payload);
+            event.setOrderingKey(orderingKey.isEmpty() ? null : orderingKey);
             outboundEventRepository.save(event);
+            // Sent on commit, so the poller never wakes up for an event it cannot see yet
+            claimRepository.notifyWritten();
 
             logger.debug("Outbox: saved event type={}, eventId={}", eventType, eventId);
         } catch (JsonProcessingException e) {
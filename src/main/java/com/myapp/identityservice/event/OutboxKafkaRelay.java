@@ -0,0 +1,298 @@
+package com.myapp.identityservice.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myapp.identityservice.repository.OutboxClaimRepository;
+import com.myapp.identityservice.repository.OutboxClaimRepository.ClaimedEvent;
+import com.myapp.identityservice.repository.OutboxClaimRepository.Failure;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Relays outbound_events to Kafka when {@code app.events.transport=kafka}.
+ *
+ * Batches are claimed through {@link OutboxClaimRepository#claim} exactly as the HTTP
+ * {@link OutboxEventPoller} does, so instances relay disjoint batches and an instance that dies
+ * mid-batch leaves its events to be claimed again once the lease runs out. Every event of a
+ * batch is handed to the producer at once; the producer groups them into compressed record
+ * batches per partition ({@code linger-ms}) and pipelines several requests per broker, and the
+ * relay then waits for all acknowledgements and writes the batch's results back in one short
+ * transaction.
+ *
+ * Each event goes to its type's topic keyed by {@link OutboxEventPoller#orderingKey}, so a
+ * key's events land on one partition in claim order. The producer is idempotent, so its own
+ * retries neither duplicate nor reorder records; a redelivery after a lost claim or a failed
+ * write-back can duplicate one, and consumers dedup by the {@code eventId} header.
+ *
+ * A record the producer could not deliver within its delivery timeout is retried with the
+ * same backoff as HTTP delivery. As later records of its key may have been acknowledged
+ * meanwhile, a consumer can see them ahead of the retried one; the producer only gives up
+ * after the broker has been unreachable for the whole timeout.
+ */
+@Component
+@ConditionalOnProperty(name = "app.events.transport", havingValue = "kafka")
+public class OutboxKafkaRelay implements OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxKafkaRelay.class);
+    private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<>() {};
+
+    public static final String TOPIC_INVITATION_ACCEPTED = "identity.invitation-accepted";
+    public static final String TOPIC_USER_NAME_UPDATED = "identity.user-name-updated";
+    public static final String TOPIC_PENDING_USER_ACTION = "identity.pending-user-action";
+    public static final String TOPIC_USER_ID_MIGRATED = "identity.user-id-migrated";
+
+    public static final String HEADER_EVENT_ID = "eventId";
+    public static final String HEADER_EVENT_TYPE = "eventType";
+
+    private final OutboxClaimRepository claimRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter permanentlyFailedCounter;
+    private final Counter lostClaimsCounter;
+    private final Timer lagTimer;
+    private final Timer batchTimer;
+    private final ReentrantLock relayLock = new ReentrantLock();
+    private final ExecutorService wakeupExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("outbox-relay-wakeup").factory());
+    private final AtomicBoolean wakeupQueued = new AtomicBoolean();
+
+    public OutboxKafkaRelay(OutboxClaimRepository claimRepository,
+                            KafkaTemplate<String, String> kafkaTemplate,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.outbox.kafka.batch-size:500}") int batchSize,
+                            @Value("${app.outbox.lease-seconds:120}") long leaseSeconds) {
+        this.claimRepository = claimRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        this.sentCounter = Counter.builder("outbox.relay.events")
+                .description("Count of outbound events relayed to Kafka")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.relay.events")
+                .description("Count of outbound events relayed to Kafka")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        this.permanentlyFailedCounter = Counter.builder("outbox.events.permanently_failed")
+                .description("Count of events that exhausted all retries")
+                .register(meterRegistry);
+        this.lostClaimsCounter = Counter.builder("outbox.claims.lost")
+                .description("Count of events whose lease ran out before their result was written")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("outbox.relay.lag")
+                .description("Time from an event being written to its acknowledgement by Kafka")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Time to claim, send and record one batch")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wakeupExecutor.shutdownNow();
+    }
+
+    @Override
+    public void wakeUp() {
+        if (wakeupQueued.compareAndSet(false, true)) {
+            wakeupExecutor.execute(() -> {
+                wakeupQueued.set(false);
+                try {
+                    pollAndRelay();
+                } catch (RuntimeException e) {
+                    logger.error("Outbox relay: round after wake-up failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:5000}")
+    public void pollAndRelay() {
+        // One round at a time per instance, so a key's events are not split across rounds
+        relayLock.lock();
+        try {
+            // Keep going while events are due and Kafka is taking them; a batch takes at most
+            // one event per key, so even a partial batch may have unblocked more
+            BatchOutcome outcome;
+            do {
+                outcome = batchTimer.record(this::claimAndRelay);
+            } while (outcome.claimed() > 0 && outcome.failed() == 0);
+        } finally {
+            relayLock.unlock();
+        }
+    }
+
+    private record BatchOutcome(int claimed, int failed) {
+    }
+
+    /**
+     * Claim one batch, send it, wait for the broker's acknowledgements and write the results back.
+     */
+    private BatchOutcome claimAndRelay() {
+        String claimId = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        List<ClaimedEvent> events = claimRepository.claim(
+                claimId, now, now.plusSeconds(leaseSeconds), batchSize);
+
+        if (events.isEmpty()) {
+            return new BatchOutcome(0, 0);
+        }
+
+        logger.debug("Outbox relay: claimed {} events to send", events.size());
+
+        // All sends are issued before any is awaited, so the producer can batch and pipeline them
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(events.size());
+        for (ClaimedEvent event : events) {
+            sends.add(send(event));
+        }
+
+        List<String> delivered = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            ClaimedEvent event = events.get(i);
+            String error = await(sends.get(i));
+            if (error == null) {
+                delivered.add(event.id());
+            } else {
+                failures.add(recordFailure(event, error));
+            }
+        }
+        sentCounter.increment(delivered.size());
+        failedCounter.increment(failures.size());
+
+        writeBack(claimId, delivered, failures);
+        return new BatchOutcome(events.size(), failures.size());
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(ClaimedEvent event) {
+        String topic = topic(event.eventType());
+        if (topic == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Unknown event type: " + event.eventType()));
+        }
+        String key;
+        try {
+            key = OutboxEventPoller.orderingKey(event.eventType(),
+                    objectMapper.readValue(event.payload(), MAP_TYPE));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, event.payload());
+        record.headers()
+                .add(HEADER_EVENT_ID, event.eventId().getBytes(StandardCharsets.UTF_8))
+                .add(HEADER_EVENT_TYPE, event.eventType().getBytes(StandardCharsets.UTF_8));
+        try {
+            return kafkaTemplate.send(record).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    lagTimer.record(Duration.between(event.createdAt(), Instant.now()));
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. no metadata for the topic within max.block.ms
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return null if the record was acknowledged, otherwise the error
+     */
+    private static String await(CompletableFuture<SendResult<String, String>> send) {
+        try {
+            // The producer completes every send within its delivery timeout
+            send.get();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted while waiting for Kafka";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        }
+    }
+
+    private Failure recordFailure(ClaimedEvent event, String error) {
+        Failure failure = Failure.of(event, error, Instant.now());
+        if (failure.isPermanent()) {
+            permanentlyFailedCounter.increment();
+            logger.error("Outbox relay: event PERMANENTLY_FAILED — eventId={}, eventType={}, " +
+                            "retryCount={}, lastError={}, payload={}, createdAt={}",
+                    event.eventId(), event.eventType(),
+                    failure.retryCount(), failure.error(),
+                    event.payload(), event.createdAt());
+        } else {
+            logger.warn("Outbox relay: send failed, will retry — eventId={}, retryCount={}, " +
+                            "nextRetryAt={}, error={}",
+                    event.eventId(), failure.retryCount(), failure.nextRetryAt(), error);
+        }
+        return failure;
+    }
+
+    private void writeBack(String claimId, List<String> delivered, List<Failure> failures) {
+        int expected = delivered.size() + failures.size();
+        try {
+            Integer written = transactionTemplate.execute(status ->
+                    claimRepository.markDelivered(claimId, delivered)
+                            + claimRepository.markFailed(claimId, failures));
+            int lost = expected - (written != null ? written : 0);
+            if (lost > 0) {
+                // The lease ran out and another worker took these events over; it sends them again
+                lostClaimsCounter.increment(lost);
+                logger.warn("Outbox relay: {} of {} events were reclaimed before their results were written, " +
+                        "consider raising app.outbox.lease-seconds", lost, expected);
+            }
+        } catch (DataAccessException e) {
+            // The events stay IN_FLIGHT and are sent again once the lease runs out
+            logger.error("Outbox relay: failed to record results for {} events, claimId={}: {}",
+                    expected, claimId, e.getMessage());
+        }
+    }
+
+    static String topic(String eventType) {
+        return switch (eventType) {
+            case "INVITATION_ACCEPTED" -> TOPIC_INVITATION_ACCEPTED;
+            case "USER_NAME_UPDATED" -> TOPIC_USER_NAME_UPDATED;
+            case "PENDING_USER_ACTION" -> TOPIC_PENDING_USER_ACTION;
+            case "USER_ID_MIGRATED" -> TOPIC_USER_ID_MIGRATED;
+            default -> null;
+        };
+    }
+}
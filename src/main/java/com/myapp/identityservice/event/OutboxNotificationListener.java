@@ -0,0 +1,159 @@
+package com.myapp.identityservice.event;
+
+import com.myapp.identityservice.repository.OutboxClaimRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Wakes the {@link OutboxRelay} as soon as new outbound events commit, instead of leaving
+ * them until the next poll.
+ *
+ * Listens on {@link OutboxClaimRepository#NOTIFY_CHANNEL} over a dedicated connection opened
+ * outside the Hikari pool, since a LISTEN connection is held for the life of the instance.
+ * Waiting for notifications blocks on the socket and runs no queries but the liveness check
+ * below. Notifications that arrive together wake the relay once. If the connection drops, it
+ * is reopened with a growing backoff and the relay is woken, as notifications sent meanwhile
+ * are lost.
+ *
+ * A connection whose server went away without closing it (failover, a dropped NAT entry)
+ * looks exactly like a quiet channel, so an idle connection is checked with a round trip
+ * every {@link #VALIDATE_EVERY_IDLE_WAITS} empty waits, and TCP keepalives and a socket
+ * timeout are set so the driver notices a dead peer too.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.notify.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxNotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxNotificationListener.class);
+    private static final int RECEIVE_TIMEOUT_MS = 1000;
+    private static final int VALIDATE_EVERY_IDLE_WAITS = 30;
+    private static final int VALIDATE_TIMEOUT_SECONDS = 5;
+    private static final int SOCKET_TIMEOUT_SECONDS = 60;
+    private static final Duration INITIAL_RECONNECT_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RECONNECT_DELAY = Duration.ofSeconds(30);
+
+    private final OutboxRelay relay;
+    private final DataSourceProperties dataSourceProperties;
+    private final Counter wakeupCounter;
+    private final Counter reconnectCounter;
+    private volatile boolean running;
+    private Thread thread;
+
+    public OutboxNotificationListener(OutboxRelay relay,
+                                      DataSourceProperties dataSourceProperties,
+                                      MeterRegistry meterRegistry) {
+        this.relay = relay;
+        this.dataSourceProperties = dataSourceProperties;
+        this.wakeupCounter = Counter.builder("outbox.notify.wakeups")
+                .description("Count of delivery rounds started by an outbox notification")
+                .register(meterRegistry);
+        this.reconnectCounter = Counter.builder("outbox.notify.reconnects")
+                .description("Count of times the outbox listener connection was reopened")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("outbox-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(RECEIVE_TIMEOUT_MS * 2L);
+    }
+
+    private void listen() {
+        Duration reconnectDelay = INITIAL_RECONNECT_DELAY;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = open()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                logger.info("Outbox listener: listening on channel {}", OutboxClaimRepository.NOTIFY_CHANNEL);
+                if (reconnecting) {
+                    reconnectCounter.increment();
+                    relay.wakeUp();
+                }
+                reconnectDelay = INITIAL_RECONNECT_DELAY;
+                reconnecting = true;
+
+                int idleWaits = 0;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        idleWaits = 0;
+                        wakeupCounter.increment();
+                        relay.wakeUp();
+                    } else if (++idleWaits >= VALIDATE_EVERY_IDLE_WAITS) {
+                        idleWaits = 0;
+                        if (!connection.isValid(VALIDATE_TIMEOUT_SECONDS)) {
+                            throw new SQLException("Listener connection is no longer valid");
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                reconnecting = true;
+                logger.warn("Outbox listener: connection failed, retrying in {}: {}", reconnectDelay, e.getMessage());
+                if (!sleep(reconnectDelay)) {
+                    return;
+                }
+                reconnectDelay = reconnectDelay.multipliedBy(2).compareTo(MAX_RECONNECT_DELAY) > 0
+                        ? MAX_RECONNECT_DELAY : reconnectDelay.multipliedBy(2);
+            }
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Properties properties = new Properties();
+        String username = dataSourceProperties.determineUsername();
+        String password = dataSourceProperties.determinePassword();
+        // Left unset, the driver falls back to credentials in the URL
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("tcpKeepAlive", "true");
+        properties.setProperty("socketTimeout", String.valueOf(SOCKET_TIMEOUT_SECONDS));
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + OutboxClaimRepository.NOTIFY_CHANNEL);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private static boolean sleep(Duration delay) {
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.myapp.identityservice.event;
+
+/**
+ * Moves committed outbound_events to their transport: {@link OutboxEventPoller} over HTTP,
+ * or {@link OutboxKafkaRelay} to Kafka, depending on {@code app.events.transport}.
+ */
+public interface OutboxRelay {
+
+    /**
+     * Run a delivery round now rather than at the next poll, e.g. because new events were
+     * committed. Wake-ups arriving while a round is queued are coalesced into it.
+     */
+    void wakeUp();
+}
@@ -27,4 +27,8 @@ public class NotFoundException extends AppException {
     public static NotFoundException usage() {
         return new NotFoundException("Usage record not found");
     }
+
+    public static NotFoundException reservation() {
+        return new NotFoundException("Usage reservation not found or expired");
+    }
 }
@@ -0,0 +1,90 @@
+package com.myapp.identityservice.idempotency;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A stored idempotency key: either claimed by a request that is still running, or completed
+ * with the encoded result of that request.
+ *
+ * Binary format, version 1:
+ * <pre>
+ *   byte 0       format version (1)
+ *   byte 1       state: 1 = in flight, 2 = completed
+ *   in flight:   16 bytes owner token
+ *   completed:   result payload, written by the endpoint's {@link ResultCodec}
+ * </pre>
+ * The usage consume script writes completed entries in this format itself (see
+ * RedisUsageCounter), so changes here must be mirrored there under a new version.
+ */
+public record IdempotencyEntry(State state, UUID owner, byte[] payload) {
+
+    public static final byte VERSION = 1;
+
+    public enum State {
+        IN_FLIGHT((byte) 1),
+        COMPLETED((byte) 2);
+
+        private final byte code;
+
+        State(byte code) {
+            this.code = code;
+        }
+
+        static State of(byte code) {
+            for (State state : values()) {
+                if (state.code == code) {
+                    return state;
+                }
+            }
+            throw new IllegalArgumentException("Unknown idempotency entry state: " + code);
+        }
+    }
+
+    public static IdempotencyEntry inFlight(UUID owner) {
+        return new IdempotencyEntry(State.IN_FLIGHT, owner, null);
+    }
+
+    public static IdempotencyEntry completed(byte[] payload) {
+        return new IdempotencyEntry(State.COMPLETED, null, payload);
+    }
+
+    public byte[] encode() {
+        if (state == State.IN_FLIGHT) {
+            return ByteBuffer.allocate(18)
+                    .put(VERSION)
+                    .put(state.code)
+                    .putLong(owner.getMostSignificantBits())
+                    .putLong(owner.getLeastSignificantBits())
+                    .array();
+        }
+        return ByteBuffer.allocate(2 + payload.length)
+                .put(VERSION)
+                .put(state.code)
+                .put(payload)
+                .array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a known version of this format
+     */
+    public static IdempotencyEntry decode(byte[] bytes) {
+        if (!isEncoded(bytes)) {
+            throw new IllegalArgumentException("Unsupported idempotency entry format");
+        }
+        State state = State.of(bytes[1]);
+        if (state == State.IN_FLIGHT) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, 16);
+            return inFlight(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        return completed(Arrays.copyOfRange(bytes, 2, bytes.length));
+    }
+
+    /**
+     * Whether the bytes start with a version of this format this code can read.
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && bytes[0] == VERSION;
+    }
+}
@@ -0,0 +1,54 @@
+package com.myapp.identityservice.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small in-process cache of completed idempotent results seen in the last few seconds, so a
+ * client retrying against the same instance is answered without a Redis round trip. Completed
+ * results never change, so entries only need to expire to bound memory.
+ */
+@Component
+public class IdempotencyNearCache {
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    public IdempotencyNearCache(@Value("${app.idempotency.near-cache.max-entries:10000}") int maxEntries,
+                                @Value("${app.idempotency.near-cache.ttl-ms:5000}") long ttlMs) {
+        this.ttlNanos = ttlMs * 1_000_000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The completed payload for the key, or null if not cached or expired.
+     */
+    public synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAt > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.payload;
+    }
+
+    public synchronized void put(String key, byte[] payload) {
+        // Re-insert so the entry moves to the end of the eviction order
+        entries.remove(key);
+        entries.put(key, new Entry(payload, System.nanoTime()));
+    }
+
+    private record Entry(byte[] payload, long storedAt) {
+    }
+}
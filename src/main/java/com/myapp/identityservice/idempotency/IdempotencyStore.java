@@ -0,0 +1,106 @@
+package com.myapp.identityservice.idempotency;
+
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Idempotency entries in Redis, stored as raw {@link IdempotencyEntry} bytes.
+ *
+ * A request claims its key with an in-flight entry that expires after a short TTL, so a key
+ * held by an instance that died frees itself. Completing and releasing only act on the
+ * caller's own claim.
+ */
+@Component
+public class IdempotencyStore {
+
+    static final String KEY_PREFIX = "idem:";
+
+    // KEYS: entry key. ARGV: expected in-flight entry, completed entry, ttl ms
+    private static final byte[] COMPLETE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+              return 1
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: entry key. ARGV: expected in-flight entry
+    private static final byte[] RELEASE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public IdempotencyStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Claim the key for {@code owner} unless it is already held.
+     *
+     * @return empty if the claim succeeded, otherwise the entry holding the key
+     */
+    public Optional<IdempotencyEntry> claim(String key, UUID owner, Duration inFlightTtl) {
+        byte[] rawKey = rawKey(key);
+        byte[] claim = IdempotencyEntry.inFlight(owner).encode();
+        while (true) {
+            Boolean claimed = redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().set(rawKey, claim,
+                            Expiration.milliseconds(inFlightTtl.toMillis()), SetOption.ifAbsent()));
+            if (Boolean.TRUE.equals(claimed)) {
+                return Optional.empty();
+            }
+            Optional<IdempotencyEntry> current = get(key);
+            if (current.isPresent()) {
+                return current;
+            }
+            // Expired or released between the two calls; try again
+        }
+    }
+
+    public Optional<IdempotencyEntry> get(String key) {
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(rawKey(key)));
+        return value != null ? Optional.of(IdempotencyEntry.decode(value)) : Optional.empty();
+    }
+
+    /**
+     * Replace the owner's claim with the completed result.
+     *
+     * @return false if the claim had expired and the key is no longer the owner's
+     */
+    public boolean complete(String key, UUID owner, byte[] payload, Duration ttl) {
+        Long updated = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(COMPLETE_SCRIPT, ReturnType.INTEGER, 1,
+                        rawKey(key),
+                        IdempotencyEntry.inFlight(owner).encode(),
+                        IdempotencyEntry.completed(payload).encode(),
+                        String.valueOf(ttl.toMillis()).getBytes(StandardCharsets.UTF_8)));
+        return updated != null && updated == 1;
+    }
+
+    /**
+     * Drop the owner's claim so that a retry runs the operation again.
+     */
+    public void release(String key, UUID owner) {
+        redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(RELEASE_SCRIPT, ReturnType.INTEGER, 1,
+                        rawKey(key), IdempotencyEntry.inFlight(owner).encode()));
+    }
+
+    private static byte[] rawKey(String key) {
+        return (KEY_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
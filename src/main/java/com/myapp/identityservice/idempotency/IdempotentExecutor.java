@@ -0,0 +1,241 @@
+package com.myapp.identityservice.idempotency;
+
+import com.myapp.identityservice.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a mutating operation at most once per idempotency key and hands every repeat of the
+ * key the result of the first run.
+ *
+ * A repeat that arrives while the first run is still going does not fail: on the same
+ * instance it waits for the first run's outcome, and on another instance it polls the
+ * {@link IdempotencyStore} until the key completes or is released. Only successful results
+ * are stored; a failed run releases its key so that a retry runs again. Callers that were
+ * waiting on the same instance get the same exception.
+ *
+ * Must be called outside a transaction, so that the result is only published after the
+ * operation has committed. If Redis is unavailable the operation runs without deduplication.
+ *
+ * A claim is a lock with an expiry: polling for it backs off exponentially with jitter up to
+ * the wait timeout, and completing or releasing it is a compare-and-set on the owner token,
+ * so an instance whose claim expired mid-run cannot overwrite or delete a newer claim. Wait
+ * and hold times, wait timeouts and claims that expired while held are measured.
+ */
+@Component
+public class IdempotentExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentExecutor.class);
+    private static final long INITIAL_POLL_MS = 10;
+    private static final long MAX_POLL_MS = 200;
+
+    private final IdempotencyStore store;
+    private final IdempotencyNearCache nearCache;
+    private final Duration resultTtl;
+    private final Duration inFlightTtl;
+    private final Duration waitTimeout;
+    private final Map<String, CompletableFuture<byte[]>> running = new ConcurrentHashMap<>();
+    private final Counter nearCacheReplays;
+    private final Counter storeReplays;
+    private final Counter coalescedReplays;
+    private final Timer waitTimer;
+    private final Timer holdTimer;
+    private final Counter waitTimeouts;
+    private final Counter expiredClaims;
+
+    public IdempotentExecutor(IdempotencyStore store,
+                              IdempotencyNearCache nearCache,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.idempotency.result-ttl-ms:86400000}") long resultTtlMs,
+                              @Value("${app.idempotency.in-flight-ttl-ms:30000}") long inFlightTtlMs,
+                              @Value("${app.idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.store = store;
+        this.nearCache = nearCache;
+        this.resultTtl = Duration.ofMillis(resultTtlMs);
+        this.inFlightTtl = Duration.ofMillis(inFlightTtlMs);
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+        this.nearCacheReplays = replayCounter(meterRegistry, "near-cache");
+        this.storeReplays = replayCounter(meterRegistry, "store");
+        this.coalescedReplays = replayCounter(meterRegistry, "coalesced");
+        this.waitTimer = Timer.builder("idempotency.claim.wait")
+                .description("Time spent waiting for a key claimed by another instance")
+                .register(meterRegistry);
+        this.holdTimer = Timer.builder("idempotency.claim.hold")
+                .description("Time a key was claimed while its operation ran")
+                .register(meterRegistry);
+        this.waitTimeouts = Counter.builder("idempotency.claim.wait-timeouts")
+                .description("Requests that gave up waiting for a key claimed by another instance")
+                .register(meterRegistry);
+        this.expiredClaims = Counter.builder("idempotency.claim.expired")
+                .description("Claims that expired before their operation finished")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run {@code operation} once for {@code key} within {@code scope}, or return the result of
+     * the run that already happened. A null or blank key runs the operation directly.
+     *
+     * @param scope separates endpoints (and, where keys are per caller, callers) that may
+     *              receive the same key
+     * @throws ConflictException if a concurrent run of the key does not finish within the wait timeout
+     */
+    public <T> T execute(String scope, String key, ResultCodec<T> codec, Supplier<T> operation) {
+        if (key == null || key.isBlank()) {
+            return operation.get();
+        }
+        String storeKey = scope + ":" + key;
+
+        byte[] cached = nearCache.get(storeKey);
+        if (cached != null) {
+            nearCacheReplays.increment();
+            return codec.decode(cached);
+        }
+
+        CompletableFuture<byte[]> own = new CompletableFuture<>();
+        CompletableFuture<byte[]> first = running.putIfAbsent(storeKey, own);
+        if (first != null) {
+            coalescedReplays.increment();
+            return codec.decode(await(first));
+        }
+
+        try {
+            Outcome<T> outcome = claimAndRun(storeKey, codec, operation);
+            nearCache.put(storeKey, outcome.payload());
+            own.complete(outcome.payload());
+            return outcome.result();
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            running.remove(storeKey, own);
+        }
+    }
+
+    private <T> Outcome<T> claimAndRun(String storeKey, ResultCodec<T> codec, Supplier<T> operation) {
+        long start = System.nanoTime();
+        long deadline = start + waitTimeout.toNanos();
+        long pollMs = INITIAL_POLL_MS;
+        boolean waited = false;
+        while (true) {
+            UUID owner = UUID.randomUUID();
+            Optional<IdempotencyEntry> holder;
+            try {
+                holder = store.claim(storeKey, owner, inFlightTtl);
+            } catch (DataAccessException e) {
+                logger.warn("Idempotency store unavailable, running without deduplication: key={}, error={}",
+                        storeKey, e.getMessage());
+                T result = operation.get();
+                return new Outcome<>(result, codec.encode(result));
+            }
+
+            if (waited && (holder.isEmpty() || holder.get().state() == IdempotencyEntry.State.COMPLETED)) {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (holder.isEmpty()) {
+                return runClaimed(storeKey, owner, codec, operation);
+            }
+            if (holder.get().state() == IdempotencyEntry.State.COMPLETED) {
+                storeReplays.increment();
+                logger.info("Returning stored result for idempotency key: {}", storeKey);
+                byte[] payload = holder.get().payload();
+                return new Outcome<>(codec.decode(payload), payload);
+            }
+
+            // Another instance is running this key; wait for it to complete or give up the key
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                waitTimer.record(now - start, TimeUnit.NANOSECONDS);
+                waitTimeouts.increment();
+                throw new ConflictException("A request with this idempotency key is still in progress");
+            }
+            waited = true;
+            // Equal jitter, so that repeats that collided once do not poll in lockstep
+            sleep(pollMs / 2 + ThreadLocalRandom.current().nextLong(pollMs / 2 + 1));
+            pollMs = Math.min(pollMs * 2, MAX_POLL_MS);
+        }
+    }
+
+    private <T> Outcome<T> runClaimed(String storeKey, UUID owner, ResultCodec<T> codec, Supplier<T> operation) {
+        long claimedAt = System.nanoTime();
+        T result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            holdTimer.record(System.nanoTime() - claimedAt, TimeUnit.NANOSECONDS);
+            try {
+                store.release(storeKey, owner);
+            } catch (DataAccessException releaseError) {
+                logger.warn("Failed to release idempotency key, it frees itself after {}: key={}, error={}",
+                        inFlightTtl, storeKey, releaseError.getMessage());
+            }
+            throw e;
+        }
+
+        byte[] payload = codec.encode(result);
+        long heldNanos = System.nanoTime() - claimedAt;
+        holdTimer.record(heldNanos, TimeUnit.NANOSECONDS);
+        try {
+            if (!store.complete(storeKey, owner, payload, resultTtl)) {
+                expiredClaims.increment();
+                logger.warn("Idempotency claim expired before the operation finished: key={}, heldMs={}",
+                        storeKey, TimeUnit.NANOSECONDS.toMillis(heldNanos));
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Failed to store idempotent result: key={}, error={}", storeKey, e.getMessage());
+        }
+        return new Outcome<>(result, payload);
+    }
+
+    private byte[] await(CompletableFuture<byte[]> first) {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this idempotency key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for a request with this idempotency key");
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for a request with this idempotency key");
+        }
+    }
+
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("idempotency.replays")
+                .description("Repeated idempotency keys answered with an earlier result")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private record Outcome<T>(T result, byte[] payload) {
+    }
+}
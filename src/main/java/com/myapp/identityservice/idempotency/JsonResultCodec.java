@@ -0,0 +1,38 @@
+package com.myapp.identityservice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Stores results as their JSON form. For response DTOs that have no hand-written codec.
+ */
+public class JsonResultCodec<T> implements ResultCodec<T> {
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+
+    public JsonResultCodec(ObjectMapper objectMapper, Class<T> type) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(T result) {
+        try {
+            return objectMapper.writeValueAsBytes(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public T decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.myapp.identityservice.idempotency;
+
+/**
+ * Turns the result of an idempotent operation into the payload of a completed
+ * {@link IdempotencyEntry} and back.
+ */
+public interface ResultCodec<T> {
+
+    byte[] encode(T result);
+
+    T decode(byte[] payload);
+}
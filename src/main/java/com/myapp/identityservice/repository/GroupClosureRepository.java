@@ -0,0 +1,104 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.GroupClosure;
+import com.myapp.identityservice.domain.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface GroupClosureRepository extends JpaRepository<GroupClosure, GroupClosure.Key> {
+
+    // Reads — each is a single lookup on the primary key or idx_group_closure_descendant
+
+    /**
+     * The group and all of its descendants, shallowest first, with the groups loaded.
+     */
+    @Query("SELECT c FROM GroupClosure c JOIN FETCH c.descendant g " +
+           "WHERE c.ancestorId = :groupId AND (:includeInactive = true OR g.isActive = true) " +
+           "ORDER BY c.depth, g.name, g.id")
+    List<GroupClosure> findSubtree(@Param("groupId") String groupId,
+                                   @Param("includeInactive") boolean includeInactive);
+
+    /**
+     * Strict ancestors of the group, root first, with the groups loaded.
+     */
+    @Query("SELECT c FROM GroupClosure c JOIN FETCH c.ancestor " +
+           "WHERE c.descendantId = :groupId AND c.depth > 0 ORDER BY c.depth DESC")
+    List<GroupClosure> findAncestors(@Param("groupId") String groupId);
+
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM GroupClosure c " +
+           "WHERE c.ancestorId = :ancestorId AND c.descendantId = :descendantId")
+    boolean isDescendant(@Param("ancestorId") String ancestorId, @Param("descendantId") String descendantId);
+
+    /**
+     * Distinct active users who are current members of any active group in the subtree.
+     */
+    @Query("SELECT DISTINCT u FROM GroupClosure c " +
+           "JOIN GroupMember gm ON gm.groupId = c.descendantId " +
+           "JOIN gm.user u JOIN gm.group g " +
+           "WHERE c.ancestorId = :groupId AND g.isActive = true AND u.status = 'ACTIVE' " +
+           "ORDER BY u.name, u.id")
+    List<User> findSubtreeMembers(@Param("groupId") String groupId);
+
+    // Maintenance — run in the same transaction as the parent_group_id change
+
+    /**
+     * Link a newly created group to itself and to every ancestor of its parent.
+     * Pending JPA inserts are flushed first so the new group row exists.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO group_closure (ancestor_id, descendant_id, depth) " +
+           "SELECT ancestor_id, :groupId, depth + 1 FROM group_closure WHERE descendant_id = :parentGroupId " +
+           "UNION ALL SELECT :groupId, :groupId, 0", nativeQuery = true)
+    int insertGroup(@Param("groupId") String groupId, @Param("parentGroupId") String parentGroupId);
+
+    /**
+     * Detach a subtree from all ancestors outside it (first half of a move).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM group_closure " +
+           "WHERE descendant_id IN (SELECT descendant_id FROM group_closure WHERE ancestor_id = :groupId) " +
+           "AND ancestor_id NOT IN (SELECT descendant_id FROM group_closure WHERE ancestor_id = :groupId)",
+           nativeQuery = true)
+    int detachSubtree(@Param("groupId") String groupId);
+
+    /**
+     * Attach a detached subtree under a new parent (second half of a move).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO group_closure (ancestor_id, descendant_id, depth) " +
+           "SELECT up.ancestor_id, down.descendant_id, up.depth + down.depth + 1 " +
+           "FROM group_closure up CROSS JOIN group_closure down " +
+           "WHERE up.descendant_id = :parentGroupId AND down.ancestor_id = :groupId", nativeQuery = true)
+    int attachSubtree(@Param("groupId") String groupId, @Param("parentGroupId") String parentGroupId);
+
+    /**
+     * Deactivate a group and every active descendant in one statement.
+     * The persistence context is cleared afterwards so no stale group state survives.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE user_groups SET is_active = false, updated_at = :now " +
+           "WHERE is_active = true " +
+           "AND id IN (SELECT descendant_id FROM group_closure WHERE ancestor_id = :groupId)", nativeQuery = true)
+    int deactivateSubtree(@Param("groupId") String groupId, @Param("now") Instant now);
+
+    /**
+     * Serialize hierarchy moves so two concurrent moves cannot form a cycle.
+     * Held until the surrounding transaction ends.
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:lockKey)) l", nativeQuery = true)
+    int lockHierarchy(@Param("lockKey") long lockKey);
+
+    /**
+     * Shared form of {@link #lockHierarchy}, for writes that copy existing closure rows
+     * (e.g. adding a group under a parent). They run alongside each other but not during a move.
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock_shared(:lockKey)) l", nativeQuery = true)
+    int lockHierarchyShared(@Param("lockKey") long lockKey);
+}
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -59,6 +60,35 @@ public interface GroupInvitationRepository extends JpaRepository<Invitation, Str
             @Param("groupId") String groupId,
             @Param("now") Instant now);
 
+    /**
+     * Of the given identifiers, return those that already have a live pending invitation to the group.
+     * Batch counterpart of {@link #existsPendingInvitation}.
+     */
+    @Query("SELECT i.identifier FROM Invitation i " +
+           "WHERE i.identifier IN :identifiers " +
+           "AND i.groupId = :groupId " +
+           "AND i.status = 'PENDING' " +
+           "AND i.expiresAt > :now")
+    List<String> findPendingIdentifiers(
+            @Param("groupId") String groupId,
+            @Param("identifiers") Collection<String> identifiers,
+            @Param("now") Instant now);
+
+    /**
+     * Expire overdue pending invitations for the given identifiers and group, so that
+     * fresh invitations do not collide with them on the unique pending index.
+     */
+    @Modifying
+    @Query("UPDATE Invitation i SET i.status = 'EXPIRED', i.resolvedAt = :now " +
+           "WHERE i.identifier IN :identifiers " +
+           "AND i.groupId = :groupId " +
+           "AND i.status = 'PENDING' " +
+           "AND i.expiresAt <= :now")
+    int expireOverduePendingInvitations(
+            @Param("groupId") String groupId,
+            @Param("identifiers") Collection<String> identifiers,
+            @Param("now") Instant now);
+
     /**
      * Find existing pending invitation for identifier and group.
      */
@@ -0,0 +1,139 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.GroupMember;
+import com.myapp.identityservice.domain.GroupMembershipAction;
+import com.myapp.identityservice.domain.User;
+import com.myapp.identityservice.domain.UserGroupMembership;
+import com.myapp.identityservice.dto.response.GroupMemberExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface GroupMemberRepository extends JpaRepository<GroupMember, GroupMember.Key> {
+
+    boolean existsByGroupIdAndUserId(String groupId, String userId);
+
+    @Query("SELECT u FROM GroupMember gm JOIN gm.user u " +
+           "WHERE gm.groupId = :groupId AND u.status = 'ACTIVE' ORDER BY gm.addedAt DESC")
+    List<User> findActiveMembers(@Param("groupId") String groupId);
+
+    @Query("SELECT gm.userId FROM GroupMember gm JOIN gm.user u " +
+           "WHERE gm.groupId = :groupId AND u.status = 'ACTIVE'")
+    List<String> findActiveMemberIds(@Param("groupId") String groupId);
+
+    /**
+     * Current members of a group (any status) for NDJSON export, read through a forward-only
+     * cursor and mapped straight to DTOs. Must be consumed inside a read-only transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.myapp.identityservice.dto.response.GroupMemberExportRow(" +
+           "u.id, u.name, u.email, u.phone, u.status, gm.addedBy, gm.addedAt) " +
+           "FROM GroupMember gm JOIN gm.user u WHERE gm.groupId = :groupId ORDER BY gm.userId")
+    Stream<GroupMemberExportRow> streamMembersForExport(@Param("groupId") String groupId);
+
+    // User -> groups reads, served by idx_group_members_user_added (user_id, added_at DESC, group_id DESC)
+
+    /**
+     * Current memberships of a user in active groups, newest first, with the group loaded.
+     */
+    @Query("SELECT gm FROM GroupMember gm JOIN FETCH gm.group g " +
+           "WHERE gm.userId = :userId AND g.isActive = true " +
+           "ORDER BY gm.addedAt DESC, gm.groupId DESC")
+    List<GroupMember> findActiveGroupsOfUser(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * Next keyset page of {@link #findActiveGroupsOfUser}, strictly after (addedAt, groupId).
+     * A row-value comparison, so that the index range scan starts at the cursor.
+     */
+    @Query("SELECT gm FROM GroupMember gm JOIN FETCH gm.group g " +
+           "WHERE gm.userId = :userId AND g.isActive = true " +
+           "AND (gm.addedAt, gm.groupId) < (:addedAt, :groupId) " +
+           "ORDER BY gm.addedAt DESC, gm.groupId DESC")
+    List<GroupMember> findActiveGroupsOfUserAfter(
+            @Param("userId") String userId,
+            @Param("addedAt") Instant addedAt,
+            @Param("groupId") String groupId,
+            Pageable pageable);
+
+    /**
+     * Of the given users, return those that are currently members of the group (any status).
+     */
+    @Query("SELECT gm.userId FROM GroupMember gm WHERE gm.groupId = :groupId AND gm.userId IN :userIds")
+    List<String> findMemberUserIds(@Param("groupId") String groupId, @Param("userIds") Collection<String> userIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO group_members (group_id, user_id, membership_id, added_by, added_at) " +
+           "VALUES (:groupId, :userId, :membershipId, :addedBy, :addedAt) " +
+           "ON CONFLICT (group_id, user_id) DO UPDATE SET membership_id = EXCLUDED.membership_id, " +
+           "added_by = EXCLUDED.added_by, added_at = EXCLUDED.added_at", nativeQuery = true)
+    int upsertMember(
+            @Param("groupId") String groupId,
+            @Param("userId") String userId,
+            @Param("membershipId") String membershipId,
+            @Param("addedBy") String addedBy,
+            @Param("addedAt") Instant addedAt);
+
+    @Modifying
+    @Query("DELETE FROM GroupMember gm WHERE gm.groupId = :groupId AND gm.userId = :userId")
+    int removeMember(@Param("groupId") String groupId, @Param("userId") String userId);
+
+    /**
+     * Apply a freshly written audit log row to the current-state table.
+     * Must be called in the same transaction that saved the membership.
+     */
+    default void apply(UserGroupMembership membership) {
+        String groupId = membership.getGroup().getId();
+        String userId = membership.getUser().getId();
+        if (membership.getAction() == GroupMembershipAction.ADDED) {
+            upsertMember(groupId, userId, membership.getId(), membership.getPerformedBy(), membership.getCreatedAt());
+        } else {
+            removeMember(groupId, userId);
+        }
+    }
+
+    // Reconciliation queries — compare against the audit log and rebuild drifted groups
+
+    /**
+     * Find groups whose current-state rows differ from the latest ADDED/REMOVED action in the log.
+     */
+    @Query(value = "WITH expected AS (" +
+           "  SELECT group_id, user_id FROM (" +
+           "    SELECT DISTINCT ON (group_id, user_id) group_id, user_id, action " +
+           "    FROM user_group_memberships ORDER BY group_id, user_id, created_at DESC, id DESC" +
+           "  ) latest WHERE action = 'ADDED'" +
+           ") " +
+           "SELECT DISTINCT group_id FROM (" +
+           "  (SELECT group_id, user_id FROM expected EXCEPT SELECT group_id, user_id FROM group_members) " +
+           "  UNION ALL " +
+           "  (SELECT group_id, user_id FROM group_members EXCEPT SELECT group_id, user_id FROM expected)" +
+           ") drift", nativeQuery = true)
+    List<String> findGroupIdsOutOfSyncWithLog();
+
+    @Modifying
+    @Query(value = "DELETE FROM group_members WHERE group_id = :groupId", nativeQuery = true)
+    int deleteByGroupId(@Param("groupId") String groupId);
+
+    @Modifying
+    @Query(value = "INSERT INTO group_members (group_id, user_id, membership_id, added_by, added_at) " +
+           "SELECT group_id, user_id, id, performed_by, created_at FROM (" +
+           "  SELECT DISTINCT ON (user_id) group_id, user_id, id, action, performed_by, created_at " +
+           "  FROM user_group_memberships WHERE group_id = :groupId " +
+           "  ORDER BY user_id, created_at DESC, id DESC" +
+           ") latest WHERE action = 'ADDED'", nativeQuery = true)
+    int insertFromLog(@Param("groupId") String groupId);
+}
@@ -0,0 +1,129 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.GroupMembershipAction;
+import com.myapp.identityservice.domain.Invitation;
+import com.myapp.identityservice.domain.UserGroupMembership;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JDBC batch writer for bulk group imports.
+ *
+ * Rows are inserted with {@link JdbcTemplate#batchUpdate} so a 200-person import costs a
+ * handful of round trips instead of one per row. JPA lifecycle callbacks do not run here:
+ * callers must set ids and timestamps before writing. Pending JPA changes are flushed
+ * first so that rows the batch references (e.g. a group created in the same transaction)
+ * already exist.
+ */
+@Repository
+public class GroupMembershipBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_MEMBERSHIP_SQL =
+            "INSERT INTO user_group_memberships (id, user_id, group_id, action, performed_by, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_GROUP_MEMBER_SQL =
+            "INSERT INTO group_members (group_id, user_id, membership_id, added_by, added_at) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (group_id, user_id) DO UPDATE SET membership_id = EXCLUDED.membership_id, " +
+            "added_by = EXCLUDED.added_by, added_at = EXCLUDED.added_at";
+
+    // The partial unique index only allows one PENDING invitation per identifier and group;
+    // a concurrent import that got there first wins and this row is not inserted.
+    private static final String INSERT_INVITATION_SQL =
+            "INSERT INTO invitations (id, group_id, identifier, identifier_type, invitee_name, status, " +
+            "invited_by, created_at, expires_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (identifier, group_id) WHERE status = 'PENDING' DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public GroupMembershipBatchRepository(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Insert ADDED memberships into the audit log and the group_members current-state table.
+     * The caller is responsible for refreshing the affected groups' member fingerprints.
+     */
+    public void insertAddedMemberships(List<UserGroupMembership> memberships) {
+        if (memberships.isEmpty()) {
+            return;
+        }
+        for (UserGroupMembership membership : memberships) {
+            if (membership.getAction() != GroupMembershipAction.ADDED) {
+                throw new IllegalArgumentException("Only ADDED memberships can be batch inserted");
+            }
+        }
+
+        entityManager.flush();
+
+        jdbcTemplate.batchUpdate(INSERT_MEMBERSHIP_SQL, memberships, BATCH_SIZE, (ps, m) -> {
+            ps.setString(1, m.getId());
+            ps.setString(2, m.getUser().getId());
+            ps.setString(3, m.getGroup().getId());
+            ps.setString(4, m.getAction().name());
+            ps.setString(5, m.getPerformedBy());
+            ps.setTimestamp(6, Timestamp.from(m.getCreatedAt()));
+        });
+
+        jdbcTemplate.batchUpdate(UPSERT_GROUP_MEMBER_SQL, memberships, BATCH_SIZE, (ps, m) -> {
+            ps.setString(1, m.getGroup().getId());
+            ps.setString(2, m.getUser().getId());
+            ps.setString(3, m.getId());
+            ps.setString(4, m.getPerformedBy());
+            ps.setTimestamp(5, Timestamp.from(m.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Insert PENDING invitations, skipping any whose identifier already has a pending
+     * invitation to the group (e.g. written by a concurrent import).
+     *
+     * @return ids of the invitations that were not inserted
+     */
+    public Set<String> insertInvitations(List<Invitation> invitations) {
+        Set<String> notInserted = new HashSet<>();
+        if (invitations.isEmpty()) {
+            return notInserted;
+        }
+
+        entityManager.flush();
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_INVITATION_SQL, invitations, BATCH_SIZE, (ps, i) -> {
+            ps.setString(1, i.getId());
+            ps.setString(2, i.getGroup().getId());
+            ps.setString(3, i.getIdentifier());
+            ps.setString(4, i.getIdentifierType().name());
+            ps.setString(5, i.getInviteeName());
+            ps.setString(6, i.getStatus().name());
+            ps.setString(7, i.getInvitedBy());
+            ps.setTimestamp(8, Timestamp.from(i.getCreatedAt()));
+            ps.setTimestamp(9, Timestamp.from(i.getExpiresAt()));
+        });
+
+        // Counts come back per batch of BATCH_SIZE, in the order the invitations were given
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    notInserted.add(invitations.get(index).getId());
+                } else if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                    throw new IllegalStateException("Unexpected update count " + count + " for invitation insert");
+                }
+                index++;
+            }
+        }
+        return notInserted;
+    }
+}
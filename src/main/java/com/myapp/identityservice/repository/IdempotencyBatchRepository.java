@@ -0,0 +1,122 @@
+package com.myapp.identityservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDBC batch access to idempotency_keys for batch consumes. Same semantics as the
+ * single-key queries in {@link IdempotencyRecordRepository}.
+ */
+@Repository
+public class IdempotencyBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO idempotency_keys (idempotency_key, user_id, response, created_at, expires_at) " +
+            "VALUES (?, ?, NULL, ?, ?) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE SET user_id = EXCLUDED.user_id, response = NULL, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at <= EXCLUDED.created_at";
+
+    private static final String FIND_RESPONSES_SQL =
+            "SELECT idempotency_key, response FROM idempotency_keys WHERE idempotency_key = ANY(?)";
+
+    private static final String RECORD_RESPONSE_SQL =
+            "UPDATE idempotency_keys SET response = ? WHERE idempotency_key = ?";
+
+    private static final String RELEASE_SQL =
+            "DELETE FROM idempotency_keys WHERE idempotency_key = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claim keys for the current transaction, in key order so that concurrent batches cannot
+     * deadlock each other. Keys held by another open transaction block until it ends.
+     *
+     * @param userIdsByKey the user each key is claimed for
+     * @return the keys that were claimed; the others hold a live result
+     */
+    public Set<String> claim(Map<String, String> userIdsByKey, Instant now, Instant expiresAt) {
+        if (userIdsByKey.isEmpty()) {
+            return Set.of();
+        }
+        List<String> keys = userIdsByKey.keySet().stream().sorted().toList();
+        Timestamp createdAt = Timestamp.from(now);
+        Timestamp expires = Timestamp.from(expiresAt);
+
+        int[][] counts = jdbcTemplate.batchUpdate(CLAIM_SQL, keys, BATCH_SIZE, (ps, key) -> {
+            ps.setString(1, key);
+            ps.setString(2, userIdsByKey.get(key));
+            ps.setTimestamp(3, createdAt);
+            ps.setTimestamp(4, expires);
+        });
+
+        Set<String> claimed = new HashSet<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    claimed.add(keys.get(index));
+                }
+                index++;
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Recorded responses, keyed by idempotency key. Keys without a response are left out.
+     */
+    public Map<String, byte[]> findResponses(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, byte[]> responses = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_RESPONSES_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", keys.toArray()));
+            return ps;
+        }, rs -> {
+            byte[] response = rs.getBytes("response");
+            if (response != null) {
+                responses.put(rs.getString("idempotency_key"), response);
+            }
+        });
+        return responses;
+    }
+
+    public void recordResponses(Map<String, byte[]> responsesByKey) {
+        if (responsesByKey.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RECORD_RESPONSE_SQL, List.copyOf(responsesByKey.entrySet()), BATCH_SIZE, (ps, e) -> {
+            ps.setBytes(1, e.getValue());
+            ps.setString(2, e.getKey());
+        });
+    }
+
+    /**
+     * Drop claims whose consume was rejected, so that a retry is processed again.
+     */
+    public void release(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RELEASE_SQL, List.copyOf(keys), BATCH_SIZE, (ps, key) -> ps.setString(1, key));
+    }
+}
@@ -0,0 +1,43 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Claim a key for the current transaction. Returns 1 if the key was free (or only held an
+     * expired result) and 0 if it holds a live result. A claim by another open transaction
+     * blocks this statement until that transaction ends.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, user_id, response, created_at, expires_at) " +
+            "VALUES (:key, :userId, NULL, :now, :expiresAt) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE SET user_id = EXCLUDED.user_id, response = NULL, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at <= EXCLUDED.created_at",
+            nativeQuery = true)
+    int claim(@Param("key") String key,
+              @Param("userId") String userId,
+              @Param("now") Instant now,
+              @Param("expiresAt") Instant expiresAt);
+
+    @Query("SELECT r.response FROM IdempotencyRecord r WHERE r.idempotencyKey = :key")
+    Optional<byte[]> findResponse(@Param("key") String key);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.response = :response WHERE r.idempotencyKey = :key")
+    int recordResponse(@Param("key") String key, @Param("response") byte[] response);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
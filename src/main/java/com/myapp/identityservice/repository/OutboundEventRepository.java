@@ -2,7 +2,6 @@ package com.myapp.identityservice.repository;
 
 import com.myapp.identityservice.domain.OutboundEvent;
 import com.myapp.identityservice.domain.OutboundEvent.EventStatus;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,10 +15,6 @@ import java.util.List;
 @Repository
 public interface OutboundEventRepository extends JpaRepository<OutboundEvent, String> {
 
-    @Query("SELECT e FROM OutboundEvent e WHERE e.status IN ('PENDING', 'FAILED') " +
-           "AND e.nextRetryAt <= :now ORDER BY e.createdAt ASC")
-    List<OutboundEvent> findEventsToDeliver(@Param("now") Instant now, Pageable pageable);
-
     List<OutboundEvent> findByStatus(EventStatus status);
 
     long countByStatus(EventStatus status);
@@ -0,0 +1,189 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.OutboundEvent;
+import com.myapp.identityservice.domain.OutboundEvent.EventStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * JDBC access to outbound_events for delivery workers.
+ *
+ * A worker claims due events in one statement: the rows are locked with FOR UPDATE SKIP LOCKED,
+ * so concurrent workers (on this or other instances) skip each other's rows instead of waiting
+ * for them, and marked IN_FLIGHT under the worker's claim id with next_retry_at as the lease
+ * expiry. The claim commits before delivery starts, so no transaction is held across HTTP calls.
+ * Results are written back only where the event is still under the same claim; if the lease ran
+ * out and another worker took the event over, the stale result is dropped.
+ *
+ * Events of one ordering key are claimed one at a time: an event is only claimable once every
+ * older event of its key is delivered or permanently failed. A key's next event therefore
+ * waits for its predecessor's retries, even when that predecessor is claimed by another
+ * instance, at the cost of delivering at most one event per key per claim.
+ */
+@Repository
+public class OutboxClaimRepository {
+
+    /**
+     * Channel notified when events are written, see {@link #notifyWritten()}.
+     */
+    public static final String NOTIFY_CHANNEL = "outbound_events";
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify('" + NOTIFY_CHANNEL + "', '')";
+
+    private static final RowMapper<ClaimedEvent> CLAIMED_MAPPER = (rs, rowNum) -> new ClaimedEvent(
+            rs.getString("id"),
+            rs.getString("event_type"),
+            rs.getString("event_id"),
+            rs.getString("payload"),
+            rs.getInt("retry_count"),
+            rs.getInt("max_retries"),
+            rs.getTimestamp("created_at").toInstant());
+
+    // IN_FLIGHT rows are due again once their lease (next_retry_at) has passed. An event
+    // waits while an older event of its key is undelivered, wherever that one is claimed;
+    // PERMANENTLY_FAILED events no longer block, or one poison event would stall its key
+    private static final String CLAIM_SQL =
+            "UPDATE outbound_events o SET status = 'IN_FLIGHT', claimed_by = ?, next_retry_at = ?, updated_at = ? " +
+            "FROM (SELECT e.id FROM outbound_events e " +
+            "  WHERE e.status IN ('PENDING', 'FAILED', 'IN_FLIGHT') AND e.next_retry_at <= ? " +
+            "  AND NOT EXISTS (SELECT 1 FROM outbound_events p " +
+            "    WHERE p.ordering_key = e.ordering_key AND p.status IN ('PENDING', 'FAILED', 'IN_FLIGHT') " +
+            "    AND (p.created_at, p.id) < (e.created_at, e.id)) " +
+            "  ORDER BY e.created_at LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+            "WHERE o.id = due.id " +
+            "RETURNING o.id, o.event_type, o.event_id, o.payload, o.retry_count, o.max_retries, o.created_at";
+
+    private static final String MARK_DELIVERED_SQL =
+            "UPDATE outbound_events SET status = 'DELIVERED', claimed_by = NULL, updated_at = NOW() " +
+            "WHERE id = ANY(?) AND claimed_by = ?";
+
+    private static final String MARK_FAILED_SQL =
+            "UPDATE outbound_events SET status = ?, retry_count = ?, next_retry_at = ?, last_error = ?, " +
+            "claimed_by = NULL, updated_at = NOW() " +
+            "WHERE id = ? AND claimed_by = ?";
+
+    // Unattempted events go back as they were, due again at the given time
+    private static final String RELEASE_SQL =
+            "UPDATE outbound_events SET status = CASE WHEN retry_count = 0 THEN 'PENDING' ELSE 'FAILED' END, " +
+            "next_retry_at = ?, claimed_by = NULL, updated_at = NOW() " +
+            "WHERE id = ANY(?) AND claimed_by = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxClaimRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * An event claimed for delivery, with the fields delivery and retry accounting need.
+     */
+    public record ClaimedEvent(String id, String eventType, String eventId, String payload,
+                               int retryCount, int maxRetries, Instant createdAt) {
+    }
+
+    /**
+     * The state a failed delivery leaves its event in. Same rules as {@link OutboundEvent#markFailed}.
+     */
+    public record Failure(String id, EventStatus status, int retryCount, Instant nextRetryAt, String error) {
+
+        public static Failure of(ClaimedEvent event, String error, Instant now) {
+            int retryCount = event.retryCount() + 1;
+            if (retryCount >= event.maxRetries()) {
+                return new Failure(event.id(), EventStatus.PERMANENTLY_FAILED, retryCount, now, error);
+            }
+            return new Failure(event.id(), EventStatus.FAILED, retryCount,
+                    now.plusSeconds(OutboundEvent.retryDelaySeconds(retryCount)), error);
+        }
+
+        public boolean isPermanent() {
+            return status == EventStatus.PERMANENTLY_FAILED;
+        }
+    }
+
+    /**
+     * Notify listeners on {@link #NOTIFY_CHANNEL} that events were written. Inside a transaction
+     * the notification is only sent when it commits, and repeats within one transaction are
+     * sent once.
+     */
+    public void notifyWritten() {
+        jdbcTemplate.query(NOTIFY_SQL, rs -> { });
+    }
+
+    /**
+     * Claim up to {@code limit} events that are due at {@code now}, oldest first, until
+     * {@code leaseUntil}. Rows locked by a concurrent claim are skipped, as are events whose
+     * key has an older event not yet delivered.
+     */
+    public List<ClaimedEvent> claim(String claimId, Instant now, Instant leaseUntil, int limit) {
+        List<ClaimedEvent> claimed = jdbcTemplate.query(CLAIM_SQL, CLAIMED_MAPPER,
+                claimId, Timestamp.from(leaseUntil), Timestamp.from(now), Timestamp.from(now), limit);
+        // RETURNING does not keep the order of the subquery
+        return claimed.stream().sorted(Comparator.comparing(ClaimedEvent::createdAt)).toList();
+    }
+
+    /**
+     * @return the number of events marked delivered; fewer than given if claims were lost
+     */
+    public int markDelivered(String claimId, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(MARK_DELIVERED_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", ids.toArray()));
+            ps.setString(2, claimId);
+            return ps;
+        });
+    }
+
+    /**
+     * @return the number of events marked failed; fewer than given if claims were lost
+     */
+    public int markFailed(String claimId, List<Failure> failures) {
+        if (failures.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failures, BATCH_SIZE, (ps, failure) -> {
+            ps.setString(1, failure.status().name());
+            ps.setInt(2, failure.retryCount());
+            ps.setTimestamp(3, Timestamp.from(failure.nextRetryAt()));
+            ps.setString(4, failure.error());
+            ps.setString(5, failure.id());
+            ps.setString(6, claimId);
+        });
+        int updated = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                updated += Math.max(count, 0);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Give back events that were claimed but not attempted, to be claimed again from {@code dueAt}.
+     * Their retry count is unchanged.
+     */
+    public int release(String claimId, Collection<String> ids, Instant dueAt) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(RELEASE_SQL);
+            ps.setTimestamp(1, Timestamp.from(dueAt));
+            ps.setArray(2, con.createArrayOf("varchar", ids.toArray()));
+            ps.setString(3, claimId);
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.service.RedisUsageCounter.DirtyCounter;
+import com.myapp.identityservice.service.UsageCounterState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * JDBC access to user_monthly_usage for statements Spring Data cannot express:
+ * batched counter writes, month provisioning, and multi-user reads for batch consumes
+ * and checks.
+ *
+ * States read here are live totals: the row's utilised count plus the usage_events that
+ * have not been folded into it yet (see {@link UsageLedgerRepository}) and the quota held by
+ * unexpired usage_reservations. Both are summed in the same statement, so no row is locked.
+ */
+@Repository
+public class UsageBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final RowMapper<UsageCounterState> STATE_MAPPER = (rs, rowNum) ->
+            new UsageCounterState(rs.getInt("monthly_limit"), rs.getInt("utilised"));
+
+    // Counters only grow within a month, so GREATEST keeps a stale snapshot from an
+    // overlapping flush (another instance, or a retry) from moving the row backwards.
+    // A counter seeded after the Postgres mode has already absorbed the ledger tail, so the
+    // tail is marked folded.
+    private static final String RAISE_UTILISED_SQL =
+            "UPDATE user_monthly_usage u SET utilised = GREATEST(u.utilised, ?), updated_at = ?, " +
+            "ledger_position = COALESCE((SELECT MAX(e.id) FROM usage_events e WHERE e.user_id = u.user_id " +
+            "AND e.year = u.year AND e.month = u.month), u.ledger_position) " +
+            "WHERE u.user_id = ? AND u.year = ? AND u.month = ? AND u.utilised < ?";
+
+    private static final String LEDGER_TAIL =
+            "COALESCE((SELECT SUM(e.amount) FROM usage_events e WHERE e.user_id = u.user_id " +
+            "AND e.year = ? AND e.month = ? AND e.id > u.ledger_position), 0)";
+
+    private static final String ACTIVE_RESERVATIONS =
+            "COALESCE((SELECT SUM(r.amount) FROM usage_reservations r WHERE r.user_id = u.user_id " +
+            "AND r.year = u.year AND r.month = u.month AND r.expires_at > NOW()), 0)";
+
+    private static final String FIND_STATE_SQL =
+            "SELECT u.monthly_limit, u.utilised + " + LEDGER_TAIL + " + " + ACTIVE_RESERVATIONS + " AS utilised " +
+            "FROM user_monthly_usage u " +
+            "WHERE u.user_id = ? AND u.year = ? AND u.month = ?";
+
+    private static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO user_monthly_usage (id, user_id, year, month, monthly_limit, utilised, created_at, updated_at) " +
+            "SELECT ?, u.id, ?, ?, u.default_monthly_task_limit, 0, NOW(), NOW() FROM users u WHERE u.id = ? " +
+            "ON CONFLICT (user_id, year, month) DO NOTHING";
+
+    private static final String FIND_STATES_SQL =
+            "SELECT u.user_id, u.monthly_limit, u.utilised + " + LEDGER_TAIL + " + " + ACTIVE_RESERVATIONS +
+            " AS utilised " +
+            "FROM user_monthly_usage u WHERE u.year = ? AND u.month = ? AND u.user_id = ANY(?)";
+
+    // One chunk of users in id order, so that each statement is short and later chunks resume
+    // after the last id. Row ids are derived from user and month, so a repeated run produces the
+    // same rows; the untargeted ON CONFLICT covers both the id and the (user_id, year, month) key.
+    private static final String PROVISION_MONTH_SQL =
+            "WITH chunk AS (" +
+            "  SELECT id, default_monthly_task_limit FROM users " +
+            "  WHERE status = 'ACTIVE' AND id > ? ORDER BY id LIMIT ?" +
+            "), inserted AS (" +
+            "  INSERT INTO user_monthly_usage (id, user_id, year, month, monthly_limit, utilised, created_at, updated_at) " +
+            "  SELECT substr(md5(c.id || ?), 1, 25), c.id, ?, ?, c.default_monthly_task_limit, 0, NOW(), NOW() " +
+            "  FROM chunk c " +
+            "  ON CONFLICT DO NOTHING " +
+            "  RETURNING 1" +
+            ") " +
+            "SELECT (SELECT MAX(id) FROM chunk) AS last_user_id, (SELECT COUNT(*) FROM inserted) AS created";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsageBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<UsageCounterState> findState(String userId, int year, int month) {
+        return jdbcTemplate.query(FIND_STATE_SQL, STATE_MAPPER, year, month, userId, year, month)
+                .stream().findFirst();
+    }
+
+    /**
+     * Multi-user variant of {@link UserMonthlyUsageRepository#insertIfAbsent}; users that do
+     * not exist are skipped. Rows are created in user_id order, so that concurrent callers
+     * cannot deadlock each other.
+     */
+    public void insertIfAbsent(int year, int month, Collection<String> userIds, Supplier<String> idGenerator) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<String> sorted = userIds.stream().distinct().sorted().toList();
+
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, sorted, BATCH_SIZE, (ps, userId) -> {
+            ps.setString(1, idGenerator.get());
+            ps.setInt(2, year);
+            ps.setInt(3, month);
+            ps.setString(4, userId);
+        });
+    }
+
+    /**
+     * Rows created by one chunk of {@link #provisionMonth}. {@code lastUserId} is null once
+     * there are no users left.
+     */
+    public record ProvisionedChunk(String lastUserId, int created) {
+    }
+
+    /**
+     * Create the month's row, with the user's default limit, for up to {@code chunkSize}
+     * active users whose id sorts after {@code afterUserId}. Existing rows are left alone.
+     */
+    public ProvisionedChunk provisionMonth(int year, int month, String afterUserId, int chunkSize) {
+        return jdbcTemplate.queryForObject(PROVISION_MONTH_SQL,
+                (rs, rowNum) -> new ProvisionedChunk(rs.getString("last_user_id"), rs.getInt("created")),
+                afterUserId, chunkSize, ":" + year + ":" + month, year, month);
+    }
+
+    /**
+     * Month states of the given users, keyed by user id. Users without a row are left out.
+     */
+    public Map<String, UsageCounterState> findStates(int year, int month, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, UsageCounterState> states = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_STATES_SQL);
+            ps.setInt(1, year);
+            ps.setInt(2, month);
+            ps.setInt(3, year);
+            ps.setInt(4, month);
+            ps.setArray(5, con.createArrayOf("varchar", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            states.put(rs.getString("user_id"), STATE_MAPPER.mapRow(rs, 0));
+        });
+        return states;
+    }
+
+    /**
+     * Write flushed Redis counter values to their monthly usage rows.
+     */
+    public void raiseUtilised(List<DirtyCounter> counters) {
+        if (counters.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+
+        jdbcTemplate.batchUpdate(RAISE_UTILISED_SQL, counters, BATCH_SIZE, (ps, c) -> {
+            ps.setInt(1, c.utilised());
+            ps.setTimestamp(2, now);
+            ps.setString(3, c.userId());
+            ps.setInt(4, c.year());
+            ps.setInt(5, c.month());
+            ps.setInt(6, c.utilised());
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.UsageEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UsageEventRepository extends JpaRepository<UsageEvent, Long> {
+
+    List<UsageEvent> findByUserIdAndYearAndMonthOrderByIdAsc(String userId, int year, int month);
+}
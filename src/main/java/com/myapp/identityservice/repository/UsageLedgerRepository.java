@@ -0,0 +1,272 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.service.RedisUsageCounter.UsageEventEntry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access to the append-only usage_events ledger.
+ *
+ * Consumes of one user-month are serialised by a transaction-scoped advisory lock rather than
+ * by a lock on the user_monthly_usage row, so the row itself is only written when events are
+ * folded into it. The same lock guards folding: while it is held, every event of the
+ * user-month is committed, so folding up to the highest id never skips a later commit.
+ *
+ * In the Redis consume mode the ledger is an audit trail only: charges are copied in from
+ * Redis after the fact by {@link #appendRecorded}, which also marks them folded, as the Redis
+ * counters that user_monthly_usage is written from already include them.
+ */
+@Repository
+public class UsageLedgerRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(?)";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final String LOCK_TIMEOUT_SQL = "SELECT current_setting('lock_timeout')";
+
+    // is_local = true: the setting ends with the transaction, like SET LOCAL
+    private static final String SET_LOCK_TIMEOUT_SQL = "SELECT set_config('lock_timeout', ?, true)";
+
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    // unnest keeps array order, so locks are taken in the order of the (sorted) keys
+    private static final String LOCK_ALL_SQL = "SELECT pg_advisory_xact_lock(k) FROM unnest(?) AS t(k)";
+
+    private static final String APPEND_SQL =
+            "INSERT INTO usage_events (user_id, year, month, amount, idempotency_key, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, NOW())";
+
+    // Repeated entries (same source_id) are skipped; the position only moves forward, as
+    // concurrent copies may commit out of id order
+    private static final String APPEND_RECORDED_SQL =
+            "WITH input AS (" +
+            "  SELECT * FROM unnest(?::varchar[], ?::int[], ?::int[], ?::int[], ?::varchar[], ?::timestamptz[], " +
+            "  ?::varchar[]) AS t(user_id, year, month, amount, idempotency_key, created_at, source_id)" +
+            "), inserted AS (" +
+            "  INSERT INTO usage_events (user_id, year, month, amount, idempotency_key, created_at, source_id) " +
+            "  SELECT user_id, year, month, amount, idempotency_key, created_at, source_id FROM input " +
+            "  ON CONFLICT (year, month, source_id) DO NOTHING " +
+            "  RETURNING user_id, year, month, id" +
+            ") " +
+            "UPDATE user_monthly_usage u SET ledger_position = GREATEST(u.ledger_position, i.last_id) " +
+            "FROM (SELECT user_id, year, month, MAX(id) AS last_id FROM inserted GROUP BY user_id, year, month) i " +
+            "WHERE u.user_id = i.user_id AND u.year = i.year AND u.month = i.month";
+
+    private static final String FIND_UNFOLDED_SQL =
+            "SELECT u.user_id FROM user_monthly_usage u " +
+            "WHERE u.year = ? AND u.month = ? AND u.user_id > ? " +
+            "AND EXISTS (SELECT 1 FROM usage_events e WHERE e.user_id = u.user_id " +
+            "AND e.year = ? AND e.month = ? AND e.id > u.ledger_position) " +
+            "ORDER BY u.user_id LIMIT ?";
+
+    private static final String FOLD_SQL =
+            "WITH tail AS (" +
+            "  SELECT e.user_id, SUM(e.amount) AS total, COUNT(*) AS events, MAX(e.id) AS last_id " +
+            "  FROM usage_events e " +
+            "  JOIN user_monthly_usage p ON p.user_id = e.user_id AND p.year = e.year AND p.month = e.month " +
+            "  WHERE e.year = ? AND e.month = ? AND e.user_id = ANY(?) AND e.id > p.ledger_position " +
+            "  GROUP BY e.user_id" +
+            "), folded AS (" +
+            "  UPDATE user_monthly_usage u " +
+            "  SET utilised = u.utilised + t.total, ledger_position = t.last_id, updated_at = NOW() " +
+            "  FROM tail t WHERE u.user_id = t.user_id AND u.year = ? AND u.month = ? " +
+            "  RETURNING t.events" +
+            ") " +
+            "SELECT COUNT(*) AS rows_folded, COALESCE(SUM(events), 0) AS events_folded FROM folded";
+
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+            "WHERE c.relname = 'usage_events' AND pg_table_is_visible(c.oid))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsageLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * One consume to append. {@code idempotencyKey} may be null.
+     */
+    public record LedgerEntry(String userId, int amount, String idempotencyKey) {
+    }
+
+    /**
+     * Rows and events folded by one {@link #fold} call.
+     */
+    public record FoldResult(int rows, long events) {
+    }
+
+    /**
+     * Take the user-month's ledger lock until the end of the current transaction.
+     */
+    public void lock(String userId, int year, int month) {
+        jdbcTemplate.query(LOCK_SQL, rs -> { }, lockKey(userId, year, month));
+    }
+
+    /**
+     * {@link #lock} without waiting.
+     *
+     * @return false if another transaction holds the lock
+     */
+    public boolean tryLock(String userId, int year, int month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class,
+                lockKey(userId, year, month)));
+    }
+
+    /**
+     * {@link #lock}, waiting at most {@code timeout} for a holder to finish. The wait is
+     * bounded by Postgres' lock_timeout, which is set for the wait only and then restored.
+     *
+     * A timed-out wait aborts the transaction, so after a false return the caller can only
+     * roll back.
+     *
+     * @return false if the lock was not free within the timeout
+     */
+    public boolean lockWithin(String userId, int year, int month, Duration timeout) {
+        String previous = jdbcTemplate.queryForObject(LOCK_TIMEOUT_SQL, String.class);
+        // 0 would mean no limit
+        jdbcTemplate.queryForObject(SET_LOCK_TIMEOUT_SQL, String.class,
+                Math.max(1, timeout.toMillis()) + "ms");
+        try {
+            lock(userId, year, month);
+        } catch (DataAccessException e) {
+            if (e.getMostSpecificCause() instanceof SQLException sqlException
+                    && LOCK_NOT_AVAILABLE.equals(sqlException.getSQLState())) {
+                return false;
+            }
+            throw e;
+        }
+        jdbcTemplate.queryForObject(SET_LOCK_TIMEOUT_SQL, String.class, previous);
+        return true;
+    }
+
+    /**
+     * {@link #lock} for many users, in a fixed order so that concurrent callers cannot
+     * deadlock each other.
+     */
+    public void lockAll(int year, int month, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Long[] keys = userIds.stream()
+                .map(userId -> lockKey(userId, year, month))
+                .distinct()
+                .sorted()
+                .toArray(Long[]::new);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_ALL_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", keys));
+            return ps;
+        }, rs -> { });
+    }
+
+    public void append(String userId, int year, int month, int amount, String idempotencyKey) {
+        jdbcTemplate.update(APPEND_SQL, userId, year, month, amount, idempotencyKey);
+    }
+
+    public void appendAll(int year, int month, List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(APPEND_SQL, entries, BATCH_SIZE, (ps, entry) -> {
+            ps.setString(1, entry.userId());
+            ps.setInt(2, year);
+            ps.setInt(3, month);
+            ps.setInt(4, entry.amount());
+            ps.setString(5, entry.idempotencyKey());
+        });
+    }
+
+    /**
+     * Append charges recorded in Redis, skipping any already appended, and mark them folded
+     * into their user_monthly_usage rows.
+     */
+    public void appendRecorded(List<UsageEventEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(APPEND_RECORDED_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", entries.stream().map(UsageEventEntry::userId).toArray()));
+            ps.setArray(2, con.createArrayOf("integer", entries.stream().map(UsageEventEntry::year).toArray()));
+            ps.setArray(3, con.createArrayOf("integer", entries.stream().map(UsageEventEntry::month).toArray()));
+            ps.setArray(4, con.createArrayOf("integer", entries.stream().map(UsageEventEntry::amount).toArray()));
+            ps.setArray(5, con.createArrayOf("varchar",
+                    entries.stream().map(UsageEventEntry::idempotencyKey).toArray()));
+            ps.setArray(6, con.createArrayOf("timestamptz",
+                    entries.stream().map(entry -> Timestamp.from(entry.createdAt())).toArray()));
+            ps.setArray(7, con.createArrayOf("varchar", entries.stream().map(UsageEventEntry::entryId).toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Up to {@code limit} users, in id order after {@code afterUserId}, whose month has events
+     * that are not folded into their row yet.
+     */
+    public List<String> findUnfolded(int year, int month, String afterUserId, int limit) {
+        return jdbcTemplate.queryForList(FIND_UNFOLDED_SQL, String.class,
+                year, month, afterUserId, year, month, limit);
+    }
+
+    /**
+     * Add the users' unfolded events to their month rows. The caller must hold the users'
+     * ledger locks (see {@link #lockAll}).
+     */
+    public FoldResult fold(int year, int month, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return new FoldResult(0, 0);
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FOLD_SQL);
+            ps.setInt(1, year);
+            ps.setInt(2, month);
+            ps.setArray(3, con.createArrayOf("varchar", userIds.toArray()));
+            ps.setInt(4, year);
+            ps.setInt(5, month);
+            return ps;
+        }, rs -> {
+            rs.next();
+            return new FoldResult(rs.getInt("rows_folded"), rs.getLong("events_folded"));
+        });
+    }
+
+    /**
+     * Create the month's ledger partition if the table is partitioned and the partition does
+     * not exist yet.
+     *
+     * @return false if usage_events is not a partitioned table (e.g. a schema created by Hibernate)
+     */
+    public boolean createPartition(YearMonth month) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class))) {
+            return false;
+        }
+        YearMonth next = month.plusMonths(1);
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS usage_events_%04d_%02d PARTITION OF usage_events " +
+                "FOR VALUES FROM (%d, %d) TO (%d, %d)",
+                month.getYear(), month.getMonthValue(),
+                month.getYear(), month.getMonthValue(), next.getYear(), next.getMonthValue()));
+        return true;
+    }
+
+    private static long lockKey(String userId, int year, int month) {
+        // Stable across instances; a collision only serialises two unrelated user-months
+        return UUID.nameUUIDFromBytes(("usage:" + userId + ":" + year + ":" + month)
+                .getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+    }
+}
@@ -0,0 +1,35 @@
+package com.myapp.identityservice.repository;
+
+import com.myapp.identityservice.domain.UsageReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface UsageReservationRepository extends JpaRepository<UsageReservation, String> {
+
+    /**
+     * Delete a reservation that has not expired yet. Returns 0 if it has expired or was
+     * already deleted by a concurrent commit or release.
+     */
+    @Modifying
+    @Query("DELETE FROM UsageReservation r WHERE r.id = :id AND r.expiresAt > :now")
+    int deleteActive(@Param("id") String id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM UsageReservation r WHERE r.id = :id AND r.userId = :userId")
+    int deleteByIdAndUserId(@Param("id") String id, @Param("userId") String userId);
+
+    /**
+     * Delete up to {@code max} reservations that expired before {@code now}.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM usage_reservations WHERE id IN (" +
+            "SELECT id FROM usage_reservations WHERE expires_at <= :now LIMIT :max)",
+            nativeQuery = true)
+    int deleteExpired(@Param("now") Instant now, @Param("max") int max);
+}
@@ -1,14 +1,20 @@
 package com.myapp.identityservice.repository;
 
-import com.myapp.identityservice.domain.GroupMembershipAction;
 import com.myapp.identityservice.domain.UserGroupMembership;
+import com.myapp.identityservice.dto.response.MembershipHistoryExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserGroupMembershipRepository extends JpaRepository<UserGroupMembership, String> {
@@ -28,6 +34,50 @@ public interface UserGroupMembershipRepository extends JpaRepository<UserGroupMe
             @Param("userId") String userId
     );
 
+    // Keyset-paginated history, served by idx_membership_group_created (group_id, created_at DESC, id DESC)
+
+    /**
+     * First page of a group's history, newest first, optionally for a single user.
+     */
+    @Query("SELECT m FROM UserGroupMembership m JOIN FETCH m.user " +
+           "WHERE m.groupId = :groupId AND (:userId IS NULL OR m.userId = :userId) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<UserGroupMembership> findHistoryPage(
+            @Param("groupId") String groupId,
+            @Param("userId") String userId,
+            Pageable pageable);
+
+    /**
+     * Next page of {@link #findHistoryPage}, strictly after (createdAt, id). The cursor is a
+     * row-value comparison so that Postgres starts the index range scan at it; the equivalent
+     * OR form is only applied as a filter, walking every row before the cursor.
+     */
+    @Query("SELECT m FROM UserGroupMembership m JOIN FETCH m.user " +
+           "WHERE m.groupId = :groupId AND (:userId IS NULL OR m.userId = :userId) " +
+           "AND (m.createdAt, m.id) < (:createdAt, :id) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<UserGroupMembership> findHistoryPageAfter(
+            @Param("groupId") String groupId,
+            @Param("userId") String userId,
+            @Param("createdAt") Instant createdAt,
+            @Param("id") String id,
+            Pageable pageable);
+
+    /**
+     * Full history of a group, oldest first, for NDJSON export. Rows are read through a
+     * forward-only cursor and mapped straight to DTOs, so memory stays flat at any size.
+     * Must be consumed (and closed) inside a read-only transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.myapp.identityservice.dto.response.MembershipHistoryExportRow(" +
+           "m.id, m.userId, u.name, m.action, m.performedBy, m.createdAt) " +
+           "FROM UserGroupMembership m JOIN m.user u " +
+           "WHERE m.groupId = :groupId ORDER BY m.createdAt, m.id")
+    Stream<MembershipHistoryExportRow> streamHistoryForExport(@Param("groupId") String groupId);
+
     @Query("SELECT m FROM UserGroupMembership m WHERE m.user.id = :userId ORDER BY m.createdAt DESC")
     List<UserGroupMembership> findByUserIdOrderByCreatedAtDesc(@Param("userId") String userId);
 
@@ -37,9 +87,11 @@ public interface UserGroupMembershipRepository extends JpaRepository<UserGroupMe
     @Query("SELECT DISTINCT m.user.id FROM UserGroupMembership m WHERE m.group.id = :groupId")
     List<String> findDistinctUserIdsByGroupId(@Param("groupId") String groupId);
 
-    default boolean isUserInGroup(String userId, String groupId) {
-        return findLatestByUserIdAndGroupId(userId, groupId)
-                .map(m -> m.getAction() == GroupMembershipAction.ADDED)
-                .orElse(false);
-    }
+    /**
+     * Check current membership. Answered from the group_members current-state table,
+     * which is kept in sync with this audit log, rather than by reading the latest log row.
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM group_members WHERE user_id = :userId AND group_id = :groupId)",
+           nativeQuery = true)
+    boolean isUserInGroup(@Param("userId") String userId, @Param("groupId") String groupId);
 }
@@ -1,9 +1,12 @@
 package com.myapp.identityservice.repository;
 
 import com.myapp.identityservice.domain.UserGroup;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -37,9 +40,36 @@ public interface UserGroupRepository extends JpaRepository<UserGroup, String> {
     @Query("SELECT g FROM UserGroup g ORDER BY g.createdAt DESC")
     Page<UserGroup> findAllOrderByCreatedAtDesc(Pageable pageable);
 
+    /**
+     * Page of groups with their parent and child counts, in one query (plus the page count).
+     * Each row is [UserGroup, childCount (Long), activeChildCount (Long)]. Null filters are ignored.
+     */
+    @Query(value = "SELECT g, " +
+           "(SELECT COUNT(c) FROM UserGroup c WHERE c.parentGroupId = g.id), " +
+           "(SELECT COUNT(c) FROM UserGroup c WHERE c.parentGroupId = g.id AND c.isActive = true) " +
+           "FROM UserGroup g LEFT JOIN FETCH g.parentGroup " +
+           "WHERE (:isActive IS NULL OR g.isActive = :isActive) " +
+           "AND (:parentGroupId IS NULL OR g.parentGroupId = :parentGroupId) " +
+           "ORDER BY g.createdAt DESC",
+           countQuery = "SELECT COUNT(g) FROM UserGroup g " +
+           "WHERE (:isActive IS NULL OR g.isActive = :isActive) " +
+           "AND (:parentGroupId IS NULL OR g.parentGroupId = :parentGroupId)")
+    Page<Object[]> findPageWithChildCounts(
+            @Param("isActive") Boolean isActive,
+            @Param("parentGroupId") String parentGroupId,
+            Pageable pageable);
+
     @Query("SELECT g FROM UserGroup g LEFT JOIN FETCH g.parentGroup WHERE g.id = :id")
     Optional<UserGroup> findByIdWithParent(@Param("id") String id);
 
+    /**
+     * Load a group and lock its row until the end of the transaction, so that concurrent
+     * bulk adds to the group run one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM UserGroup g WHERE g.id = :id")
+    Optional<UserGroup> findByIdForUpdate(@Param("id") String id);
+
     @Query("SELECT g FROM UserGroup g LEFT JOIN FETCH g.parentGroup LEFT JOIN FETCH g.childGroups WHERE g.id = :id")
     Optional<UserGroup> findByIdWithParentAndChildren(@Param("id") String id);
 
@@ -65,6 +95,42 @@ public interface UserGroupRepository extends JpaRepository<UserGroup, String> {
             @Param("name") String name,
             @Param("excludeGroupId") String excludeGroupId);
 
+    /**
+     * Find active groups with the same name (case insensitive) whose member-set fingerprint matches.
+     * Served by idx_group_name_fingerprint; callers must still compare the actual member sets.
+     */
+    @Query("SELECT g FROM UserGroup g WHERE LOWER(g.name) = LOWER(:name) AND g.isActive = true " +
+           "AND g.id <> :excludeGroupId AND g.memberSetHash = :memberSetHash AND g.memberCount = :memberCount")
+    List<UserGroup> findDuplicateCandidates(
+            @Param("name") String name,
+            @Param("excludeGroupId") String excludeGroupId,
+            @Param("memberSetHash") long memberSetHash,
+            @Param("memberCount") int memberCount);
+
+    /**
+     * Recompute the member-set fingerprint of a group from group_members (active users only).
+     * Must run after every membership change, in the same transaction.
+     */
+    @Modifying
+    @Query(value = "UPDATE user_groups g SET (member_count, member_set_hash) = (" +
+           "SELECT COUNT(*), COALESCE(BIT_XOR(CAST(CAST('x' || SUBSTR(MD5(gm.user_id), 1, 16) AS BIT(64)) AS BIGINT)), 0) " +
+           "FROM group_members gm JOIN users u ON u.id = gm.user_id " +
+           "WHERE gm.group_id = g.id AND u.status = 'ACTIVE') " +
+           "WHERE g.id = :groupId", nativeQuery = true)
+    int refreshMemberFingerprint(@Param("groupId") String groupId);
+
+    /**
+     * Recompute fingerprints of every group a user belongs to. Used when the user's status
+     * changes, since only ACTIVE users count towards the member set.
+     */
+    @Modifying
+    @Query(value = "UPDATE user_groups g SET (member_count, member_set_hash) = (" +
+           "SELECT COUNT(*), COALESCE(BIT_XOR(CAST(CAST('x' || SUBSTR(MD5(gm.user_id), 1, 16) AS BIT(64)) AS BIGINT)), 0) " +
+           "FROM group_members gm JOIN users u ON u.id = gm.user_id " +
+           "WHERE gm.group_id = g.id AND u.status = 'ACTIVE') " +
+           "WHERE g.id IN (SELECT group_id FROM group_members WHERE user_id = :userId)", nativeQuery = true)
+    int refreshMemberFingerprintsForUser(@Param("userId") String userId);
+
     /**
      * Find all active groups with the same name (case insensitive).
      * Used for duplicate detection during group creation.
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +23,13 @@ public interface UserMonthlyUsageRepository extends JpaRepository<UserMonthlyUsa
             @Param("month") int month
     );
 
+    @Query("SELECT u FROM UserMonthlyUsage u WHERE u.user.id IN :userIds AND u.year = :year AND u.month = :month")
+    List<UserMonthlyUsage> findByUserIdInAndYearAndMonth(
+            @Param("userIds") Collection<String> userIds,
+            @Param("year") int year,
+            @Param("month") int month
+    );
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT u FROM UserMonthlyUsage u WHERE u.user.id = :userId AND u.year = :year AND u.month = :month")
     Optional<UserMonthlyUsage> findByUserIdAndYearAndMonthWithLock(
@@ -39,9 +47,21 @@ public interface UserMonthlyUsageRepository extends JpaRepository<UserMonthlyUsa
     @Query(value = "SELECT u FROM UserMonthlyUsage u WHERE u.user.id = :userId ORDER BY u.year DESC, u.month DESC LIMIT 12")
     List<UserMonthlyUsage> findLast12MonthsByUserId(@Param("userId") String userId);
 
+    /**
+     * Create the user's row for the month with their default limit, unless it already exists.
+     * Returns 0 when the row exists or when the user does not.
+     */
     @Modifying
-    @Query("UPDATE UserMonthlyUsage u SET u.utilised = u.utilised + :amount WHERE u.id = :id")
-    int incrementUtilised(@Param("id") String id, @Param("amount") int amount);
+    @Query(value = "INSERT INTO user_monthly_usage (id, user_id, year, month, monthly_limit, utilised, created_at, updated_at) " +
+            "SELECT :id, u.id, :year, :month, u.default_monthly_task_limit, 0, NOW(), NOW() FROM users u WHERE u.id = :userId " +
+            "ON CONFLICT (user_id, year, month) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(
+            @Param("id") String id,
+            @Param("userId") String userId,
+            @Param("year") int year,
+            @Param("month") int month
+    );
 
     @Modifying
     @Query("UPDATE UserMonthlyUsage u SET u.monthlyLimit = :monthlyLimit WHERE u.user.id = :userId AND u.year = :year AND u.month = :month")
@@ -0,0 +1,104 @@
+package com.myapp.identityservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.repository.GroupMemberRepository;
+import com.myapp.identityservice.repository.UserGroupMembershipRepository;
+import com.myapp.identityservice.repository.UserGroupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streaming NDJSON exports of group members and membership history.
+ *
+ * Rows come from forward-only database cursors as DTOs and are written to the output
+ * stream one line at a time, so memory use does not depend on the size of the group.
+ * The transaction stays open until the last row has been written.
+ */
+@Service
+public class GroupExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupExportService.class);
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserGroupRepository groupRepository;
+    private final GroupMemberRepository groupMemberRepository;
+    private final UserGroupMembershipRepository membershipRepository;
+    private final ObjectMapper objectMapper;
+
+    public GroupExportService(UserGroupRepository groupRepository,
+                              GroupMemberRepository groupMemberRepository,
+                              UserGroupMembershipRepository membershipRepository,
+                              ObjectMapper objectMapper) {
+        this.groupRepository = groupRepository;
+        this.groupMemberRepository = groupMemberRepository;
+        this.membershipRepository = membershipRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write every current member of the group as one JSON object per line.
+     *
+     * @return the number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long exportMembers(String groupId, OutputStream out) throws IOException {
+        requireGroup(groupId);
+
+        try (Stream<?> rows = groupMemberRepository.streamMembersForExport(groupId)) {
+            long written = writeNdjson(rows, out);
+            logger.info("Group members exported: groupId={}, rows={}", groupId, written);
+            return written;
+        }
+    }
+
+    /**
+     * Write the full membership history of the group, oldest first, as one JSON object per line.
+     *
+     * @return the number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long exportHistory(String groupId, OutputStream out) throws IOException {
+        requireGroup(groupId);
+
+        try (Stream<?> rows = membershipRepository.streamHistoryForExport(groupId)) {
+            long written = writeNdjson(rows, out);
+            logger.info("Group history exported: groupId={}, rows={}", groupId, written);
+            return written;
+        }
+    }
+
+    private void requireGroup(String groupId) {
+        if (!groupRepository.existsById(groupId)) {
+            throw NotFoundException.group(groupId);
+        }
+    }
+
+    private long writeNdjson(Stream<?> rows, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer();
+        // Not closed: the container owns the underlying response stream
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        long written = 0;
+
+        Iterator<?> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            buffered.write(writer.writeValueAsBytes(iterator.next()));
+            buffered.write('\n');
+            if (++written % FLUSH_EVERY_ROWS == 0) {
+                buffered.flush();
+            }
+        }
+        buffered.flush();
+        return written;
+    }
+}
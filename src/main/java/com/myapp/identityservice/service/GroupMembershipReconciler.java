@@ -0,0 +1,70 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.repository.GroupMemberRepository;
+import com.myapp.identityservice.repository.UserGroupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Scheduled verification of the group_members current-state table against the
+ * user_group_memberships audit log.
+ *
+ * The table is written in the same transaction as every log insert, so drift should
+ * only appear after manual SQL edits or a missed write path. Drifted groups are logged
+ * at ERROR level for alerting and rebuilt from the log.
+ */
+@Component
+public class GroupMembershipReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupMembershipReconciler.class);
+
+    private final GroupMemberRepository groupMemberRepository;
+    private final UserGroupRepository groupRepository;
+
+    public GroupMembershipReconciler(GroupMemberRepository groupMemberRepository,
+                                     UserGroupRepository groupRepository) {
+        this.groupMemberRepository = groupMemberRepository;
+        this.groupRepository = groupRepository;
+    }
+
+    /**
+     * Runs daily. Detects drifted groups and rebuilds their current-state rows.
+     */
+    @Scheduled(cron = "${app.group-members.reconcile-cron:0 15 4 * * *}")
+    @Transactional
+    public void reconcile() {
+        List<String> driftedGroupIds = groupMemberRepository.findGroupIdsOutOfSyncWithLog();
+
+        if (driftedGroupIds.isEmpty()) {
+            logger.info("Group membership reconciliation passed: current state matches audit log.");
+            return;
+        }
+
+        logger.error("INVARIANT VIOLATION: {} groups have group_members rows out of sync with " +
+                "user_group_memberships. Rebuilding from the audit log.", driftedGroupIds.size());
+
+        for (String groupId : driftedGroupIds) {
+            rebuildGroup(groupId);
+        }
+    }
+
+    /**
+     * Rebuild the current-state rows of a single group from its audit log, and the member-set
+     * fingerprint that duplicate detection reads from them.
+     *
+     * @return the number of current members after the rebuild
+     */
+    @Transactional
+    public int rebuildGroup(String groupId) {
+        groupMemberRepository.deleteByGroupId(groupId);
+        int members = groupMemberRepository.insertFromLog(groupId);
+        groupRepository.refreshMemberFingerprint(groupId);
+        logger.info("Group membership rebuilt from audit log: groupId={}, members={}", groupId, members);
+        return members;
+    }
+}
@@ -4,16 +4,22 @@ import com.myapp.identityservice.domain.*;
 import com.myapp.identityservice.dto.request.BulkAddUsersRequest;
 import com.myapp.identityservice.dto.request.BulkAddUsersToGroupsRequest;
 import com.myapp.identityservice.dto.request.CreateGroupWithUsersRequest;
+import com.myapp.identityservice.dto.request.MoveGroupRequest;
 import com.myapp.identityservice.dto.request.UpdateGroupRequest;
 import com.myapp.identityservice.dto.response.*;
 import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.ConflictException;
 import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.repository.GroupClosureRepository;
 import com.myapp.identityservice.repository.GroupInvitationRepository;
+import com.myapp.identityservice.repository.GroupMemberRepository;
+import com.myapp.identityservice.repository.GroupMembershipBatchRepository;
 import com.myapp.identityservice.repository.UserGroupMembershipRepository;
 import com.myapp.identityservice.repository.UserGroupRepository;
 import com.myapp.identityservice.repository.UserRepository;
 import com.myapp.identityservice.util.CuidGenerator;
+import com.myapp.identityservice.util.KeysetCursor;
+import com.myapp.identityservice.util.MemberSetFingerprint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -24,31 +30,45 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class GroupService {
 
     private static final Logger logger = LoggerFactory.getLogger(GroupService.class);
+    private static final int MAX_USER_GROUPS_PAGE_SIZE = 500;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+    private static final long HIERARCHY_LOCK_KEY = 0x67726f7570L; // "group"
 
     private final UserGroupRepository groupRepository;
     private final UserGroupMembershipRepository membershipRepository;
+    private final GroupMemberRepository groupMemberRepository;
+    private final GroupClosureRepository closureRepository;
+    private final GroupMembershipBatchRepository membershipBatchRepository;
     private final GroupInvitationRepository invitationRepository;
     private final UserRepository userRepository;
-    private final UserService userService;
+    private final ParallelTransactionRunner transactionRunner;
     private final CuidGenerator cuidGenerator;
 
     public GroupService(UserGroupRepository groupRepository,
                        UserGroupMembershipRepository membershipRepository,
+                       GroupMemberRepository groupMemberRepository,
+                       GroupClosureRepository closureRepository,
+                       GroupMembershipBatchRepository membershipBatchRepository,
                        GroupInvitationRepository invitationRepository,
                        UserRepository userRepository,
-                       UserService userService,
+                       ParallelTransactionRunner transactionRunner,
                        CuidGenerator cuidGenerator) {
         this.groupRepository = groupRepository;
         this.membershipRepository = membershipRepository;
+        this.groupMemberRepository = groupMemberRepository;
+        this.closureRepository = closureRepository;
+        this.membershipBatchRepository = membershipBatchRepository;
         this.invitationRepository = invitationRepository;
         this.userRepository = userRepository;
-        this.userService = userService;
+        this.transactionRunner = transactionRunner;
         this.cuidGenerator = cuidGenerator;
     }
 
@@ -80,32 +100,23 @@ public class GroupService {
         group.setActive(true);
 
         UserGroup savedGroup = groupRepository.save(group);
+        if (parentGroup != null) {
+            // The parent's ancestor rows are copied: wait out any move that is rewriting them
+            closureRepository.lockHierarchyShared(HIERARCHY_LOCK_KEY);
+        }
+        closureRepository.insertGroup(savedGroup.getId(), request.getParentGroupId());
         logger.info("Group created: id={}, name={}, createdBy={}", savedGroup.getId(), savedGroup.getName(), performedBy);
 
         GroupResponse groupResponse = GroupResponse.fromEntity(savedGroup);
 
         // Process users if provided
-        BulkAddUsersResponse usersResponse = new BulkAddUsersResponse();
-
-        if (request.getUsers() != null && !request.getUsers().isEmpty()) {
-            // Collect user IDs that will be added to this group
-            Set<String> newMemberIds = new HashSet<>();
-            for (CreateGroupWithUsersRequest.UserInfo userInfo : request.getUsers()) {
-                User user = userService.findByPhone(userInfo.getPhone());
-                if (user != null) {
-                    newMemberIds.add(user.getId());
-                }
-            }
-
-            // Check for duplicate group before adding members
-            if (!newMemberIds.isEmpty()) {
-                checkForDuplicateGroup(savedGroup.getId(), savedGroup.getName(), newMemberIds);
-            }
-
+        List<BulkAddUsersRequest.UserInfo> users = new ArrayList<>();
+        if (request.getUsers() != null) {
             for (CreateGroupWithUsersRequest.UserInfo userInfo : request.getUsers()) {
-                processUserForGroup(savedGroup, userInfo.getName(), userInfo.getPhone(), performedBy, usersResponse);
+                users.add(toBulkUserInfo(userInfo.getName(), userInfo.getPhone()));
             }
         }
+        BulkAddUsersResponse usersResponse = addUsersToGroup(savedGroup, users, performedBy);
 
         return new CreateGroupWithUsersResponse(groupResponse, usersResponse);
     }
@@ -114,23 +125,15 @@ public class GroupService {
     public ApiResponse<List<GroupResponse>> listGroups(int page, int limit, Boolean isActive, String parentGroupId) {
         Pageable pageable = PageRequest.of(page - 1, limit);
 
-        Page<UserGroup> groupPage;
-        if (isActive != null && parentGroupId != null) {
-            groupPage = groupRepository.findByIsActiveAndParentGroupIdOrderByCreatedAtDesc(isActive, parentGroupId, pageable);
-        } else if (isActive != null) {
-            groupPage = groupRepository.findByIsActiveOrderByCreatedAtDesc(isActive, pageable);
-        } else if (parentGroupId != null) {
-            groupPage = groupRepository.findByParentGroupIdOrderByCreatedAtDesc(parentGroupId, pageable);
-        } else {
-            groupPage = groupRepository.findAllOrderByCreatedAtDesc(pageable);
-        }
+        // Parent and child counts come back with the page rows; no per-group queries
+        Page<Object[]> groupPage = groupRepository.findPageWithChildCounts(isActive, parentGroupId, pageable);
 
         List<GroupResponse> groups = groupPage.getContent()
                 .stream()
-                .map(group -> {
-                    int childCount = groupRepository.countChildGroups(group.getId());
-                    return GroupResponse.fromEntityWithChildCount(group, childCount);
-                })
+                .map(row -> GroupResponse.fromEntityWithChildCounts(
+                        (UserGroup) row[0],
+                        ((Number) row[1]).intValue(),
+                        ((Number) row[2]).intValue()))
                 .collect(Collectors.toList());
 
         PaginationInfo pagination = new PaginationInfo(page, limit, groupPage.getTotalElements());
@@ -152,12 +155,10 @@ public class GroupService {
                 .collect(Collectors.toList());
         response.setChildGroups(childGroups);
 
-        // Get all memberships
-        List<UserGroupMembership> memberships = membershipRepository.findByGroupIdWithUserOrderByCreatedAtDesc(id);
-        List<MembershipResponse> membershipResponses = memberships.stream()
-                .map(MembershipResponse::fromEntityWithUser)
-                .collect(Collectors.toList());
-        response.setMemberships(membershipResponses);
+        // First page of membership history; the rest is fetched from /groups/{id}/history with the cursor
+        ApiResponse<List<MembershipResponse>> history = loadHistoryPage(id, null, null, DEFAULT_HISTORY_PAGE_SIZE);
+        response.setMemberships(history.getData());
+        response.setMembershipsCursor(history.getCursor());
 
         // Calculate current members
         List<UserResponse> currentMembers = getCurrentMembers(id);
@@ -212,6 +213,117 @@ public class GroupService {
         return GroupResponse.fromEntity(savedGroup);
     }
 
+    /**
+     * Move a group and its whole subtree under a new parent (or to the root when parentGroupId is null).
+     */
+    @Transactional
+    public GroupResponse moveGroup(String id, MoveGroupRequest request) {
+        String newParentId = request.getParentGroupId();
+
+        // Serialize moves: two concurrent moves could otherwise each pass the cycle check.
+        // Also excludes group creation under a parent, which copies the closure rows rewritten here.
+        closureRepository.lockHierarchy(HIERARCHY_LOCK_KEY);
+
+        UserGroup group = groupRepository.findById(id)
+                .orElseThrow(() -> NotFoundException.group(id));
+
+        UserGroup newParent = null;
+        if (newParentId != null) {
+            newParent = groupRepository.findById(newParentId)
+                    .orElseThrow(NotFoundException::parentGroup);
+
+            if (!newParent.isActive()) {
+                throw new BadRequestException("Parent group is not active");
+            }
+
+            if (closureRepository.isDescendant(id, newParentId)) {
+                throw new BadRequestException("Cannot move a group under itself or one of its descendants");
+            }
+        }
+
+        if (Objects.equals(group.getParentGroupId(), newParentId)) {
+            return GroupResponse.fromEntity(group);
+        }
+
+        if (existsByNameAtLevel(group.getName(), newParentId)) {
+            throw ConflictException.groupNameExists();
+        }
+
+        group.setParentGroup(newParent);
+        UserGroup savedGroup = groupRepository.save(group);
+
+        int detached = closureRepository.detachSubtree(id);
+        int attached = newParentId != null ? closureRepository.attachSubtree(id, newParentId) : 0;
+        logger.info("Group moved: id={}, newParentGroupId={}, closureRowsRemoved={}, closureRowsAdded={}",
+                id, newParentId, detached, attached);
+
+        GroupResponse response = GroupResponse.fromEntity(savedGroup);
+        response.setParentGroupId(newParentId);
+        return response;
+    }
+
+    /**
+     * The group and all of its descendants with their depth below it, shallowest first.
+     */
+    @Transactional(readOnly = true)
+    public List<GroupResponse> getSubtree(String id, boolean includeInactive) {
+        List<GroupClosure> rows = closureRepository.findSubtree(id, includeInactive);
+        if (rows.isEmpty() && !groupRepository.existsById(id)) {
+            throw NotFoundException.group(id);
+        }
+
+        return rows.stream()
+                .map(row -> GroupResponse.fromEntityWithDepth(row.getDescendant(), row.getDepth()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ancestor chain of a group, root first (for breadcrumbs). Empty for root groups.
+     */
+    @Transactional(readOnly = true)
+    public List<GroupResponse> getAncestors(String id) {
+        if (!groupRepository.existsById(id)) {
+            throw NotFoundException.group(id);
+        }
+
+        return closureRepository.findAncestors(id)
+                .stream()
+                .map(row -> GroupResponse.fromEntityWithDepth(row.getAncestor(), row.getDepth()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Distinct active members across all active groups in the subtree.
+     */
+    @Transactional(readOnly = true)
+    public List<UserResponse> getSubtreeMembers(String id) {
+        if (!groupRepository.existsById(id)) {
+            throw NotFoundException.group(id);
+        }
+
+        return closureRepository.findSubtreeMembers(id)
+                .stream()
+                .map(UserResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Soft delete a group together with all of its descendants in one statement.
+     *
+     * @return the number of groups deactivated
+     */
+    @Transactional
+    public int deleteSubtree(String id) {
+        if (!groupRepository.existsById(id)) {
+            throw NotFoundException.group(id);
+        }
+
+        int deactivated = closureRepository.deactivateSubtree(id, Instant.now());
+        logger.info("Group subtree deleted (soft): id={}, groupsDeactivated={}", id, deactivated);
+
+        return deactivated;
+    }
+
     @Transactional
     public MembershipResponse addUserToGroup(String groupId, String userId, String performedBy) {
         UserGroup group = groupRepository.findById(groupId)
@@ -253,80 +365,30 @@ public class GroupService {
             throw new BadRequestException("Group is not active");
         }
 
-        // Get current members and calculate what the new member set will be
-        Set<String> projectedMemberIds = getCurrentMemberIds(groupId);
-
-        // Collect all user IDs that will be added
-        for (BulkAddUsersRequest.UserInfo userInfo : request.getUsers()) {
-            User user = userService.findByPhone(userInfo.getPhone());
-            if (user != null && user.getStatus() == UserStatus.ACTIVE
-                    && !membershipRepository.isUserInGroup(user.getId(), groupId)) {
-                projectedMemberIds.add(user.getId());
-            }
-        }
-
-        // Check for duplicate group before adding any members
-        checkForDuplicateGroup(groupId, group.getName(), projectedMemberIds);
-
-        BulkAddUsersResponse response = new BulkAddUsersResponse();
-
-        for (BulkAddUsersRequest.UserInfo userInfo : request.getUsers()) {
-            processUserForGroup(group, userInfo.getName(), userInfo.getPhone(), performedBy, response);
-        }
-
-        return response;
+        return addUsersToGroup(group, request.getUsers(), performedBy);
     }
 
     /**
      * Add a list of users to multiple existing groups.
-     * Each group is processed independently - failures in one group don't affect others.
+     * Each group is processed concurrently in its own transaction - failures in one group
+     * don't affect others. Results are returned in request order, once per distinct group.
      */
-    @Transactional
     public BulkAddUsersToGroupsResponse bulkAddUsersToGroups(BulkAddUsersToGroupsRequest request, String performedBy) {
-        BulkAddUsersToGroupsResponse response = new BulkAddUsersToGroupsResponse();
-
-        for (String groupId : request.getGroupIds()) {
-            try {
-                UserGroup group = groupRepository.findById(groupId).orElse(null);
-
-                if (group == null) {
-                    response.addGroupResult(BulkAddUsersToGroupsResponse.GroupResult.failure(
-                            groupId, "Group not found"));
-                    continue;
-                }
-
-                if (!group.isActive()) {
-                    response.addGroupResult(BulkAddUsersToGroupsResponse.GroupResult.failure(
-                            groupId, "Group is not active"));
-                    continue;
-                }
-
-                // Convert request users to BulkAddUsersRequest format
-                BulkAddUsersRequest bulkRequest = new BulkAddUsersRequest();
-                List<BulkAddUsersRequest.UserInfo> userInfoList = new ArrayList<>();
-                for (BulkAddUsersToGroupsRequest.UserInfo userInfo : request.getUsers()) {
-                    BulkAddUsersRequest.UserInfo converted = new BulkAddUsersRequest.UserInfo();
-                    converted.setName(userInfo.getName());
-                    converted.setPhone(userInfo.getPhone());
-                    userInfoList.add(converted);
-                }
-                bulkRequest.setUsers(userInfoList);
-
-                // Use existing bulkAddUsers logic but catch exceptions
-                BulkAddUsersResponse usersResult = bulkAddUsersInternal(group, bulkRequest, performedBy);
+        // Convert request users to BulkAddUsersRequest format
+        List<BulkAddUsersRequest.UserInfo> users = new ArrayList<>();
+        for (BulkAddUsersToGroupsRequest.UserInfo userInfo : request.getUsers()) {
+            users.add(toBulkUserInfo(userInfo.getName(), userInfo.getPhone()));
+        }
 
-                response.addGroupResult(BulkAddUsersToGroupsResponse.GroupResult.success(
-                        groupId, group.getName(), usersResult));
+        // A repeated group would run twice at once and add its users twice
+        List<String> groupIds = new ArrayList<>(new LinkedHashSet<>(request.getGroupIds()));
+        List<BulkAddUsersToGroupsResponse.GroupResult> results = transactionRunner.runEach(
+                groupIds,
+                groupId -> addUsersToGroupById(groupId, users, performedBy),
+                this::groupFailure);
 
-            } catch (ConflictException e) {
-                response.addGroupResult(BulkAddUsersToGroupsResponse.GroupResult.failure(
-                        groupId, e.getMessage()));
-            } catch (Exception e) {
-                logger.error("Error adding users to group {}: {}", groupId, e.getMessage());
-                response.addGroupResult(BulkAddUsersToGroupsResponse.GroupResult.failure(
-                        groupId, "Internal error: " + e.getMessage()));
-            }
-        }
+        BulkAddUsersToGroupsResponse response = new BulkAddUsersToGroupsResponse();
+        results.forEach(response::addGroupResult);
 
         logger.info("Bulk add users to groups completed: total={}, success={}, failed={}, performedBy={}",
                 response.getTotalGroupsProcessed(), response.getSuccessfulGroups(),
@@ -336,32 +398,34 @@ public class GroupService {
     }
 
     /**
-     * Internal method for bulk adding users to a group without duplicate group check.
-     * Used by bulkAddUsersToGroups to avoid redundant validation.
+     * Single-group unit of work for bulkAddUsersToGroups. Runs inside the caller's transaction.
+     * The group row is locked first, so concurrent requests for the same group see each
+     * other's members instead of both adding them.
      */
-    private BulkAddUsersResponse bulkAddUsersInternal(UserGroup group, BulkAddUsersRequest request, String performedBy) {
-        // Get current members and calculate what the new member set will be
-        Set<String> projectedMemberIds = getCurrentMemberIds(group.getId());
-
-        // Collect all user IDs that will be added
-        for (BulkAddUsersRequest.UserInfo userInfo : request.getUsers()) {
-            User user = userService.findByPhone(userInfo.getPhone());
-            if (user != null && user.getStatus() == UserStatus.ACTIVE
-                    && !membershipRepository.isUserInGroup(user.getId(), group.getId())) {
-                projectedMemberIds.add(user.getId());
-            }
+    private BulkAddUsersToGroupsResponse.GroupResult addUsersToGroupById(String groupId,
+                                                                        List<BulkAddUsersRequest.UserInfo> users,
+                                                                        String performedBy) {
+        UserGroup group = groupRepository.findByIdForUpdate(groupId).orElse(null);
+
+        if (group == null) {
+            return BulkAddUsersToGroupsResponse.GroupResult.failure(groupId, "Group not found");
         }
 
-        // Check for duplicate group before adding any members
-        checkForDuplicateGroup(group.getId(), group.getName(), projectedMemberIds);
+        if (!group.isActive()) {
+            return BulkAddUsersToGroupsResponse.GroupResult.failure(groupId, "Group is not active");
+        }
 
-        BulkAddUsersResponse response = new BulkAddUsersResponse();
+        BulkAddUsersResponse usersResult = addUsersToGroup(group, users, performedBy);
 
-        for (BulkAddUsersRequest.UserInfo userInfo : request.getUsers()) {
-            processUserForGroup(group, userInfo.getName(), userInfo.getPhone(), performedBy, response);
-        }
+        return BulkAddUsersToGroupsResponse.GroupResult.success(groupId, group.getName(), usersResult);
+    }
 
-        return response;
+    private BulkAddUsersToGroupsResponse.GroupResult groupFailure(String groupId, Exception e) {
+        if (e instanceof ConflictException) {
+            return BulkAddUsersToGroupsResponse.GroupResult.failure(groupId, e.getMessage());
+        }
+        logger.error("Error adding users to group {}: {}", groupId, e.getMessage());
+        return BulkAddUsersToGroupsResponse.GroupResult.failure(groupId, "Internal error: " + e.getMessage());
     }
 
     @Transactional(readOnly = true)
@@ -392,104 +456,199 @@ public class GroupService {
         return MembershipResponse.fromEntity(membership);
     }
 
+    /**
+     * Membership history of a group, newest first, keyset-paginated on (createdAt, id).
+     */
     @Transactional(readOnly = true)
-    public List<MembershipResponse> getGroupHistory(String groupId, String userId) {
+    public ApiResponse<List<MembershipResponse>> getGroupHistory(String groupId, String userId,
+                                                                 String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_HISTORY_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_HISTORY_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
         if (!groupRepository.existsById(groupId)) {
             throw NotFoundException.group(groupId);
         }
 
-        List<UserGroupMembership> memberships;
-        if (userId != null) {
-            memberships = membershipRepository.findByGroupIdAndUserIdWithUserOrderByCreatedAtDesc(groupId, userId);
-        } else {
-            memberships = membershipRepository.findByGroupIdWithUserOrderByCreatedAtDesc(groupId);
+        return loadHistoryPage(groupId, userId, after, pageSize);
+    }
+
+    private ApiResponse<List<MembershipResponse>> loadHistoryPage(String groupId, String userId,
+                                                                  KeysetCursor after, int limit) {
+        // Fetch one extra row to learn whether another page follows
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<UserGroupMembership> rows = after == null
+                ? membershipRepository.findHistoryPage(groupId, userId, pageable)
+                : membershipRepository.findHistoryPageAfter(groupId, userId, after.timestamp(), after.id(), pageable);
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            UserGroupMembership last = rows.get(rows.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
         }
 
-        return memberships.stream()
+        List<MembershipResponse> memberships = rows.stream()
                 .map(MembershipResponse::fromEntityWithUser)
                 .collect(Collectors.toList());
+        return ApiResponse.success(memberships, new CursorInfo(limit, nextCursor));
     }
 
+    /**
+     * Current active groups of a user, newest membership first.
+     * Without a limit all groups are returned; with a limit the result is keyset-paginated
+     * and {@code cursor} continues from a previous page.
+     */
     @Transactional(readOnly = true)
-    public List<GroupResponse> getUserGroups(String userId) {
-        if (!userRepository.existsById(userId)) {
+    public ApiResponse<List<GroupResponse>> getUserGroups(String userId, String cursor, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_USER_GROUPS_PAGE_SIZE)) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_USER_GROUPS_PAGE_SIZE);
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        // Fetch one extra row to learn whether another page follows
+        Pageable pageable = limit != null ? PageRequest.of(0, limit + 1) : Pageable.unpaged();
+        List<GroupMember> rows = after == null
+                ? groupMemberRepository.findActiveGroupsOfUser(userId, pageable)
+                : groupMemberRepository.findActiveGroupsOfUserAfter(userId, after.timestamp(), after.id(), pageable);
+
+        // Only pay for the existence check when there is nothing to return
+        if (rows.isEmpty() && !userRepository.existsById(userId)) {
             throw NotFoundException.user(userId);
         }
 
-        List<UserGroupMembership> memberships = membershipRepository.findByUserIdWithGroupOrderByCreatedAtDesc(userId);
+        if (limit == null) {
+            return ApiResponse.success(toGroupResponses(rows));
+        }
 
-        // Determine current group memberships
-        Map<String, GroupMembershipAction> latestActions = new LinkedHashMap<>();
-        for (UserGroupMembership membership : memberships) {
-            String gid = membership.getGroup().getId();
-            if (!latestActions.containsKey(gid)) {
-                latestActions.put(gid, membership.getAction());
-            }
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            GroupMember last = rows.get(rows.size() - 1);
+            nextCursor = new KeysetCursor(last.getAddedAt(), last.getGroupId()).encode();
         }
+        return ApiResponse.success(toGroupResponses(rows), new CursorInfo(limit, nextCursor));
+    }
 
-        // Return only groups where user is currently a member (ADDED) and group is active
-        return latestActions.entrySet().stream()
-                .filter(entry -> entry.getValue() == GroupMembershipAction.ADDED)
-                .map(entry -> groupRepository.findById(entry.getKey()).orElse(null))
-                .filter(group -> group != null && group.isActive())
-                .map(GroupResponse::fromEntity)
+    private List<GroupResponse> toGroupResponses(List<GroupMember> rows) {
+        return rows.stream()
+                .map(row -> GroupResponse.fromEntity(row.getGroup()))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Process a user for group membership.
+     * Add a batch of users (identified by phone) to a group.
      * If user exists and is active -> add to group
      * If user doesn't exist -> create invitation (no shadow user created)
+     *
+     * Users, existing memberships and pending invitations are each loaded with a single query,
+     * and all rows are written with JDBC batches, so the cost does not grow per user.
+     * The duplicate group check runs once against the projected member set before any write.
      */
-    private void processUserForGroup(UserGroup group, String name, String phone,
-                                    String performedBy, BulkAddUsersResponse response) {
-        try {
-            // Normalize phone for lookup
-            String normalizedPhone = normalizePhone(phone);
+    private BulkAddUsersResponse addUsersToGroup(UserGroup group, List<BulkAddUsersRequest.UserInfo> users,
+                                                 String performedBy) {
+        BulkAddUsersResponse response = new BulkAddUsersResponse();
+        if (users == null || users.isEmpty()) {
+            return response;
+        }
+
+        String groupId = group.getId();
+        Instant now = Instant.now();
+
+        Set<String> phones = new LinkedHashSet<>();
+        for (BulkAddUsersRequest.UserInfo userInfo : users) {
+            phones.add(normalizePhone(userInfo.getPhone()));
+        }
+
+        Map<String, User> usersByPhone = userRepository.findByPhoneIn(phones)
+                .stream()
+                .collect(Collectors.toMap(User::getPhone, Function.identity(), (a, b) -> a));
+
+        // Existing members among the requested users; grows as users are accepted so
+        // repeated phones in one request are reported as already members
+        Set<String> memberIds = new HashSet<>();
+        if (!usersByPhone.isEmpty()) {
+            List<String> userIds = usersByPhone.values().stream().map(User::getId).toList();
+            memberIds.addAll(groupMemberRepository.findMemberUserIds(groupId, userIds));
+        }
+
+        // Phones with a live pending invitation; grows as invitations are created
+        Set<String> invitedPhones = new HashSet<>();
+        Set<String> unknownPhones = phones.stream()
+                .filter(phone -> !usersByPhone.containsKey(phone))
+                .collect(Collectors.toSet());
+        if (!unknownPhones.isEmpty()) {
+            invitationRepository.expireOverduePendingInvitations(groupId, unknownPhones, now);
+            invitedPhones.addAll(invitationRepository.findPendingIdentifiers(groupId, unknownPhones, now));
+        }
 
-            // Try to find existing user by phone
-            User user = userService.findByPhone(normalizedPhone);
+        List<UserGroupMembership> memberships = new ArrayList<>();
+        List<Invitation> invitations = new ArrayList<>();
+
+        for (BulkAddUsersRequest.UserInfo userInfo : users) {
+            String normalizedPhone = normalizePhone(userInfo.getPhone());
+            User user = usersByPhone.get(normalizedPhone);
 
             if (user == null) {
                 // User doesn't exist - create invitation instead of shadow user
-                createInvitationForUser(group, name, normalizedPhone, performedBy, response);
-                return;
+                if (!invitedPhones.add(normalizedPhone)) {
+                    response.addSkippedUser(normalizedPhone, "Invitation already exists for this group");
+                    continue;
+                }
+                invitations.add(newInvitation(group, userInfo.getName(), normalizedPhone, performedBy, now));
+                continue;
             }
 
-            // User exists - check if active
             if (user.getStatus() != UserStatus.ACTIVE) {
-                response.addSkippedUser(phone, "User is not active");
-                return;
+                response.addSkippedUser(userInfo.getPhone(), "User is not active");
+                continue;
             }
 
-            // Check if already in group
-            if (membershipRepository.isUserInGroup(user.getId(), group.getId())) {
+            if (!memberIds.add(user.getId())) {
                 response.addAlreadyMember(UserResponse.fromEntity(user), "User is already a member of this group");
-                return;
+                continue;
             }
 
-            // Add existing user to group
-            UserGroupMembership membership = createMembership(group, user, GroupMembershipAction.ADDED, performedBy);
+            UserGroupMembership membership = newMembership(group, user, GroupMembershipAction.ADDED, performedBy, now);
+            memberships.add(membership);
             response.addAddedUser(UserResponse.fromEntity(user), MembershipResponse.fromEntity(membership));
+        }
 
-        } catch (Exception e) {
-            logger.warn("Error processing user for group: phone={}, error={}", phone, e.getMessage());
-            response.addSkippedUser(phone, "Error: " + e.getMessage());
+        // Check for duplicate group before adding any members
+        if (!memberships.isEmpty()) {
+            Set<String> projectedMemberIds = getCurrentMemberIds(groupId);
+            memberships.forEach(membership -> projectedMemberIds.add(membership.getUser().getId()));
+            checkForDuplicateGroup(groupId, group.getName(), projectedMemberIds);
+        }
+
+        membershipBatchRepository.insertAddedMemberships(memberships);
+        // Invitations are reported once written: a concurrent import may have invited the phone first
+        Set<String> notInserted = membershipBatchRepository.insertInvitations(invitations);
+        for (Invitation invitation : invitations) {
+            if (notInserted.contains(invitation.getId())) {
+                response.addSkippedUser(invitation.getIdentifier(), "Invitation already exists for this group");
+                continue;
+            }
+            InvitationResponse invitationResponse = InvitationResponse.fromEntity(invitation);
+            invitationResponse.setGroupId(groupId);
+            invitationResponse.setGroupName(group.getName());
+            response.addInvitedUser(invitationResponse);
         }
-    }
 
-    /**
-     * Create an invitation for a non-existent user.
-     */
-    private void createInvitationForUser(UserGroup group, String name, String phone,
-                                         String performedBy, BulkAddUsersResponse response) {
-        // Check if pending invitation already exists
-        if (invitationRepository.existsPendingInvitation(phone, group.getId(), Instant.now())) {
-            response.addSkippedUser(phone, "Invitation already exists for this group");
-            return;
+        if (!memberships.isEmpty()) {
+            groupRepository.refreshMemberFingerprint(groupId);
         }
 
-        // Create invitation
+        logger.info("Bulk add users to group completed: groupId={}, added={}, alreadyMembers={}, invited={}, " +
+                        "skipped={}, performedBy={}", groupId, response.getAdded(), response.getAlreadyMembers(),
+                response.getInvited(), response.getDetails().getSkipped().size(), performedBy);
+
+        return response;
+    }
+
+    private Invitation newInvitation(UserGroup group, String name, String phone, String performedBy, Instant now) {
         Invitation invitation = new Invitation();
         invitation.setId(cuidGenerator.generate());
         invitation.setGroup(group);
@@ -498,15 +657,16 @@ public class GroupService {
         invitation.setInviteeName(name);
         invitation.setStatus(InvitationStatus.PENDING);
         invitation.setInvitedBy(performedBy);
+        invitation.setCreatedAt(now);
+        invitation.setExpiresAt(Invitation.defaultExpiry(now));
+        return invitation;
+    }
 
-        Invitation savedInvitation = invitationRepository.save(invitation);
-
-        logger.info("Invitation created for non-existent user: invitationId={}, groupId={}, phone={}, invitedBy={}",
-                savedInvitation.getId(), group.getId(), maskPhone(phone), performedBy);
-
-        InvitationResponse invitationResponse = InvitationResponse.fromEntity(savedInvitation);
-        invitationResponse.setGroupName(group.getName());
-        response.addInvitedUser(invitationResponse);
+    private BulkAddUsersRequest.UserInfo toBulkUserInfo(String name, String phone) {
+        BulkAddUsersRequest.UserInfo userInfo = new BulkAddUsersRequest.UserInfo();
+        userInfo.setName(name);
+        userInfo.setPhone(phone);
+        return userInfo;
     }
 
     private String normalizePhone(String phone) {
@@ -520,42 +680,38 @@ public class GroupService {
         return cleaned;
     }
 
-    private String maskPhone(String phone) {
-        if (phone == null || phone.length() < 4) {
-            return "***";
-        }
-        return phone.substring(0, 3) + "***" + phone.substring(phone.length() - 2);
-    }
-
     private UserGroupMembership createMembership(UserGroup group, User user,
                                                  GroupMembershipAction action, String performedBy) {
+        UserGroupMembership membership = newMembership(group, user, action, performedBy, null);
+
+        UserGroupMembership savedMembership = membershipRepository.save(membership);
+
+        // Keep the current-state table and member fingerprint in step with the audit log (same transaction)
+        groupMemberRepository.apply(savedMembership);
+        groupRepository.refreshMemberFingerprint(group.getId());
+
+        return savedMembership;
+    }
+
+    /**
+     * Build an unsaved membership row. {@code createdAt} is only needed for batch writes;
+     * JPA assigns it on persist.
+     */
+    private UserGroupMembership newMembership(UserGroup group, User user, GroupMembershipAction action,
+                                              String performedBy, Instant createdAt) {
         UserGroupMembership membership = new UserGroupMembership();
         membership.setId(cuidGenerator.generate());
         membership.setGroup(group);
         membership.setUser(user);
         membership.setAction(action);
         membership.setPerformedBy(performedBy);
-
-        return membershipRepository.save(membership);
+        membership.setCreatedAt(createdAt);
+        return membership;
     }
 
     private List<UserResponse> getCurrentMembers(String groupId) {
-        List<UserGroupMembership> memberships = membershipRepository.findByGroupIdWithUserOrderByCreatedAtDesc(groupId);
-
-        // Track the latest action per user
-        Map<String, UserGroupMembership> latestMembershipByUser = new LinkedHashMap<>();
-        for (UserGroupMembership membership : memberships) {
-            String uid = membership.getUser().getId();
-            if (!latestMembershipByUser.containsKey(uid)) {
-                latestMembershipByUser.put(uid, membership);
-            }
-        }
-
-        // Return users where latest action is ADDED and user is active
-        return latestMembershipByUser.values().stream()
-                .filter(m -> m.getAction() == GroupMembershipAction.ADDED)
-                .map(UserGroupMembership::getUser)
-                .filter(u -> u.getStatus() == UserStatus.ACTIVE)
+        return groupMemberRepository.findActiveMembers(groupId)
+                .stream()
                 .map(UserResponse::fromEntity)
                 .collect(Collectors.toList());
     }
@@ -570,26 +726,10 @@ public class GroupService {
     /**
      * Get the set of current member IDs for a group.
      * Only includes users whose latest action is ADDED and are currently ACTIVE.
+     * The returned set is mutable so callers can project additions onto it.
      */
     private Set<String> getCurrentMemberIds(String groupId) {
-        List<UserGroupMembership> memberships = membershipRepository.findByGroupIdWithUserOrderByCreatedAtDesc(groupId);
-
-        // Track the latest action per user
-        Map<String, UserGroupMembership> latestMembershipByUser = new LinkedHashMap<>();
-        for (UserGroupMembership membership : memberships) {
-            String uid = membership.getUser().getId();
-            if (!latestMembershipByUser.containsKey(uid)) {
-                latestMembershipByUser.put(uid, membership);
-            }
-        }
-
-        // Return user IDs where latest action is ADDED and user is active
-        return latestMembershipByUser.values().stream()
-                .filter(m -> m.getAction() == GroupMembershipAction.ADDED)
-                .map(UserGroupMembership::getUser)
-                .filter(u -> u.getStatus() == UserStatus.ACTIVE)
-                .map(User::getId)
-                .collect(Collectors.toSet());
+        return new HashSet<>(groupMemberRepository.findActiveMemberIds(groupId));
     }
 
     /**
@@ -598,25 +738,23 @@ public class GroupService {
      * - Same name (case insensitive)
      * - Exactly the same set of members
      *
+     * Candidates are found with one indexed lookup on (name, member-set fingerprint, member count);
+     * member sets are only loaded and compared when fingerprints collide.
+     *
      * @param currentGroupId The ID of the group being modified
      * @param groupName The name of the group
      * @param projectedMemberIds The set of member IDs after the operation
      * @throws ConflictException if a duplicate group is found
      */
     private void checkForDuplicateGroup(String currentGroupId, String groupName, Set<String> projectedMemberIds) {
-        // Find all other active groups with the same name (case insensitive)
-        List<UserGroup> sameNameGroups = groupRepository.findByNameIgnoreCaseAndIsActiveTrueAndIdNot(
-                groupName, currentGroupId);
-
-        if (sameNameGroups.isEmpty()) {
-            return;
-        }
+        List<UserGroup> candidates = groupRepository.findDuplicateCandidates(
+                groupName, currentGroupId,
+                MemberSetFingerprint.of(projectedMemberIds), projectedMemberIds.size());
 
-        // Check each group for exact member match
-        for (UserGroup otherGroup : sameNameGroups) {
+        // Confirm each fingerprint match with an exact member comparison
+        for (UserGroup otherGroup : candidates) {
             Set<String> otherGroupMemberIds = getCurrentMemberIds(otherGroup.getId());
 
-            // Check for exact match
             if (projectedMemberIds.equals(otherGroupMemberIds)) {
                 logger.warn("Duplicate group detected: groupId={}, duplicateOf={}, name={}",
                         currentGroupId, otherGroup.getId(), groupName);
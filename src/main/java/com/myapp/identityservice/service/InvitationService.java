@@ -9,6 +9,7 @@ import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.ConflictException;
 import com.myapp.identityservice.exception.NotFoundException;
 import com.myapp.identityservice.repository.GroupInvitationRepository;
+import com.myapp.identityservice.repository.GroupMemberRepository;
 import com.myapp.identityservice.repository.UserGroupMembershipRepository;
 import com.myapp.identityservice.repository.UserGroupRepository;
 import com.myapp.identityservice.repository.UserRepository;
@@ -37,6 +38,7 @@ public class InvitationService {
     private final UserRepository userRepository;
     private final UserGroupRepository groupRepository;
     private final UserGroupMembershipRepository membershipRepository;
+    private final GroupMemberRepository groupMemberRepository;
     private final CuidGenerator cuidGenerator;
     private final ContextInvitationService contextInvitationService;
     private final EventPublisher eventPublisher;
@@ -46,6 +48,7 @@ public class InvitationService {
                             UserRepository userRepository,
                             UserGroupRepository groupRepository,
                             UserGroupMembershipRepository membershipRepository,
+                            GroupMemberRepository groupMemberRepository,
                             CuidGenerator cuidGenerator,
                             ContextInvitationService contextInvitationService,
                             EventPublisher eventPublisher,
@@ -54,6 +57,7 @@ public class InvitationService {
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
         this.membershipRepository = membershipRepository;
+        this.groupMemberRepository = groupMemberRepository;
         this.cuidGenerator = cuidGenerator;
         this.contextInvitationService = contextInvitationService;
         this.eventPublisher = eventPublisher;
@@ -315,7 +319,9 @@ public class InvitationService {
         membership.setAction(GroupMembershipAction.ADDED);
         membership.setPerformedBy(invitation.getInvitedBy()); // Original inviter is the performer
 
-        membershipRepository.save(membership);
+        UserGroupMembership savedMembership = membershipRepository.save(membership);
+        groupMemberRepository.apply(savedMembership);
+        groupRepository.refreshMemberFingerprint(group.getId());
 
         // Mark invitation as accepted
         invitation.accept(user.getId());
@@ -0,0 +1,281 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
+import com.myapp.identityservice.service.RedisUsageCounter.LeaseGrant;
+import com.myapp.identityservice.util.StripedQuota;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves bursts of consumes for the same user from quota leased to this instance.
+ *
+ * On a miss the instance reserves a block of the user's remaining quota in Redis (see
+ * {@link RedisUsageCounter#lease}) and serves following consumes from an in-memory striped
+ * counter without a network round trip. Reserved quota counts against the limit for every
+ * instance, so the total granted never exceeds the monthly limit. Leases are settled when they
+ * expire, when they run dry, and on shutdown: used units are charged and the rest is returned.
+ * Leases of an instance that died are reclaimed after a grace period and charged in full.
+ *
+ * Requires {@code app.usage.consume-mode=redis}. Consumes with an idempotency key bypass the
+ * lease, because their deduplication has to be visible to every instance. Batches go to the
+ * counter directly; they already cost one round trip for many users, and so do reservations.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "app.usage.leasing.enabled", havingValue = "true")
+public class LeasingUsageConsumeStrategy implements UsageConsumeStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeasingUsageConsumeStrategy.class);
+    // Time an instance has to settle its own lease before others may reclaim it
+    private static final Duration RECLAIM_GRACE = Duration.ofSeconds(30);
+    private static final int RECLAIM_BATCH_SIZE = 100;
+    private static final int RENEWAL_LOCKS = 64;
+
+    private final RedisUsageConsumeStrategy delegate;
+    private final int blockSize;
+    private final Duration leaseTtl;
+    private final int stripes;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final Object[] renewalLocks = new Object[RENEWAL_LOCKS];
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter grantedCounter;
+    private final Counter returnedCounter;
+    private final Counter reclaimedCounter;
+
+    public LeasingUsageConsumeStrategy(RedisUsageConsumeStrategy delegate,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.usage.leasing.block-size:20}") int blockSize,
+                                       @Value("${app.usage.leasing.ttl-ms:5000}") long leaseTtlMs,
+                                       @Value("${app.usage.leasing.stripes:8}") int stripes) {
+        this.delegate = delegate;
+        this.blockSize = blockSize;
+        this.leaseTtl = Duration.ofMillis(leaseTtlMs);
+        this.stripes = stripes;
+        for (int i = 0; i < RENEWAL_LOCKS; i++) {
+            renewalLocks[i] = new Object();
+        }
+        this.hitCounter = Counter.builder("usage.lease.hits")
+                .description("Consumes served from quota leased to this instance")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("usage.lease.misses")
+                .description("Consumes that had to lease quota or go to Redis")
+                .register(meterRegistry);
+        this.grantedCounter = Counter.builder("usage.lease.granted")
+                .description("Quota units leased to this instance")
+                .register(meterRegistry);
+        this.returnedCounter = Counter.builder("usage.lease.returned")
+                .description("Unused leased quota units returned")
+                .register(meterRegistry);
+        this.reclaimedCounter = Counter.builder("usage.lease.reclaimed")
+                .description("Expired leases of other instances charged in full")
+                .register(meterRegistry);
+        Gauge.builder("usage.lease.active", leases, Map::size)
+                .description("Leases currently held by this instance")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public UsageConsumeResponse consume(String userId, int year, int month, int amount, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            return delegate.consume(userId, year, month, amount, idempotencyKey);
+        }
+
+        String slot = slot(userId, year, month);
+        Lease lease = leases.get(slot);
+        if (lease != null && lease.tryTake(amount)) {
+            hitCounter.increment();
+            return lease.response();
+        }
+
+        synchronized (renewalLock(slot)) {
+            lease = leases.get(slot);
+            if (lease != null && lease.tryTake(amount)) {
+                hitCounter.increment();
+                return lease.response();
+            }
+            missCounter.increment();
+            if (lease != null) {
+                settle(slot, lease);
+            }
+
+            Instant now = Instant.now();
+            LeaseGrant grant = delegate.lease(userId, year, month, Math.max(blockSize, amount),
+                    now.plus(leaseTtl).plus(RECLAIM_GRACE));
+            grantedCounter.increment(grant.granted());
+
+            if (grant.granted() < amount) {
+                // Not enough left to lease; let the counter decide (and report the exact state)
+                delegate.settle(grant, 0);
+                returnedCounter.increment(grant.granted());
+                return delegate.consume(userId, year, month, amount, null);
+            }
+
+            Lease fresh = new Lease(grant, new StripedQuota(grant.granted() - amount, stripes), now.plus(leaseTtl));
+            leases.put(slot, fresh);
+            return fresh.response();
+        }
+    }
+
+    @Override
+    public List<UsageBatchConsumeResponse.ItemResult> consumeBatch(int year, int month,
+                                                                  List<UsageBatchConsumeRequest.Item> items) {
+        return delegate.consumeBatch(year, month, items);
+    }
+
+    @Override
+    public Optional<UsageCounterState> liveState(String userId, int year, int month) {
+        return delegate.liveState(userId, year, month)
+                .map(state -> withoutOwnUnused(userId, year, month, state));
+    }
+
+    @Override
+    public Map<String, UsageCounterState> liveStates(int year, int month, Collection<String> userIds) {
+        Map<String, UsageCounterState> states = new HashMap<>(delegate.liveStates(year, month, userIds));
+        states.replaceAll((userId, state) -> withoutOwnUnused(userId, year, month, state));
+        return states;
+    }
+
+    @Override
+    public void limitChanged(String userId, int year, int month, int monthlyLimit) {
+        delegate.limitChanged(userId, year, month, monthlyLimit);
+        String slot = slot(userId, year, month);
+        synchronized (renewalLock(slot)) {
+            Lease lease = leases.get(slot);
+            if (lease != null) {
+                settle(slot, lease);
+            }
+        }
+    }
+
+    @Override
+    public UsageReservationResponse reserve(String userId, int year, int month, int amount, Instant expiresAt) {
+        return delegate.reserve(userId, year, month, amount, expiresAt);
+    }
+
+    @Override
+    public UsageConsumeResponse commitReservation(String userId, String reservationId, Integer amount) {
+        return delegate.commitReservation(userId, reservationId, amount);
+    }
+
+    @Override
+    public void releaseReservation(String userId, String reservationId) {
+        delegate.releaseReservation(userId, reservationId);
+    }
+
+    @Override
+    public int releaseExpiredReservations(Instant now, int max) {
+        return delegate.releaseExpiredReservations(now, max);
+    }
+
+    /**
+     * Settle this instance's expired leases and reclaim leases abandoned by other instances.
+     */
+    @Scheduled(fixedDelayString = "${app.usage.leasing.sweep-interval-ms:1000}")
+    public void settleExpiredLeases() {
+        Instant now = Instant.now();
+        leases.forEach((slot, lease) -> {
+            if (lease.expiresAt.isBefore(now)) {
+                synchronized (renewalLock(slot)) {
+                    if (leases.get(slot) == lease) {
+                        settle(slot, lease);
+                    }
+                }
+            }
+        });
+
+        int reclaimed = delegate.reclaimExpiredLeases(now, RECLAIM_BATCH_SIZE);
+        if (reclaimed > 0) {
+            reclaimedCounter.increment(reclaimed);
+            logger.warn("Reclaimed {} expired usage leases of other instances", reclaimed);
+        }
+    }
+
+    @PreDestroy
+    void settleAllLeases() {
+        leases.forEach((slot, lease) -> {
+            try {
+                settle(slot, lease);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to settle usage lease on shutdown: slot={}, error={}", slot, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Caller holds the slot's renewal lock.
+     */
+    private void settle(String slot, Lease lease) {
+        leases.remove(slot, lease);
+        int unused = lease.quota.drain();
+        int used = lease.grant.granted() - unused;
+        if (delegate.settle(lease.grant, used)) {
+            returnedCounter.increment(unused);
+        } else {
+            logger.warn("Usage lease was reclaimed before it was settled: slot={}, used={}", slot, used);
+        }
+    }
+
+    /**
+     * Quota leased to this instance is still available to requests served here.
+     */
+    private UsageCounterState withoutOwnUnused(String userId, int year, int month, UsageCounterState state) {
+        Lease lease = leases.get(slot(userId, year, month));
+        int ownUnused = lease != null ? lease.quota.available() : 0;
+        return new UsageCounterState(state.monthlyLimit(), Math.max(0, state.utilised() - ownUnused));
+    }
+
+    private Object renewalLock(String slot) {
+        return renewalLocks[Math.floorMod(slot.hashCode(), RENEWAL_LOCKS)];
+    }
+
+    private static String slot(String userId, int year, int month) {
+        return userId + ":" + year + ":" + month;
+    }
+
+    private static final class Lease {
+
+        private final LeaseGrant grant;
+        private final StripedQuota quota;
+        private final Instant expiresAt;
+
+        private Lease(LeaseGrant grant, StripedQuota quota, Instant expiresAt) {
+            this.grant = grant;
+            this.quota = quota;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean tryTake(int amount) {
+            return Instant.now().isBefore(expiresAt) && quota.tryAcquire(amount);
+        }
+
+        /**
+         * This instance's view: committed quota at grant time plus what has been taken here.
+         */
+        UsageConsumeResponse response() {
+            int usedHere = grant.granted() - quota.available();
+            return UsageConsumeResponse.from(grant.monthlyLimit(), grant.committedBefore() + usedHere);
+        }
+    }
+}
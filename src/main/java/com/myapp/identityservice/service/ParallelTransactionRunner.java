@@ -0,0 +1,102 @@
+package com.myapp.identityservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runs independent units of work concurrently, each in its own transaction.
+ *
+ * Tasks run on virtual threads. Every task needs a database connection for its whole
+ * transaction, so the number of tasks running at once is capped by a semaphore shared
+ * across all callers. The cap defaults to half of the Hikari pool, leaving the rest for
+ * regular request traffic.
+ */
+@Component
+public class ParallelTransactionRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelTransactionRunner.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public ParallelTransactionRunner(PlatformTransactionManager transactionManager,
+                                     @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                     @Value("${app.parallel-transactions.max-concurrency:0}") int maxConcurrency) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxConcurrency = maxConcurrency > 0
+                ? Math.min(maxConcurrency, poolSize)
+                : Math.max(1, poolSize / 2);
+        this.permits = new Semaphore(this.maxConcurrency, true);
+        logger.info("Parallel transaction runner configured: maxConcurrency={}, poolSize={}",
+                this.maxConcurrency, poolSize);
+    }
+
+    /**
+     * Apply {@code task} to every input concurrently, each call in its own transaction.
+     * A task that throws rolls back only its own transaction; its result is produced by
+     * {@code onError} instead. Results are returned in input order.
+     */
+    public <I, R> List<R> runEach(List<I> inputs, Function<I, R> task, BiFunction<I, Exception, R> onError) {
+        List<Future<R>> futures = new ArrayList<>(inputs.size());
+        for (I input : inputs) {
+            futures.add(executor.submit(() -> runOne(input, task, onError)));
+        }
+
+        List<R> results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            results.add(await(inputs.get(i), futures.get(i), onError));
+        }
+        return results;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private <I, R> R runOne(I input, Function<I, R> task, BiFunction<I, Exception, R> onError)
+            throws InterruptedException {
+        permits.acquire();
+        try {
+            return transactionTemplate.execute(status -> task.apply(input));
+        } catch (RuntimeException e) {
+            return onError.apply(input, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private <I, R> R await(I input, Future<R> future, BiFunction<I, Exception, R> onError) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return onError.apply(input, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return onError.apply(input, cause instanceof Exception ex ? ex : e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse.ItemResult;
+import com.myapp.identityservice.domain.UsageReservation;
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
+import com.myapp.identityservice.exception.BadRequestException;
+import com.myapp.identityservice.exception.ConflictException;
+import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.exception.UsageLimitExceededException;
+import com.myapp.identityservice.repository.IdempotencyBatchRepository;
+import com.myapp.identityservice.repository.IdempotencyRecordRepository;
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import com.myapp.identityservice.repository.UsageLedgerRepository.LedgerEntry;
+import com.myapp.identityservice.repository.UsageReservationRepository;
+import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Consumes usage by appending to the usage_events ledger; no Redis involved.
+ *
+ * A consume takes the user-month's ledger lock, reads the live total (the user_monthly_usage
+ * row plus the events not yet folded into it), checks the limit and appends one event. The
+ * lock is an advisory lock held for those two statements, so consumes neither update nor lock
+ * the row, and the limit stays exact. The lock is waited for only up to a deadline (see
+ * {@link UsageLedgerLock}). {@link UsageLedgerAggregator} folds events into the row
+ * in the background. The month's row is created with INSERT ... ON CONFLICT if it has not been
+ * provisioned. Idempotency keys are claimed in idempotency_keys in the same transaction: a
+ * concurrent retry blocks on the uncommitted claim and then replays the recorded response, and
+ * a rejected consume rolls its claim back.
+ *
+ * A batch runs in one transaction with a fixed number of statements: it claims its keys, takes
+ * the users' ledger locks, applies the items in memory and appends their events in one JDBC
+ * batch. Keys are claimed before ledger locks are taken, and both in a fixed order.
+ *
+ * Reservations are rows in usage_reservations that live totals add while they have not
+ * expired. Reserving and committing take the same ledger lock as a consume; a commit deletes
+ * the reservation and appends the committed amount as an event.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usage.consume-mode", havingValue = "postgres")
+public class PostgresUsageConsumeStrategy implements UsageConsumeStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresUsageConsumeStrategy.class);
+    private static final Duration IDEMPOTENCY_TTL = Duration.ofHours(24);
+
+    private final UserMonthlyUsageRepository usageRepository;
+    private final UsageBatchRepository usageBatchRepository;
+    private final UsageLedgerRepository ledgerRepository;
+    private final UsageReservationRepository reservationRepository;
+    private final UsageLedgerLock ledgerLock;
+    private final IdempotencyRecordRepository idempotencyRepository;
+    private final IdempotencyBatchRepository idempotencyBatchRepository;
+    private final CuidGenerator cuidGenerator;
+
+    public PostgresUsageConsumeStrategy(UserMonthlyUsageRepository usageRepository,
+                                        UsageBatchRepository usageBatchRepository,
+                                        UsageLedgerRepository ledgerRepository,
+                                        UsageReservationRepository reservationRepository,
+                                        UsageLedgerLock ledgerLock,
+                                        IdempotencyRecordRepository idempotencyRepository,
+                                        IdempotencyBatchRepository idempotencyBatchRepository,
+                                        CuidGenerator cuidGenerator) {
+        this.usageRepository = usageRepository;
+        this.usageBatchRepository = usageBatchRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.reservationRepository = reservationRepository;
+        this.ledgerLock = ledgerLock;
+        this.idempotencyRepository = idempotencyRepository;
+        this.idempotencyBatchRepository = idempotencyBatchRepository;
+        this.cuidGenerator = cuidGenerator;
+    }
+
+    @Override
+    @Transactional
+    public UsageConsumeResponse consume(String userId, int year, int month, int amount, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Instant now = Instant.now();
+            if (idempotencyRepository.claim(idempotencyKey, userId, now, now.plus(IDEMPOTENCY_TTL)) == 0) {
+                // Claims only commit together with their response
+                byte[] recorded = idempotencyRepository.findResponse(idempotencyKey)
+                        .orElseThrow(() -> new ConflictException("Idempotency key has no recorded result"));
+                logger.info("Returning cached result for idempotency key: {}", idempotencyKey);
+                return UsageConsumeResultCodec.fromStoredEntry(recorded);
+            }
+        }
+
+        UsageCounterState current = lockLiveState(userId, year, month);
+        if (current.monthlyLimit() >= 0 && current.utilised() + amount > current.monthlyLimit()) {
+            logger.warn("Usage limit exceeded: userId={}, requested={}, available={}",
+                    userId, amount, Math.max(0, current.monthlyLimit() - current.utilised()));
+            throw new UsageLimitExceededException(current.monthlyLimit(), current.utilised(), amount);
+        }
+
+        ledgerRepository.append(userId, year, month, amount, idempotencyKey);
+        UsageConsumeResponse response = UsageConsumeResponse.from(current.monthlyLimit(), current.utilised() + amount);
+        if (idempotencyKey != null) {
+            idempotencyRepository.recordResponse(idempotencyKey, UsageConsumeResultCodec.toStoredEntry(response));
+        }
+        return response;
+    }
+
+    @Override
+    @Transactional
+    public List<ItemResult> consumeBatch(int year, int month, List<UsageBatchConsumeRequest.Item> items) {
+        Map<String, String> userIdsByKey = new HashMap<>();
+        for (UsageBatchConsumeRequest.Item item : items) {
+            if (item.getIdempotencyKey() != null) {
+                userIdsByKey.putIfAbsent(item.getIdempotencyKey(), item.getUserId());
+            }
+        }
+        Instant now = Instant.now();
+        Set<String> claimed = idempotencyBatchRepository.claim(userIdsByKey, now, now.plus(IDEMPOTENCY_TTL));
+        Map<String, byte[]> recorded = idempotencyBatchRepository.findResponses(userIdsByKey.keySet().stream()
+                .filter(key -> !claimed.contains(key))
+                .toList());
+
+        Map<String, UsageCounterState> states = lockMonthRows(year, month, items.stream()
+                .map(UsageBatchConsumeRequest.Item::getUserId)
+                .collect(Collectors.toSet()));
+
+        List<LedgerEntry> entries = new ArrayList<>();
+        Map<String, UsageConsumeResponse> consumedByKey = new HashMap<>();
+        List<ItemResult> results = new ArrayList<>(items.size());
+        for (UsageBatchConsumeRequest.Item item : items) {
+            String userId = item.getUserId();
+            String key = item.getIdempotencyKey();
+            if (key != null && consumedByKey.containsKey(key)) {
+                results.add(ItemResult.duplicate(userId, key, consumedByKey.get(key)));
+                continue;
+            }
+            if (key != null && !claimed.contains(key)) {
+                byte[] response = recorded.get(key);
+                if (response == null) {
+                    throw new ConflictException("Idempotency key has no recorded result");
+                }
+                results.add(ItemResult.duplicate(userId, key, UsageConsumeResultCodec.fromStoredEntry(response)));
+                continue;
+            }
+
+            UsageCounterState state = states.get(userId);
+            if (state == null) {
+                results.add(ItemResult.notFound(userId, key));
+                continue;
+            }
+            int amount = item.getAmount();
+            if (state.monthlyLimit() >= 0 && state.utilised() + amount > state.monthlyLimit()) {
+                results.add(ItemResult.limitExceeded(userId, key, state.monthlyLimit(), state.utilised()));
+                continue;
+            }
+
+            UsageCounterState updated = new UsageCounterState(state.monthlyLimit(), state.utilised() + amount);
+            states.put(userId, updated);
+            entries.add(new LedgerEntry(userId, amount, key));
+            results.add(ItemResult.consumed(userId, key, updated.monthlyLimit(), updated.utilised()));
+            if (key != null) {
+                consumedByKey.put(key, UsageConsumeResponse.from(updated.monthlyLimit(), updated.utilised()));
+            }
+        }
+
+        ledgerRepository.appendAll(year, month, entries);
+        idempotencyBatchRepository.recordResponses(consumedByKey.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        e -> UsageConsumeResultCodec.toStoredEntry(e.getValue()))));
+        Set<String> rejected = new HashSet<>(claimed);
+        rejected.removeAll(consumedByKey.keySet());
+        idempotencyBatchRepository.release(rejected);
+
+        return results;
+    }
+
+    @Override
+    public Optional<UsageCounterState> liveState(String userId, int year, int month) {
+        // The row plus its unfolded ledger tail
+        return usageBatchRepository.findState(userId, year, month);
+    }
+
+    @Override
+    public Map<String, UsageCounterState> liveStates(int year, int month, Collection<String> userIds) {
+        return usageBatchRepository.findStates(year, month, userIds);
+    }
+
+    @Override
+    public void limitChanged(String userId, int year, int month, int monthlyLimit) {
+        // Limits are read from user_monthly_usage on every consume
+    }
+
+    @Override
+    @Transactional
+    public UsageReservationResponse reserve(String userId, int year, int month, int amount, Instant expiresAt) {
+        UsageCounterState current = lockLiveState(userId, year, month);
+        if (current.monthlyLimit() >= 0 && current.utilised() + amount > current.monthlyLimit()) {
+            logger.warn("Usage limit exceeded: userId={}, requested={}, available={}",
+                    userId, amount, Math.max(0, current.monthlyLimit() - current.utilised()));
+            throw new UsageLimitExceededException(current.monthlyLimit(), current.utilised(), amount);
+        }
+
+        UsageReservation reservation = new UsageReservation();
+        reservation.setId(cuidGenerator.generate());
+        reservation.setUserId(userId);
+        reservation.setYear(year);
+        reservation.setMonth(month);
+        reservation.setAmount(amount);
+        reservation.setExpiresAt(expiresAt);
+        reservationRepository.save(reservation);
+
+        return UsageReservationResponse.from(reservation.getId(), amount, expiresAt,
+                current.monthlyLimit(), current.utilised() + amount);
+    }
+
+    @Override
+    @Transactional
+    public UsageConsumeResponse commitReservation(String userId, String reservationId, Integer amount) {
+        UsageReservation reservation = reservationRepository.findById(reservationId)
+                .filter(r -> r.getUserId().equals(userId))
+                .orElseThrow(NotFoundException::reservation);
+        int used = amount != null ? amount : reservation.getAmount();
+        if (used > reservation.getAmount()) {
+            throw new BadRequestException("Commit amount exceeds the reserved amount");
+        }
+
+        int year = reservation.getYear();
+        int month = reservation.getMonth();
+        ledgerLock.acquire(userId, year, month);
+        // Expired or settled by a concurrent commit or release since it was read
+        if (reservationRepository.deleteActive(reservationId, Instant.now()) == 0) {
+            throw NotFoundException.reservation();
+        }
+        if (used > 0) {
+            ledgerRepository.append(userId, year, month, used, "reservation:" + reservationId);
+        }
+
+        UsageCounterState state = usageBatchRepository.findState(userId, year, month)
+                .orElseThrow(NotFoundException::usage);
+        return UsageConsumeResponse.from(state.monthlyLimit(), state.utilised());
+    }
+
+    @Override
+    @Transactional
+    public void releaseReservation(String userId, String reservationId) {
+        // Only lowers live totals, so no ledger lock is needed
+        reservationRepository.deleteByIdAndUserId(reservationId, userId);
+    }
+
+    @Override
+    @Transactional
+    public int releaseExpiredReservations(Instant now, int max) {
+        // Expired reservations already stopped counting; this only removes their rows
+        return reservationRepository.deleteExpired(now, max);
+    }
+
+    /**
+     * Take the user-month's ledger lock and read its live state, creating the row if it has
+     * not been provisioned.
+     */
+    private UsageCounterState lockLiveState(String userId, int year, int month) {
+        ledgerLock.acquire(userId, year, month);
+        Optional<UsageCounterState> state = usageBatchRepository.findState(userId, year, month);
+        if (state.isEmpty()) {
+            // Not provisioned yet. Creating the row waits for a concurrent insert of the same
+            // row, so the second read always sees it.
+            usageRepository.insertIfAbsent(cuidGenerator.generate(), userId, year, month);
+            state = usageBatchRepository.findState(userId, year, month);
+        }
+        return state.orElseThrow(() -> NotFoundException.user(userId));
+    }
+
+    /**
+     * Take the users' ledger locks for the month and read their live states, creating missing
+     * rows. Rows are only created under the lock, so no other consume is waiting on them.
+     */
+    private Map<String, UsageCounterState> lockMonthRows(int year, int month, Set<String> userIds) {
+        ledgerRepository.lockAll(year, month, userIds);
+        Map<String, UsageCounterState> states = usageBatchRepository.findStates(year, month, userIds);
+        if (states.size() < userIds.size()) {
+            usageBatchRepository.insertIfAbsent(year, month, userIds.stream()
+                    .filter(userId -> !states.containsKey(userId))
+                    .toList(), cuidGenerator::generate);
+            return new HashMap<>(usageBatchRepository.findStates(year, month, userIds));
+        }
+        return new HashMap<>(states);
+    }
+
+    @Scheduled(cron = "${app.usage.idempotency-cleanup-cron:0 45 3 * * *}")
+    @Transactional
+    public void deleteExpiredIdempotencyKeys() {
+        int deleted = idempotencyRepository.deleteExpired(Instant.now());
+        logger.info("Expired idempotency keys deleted: {}", deleted);
+    }
+}
@@ -0,0 +1,258 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse.ItemResult;
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
+import com.myapp.identityservice.exception.BadRequestException;
+import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.exception.UsageLimitExceededException;
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
+import com.myapp.identityservice.service.RedisUsageCounter.BatchItem;
+import com.myapp.identityservice.service.RedisUsageCounter.ConsumeResult;
+import com.myapp.identityservice.service.RedisUsageCounter.LeaseGrant;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Consumes usage from Redis counters in one script call per request (see {@link RedisUsageCounter}).
+ * Postgres is updated asynchronously by {@link UsageWriteBehindFlusher}.
+ *
+ * Batches run all items in one script call; counters that are not seeded yet are seeded from
+ * Postgres together and their items replayed in a second call.
+ *
+ * Reservations are held in the counter's {@code reserved} field like instance leases, so
+ * checks see them without extra reads. The reservation id is its member in the reservations
+ * sorted set; expired reservations are returned in bulk by {@link #releaseExpiredReservations}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usage.consume-mode", havingValue = "redis", matchIfMissing = true)
+public class RedisUsageConsumeStrategy implements UsageConsumeStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisUsageConsumeStrategy.class);
+
+    private final RedisUsageCounter usageCounter;
+    private final UserMonthlyUsageRepository usageRepository;
+    private final UsageBatchRepository usageBatchRepository;
+    private final CuidGenerator cuidGenerator;
+    private final TransactionTemplate transactionTemplate;
+
+    public RedisUsageConsumeStrategy(RedisUsageCounter usageCounter,
+                                     UserMonthlyUsageRepository usageRepository,
+                                     UsageBatchRepository usageBatchRepository,
+                                     CuidGenerator cuidGenerator,
+                                     PlatformTransactionManager transactionManager) {
+        this.usageCounter = usageCounter;
+        this.usageRepository = usageRepository;
+        this.usageBatchRepository = usageBatchRepository;
+        this.cuidGenerator = cuidGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public UsageConsumeResponse consume(String userId, int year, int month, int amount, String idempotencyKey) {
+        ConsumeResult result = usageCounter.consume(userId, year, month, amount, idempotencyKey, null);
+        if (result.status() == RedisUsageCounter.Status.NOT_SEEDED) {
+            result = usageCounter.consume(userId, year, month, amount, idempotencyKey,
+                    loadSeed(userId, year, month));
+        }
+
+        return switch (result.status()) {
+            case DUPLICATE -> {
+                logger.info("Returning cached result for idempotency key: {}", idempotencyKey);
+                yield UsageConsumeResponse.from(result.monthlyLimit(), result.utilised());
+            }
+            case LIMIT_EXCEEDED -> {
+                logger.warn("Usage limit exceeded: userId={}, requested={}, available={}",
+                        userId, amount, Math.max(0, result.monthlyLimit() - result.utilised()));
+                throw new UsageLimitExceededException(result.monthlyLimit(), result.utilised(), amount);
+            }
+            case CONSUMED -> UsageConsumeResponse.from(result.monthlyLimit(), result.utilised());
+            case NOT_SEEDED -> throw new IllegalStateException("Usage counter not seeded: userId=" + userId);
+        };
+    }
+
+    @Override
+    public List<ItemResult> consumeBatch(int year, int month, List<UsageBatchConsumeRequest.Item> items) {
+        List<ConsumeResult> results = new ArrayList<>(usageCounter.consumeBatch(year, month, items.stream()
+                .map(item -> new BatchItem(item.getUserId(), item.getAmount(), item.getIdempotencyKey(), null))
+                .toList()));
+
+        List<Integer> unseeded = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).status() == RedisUsageCounter.Status.NOT_SEEDED) {
+                unseeded.add(i);
+            }
+        }
+        if (!unseeded.isEmpty()) {
+            Set<String> userIds = unseeded.stream()
+                    .map(i -> items.get(i).getUserId())
+                    .collect(Collectors.toSet());
+            Map<String, UsageCounterState> seeds = loadSeeds(year, month, userIds);
+
+            // Items of unknown users stay NOT_SEEDED
+            List<Integer> seedable = unseeded.stream()
+                    .filter(i -> seeds.containsKey(items.get(i).getUserId()))
+                    .toList();
+            List<ConsumeResult> replayed = usageCounter.consumeBatch(year, month, seedable.stream()
+                    .map(i -> {
+                        UsageBatchConsumeRequest.Item item = items.get(i);
+                        return new BatchItem(item.getUserId(), item.getAmount(), item.getIdempotencyKey(),
+                                seeds.get(item.getUserId()));
+                    })
+                    .toList());
+            for (int k = 0; k < seedable.size(); k++) {
+                results.set(seedable.get(k), replayed.get(k));
+            }
+        }
+
+        List<ItemResult> itemResults = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            UsageBatchConsumeRequest.Item item = items.get(i);
+            ConsumeResult result = results.get(i);
+            itemResults.add(switch (result.status()) {
+                case CONSUMED -> ItemResult.consumed(item.getUserId(), item.getIdempotencyKey(),
+                        result.monthlyLimit(), result.utilised());
+                case LIMIT_EXCEEDED -> ItemResult.limitExceeded(item.getUserId(), item.getIdempotencyKey(),
+                        result.monthlyLimit(), result.utilised());
+                case DUPLICATE -> ItemResult.duplicate(item.getUserId(), item.getIdempotencyKey(),
+                        UsageConsumeResponse.from(result.monthlyLimit(), result.utilised()));
+                case NOT_SEEDED -> ItemResult.notFound(item.getUserId(), item.getIdempotencyKey());
+            });
+        }
+        return itemResults;
+    }
+
+    @Override
+    public Optional<UsageCounterState> liveState(String userId, int year, int month) {
+        return usageCounter.read(userId, year, month);
+    }
+
+    @Override
+    public Map<String, UsageCounterState> liveStates(int year, int month, Collection<String> userIds) {
+        return usageCounter.readAll(year, month, userIds);
+    }
+
+    @Override
+    public void limitChanged(String userId, int year, int month, int monthlyLimit) {
+        usageCounter.updateLimit(userId, year, month, monthlyLimit);
+    }
+
+    @Override
+    public UsageReservationResponse reserve(String userId, int year, int month, int amount, Instant expiresAt) {
+        LeaseGrant grant = usageCounter.reserve(userId, year, month, amount, expiresAt, null)
+                .or(() -> usageCounter.reserve(userId, year, month, amount, expiresAt,
+                        loadSeed(userId, year, month)))
+                .orElseThrow(() -> new IllegalStateException("Usage counter not seeded: userId=" + userId));
+
+        if (grant.granted() < amount) {
+            logger.warn("Usage limit exceeded: userId={}, requested={}, available={}",
+                    userId, amount, Math.max(0, grant.monthlyLimit() - grant.committedBefore()));
+            throw new UsageLimitExceededException(grant.monthlyLimit(), grant.committedBefore(), amount);
+        }
+        return UsageReservationResponse.from(grant.member(), amount, expiresAt,
+                grant.monthlyLimit(), grant.committedBefore() + amount);
+    }
+
+    @Override
+    public UsageConsumeResponse commitReservation(String userId, String reservationId, Integer amount) {
+        LeaseGrant reservation = reservation(userId, reservationId);
+        int used = amount != null ? amount : reservation.granted();
+        if (used > reservation.granted()) {
+            throw new BadRequestException("Commit amount exceeds the reserved amount");
+        }
+        if (!usageCounter.commitReservation(reservation, used, Instant.now())) {
+            throw NotFoundException.reservation();
+        }
+
+        return usageCounter.read(userId, reservation.year(), reservation.month())
+                .or(() -> usageBatchRepository.findState(userId, reservation.year(), reservation.month()))
+                .map(state -> UsageConsumeResponse.from(state.monthlyLimit(), state.utilised()))
+                .orElseThrow(NotFoundException::usage);
+    }
+
+    @Override
+    public void releaseReservation(String userId, String reservationId) {
+        usageCounter.releaseReservation(reservation(userId, reservationId));
+    }
+
+    @Override
+    public int releaseExpiredReservations(Instant now, int max) {
+        return usageCounter.releaseExpiredReservations(now, max);
+    }
+
+    /**
+     * Reserve up to {@code maxAmount} of the user's remaining quota, seeding the counter if needed.
+     */
+    public LeaseGrant lease(String userId, int year, int month, int maxAmount, Instant expiresAt) {
+        return usageCounter.lease(userId, year, month, maxAmount, expiresAt, null)
+                .or(() -> usageCounter.lease(userId, year, month, maxAmount, expiresAt,
+                        loadSeed(userId, year, month)))
+                .orElseThrow(() -> new IllegalStateException("Usage counter not seeded: userId=" + userId));
+    }
+
+    /**
+     * @see RedisUsageCounter#settle
+     */
+    public boolean settle(LeaseGrant lease, int used) {
+        return usageCounter.settle(lease, used);
+    }
+
+    /**
+     * @see RedisUsageCounter#reclaimExpiredLeases
+     */
+    public int reclaimExpiredLeases(Instant now, int max) {
+        return usageCounter.reclaimExpiredLeases(now, max);
+    }
+
+    private static LeaseGrant reservation(String userId, String reservationId) {
+        return RedisUsageCounter.parseMember(reservationId)
+                .filter(grant -> grant.userId().equals(userId))
+                .orElseThrow(NotFoundException::reservation);
+    }
+
+    /**
+     * {@link #loadSeed} for many users in one transaction. Unknown users are left out.
+     */
+    private Map<String, UsageCounterState> loadSeeds(int year, int month, Set<String> userIds) {
+        return transactionTemplate.execute(status -> {
+            Map<String, UsageCounterState> seeds = usageBatchRepository.findStates(year, month, userIds);
+            if (seeds.size() == userIds.size()) {
+                return seeds;
+            }
+            usageBatchRepository.insertIfAbsent(year, month, userIds.stream()
+                    .filter(userId -> !seeds.containsKey(userId))
+                    .toList(), cuidGenerator::generate);
+            return usageBatchRepository.findStates(year, month, userIds);
+        });
+    }
+
+    /**
+     * Postgres state used to seed a Redis counter on the first use of the month.
+     * The row is normally provisioned ahead of the month (see {@link UsageRolloverJob});
+     * otherwise it is created here, and concurrent first consumes converge on one row.
+     */
+    private UsageCounterState loadSeed(String userId, int year, int month) {
+        return usageBatchRepository.findState(userId, year, month)
+                .orElseGet(() -> transactionTemplate.execute(status -> {
+                    usageRepository.insertIfAbsent(cuidGenerator.generate(), userId, year, month);
+                    return usageBatchRepository.findState(userId, year, month)
+                            .orElseThrow(() -> NotFoundException.user(userId));
+                }));
+    }
+}
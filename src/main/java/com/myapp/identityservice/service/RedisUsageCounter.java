@@ -0,0 +1,693 @@
+package com.myapp.identityservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Redis-resident monthly usage counters.
+ *
+ * Each user-month is a hash holding {@code limit} and {@code utilised}. A consume is a single
+ * Lua script that checks the idempotency key, checks the limit, increments the counter, records
+ * the idempotent result and marks the counter dirty, all atomically in one round trip. The result
+ * is recorded as a binary IdempotencyEntry (see {@link UsageConsumeResultCodec}). Postgres is
+ * brought up to date by {@link UsageWriteBehindFlusher}, which flushes the counters in the dirty
+ * set and only then removes them from it.
+ *
+ * Every charge is also appended, by the same script, to the {@code usage:events} stream as an
+ * audit entry (user-month, amount, idempotency key; the entry id carries the time). The
+ * flusher copies entries into usage_events and deletes them from the stream. Leased quota is
+ * charged, and so recorded, once per lease when it is settled.
+ *
+ * A counter that is not in Redis yet (first consume of the month, or after Redis lost its data)
+ * is seeded from the user_monthly_usage row by the caller, on a second call to the same script.
+ * Batches run the same consume logic for many items in one script call.
+ *
+ * Quota leased to a service instance, or reserved by a caller for a long-running task, is held
+ * in a third field, {@code reserved}, and counts against the limit until it is settled.
+ * Utilised values returned to callers include it. Every lease and reservation is also recorded
+ * in a sorted set scored by its expiry, so leases held by an instance that died can be
+ * reclaimed, and expired reservations returned, by any instance.
+ */
+@Component
+public class RedisUsageCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisUsageCounter.class);
+
+    static final String COUNTER_KEY_PREFIX = "usage:";
+    static final String DIRTY_SET_KEY = "usage:dirty";
+    static final String EVENTS_STREAM_KEY = "usage:events";
+    static final String EVENTS_LOCK_KEY = "usage:events:lock";
+    static final String LEASES_KEY = "usage:leases";
+    static final String RESERVATIONS_KEY = "usage:reservations";
+    static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:";
+    private static final long IDEMPOTENCY_TTL_SECONDS = 86400; // 24 hours
+    // Long enough for the write-behind flusher to drain a month after it has ended
+    private static final long COUNTER_TTL_SECONDS = Duration.ofDays(40).toSeconds();
+    // Bounds how long one batch script holds up other Redis clients
+    private static final int BATCH_SCRIPT_ITEMS = 200;
+
+    // Shared by the single and batch consume scripts. idem is nil for consumes without a key.
+    // The events stream is capped (approximately) so that a long Postgres outage cannot exhaust
+    // Redis memory; past the cap the oldest audit entries are dropped.
+    private static final String CONSUME_FUNCTION = """
+            local function consume(counter, dirty, events, idem, amount, idemTtl, member, seedLimit, seedUtilised,
+                counterTtl)
+              if idem then
+                local cached = redis.call('GET', idem)
+                if cached then
+                  if string.byte(cached, 1) == 1 then
+                    local _, _, cachedLimit, cachedUtilised = struct.unpack('>BBi4i4', cached)
+                    return {'DUPLICATE', tostring(cachedLimit), tostring(cachedUtilised)}
+                  end
+                  -- Written before the binary format: limit|utilised|remaining|unlimited
+                  local cachedLimit, cachedUtilised = string.match(cached, '^(%-?%d+)|(%-?%d+)|')
+                  return {'DUPLICATE', cachedLimit, cachedUtilised}
+                end
+              end
+              if seedLimit ~= '' and redis.call('HSETNX', counter, 'limit', seedLimit) == 1 then
+                redis.call('HSETNX', counter, 'utilised', seedUtilised)
+                redis.call('EXPIRE', counter, counterTtl)
+              end
+              local state = redis.call('HMGET', counter, 'limit', 'utilised', 'reserved')
+              if not state[1] then
+                return {'NOT_SEEDED'}
+              end
+              local limit = tonumber(state[1])
+              local reserved = tonumber(state[3] or '0')
+              if limit >= 0 and tonumber(state[2]) + reserved + amount > limit then
+                return {'LIMIT_EXCEEDED', state[1], tostring(tonumber(state[2]) + reserved)}
+              end
+              local utilised = redis.call('HINCRBY', counter, 'utilised', amount) + reserved
+              redis.call('SADD', dirty, member)
+              redis.call('XADD', events, 'MAXLEN', '~', '1000000', '*',
+                  'm', member, 'a', tostring(amount), 'k', idem or '')
+              if idem then
+                -- A completed IdempotencyEntry holding a UsageConsumeResultCodec payload
+                redis.call('SET', idem, struct.pack('>BBi4i4', 1, 2, limit, utilised), 'EX', idemTtl)
+              end
+              return {'CONSUMED', state[1], tostring(utilised)}
+            end
+            """;
+
+    // KEYS: counter hash, dirty set, events stream, [idempotency key]
+    // ARGV: amount, idempotency ttl, dirty member, seed limit ('' = no seed), seed utilised, counter ttl
+    private static final RedisScript<List> CONSUME_SCRIPT = new DefaultRedisScript<>(CONSUME_FUNCTION + """
+            return consume(KEYS[1], KEYS[2], KEYS[3], KEYS[4], tonumber(ARGV[1]), ARGV[2], ARGV[3], ARGV[4],
+                ARGV[5], ARGV[6])
+            """, List.class);
+
+    // KEYS: dirty set, events stream, then per item: counter hash, idempotency key (the counter hash again if none)
+    // ARGV: idempotency ttl, counter ttl, then per item: amount, dirty member, keyed ('1'/'0'), seed limit, seed utilised
+    // Returns three values per item: status and the two values of the single consume reply ('' if absent).
+    // Items run in order, so a key repeated within a batch is a duplicate of its first successful use.
+    private static final RedisScript<List> BATCH_CONSUME_SCRIPT = new DefaultRedisScript<>(CONSUME_FUNCTION + """
+            local results = {}
+            for i = 1, (#KEYS - 2) / 2 do
+              local a = 2 + (i - 1) * 5
+              local idem = nil
+              if ARGV[a + 3] == '1' then
+                idem = KEYS[2 * i + 2]
+              end
+              local reply = consume(KEYS[2 * i + 1], KEYS[1], KEYS[2], idem, tonumber(ARGV[a + 1]), ARGV[1],
+                  ARGV[a + 2], ARGV[a + 4], ARGV[a + 5], ARGV[2])
+              results[#results + 1] = reply[1]
+              results[#results + 1] = reply[2] or ''
+              results[#results + 1] = reply[3] or ''
+            end
+            return results
+            """, List.class);
+
+    // KEYS: counter hash, leases or reservations zset
+    // ARGV: max amount, expiry (epoch ms), member prefix, seed limit ('' = no seed), seed utilised,
+    //       counter ttl, all-or-nothing ('1'/'0')
+    private static final RedisScript<List> LEASE_SCRIPT = new DefaultRedisScript<>("""
+            if ARGV[4] ~= '' and redis.call('HSETNX', KEYS[1], 'limit', ARGV[4]) == 1 then
+              redis.call('HSETNX', KEYS[1], 'utilised', ARGV[5])
+              redis.call('EXPIRE', KEYS[1], ARGV[6])
+            end
+            local state = redis.call('HMGET', KEYS[1], 'limit', 'utilised', 'reserved')
+            if not state[1] then
+              return {'NOT_SEEDED'}
+            end
+            local limit = tonumber(state[1])
+            local committed = tonumber(state[2]) + tonumber(state[3] or '0')
+            local grant = tonumber(ARGV[1])
+            if limit >= 0 then
+              local available = math.max(0, limit - committed)
+              if ARGV[7] == '1' and grant > available then
+                return {'LIMIT_EXCEEDED', state[1], tostring(committed), '0'}
+              end
+              grant = math.min(grant, available)
+            end
+            if grant > 0 then
+              redis.call('HINCRBY', KEYS[1], 'reserved', grant)
+              redis.call('ZADD', KEYS[2], ARGV[2], ARGV[3] .. ':' .. grant)
+            end
+            return {'CONSUMED', state[1], tostring(committed), tostring(grant)}
+            """, List.class);
+
+    // KEYS: counter hash, leases or reservations zset, dirty set, events stream
+    // ARGV: member, negated granted amount, used amount, dirty member, [now (epoch ms): refuse if expired]
+    // The ZREM makes settlement happen once, whether by the owner or by a reclaiming instance.
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>("""
+            local expiry = redis.call('ZSCORE', KEYS[2], ARGV[1])
+            if not expiry or (ARGV[5] and tonumber(expiry) <= tonumber(ARGV[5])) then
+              return 0
+            end
+            redis.call('ZREM', KEYS[2], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+              return 0
+            end
+            redis.call('HINCRBY', KEYS[1], 'reserved', ARGV[2])
+            if tonumber(ARGV[3]) > 0 then
+              redis.call('HINCRBY', KEYS[1], 'utilised', ARGV[3])
+              redis.call('SADD', KEYS[3], ARGV[4])
+              redis.call('XADD', KEYS[4], 'MAXLEN', '~', '1000000', '*', 'm', ARGV[4], 'a', ARGV[3], 'k', '')
+            end
+            return 1
+            """, Long.class);
+
+    // KEYS: reservations zset, dirty set. ARGV: now (epoch ms), max, counter key prefix
+    // Returns expired reservations to their counters in one call. Counter keys are derived from
+    // the members (userId:year:month:id:granted), so this needs all keys on one Redis node.
+    private static final RedisScript<Long> RELEASE_EXPIRED_SCRIPT = new DefaultRedisScript<>("""
+            local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+            for _, member in ipairs(expired) do
+              redis.call('ZREM', KEYS[1], member)
+              local slot, granted = string.match(member, '^(.*):[^:]+:(%d+)$')
+              local counter = ARGV[3] .. slot
+              if redis.call('EXISTS', counter) == 1 then
+                redis.call('HINCRBY', counter, 'reserved', -tonumber(granted))
+              end
+            end
+            return #expired
+            """, Long.class);
+
+    // Only the holder may release the events lock; an expired lock may belong to someone else
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: dirty set. ARGV: counter key prefix, then per counter: dirty member, flushed utilised
+    // ('' for a counter that was gone). A counter that changed since it was read stays dirty, as
+    // its consume found the member already in the set and did not add it again.
+    private static final RedisScript<Long> CLEAR_DIRTY_SCRIPT = new DefaultRedisScript<>("""
+            local cleared = 0
+            for i = 2, #ARGV, 2 do
+              local utilised = redis.call('HGET', ARGV[1] .. ARGV[i], 'utilised')
+              if (utilised == false and ARGV[i + 1] == '') or utilised == ARGV[i + 1] then
+                cleared = cleared + redis.call('SREM', KEYS[1], ARGV[i])
+              end
+            end
+            return cleared
+            """, Long.class);
+
+    // Only touch counters that exist; a missing counter is seeded from Postgres on next use
+    private static final RedisScript<Long> UPDATE_LIMIT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              return redis.call('HSET', KEYS[1], 'limit', ARGV[1])
+            end
+            return -1
+            """, Long.class);
+
+    public enum Status {
+        CONSUMED,
+        LIMIT_EXCEEDED,
+        DUPLICATE,
+        NOT_SEEDED
+    }
+
+    /**
+     * Outcome of a consume. For {@link Status#DUPLICATE} the values are those recorded by the
+     * first consume of the key; for {@link Status#NOT_SEEDED} they are zero.
+     */
+    public record ConsumeResult(Status status, int monthlyLimit, int utilised) {
+    }
+
+    /**
+     * One consume of a batch. {@code seed} is the Postgres state for a counter that is not in
+     * Redis yet, or null.
+     */
+    public record BatchItem(String userId, int amount, String idempotencyKey, UsageCounterState seed) {
+    }
+
+    public record DirtyCounter(String userId, int year, int month, int utilised) {
+    }
+
+    /**
+     * One charge read from the events stream. {@code entryId} is the stream entry id, unique
+     * per charge; {@code idempotencyKey} is null for charges without one.
+     */
+    public record UsageEventEntry(String entryId, String userId, int year, int month, int amount,
+                                  String idempotencyKey, Instant createdAt) {
+    }
+
+    /**
+     * Quota granted to this instance. {@code committedBefore} is utilised plus reserved quota
+     * at the time of the grant, excluding the grant itself.
+     */
+    public record LeaseGrant(String userId, int year, int month, String member,
+                             int granted, int monthlyLimit, int committedBefore) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisUsageCounter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Atomically consume {@code amount} from the user's counter for the given month.
+     *
+     * @param seed the Postgres state to initialise a missing counter with, or null to report
+     *             {@link Status#NOT_SEEDED} instead
+     */
+    @SuppressWarnings("unchecked")
+    public ConsumeResult consume(String userId, int year, int month, int amount,
+                                 String idempotencyKey, UsageCounterState seed) {
+        String member = member(userId, year, month);
+        List<String> keys = idempotencyKey != null
+                ? List.of(COUNTER_KEY_PREFIX + member, DIRTY_SET_KEY, EVENTS_STREAM_KEY,
+                        IDEMPOTENCY_KEY_PREFIX + idempotencyKey)
+                : List.of(COUNTER_KEY_PREFIX + member, DIRTY_SET_KEY, EVENTS_STREAM_KEY);
+
+        List<Object> reply = redisTemplate.execute(CONSUME_SCRIPT, keys,
+                String.valueOf(amount),
+                String.valueOf(IDEMPOTENCY_TTL_SECONDS),
+                member,
+                seed != null ? String.valueOf(seed.monthlyLimit()) : "",
+                seed != null ? String.valueOf(seed.utilised()) : "",
+                String.valueOf(COUNTER_TTL_SECONDS));
+
+        Status status = Status.valueOf(String.valueOf(reply.get(0)));
+        if (status == Status.NOT_SEEDED) {
+            return new ConsumeResult(status, 0, 0);
+        }
+        return new ConsumeResult(status,
+                Integer.parseInt(String.valueOf(reply.get(1))),
+                Integer.parseInt(String.valueOf(reply.get(2))));
+    }
+
+    /**
+     * Consume a batch of items for one month, in order, with one script call per
+     * {@value #BATCH_SCRIPT_ITEMS} items. Each item behaves like {@link #consume}.
+     *
+     * @return one result per item, in the same order
+     */
+    @SuppressWarnings("unchecked")
+    public List<ConsumeResult> consumeBatch(int year, int month, List<BatchItem> items) {
+        List<ConsumeResult> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += BATCH_SCRIPT_ITEMS) {
+            List<BatchItem> chunk = items.subList(from, Math.min(items.size(), from + BATCH_SCRIPT_ITEMS));
+
+            List<String> keys = new ArrayList<>(2 + chunk.size() * 2);
+            List<String> args = new ArrayList<>(2 + chunk.size() * 5);
+            keys.add(DIRTY_SET_KEY);
+            keys.add(EVENTS_STREAM_KEY);
+            args.add(String.valueOf(IDEMPOTENCY_TTL_SECONDS));
+            args.add(String.valueOf(COUNTER_TTL_SECONDS));
+            for (BatchItem item : chunk) {
+                String member = member(item.userId(), year, month);
+                keys.add(COUNTER_KEY_PREFIX + member);
+                keys.add(item.idempotencyKey() != null
+                        ? IDEMPOTENCY_KEY_PREFIX + item.idempotencyKey()
+                        : COUNTER_KEY_PREFIX + member);
+                args.add(String.valueOf(item.amount()));
+                args.add(member);
+                args.add(item.idempotencyKey() != null ? "1" : "0");
+                args.add(item.seed() != null ? String.valueOf(item.seed().monthlyLimit()) : "");
+                args.add(item.seed() != null ? String.valueOf(item.seed().utilised()) : "");
+            }
+
+            List<Object> reply = redisTemplate.execute(BATCH_CONSUME_SCRIPT, keys, args.toArray());
+            for (int i = 0; i < chunk.size(); i++) {
+                Status status = Status.valueOf(String.valueOf(reply.get(i * 3)));
+                String first = String.valueOf(reply.get(i * 3 + 1));
+                String second = String.valueOf(reply.get(i * 3 + 2));
+                results.add(status == Status.NOT_SEEDED
+                        ? new ConsumeResult(status, 0, 0)
+                        : new ConsumeResult(status, Integer.parseInt(first), Integer.parseInt(second)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Current counter state, or empty if the counter is not in Redis or Redis is unreachable.
+     */
+    public Optional<UsageCounterState> read(String userId, int year, int month) {
+        try {
+            List<Object> values = redisTemplate.opsForHash().multiGet(
+                    COUNTER_KEY_PREFIX + member(userId, year, month), List.of("limit", "utilised", "reserved"));
+            if (values.get(0) == null || values.get(1) == null) {
+                return Optional.empty();
+            }
+            int reserved = values.get(2) != null ? Integer.parseInt(values.get(2).toString()) : 0;
+            return Optional.of(new UsageCounterState(
+                    Integer.parseInt(values.get(0).toString()),
+                    Integer.parseInt(values.get(1).toString()) + reserved));
+        } catch (DataAccessException e) {
+            logger.warn("Usage counter read failed, falling back to database: userId={}, error={}",
+                    userId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Counter states for many users with one pipelined round trip. Users whose counter is not
+     * in Redis are left out; if Redis is unreachable the result is empty.
+     */
+    public Map<String, UsageCounterState> readAll(int year, int month, Collection<String> userIds) {
+        List<String> ids = List.copyOf(userIds);
+        List<Object> values;
+        try {
+            values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[][] fields = {
+                        "limit".getBytes(StandardCharsets.UTF_8),
+                        "utilised".getBytes(StandardCharsets.UTF_8),
+                        "reserved".getBytes(StandardCharsets.UTF_8)
+                };
+                for (String userId : ids) {
+                    connection.hashCommands().hMGet(
+                            (COUNTER_KEY_PREFIX + member(userId, year, month)).getBytes(StandardCharsets.UTF_8),
+                            fields);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Usage counter batch read failed, falling back to database: users={}, error={}",
+                    ids.size(), e.getMessage());
+            return Map.of();
+        }
+
+        Map<String, UsageCounterState> states = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            List<?> state = (List<?>) values.get(i);
+            if (state == null || state.get(0) == null || state.get(1) == null) {
+                continue;
+            }
+            int reserved = state.get(2) != null ? Integer.parseInt(state.get(2).toString()) : 0;
+            states.put(ids.get(i), new UsageCounterState(
+                    Integer.parseInt(state.get(0).toString()),
+                    Integer.parseInt(state.get(1).toString()) + reserved));
+        }
+        return states;
+    }
+
+    /**
+     * Reserve up to {@code maxAmount} of the user's remaining quota for this instance.
+     *
+     * @param seed the Postgres state to initialise a missing counter with, or null
+     * @return the grant (possibly of zero units), or empty if the counter is not seeded
+     */
+    public Optional<LeaseGrant> lease(String userId, int year, int month, int maxAmount,
+                                      Instant expiresAt, UsageCounterState seed) {
+        return acquire(LEASES_KEY, userId, year, month, maxAmount, false, expiresAt, seed);
+    }
+
+    /**
+     * Reserve exactly {@code amount} of the user's remaining quota for a caller until
+     * {@code expiresAt}. The grant's member is the reservation id.
+     *
+     * @param seed the Postgres state to initialise a missing counter with, or null
+     * @return the grant, of zero units if the amount does not fit, or empty if the counter
+     *         is not seeded
+     */
+    public Optional<LeaseGrant> reserve(String userId, int year, int month, int amount,
+                                        Instant expiresAt, UsageCounterState seed) {
+        return acquire(RESERVATIONS_KEY, userId, year, month, amount, true, expiresAt, seed);
+    }
+
+    /**
+     * Release a lease, charging {@code used} units to the counter and returning the rest.
+     *
+     * @return false if the lease had already been settled (e.g. reclaimed after expiry)
+     */
+    public boolean settle(LeaseGrant lease, int used) {
+        if (lease.granted() == 0) {
+            return true;
+        }
+        return settle(LEASES_KEY, lease, used);
+    }
+
+    /**
+     * Commit a reservation that has not expired yet, charging {@code used} units to the
+     * counter and returning the rest.
+     *
+     * @return false if the reservation does not exist, has expired or was already settled
+     */
+    public boolean commitReservation(LeaseGrant reservation, int used, Instant now) {
+        return settle(RESERVATIONS_KEY, reservation, used, String.valueOf(now.toEpochMilli()));
+    }
+
+    /**
+     * Return a reservation's quota without charging any of it.
+     *
+     * @return false if the reservation does not exist or was already settled
+     */
+    public boolean releaseReservation(LeaseGrant reservation) {
+        return settle(RESERVATIONS_KEY, reservation, 0);
+    }
+
+    /**
+     * Return up to {@code max} reservations whose expiry has passed to their counters.
+     *
+     * @return the number of reservations released
+     */
+    public int releaseExpiredReservations(Instant now, int max) {
+        Long released = redisTemplate.execute(RELEASE_EXPIRED_SCRIPT,
+                List.of(RESERVATIONS_KEY, DIRTY_SET_KEY),
+                String.valueOf(now.toEpochMilli()),
+                String.valueOf(max),
+                COUNTER_KEY_PREFIX);
+        return released != null ? released.intValue() : 0;
+    }
+
+    /**
+     * The grant a lease or reservation member stands for, or empty if it is not a member.
+     * Limit and committed values are not part of the member and are zero.
+     */
+    public static Optional<LeaseGrant> parseMember(String leaseMember) {
+        // userId:year:month:leaseId:granted
+        String[] parts = leaseMember.split(":");
+        if (parts.length != 5) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new LeaseGrant(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    leaseMember, Integer.parseInt(parts[4]), 0, 0));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Settle up to {@code max} leases whose expiry has passed, charging them in full: the
+     * instance that held them is gone and its usage is unknown, so quota is never over-granted.
+     *
+     * @return the number of leases reclaimed
+     */
+    public int reclaimExpiredLeases(Instant now, int max) {
+        Set<String> expired = redisTemplate.opsForZSet()
+                .rangeByScore(LEASES_KEY, Double.NEGATIVE_INFINITY, now.toEpochMilli(), 0, max);
+        if (expired == null || expired.isEmpty()) {
+            return 0;
+        }
+
+        int reclaimed = 0;
+        for (String leaseMember : expired) {
+            LeaseGrant lease = parseMember(leaseMember).orElseThrow();
+            if (settle(lease, lease.granted())) {
+                reclaimed++;
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Apply a limit change to the counter if it is currently held in Redis.
+     */
+    public void updateLimit(String userId, int year, int month, int monthlyLimit) {
+        redisTemplate.execute(UPDATE_LIMIT_SCRIPT,
+                List.of(COUNTER_KEY_PREFIX + member(userId, year, month)),
+                String.valueOf(monthlyLimit));
+    }
+
+    /**
+     * Up to {@code max} counters from the dirty set, with their current values. They stay in
+     * the set until {@link #clearDirty} is called once their values are in Postgres, so a flush
+     * that dies half way loses nothing. Counters that no longer exist are cleared here.
+     */
+    public List<DirtyCounter> readDirty(int max) {
+        Set<String> sampled = redisTemplate.opsForSet().distinctRandomMembers(DIRTY_SET_KEY, max);
+        if (sampled == null || sampled.isEmpty()) {
+            return List.of();
+        }
+        List<String> members = new ArrayList<>(sampled);
+
+        List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[] field = "utilised".getBytes(StandardCharsets.UTF_8);
+            for (String member : members) {
+                connection.hashCommands().hGet(
+                        (COUNTER_KEY_PREFIX + member).getBytes(StandardCharsets.UTF_8), field);
+            }
+            return null;
+        });
+
+        List<DirtyCounter> counters = new ArrayList<>(members.size());
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            Object utilised = values.get(i);
+            if (utilised == null) {
+                // Counter expired; nothing left to flush
+                expired.add(members.get(i));
+                expired.add("");
+                continue;
+            }
+            String[] parts = members.get(i).split(":");
+            counters.add(new DirtyCounter(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(utilised.toString())));
+        }
+        if (!expired.isEmpty()) {
+            clearDirtyMembers(expired);
+        }
+        return counters;
+    }
+
+    /**
+     * Remove flushed counters from the dirty set, except those that changed after
+     * {@link #readDirty} read them; they are flushed again by the next run.
+     *
+     * @return the number of counters removed
+     */
+    public int clearDirty(Collection<DirtyCounter> counters) {
+        if (counters.isEmpty()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(counters.size() * 2);
+        for (DirtyCounter counter : counters) {
+            args.add(member(counter.userId(), counter.year(), counter.month()));
+            args.add(String.valueOf(counter.utilised()));
+        }
+        return clearDirtyMembers(args);
+    }
+
+    private int clearDirtyMembers(List<String> memberValues) {
+        List<String> args = new ArrayList<>(memberValues.size() + 1);
+        args.add(COUNTER_KEY_PREFIX);
+        args.addAll(memberValues);
+        Long cleared = redisTemplate.execute(CLEAR_DIRTY_SCRIPT, List.of(DIRTY_SET_KEY), args.toArray());
+        return cleared != null ? cleared.intValue() : 0;
+    }
+
+    /**
+     * Up to {@code max} of the oldest entries of the events stream.
+     */
+    public List<UsageEventEntry> readEvents(int max) {
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                .range(EVENTS_STREAM_KEY, Range.unbounded(), Limit.limit().count(max));
+        if (records == null || records.isEmpty()) {
+            return List.of();
+        }
+
+        List<UsageEventEntry> entries = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> fields = record.getValue();
+            String[] parts = String.valueOf(fields.get("m")).split(":");
+            String idem = String.valueOf(fields.getOrDefault("k", ""));
+            entries.add(new UsageEventEntry(record.getId().getValue(),
+                    parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(String.valueOf(fields.get("a"))),
+                    idem.isEmpty() ? null : idem.substring(IDEMPOTENCY_KEY_PREFIX.length()),
+                    Instant.ofEpochMilli(record.getId().getTimestamp())));
+        }
+        return entries;
+    }
+
+    /**
+     * Remove entries that have been recorded in Postgres from the events stream.
+     */
+    public void deleteEvents(Collection<UsageEventEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForStream().delete(EVENTS_STREAM_KEY,
+                entries.stream().map(UsageEventEntry::entryId).toArray(String[]::new));
+    }
+
+    /**
+     * Take the lock that lets one instance at a time copy the events stream to Postgres.
+     */
+    public boolean tryLockEvents(String owner, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(EVENTS_LOCK_KEY, owner, ttl));
+    }
+
+    public void unlockEvents(String owner) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(EVENTS_LOCK_KEY), owner);
+    }
+
+    private boolean settle(String setKey, LeaseGrant grant, int used, String... notExpiredAt) {
+        String member = member(grant.userId(), grant.year(), grant.month());
+        List<String> args = new ArrayList<>(List.of(grant.member(),
+                String.valueOf(-grant.granted()),
+                String.valueOf(used),
+                member));
+        args.addAll(List.of(notExpiredAt));
+        Long settled = redisTemplate.execute(SETTLE_SCRIPT,
+                List.of(COUNTER_KEY_PREFIX + member, setKey, DIRTY_SET_KEY, EVENTS_STREAM_KEY),
+                args.toArray());
+        return settled != null && settled == 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<LeaseGrant> acquire(String setKey, String userId, int year, int month, int amount,
+                                         boolean allOrNothing, Instant expiresAt, UsageCounterState seed) {
+        String member = member(userId, year, month);
+        String leasePrefix = member + ":" + UUID.randomUUID();
+
+        List<Object> reply = redisTemplate.execute(LEASE_SCRIPT, List.of(COUNTER_KEY_PREFIX + member, setKey),
+                String.valueOf(amount),
+                String.valueOf(expiresAt.toEpochMilli()),
+                leasePrefix,
+                seed != null ? String.valueOf(seed.monthlyLimit()) : "",
+                seed != null ? String.valueOf(seed.utilised()) : "",
+                String.valueOf(COUNTER_TTL_SECONDS),
+                allOrNothing ? "1" : "0");
+
+        if (Status.valueOf(String.valueOf(reply.get(0))) == Status.NOT_SEEDED) {
+            return Optional.empty();
+        }
+        int granted = Integer.parseInt(String.valueOf(reply.get(3)));
+        return Optional.of(new LeaseGrant(userId, year, month, leasePrefix + ":" + granted, granted,
+                Integer.parseInt(String.valueOf(reply.get(1))),
+                Integer.parseInt(String.valueOf(reply.get(2)))));
+    }
+
+    private static String member(String userId, int year, int month) {
+        return userId + ":" + year + ":" + month;
+    }
+}
@@ -0,0 +1,56 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.idempotency.IdempotencyEntry;
+import com.myapp.identityservice.idempotency.ResultCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Consume results for idempotent replay: the monthly limit and utilised count as two big-endian
+ * int32s. Remaining and unlimited are derived from those two on decode.
+ *
+ * The Redis consume script writes the same completed entry itself, with
+ * {@code struct.pack('>BBi4i4', 1, 2, limit, utilised)}.
+ */
+public final class UsageConsumeResultCodec implements ResultCodec<UsageConsumeResponse> {
+
+    public static final UsageConsumeResultCodec INSTANCE = new UsageConsumeResultCodec();
+
+    private UsageConsumeResultCodec() {
+    }
+
+    @Override
+    public byte[] encode(UsageConsumeResponse response) {
+        return ByteBuffer.allocate(8)
+                .putInt(response.getMonthlyLimit())
+                .putInt(response.getUtilised())
+                .array();
+    }
+
+    @Override
+    public UsageConsumeResponse decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        return UsageConsumeResponse.from(buffer.getInt(), buffer.getInt());
+    }
+
+    /**
+     * The result as a completed {@link IdempotencyEntry}, as recorded in idempotency_keys.
+     */
+    public static byte[] toStoredEntry(UsageConsumeResponse response) {
+        return IdempotencyEntry.completed(INSTANCE.encode(response)).encode();
+    }
+
+    /**
+     * Read a recorded result. Results recorded before the binary format are
+     * {@code limit|utilised|remaining|unlimited} strings and are still accepted.
+     */
+    public static UsageConsumeResponse fromStoredEntry(byte[] stored) {
+        if (IdempotencyEntry.isEncoded(stored)) {
+            return INSTANCE.decode(IdempotencyEntry.decode(stored).payload());
+        }
+        String[] parts = new String(stored, StandardCharsets.UTF_8).split("\\|");
+        return UsageConsumeResponse.from(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+}
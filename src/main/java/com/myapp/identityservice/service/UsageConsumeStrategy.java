@@ -0,0 +1,87 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Where monthly usage is counted and enforced. Selected by {@code app.usage.consume-mode}.
+ * Implementations: RedisUsageConsumeStrategy (default) and PostgresUsageConsumeStrategy
+ * (no Redis dependency).
+ *
+ * Reservations hold quota for a long-running task until it is committed, released or expires.
+ * Outstanding reservations count as utilised in every state a strategy reports.
+ */
+public interface UsageConsumeStrategy {
+
+    /**
+     * Atomically consume {@code amount} from the user's usage for the given month.
+     * A repeated idempotency key returns the result recorded for the first call.
+     *
+     * @throws com.myapp.identityservice.exception.UsageLimitExceededException if the amount does not fit
+     * @throws com.myapp.identityservice.exception.NotFoundException if the user does not exist
+     */
+    UsageConsumeResponse consume(String userId, int year, int month, int amount, String idempotencyKey);
+
+    /**
+     * Consume for many users in the given month. Items are applied in order with the same
+     * semantics as {@link #consume}, but a rejected or unknown item is reported in its result
+     * instead of failing the batch. A key repeated within the batch is a duplicate of its first
+     * successful use.
+     *
+     * @return one result per item, in request order
+     */
+    List<UsageBatchConsumeResponse.ItemResult> consumeBatch(int year, int month,
+                                                           List<UsageBatchConsumeRequest.Item> items);
+
+    /**
+     * Counter state that is newer than the user_monthly_usage row, if this strategy keeps one.
+     */
+    Optional<UsageCounterState> liveState(String userId, int year, int month);
+
+    /**
+     * {@link #liveState} for many users, keyed by user id. Users without live state are left out.
+     */
+    Map<String, UsageCounterState> liveStates(int year, int month, Collection<String> userIds);
+
+    /**
+     * Called after the monthly limit of an existing usage row has been changed.
+     */
+    void limitChanged(String userId, int year, int month, int monthlyLimit);
+
+    /**
+     * Hold {@code amount} of the user's remaining quota for the given month until {@code expiresAt}.
+     *
+     * @throws com.myapp.identityservice.exception.UsageLimitExceededException if the amount does not fit
+     * @throws com.myapp.identityservice.exception.NotFoundException if the user does not exist
+     */
+    UsageReservationResponse reserve(String userId, int year, int month, int amount, Instant expiresAt);
+
+    /**
+     * Charge {@code amount} of a reservation (all of it if null) as utilised and return the rest.
+     *
+     * @throws com.myapp.identityservice.exception.NotFoundException if the reservation does not exist,
+     *         has expired or was already committed or released
+     * @throws com.myapp.identityservice.exception.BadRequestException if the amount exceeds the reservation
+     */
+    UsageConsumeResponse commitReservation(String userId, String reservationId, Integer amount);
+
+    /**
+     * Return a reservation's quota. Releasing an unknown or settled reservation does nothing.
+     */
+    void releaseReservation(String userId, String reservationId);
+
+    /**
+     * Return the quota of up to {@code max} reservations that expired before {@code now}.
+     *
+     * @return the number of reservations released
+     */
+    int releaseExpiredReservations(Instant now, int max);
+}
@@ -0,0 +1,7 @@
+package com.myapp.identityservice.service;
+
+/**
+ * A user's monthly limit and utilised count at one point in time.
+ */
+public record UsageCounterState(int monthlyLimit, int utilised) {
+}
@@ -0,0 +1,94 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import com.myapp.identityservice.repository.UsageLedgerRepository.FoldResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Folds usage_events into user_monthly_usage in the Postgres consume mode, so that live totals
+ * only have a short ledger tail to add to the row.
+ *
+ * Each run covers the current and the previous month (events of a month can still be in
+ * flight when it ends). Users are folded in chunks, one transaction per chunk, holding the
+ * chunk's ledger locks only for the fold itself. Folding is exact whenever it runs, so running
+ * it on every instance is safe; it only affects how much of the ledger reads have to sum.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usage.consume-mode", havingValue = "postgres")
+public class UsageLedgerAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageLedgerAggregator.class);
+
+    private final UsageLedgerRepository ledgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Counter foldedCounter;
+    private final Timer durationTimer;
+
+    public UsageLedgerAggregator(UsageLedgerRepository ledgerRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.usage.ledger.fold-chunk-size:500}") int chunkSize) {
+        this.ledgerRepository = ledgerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.foldedCounter = Counter.builder("usage.ledger.events.folded")
+                .description("Usage events folded into monthly usage rows")
+                .register(meterRegistry);
+        this.durationTimer = Timer.builder("usage.ledger.fold.duration")
+                .description("Time taken by one ledger fold run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.usage.ledger.fold-interval-ms:5000}")
+    public void foldPending() {
+        Timer.Sample sample = Timer.start();
+        YearMonth current = YearMonth.now();
+        long events = foldMonth(current.minusMonths(1)) + foldMonth(current);
+        long durationNanos = sample.stop(durationTimer);
+
+        if (events > 0) {
+            logger.debug("Usage ledger folded: events={}, durationMs={}", events, durationNanos / 1_000_000);
+        }
+    }
+
+    /**
+     * @return the number of events folded
+     */
+    public long foldMonth(YearMonth month) {
+        int year = month.getYear();
+        int monthValue = month.getMonthValue();
+        long events = 0;
+        String afterUserId = "";
+        while (true) {
+            List<String> userIds = ledgerRepository.findUnfolded(year, monthValue, afterUserId, chunkSize);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            FoldResult result = transactionTemplate.execute(status -> {
+                ledgerRepository.lockAll(year, monthValue, userIds);
+                return ledgerRepository.fold(year, monthValue, userIds);
+            });
+            events += result.events();
+            foldedCounter.increment(result.events());
+            if (userIds.size() < chunkSize) {
+                break;
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+        return events;
+    }
+}
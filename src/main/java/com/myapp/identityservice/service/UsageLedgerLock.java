@@ -0,0 +1,100 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.exception.ConflictException;
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes a user-month's ledger lock (see {@link UsageLedgerRepository#lock}) with a bounded wait.
+ *
+ * A blocking advisory lock waits for as long as the holder runs, keeping the waiter's
+ * connection busy; under a burst for one user that can drain the pool. The lock is tried
+ * first; if it is held, the wait is left to Postgres with lock_timeout set to the wait
+ * timeout, so the waiter is granted the lock as soon as the holder commits rather than on
+ * its next poll. On timeout the caller gets a conflict to retry later.
+ *
+ * The lock is released by Postgres when the transaction ends, so there is no release call
+ * that could race with a lock taken over by someone else, and no expiry while it is held.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usage.consume-mode", havingValue = "postgres")
+public class UsageLedgerLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageLedgerLock.class);
+
+    private final UsageLedgerRepository ledgerRepository;
+    private final Duration waitTimeout;
+    private final Timer acquiredWaitTimer;
+    private final Timer timedOutWaitTimer;
+    private final Timer holdTimer;
+    private final Counter contendedCounter;
+    private final Counter failureCounter;
+
+    public UsageLedgerLock(UsageLedgerRepository ledgerRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.usage.ledger.lock-wait-timeout-ms:2000}") long waitTimeoutMs) {
+        this.ledgerRepository = ledgerRepository;
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+        this.acquiredWaitTimer = waitTimer(meterRegistry, "acquired");
+        this.timedOutWaitTimer = waitTimer(meterRegistry, "timeout");
+        this.holdTimer = Timer.builder("usage.lock.hold")
+                .description("Time a usage ledger lock was held, until its transaction ended")
+                .register(meterRegistry);
+        this.contendedCounter = Counter.builder("usage.lock.contended")
+                .description("Usage ledger lock acquisitions that found the lock held")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("usage.lock.failures")
+                .description("Usage ledger lock acquisitions that gave up after the wait timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take the lock for the rest of the current transaction.
+     *
+     * @throws ConflictException if the lock is not free within the wait timeout
+     */
+    public void acquire(String userId, int year, int month) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Usage ledger locks must be taken in a transaction");
+        }
+        long start = System.nanoTime();
+        if (!ledgerRepository.tryLock(userId, year, month)) {
+            contendedCounter.increment();
+            if (!ledgerRepository.lockWithin(userId, year, month, waitTimeout)) {
+                timedOutWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                failureCounter.increment();
+                logger.warn("Usage ledger lock not acquired within {}: userId={}, year={}, month={}",
+                        waitTimeout, userId, year, month);
+                throw new ConflictException("Usage is being updated by another request, retry shortly");
+            }
+        }
+
+        long acquiredAt = System.nanoTime();
+        acquiredWaitTimer.record(acquiredAt - start, TimeUnit.NANOSECONDS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                holdTimer.record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("usage.lock.wait")
+                .description("Time spent waiting for a usage ledger lock")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,231 @@
+package com.myapp.identityservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process read model of (monthly limit, utilised) per user-month, so that pre-flight checks
+ * and current-month reads are answered without Postgres or Redis in the steady state.
+ *
+ * Entries are loaded on a miss and updated write-through by this instance's consumes and
+ * limit changes. Writes on other instances reach this one as invalidations (see
+ * {@link UsageReadCacheInvalidator}); the TTL bounds staleness when an invalidation is lost
+ * or, in the Postgres mode, not sent at all. Consumes always enforce the limit against the
+ * source of truth, so a stale entry can only make a check answer wrongly, never overshoot.
+ *
+ * A load that overlaps a write of the same key is not cached: writes bump a striped
+ * generation, and a load only stores its result if the generation it started with is unchanged.
+ *
+ * At {@code max-entries}, the miss that finds the map full evicts a tenth of it (expired
+ * entries first, then arbitrary ones), so the scan is paid once per that many inserts rather
+ * than on every miss.
+ */
+@Component
+public class UsageReadCache {
+
+    private static final int GENERATION_STRIPES = 64;
+    // Generations are spaced out to keep neighbouring stripes off the same cache line
+    private static final int PADDING = 8;
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final boolean sharesInvalidations;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES * PADDING);
+    private final Set<String> pendingInvalidations = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter localInvalidationCounter;
+    private final Counter remoteInvalidationCounter;
+    private final Counter evictionCounter;
+    private final Timer stalenessTimer;
+
+    public UsageReadCache(MeterRegistry meterRegistry,
+                          @Value("${app.usage.read-cache.ttl-ms:2000}") long ttlMs,
+                          @Value("${app.usage.read-cache.max-entries:100000}") int maxEntries,
+                          @Value("${app.usage.consume-mode:redis}") String consumeMode) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxEntries = maxEntries;
+        // Invalidations are shared over Redis, which the Postgres mode does not use
+        this.sharesInvalidations = "redis".equals(consumeMode);
+        this.hitCounter = Counter.builder("usage.read-cache.hits")
+                .description("Usage reads answered from the in-process read model")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("usage.read-cache.misses")
+                .description("Usage reads that had to load from the counter or database")
+                .register(meterRegistry);
+        this.localInvalidationCounter = Counter.builder("usage.read-cache.invalidations")
+                .tag("source", "local")
+                .description("Read model entries updated or dropped after a write")
+                .register(meterRegistry);
+        this.remoteInvalidationCounter = Counter.builder("usage.read-cache.invalidations")
+                .tag("source", "remote")
+                .description("Read model entries updated or dropped after a write")
+                .register(meterRegistry);
+        this.evictionCounter = Counter.builder("usage.read-cache.evictions")
+                .description("Unexpired read model entries dropped to make room")
+                .register(meterRegistry);
+        this.stalenessTimer = Timer.builder("usage.read-cache.staleness")
+                .description("Age of read model entries when they answer a read")
+                .register(meterRegistry);
+        Gauge.builder("usage.read-cache.size", entries, Map::size)
+                .description("User-months held in the read model")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A cached user-month. {@code usageId} is the user_monthly_usage row id, or null if there
+     * is no row; it is only known if {@code rowResolved} (entries loaded from a live counter
+     * alone do not know it).
+     */
+    public record CachedUsage(int monthlyLimit, int utilised, boolean rowResolved, String usageId) {
+
+        public UsageCounterState state() {
+            return new UsageCounterState(monthlyLimit, utilised);
+        }
+    }
+
+    /**
+     * The cached entry for the user-month, or the result of {@code loader}, which is cached
+     * unless the user-month was written while it ran. An entry that does not satisfy
+     * {@code usable} is reloaded.
+     */
+    public CachedUsage get(String userId, int year, int month,
+                           Predicate<CachedUsage> usable, Supplier<CachedUsage> loader) {
+        String key = key(userId, year, month);
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null && now - entry.loadedAt < ttlNanos && usable.test(entry.usage)) {
+            hitCounter.increment();
+            stalenessTimer.record(now - entry.loadedAt, TimeUnit.NANOSECONDS);
+            return entry.usage;
+        }
+
+        missCounter.increment();
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        CachedUsage loaded = loader.get();
+        if (ttlNanos > 0 && generations.get(stripe) == generation && hasRoomFor(key)) {
+            entries.put(key, new Entry(loaded, System.nanoTime()));
+        }
+        return loaded;
+    }
+
+    /**
+     * Write-through after a consume by this instance: the entry, if cached, takes the new state.
+     * Utilised only grows with consumes, so results applied out of order keep the highest.
+     */
+    public void update(String userId, int year, int month, UsageCounterState state) {
+        String key = key(userId, year, month);
+        generations.incrementAndGet(stripe(key));
+        entries.computeIfPresent(key, (k, entry) -> new Entry(new CachedUsage(state.monthlyLimit(),
+                Math.max(entry.usage.utilised(), state.utilised()),
+                entry.usage.rowResolved(), entry.usage.usageId()), System.nanoTime()));
+        localInvalidationCounter.increment();
+        share(key);
+    }
+
+    /**
+     * Drop the entry after a write by this instance whose resulting state is not known here.
+     */
+    public void invalidate(String userId, int year, int month) {
+        String key = key(userId, year, month);
+        evict(key);
+        localInvalidationCounter.increment();
+        share(key);
+    }
+
+    /**
+     * Drop entries written by another instance.
+     */
+    public void evictRemote(Collection<String> keys) {
+        for (String key : keys) {
+            evict(key);
+        }
+        remoteInvalidationCounter.increment(keys.size());
+    }
+
+    /**
+     * Keys written here since the last call, to be shared with other instances.
+     */
+    public List<String> drainPendingInvalidations(int max) {
+        List<String> drained = new ArrayList<>();
+        for (String key : pendingInvalidations) {
+            if (drained.size() >= max) {
+                break;
+            }
+            if (pendingInvalidations.remove(key)) {
+                drained.add(key);
+            }
+        }
+        return drained;
+    }
+
+    private void evict(String key) {
+        generations.incrementAndGet(stripe(key));
+        entries.remove(key);
+    }
+
+    private void share(String key) {
+        if (sharesInvalidations) {
+            pendingInvalidations.add(key);
+        }
+    }
+
+    private boolean hasRoomFor(String key) {
+        if (entries.size() < maxEntries || entries.containsKey(key)) {
+            return true;
+        }
+        // One miss evicts while concurrent ones skip caching rather than scan as well
+        if (evicting.compareAndSet(false, true)) {
+            try {
+                evictBatch();
+            } finally {
+                evicting.set(false);
+            }
+        }
+        return entries.size() < maxEntries;
+    }
+
+    private void evictBatch() {
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.loadedAt >= ttlNanos);
+        // Eviction is not a write, so generations are left alone
+        Iterator<Entry> live = entries.values().iterator();
+        while (entries.size() > target && live.hasNext()) {
+            live.next();
+            live.remove();
+            evictionCounter.increment();
+        }
+    }
+
+    private static int stripe(String key) {
+        return Math.floorMod(key.hashCode(), GENERATION_STRIPES) * PADDING;
+    }
+
+    private static String key(String userId, int year, int month) {
+        return userId + ":" + year + ":" + month;
+    }
+
+    private record Entry(CachedUsage usage, long loadedAt) {
+    }
+}
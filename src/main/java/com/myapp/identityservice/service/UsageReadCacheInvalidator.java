@@ -0,0 +1,91 @@
+package com.myapp.identityservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Shares {@link UsageReadCache} invalidations between instances over Redis pub/sub.
+ *
+ * Keys written on this instance are collected and published together every publish interval,
+ * so a burst of consumes costs one message rather than one per consume. A message is the
+ * sender's instance id followed by the keys; instances ignore their own messages. Pub/sub does
+ * not buffer for disconnected subscribers, so a lost message is covered by the cache TTL.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usage.consume-mode", havingValue = "redis", matchIfMissing = true)
+public class UsageReadCacheInvalidator implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageReadCacheInvalidator.class);
+    static final String CHANNEL = "usage:read-cache:invalidate";
+    private static final int MAX_KEYS_PER_MESSAGE = 1000;
+
+    private final UsageReadCache readCache;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public UsageReadCacheInvalidator(UsageReadCache readCache,
+                                     StringRedisTemplate redisTemplate,
+                                     RedisConnectionFactory connectionFactory) {
+        this.readCache = readCache;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(connectionFactory);
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    void unsubscribe() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    @Scheduled(fixedDelayString = "${app.usage.read-cache.publish-interval-ms:50}")
+    public void publishPending() {
+        List<String> keys;
+        do {
+            keys = readCache.drainPendingInvalidations(MAX_KEYS_PER_MESSAGE);
+            if (keys.isEmpty()) {
+                return;
+            }
+            try {
+                redisTemplate.convertAndSend(CHANNEL, instanceId + "," + String.join(",", keys));
+            } catch (RuntimeException e) {
+                // Other instances fall back to the TTL for these keys
+                logger.warn("Failed to publish {} usage read-cache invalidations: {}", keys.size(), e.getMessage());
+                return;
+            }
+        } while (keys.size() == MAX_KEYS_PER_MESSAGE);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(",");
+        if (parts.length < 2 || parts[0].equals(instanceId)) {
+            return;
+        }
+        readCache.evictRemote(Arrays.asList(parts).subList(1, parts.length));
+    }
+}
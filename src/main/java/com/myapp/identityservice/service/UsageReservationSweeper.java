@@ -0,0 +1,56 @@
+package com.myapp.identityservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Returns the quota of expired usage reservations in bulk, one strategy call per batch.
+ *
+ * A reservation can be released by any instance and only once, so the sweep runs on every
+ * instance. It stops after a short batch, leaving the rest to the next run.
+ */
+@Component
+public class UsageReservationSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageReservationSweeper.class);
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final UsageConsumeStrategy consumeStrategy;
+    private final int batchSize;
+    private final Counter expiredCounter;
+
+    public UsageReservationSweeper(UsageConsumeStrategy consumeStrategy,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.usage.reservation.sweep-batch-size:500}") int batchSize) {
+        this.consumeStrategy = consumeStrategy;
+        this.batchSize = batchSize;
+        this.expiredCounter = Counter.builder("usage.reservations.expired")
+                .description("Expired usage reservations released by the sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.usage.reservation.sweep-interval-ms:10000}")
+    public void releaseExpired() {
+        Instant now = Instant.now();
+        int released = 0;
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            int count = consumeStrategy.releaseExpiredReservations(now, batchSize);
+            released += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+
+        if (released > 0) {
+            expiredCounter.increment(released);
+            logger.info("Expired usage reservations released: {}", released);
+        }
+    }
+}
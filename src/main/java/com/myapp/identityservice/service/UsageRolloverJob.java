@@ -0,0 +1,106 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UsageBatchRepository.ProvisionedChunk;
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Creates user_monthly_usage rows for all active users ahead of each month, so the first
+ * requests of a month find their row instead of racing to insert it.
+ *
+ * Runs daily. In the last {@code lead-days} days of a month it provisions the next month;
+ * every run also provisions the current month, which catches a missed rollover and users
+ * created since the last run. Rows are inserted in chunks of users, one INSERT ... SELECT per
+ * chunk committed on its own, and existing rows are never touched, so the job is safe to run
+ * on every instance and to repeat. Users created between runs still get their row on first use.
+ * The month's usage_events partition is created alongside its rows.
+ */
+@Component
+public class UsageRolloverJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageRolloverJob.class);
+
+    private final UsageBatchRepository usageBatchRepository;
+    private final UsageLedgerRepository ledgerRepository;
+    private final int chunkSize;
+    private final int leadDays;
+    private final Counter createdCounter;
+    private final Timer durationTimer;
+
+    public UsageRolloverJob(UsageBatchRepository usageBatchRepository,
+                            UsageLedgerRepository ledgerRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.usage.rollover.chunk-size:1000}") int chunkSize,
+                            @Value("${app.usage.rollover.lead-days:3}") int leadDays) {
+        this.usageBatchRepository = usageBatchRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.chunkSize = chunkSize;
+        this.leadDays = leadDays;
+        this.createdCounter = Counter.builder("usage.rollover.rows.created")
+                .description("Monthly usage rows created ahead of use")
+                .register(meterRegistry);
+        this.durationTimer = Timer.builder("usage.rollover.duration")
+                .description("Time taken to provision one month's usage rows")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.usage.rollover.cron:0 30 0 * * *}")
+    public void provisionUpcomingMonths() {
+        LocalDate today = LocalDate.now();
+        YearMonth current = YearMonth.from(today);
+
+        provisionMonth(current);
+        if (today.getDayOfMonth() > today.lengthOfMonth() - leadDays) {
+            provisionMonth(current.plusMonths(1));
+        }
+    }
+
+    /**
+     * @return the number of rows created
+     */
+    public int provisionMonth(YearMonth month) {
+        createLedgerPartition(month);
+
+        Timer.Sample sample = Timer.start();
+        int created = 0;
+        int chunks = 0;
+        String afterUserId = "";
+        while (true) {
+            ProvisionedChunk chunk = usageBatchRepository.provisionMonth(
+                    month.getYear(), month.getMonthValue(), afterUserId, chunkSize);
+            if (chunk.lastUserId() == null) {
+                break;
+            }
+            created += chunk.created();
+            createdCounter.increment(chunk.created());
+            chunks++;
+            afterUserId = chunk.lastUserId();
+        }
+        long durationNanos = sample.stop(durationTimer);
+
+        logger.info("Usage rows provisioned: month={}, created={}, chunks={}, durationMs={}",
+                month, created, chunks, durationNanos / 1_000_000);
+        return created;
+    }
+
+    private void createLedgerPartition(YearMonth month) {
+        try {
+            ledgerRepository.createPartition(month);
+        } catch (DataAccessException e) {
+            // Events still land in the default partition
+            logger.warn("Failed to create usage ledger partition: month={}, error={}", month, e.getMessage());
+        }
+    }
+}
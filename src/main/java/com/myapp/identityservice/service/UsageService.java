@@ -2,82 +2,108 @@ package com.myapp.identityservice.service;
 
 import com.myapp.identityservice.domain.User;
 import com.myapp.identityservice.domain.UserMonthlyUsage;
+import com.myapp.identityservice.dto.request.UsageBatchCheckRequest;
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchCheckResponse;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
 import com.myapp.identityservice.dto.response.UsageCheckResponse;
 import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
 import com.myapp.identityservice.dto.response.UsageResponse;
 import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.NotFoundException;
-import com.myapp.identityservice.exception.UsageLimitExceededException;
+import com.myapp.identityservice.idempotency.IdempotencyNearCache;
 import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
 import com.myapp.identityservice.repository.UserRepository;
-import com.myapp.identityservice.util.CuidGenerator;
+import com.myapp.identityservice.service.UsageReadCache.CachedUsage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class UsageService {
 
     private static final Logger logger = LoggerFactory.getLogger(UsageService.class);
-    private static final String LOCK_KEY_PREFIX = "usage_lock:";
-    private static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:";
-    private static final long LOCK_TTL_MS = 5000;
-    private static final long IDEMPOTENCY_TTL_SECONDS = 86400; // 24 hours
 
     private final UserRepository userRepository;
     private final UserMonthlyUsageRepository usageRepository;
-    private final StringRedisTemplate redisTemplate;
-    private final CuidGenerator cuidGenerator;
+    private final UsageConsumeStrategy consumeStrategy;
+    private final IdempotencyNearCache idempotencyNearCache;
+    private final UsageReadCache readCache;
+    private final Duration defaultReservationTtl;
+    private final Duration maxReservationTtl;
 
     public UsageService(UserRepository userRepository,
                        UserMonthlyUsageRepository usageRepository,
-                       StringRedisTemplate redisTemplate,
-                       CuidGenerator cuidGenerator) {
+                       UsageConsumeStrategy consumeStrategy,
+                       IdempotencyNearCache idempotencyNearCache,
+                       UsageReadCache readCache,
+                       @Value("${app.usage.reservation.default-ttl-seconds:900}") long defaultReservationTtlSeconds,
+                       @Value("${app.usage.reservation.max-ttl-seconds:3600}") long maxReservationTtlSeconds) {
         this.userRepository = userRepository;
         this.usageRepository = usageRepository;
-        this.redisTemplate = redisTemplate;
-        this.cuidGenerator = cuidGenerator;
+        this.consumeStrategy = consumeStrategy;
+        this.idempotencyNearCache = idempotencyNearCache;
+        this.readCache = readCache;
+        this.defaultReservationTtl = Duration.ofSeconds(defaultReservationTtlSeconds);
+        this.maxReservationTtl = Duration.ofSeconds(maxReservationTtlSeconds);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Pre-flight check against the current month, answered from the {@link UsageReadCache}.
+     * Not transactional, so that a cache hit does not take a database connection.
+     */
     public UsageCheckResponse checkUsage(String userId, int amount) {
         if (amount <= 0) {
             throw new BadRequestException("Amount must be greater than 0");
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> NotFoundException.user(userId));
-
         LocalDate now = LocalDate.now();
         int year = now.getYear();
         int month = now.getMonthValue();
 
-        UserMonthlyUsage usage = getOrCreateUsage(user, year, month);
-
-        return UsageCheckResponse.from(usage.getMonthlyLimit(), usage.getUtilised(), amount);
+        CachedUsage usage = readCache.get(userId, year, month, cached -> true, () -> {
+            // A counter kept outside Postgres is ahead of the row
+            Optional<UsageCounterState> counter = consumeStrategy.liveState(userId, year, month);
+            if (counter.isPresent()) {
+                return new CachedUsage(counter.get().monthlyLimit(), counter.get().utilised(), false, null);
+            }
+            return loadCurrentUsage(userId, year, month);
+        });
+        return UsageCheckResponse.from(usage.monthlyLimit(), usage.utilised(), amount);
     }
 
-    @Transactional
+    /**
+     * Consume usage from the current month with the configured {@link UsageConsumeStrategy}.
+     * The strategy deduplicates idempotency keys atomically with the consume; a key repeated
+     * within a few seconds on this instance is answered from the near-cache without a round trip.
+     */
     public UsageConsumeResponse consumeUsage(String userId, int amount, String idempotencyKey) {
         if (amount <= 0) {
             throw new BadRequestException("Amount must be greater than 0");
         }
 
-        // Check idempotency cache
-        if (idempotencyKey != null) {
-            String cachedResult = redisTemplate.opsForValue().get(IDEMPOTENCY_KEY_PREFIX + idempotencyKey);
-            if (cachedResult != null) {
+        String nearCacheKey = idempotencyKey != null ? "usage:" + idempotencyKey : null;
+        if (nearCacheKey != null) {
+            byte[] cached = idempotencyNearCache.get(nearCacheKey);
+            if (cached != null) {
                 logger.info("Returning cached result for idempotency key: {}", idempotencyKey);
-                return parseConsumeResponse(cachedResult);
+                return UsageConsumeResultCodec.INSTANCE.decode(cached);
             }
         }
 
@@ -85,85 +111,157 @@ public class UsageService {
         int year = now.getYear();
         int month = now.getMonthValue();
 
-        String lockKey = LOCK_KEY_PREFIX + userId + ":" + year + ":" + month;
-        String lockValue = UUID.randomUUID().toString();
+        UsageConsumeResponse response = consumeStrategy.consume(userId, year, month, amount, idempotencyKey);
+        readCache.update(userId, year, month,
+                new UsageCounterState(response.getMonthlyLimit(), response.getUtilised()));
+        if (nearCacheKey != null) {
+            idempotencyNearCache.put(nearCacheKey, UsageConsumeResultCodec.INSTANCE.encode(response));
+        }
 
-        // Try to acquire distributed lock
-        Boolean acquired = redisTemplate.opsForValue()
-                .setIfAbsent(lockKey, lockValue, Duration.ofMillis(LOCK_TTL_MS));
+        logger.info("Usage consumed: userId={}, amount={}, remaining={}",
+                userId, amount, response.getRemaining());
 
-        if (acquired == null || !acquired) {
-            throw new BadRequestException("Another operation in progress, please retry");
+        return response;
+    }
+
+    /**
+     * Hold {@code amount} of the current month's quota for a long-running task. The quota
+     * counts as utilised until the reservation is committed, released or expires after
+     * {@code ttlSeconds} (the configured default if null).
+     */
+    public UsageReservationResponse reserveUsage(String userId, int amount, Integer ttlSeconds) {
+        if (amount <= 0) {
+            throw new BadRequestException("Amount must be greater than 0");
+        }
+        Duration ttl = ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : defaultReservationTtl;
+        if (ttl.isNegative() || ttl.isZero() || ttl.compareTo(maxReservationTtl) > 0) {
+            throw new BadRequestException("Reservation TTL must be between 1 and "
+                    + maxReservationTtl.toSeconds() + " seconds");
         }
 
-        try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> NotFoundException.user(userId));
-
-            UserMonthlyUsage usage = getOrCreateUsageWithLock(user, year, month);
-
-            // Check if unlimited
-            boolean isUnlimited = usage.getMonthlyLimit() < 0;
-
-            if (!isUnlimited) {
-                int newUtilised = usage.getUtilised() + amount;
-                if (newUtilised > usage.getMonthlyLimit()) {
-                    logger.warn("Usage limit exceeded: userId={}, requested={}, available={}",
-                            userId, amount, usage.getRemaining());
-                    throw new UsageLimitExceededException(
-                            usage.getMonthlyLimit(),
-                            usage.getUtilised(),
-                            amount
-                    );
-                }
-            }
+        LocalDate now = LocalDate.now();
+        UsageReservationResponse reservation = consumeStrategy.reserve(userId, now.getYear(), now.getMonthValue(),
+                amount, Instant.now().plus(ttl));
+        readCache.update(userId, now.getYear(), now.getMonthValue(),
+                new UsageCounterState(reservation.getMonthlyLimit(), reservation.getUtilised()));
+
+        logger.info("Usage reserved: userId={}, amount={}, reservationId={}, expiresAt={}",
+                userId, amount, reservation.getReservationId(), reservation.getExpiresAt());
+
+        return reservation;
+    }
+
+    /**
+     * Charge {@code amount} of a reservation (all of it if null) and return the rest.
+     */
+    public UsageConsumeResponse commitReservation(String userId, String reservationId, Integer amount) {
+        if (amount != null && amount < 0) {
+            throw new BadRequestException("Amount must not be negative");
+        }
+
+        UsageConsumeResponse response = consumeStrategy.commitReservation(userId, reservationId, amount);
+        // Returning the uncommitted rest lowers utilised, which update() would not apply
+        invalidateCurrentMonth(userId);
 
-            // Update usage
-            usage.setUtilised(usage.getUtilised() + amount);
-            usageRepository.save(usage);
-
-            UsageConsumeResponse response = UsageConsumeResponse.from(
-                    usage.getMonthlyLimit(),
-                    usage.getUtilised()
-            );
-
-            // Cache result if idempotency key provided
-            if (idempotencyKey != null) {
-                String cacheValue = serializeConsumeResponse(response);
-                redisTemplate.opsForValue().set(
-                        IDEMPOTENCY_KEY_PREFIX + idempotencyKey,
-                        cacheValue,
-                        IDEMPOTENCY_TTL_SECONDS,
-                        TimeUnit.SECONDS
-                );
+        logger.info("Usage reservation committed: userId={}, reservationId={}, amount={}, remaining={}",
+                userId, reservationId, amount, response.getRemaining());
+
+        return response;
+    }
+
+    public void releaseReservation(String userId, String reservationId) {
+        consumeStrategy.releaseReservation(userId, reservationId);
+        invalidateCurrentMonth(userId);
+        logger.info("Usage reservation released: userId={}, reservationId={}", userId, reservationId);
+    }
+
+    /**
+     * Pre-flight check for many users in the current month, with one bulk read per source.
+     * Unlike {@link #checkUsage}, users without a row for the month are answered from their
+     * default limit without creating the row.
+     */
+    @Transactional(readOnly = true)
+    public UsageBatchCheckResponse checkUsageBatch(List<UsageBatchCheckRequest.Item> items) {
+        for (UsageBatchCheckRequest.Item item : items) {
+            if (item.getAmount() == null || item.getAmount() <= 0) {
+                throw new BadRequestException("Amount must be greater than 0");
             }
+        }
+
+        LocalDate now = LocalDate.now();
+        int year = now.getYear();
+        int month = now.getMonthValue();
 
-            logger.info("Usage consumed: userId={}, amount={}, remaining={}",
-                    userId, amount, response.getRemaining());
+        Set<String> missing = new HashSet<>();
+        items.forEach(item -> missing.add(item.getUserId()));
 
-            return response;
+        Map<String, UsageCounterState> states = new HashMap<>(consumeStrategy.liveStates(year, month, missing));
+        missing.removeAll(states.keySet());
+        if (!missing.isEmpty()) {
+            usageRepository.findByUserIdInAndYearAndMonth(missing, year, month).forEach(usage ->
+                    states.put(usage.getUser().getId(), new UsageCounterState(usage.getMonthlyLimit(), usage.getUtilised())));
+            missing.removeAll(states.keySet());
+        }
+        if (!missing.isEmpty()) {
+            userRepository.findByIdIn(List.copyOf(missing)).forEach(user ->
+                    states.put(user.getId(), new UsageCounterState(user.getDefaultMonthlyTaskLimit(), 0)));
+        }
 
-        } finally {
-            // Release lock if still owned
-            String currentLockValue = redisTemplate.opsForValue().get(lockKey);
-            if (lockValue.equals(currentLockValue)) {
-                redisTemplate.delete(lockKey);
+        List<UsageBatchCheckResponse.ItemResult> results = items.stream()
+                .map(item -> {
+                    UsageCounterState state = states.get(item.getUserId());
+                    return state == null
+                            ? UsageBatchCheckResponse.ItemResult.notFound(item.getUserId())
+                            : UsageBatchCheckResponse.ItemResult.from(item.getUserId(),
+                                    state.monthlyLimit(), state.utilised(), item.getAmount());
+                })
+                .toList();
+        return new UsageBatchCheckResponse(results);
+    }
+
+    /**
+     * Consume usage for many users in the current month. Each item gets its own result;
+     * a rejected item does not fail the batch.
+     */
+    public UsageBatchConsumeResponse consumeUsageBatch(List<UsageBatchConsumeRequest.Item> items) {
+        for (UsageBatchConsumeRequest.Item item : items) {
+            if (item.getAmount() == null || item.getAmount() <= 0) {
+                throw new BadRequestException("Amount must be greater than 0");
             }
         }
+
+        LocalDate now = LocalDate.now();
+        List<UsageBatchConsumeResponse.ItemResult> results =
+                consumeStrategy.consumeBatch(now.getYear(), now.getMonthValue(), items);
+        results.stream()
+                .filter(result -> result.getStatus() == UsageBatchConsumeResponse.Status.CONSUMED)
+                .forEach(result -> readCache.update(result.getUserId(), now.getYear(), now.getMonthValue(),
+                        new UsageCounterState(result.getMonthlyLimit(), result.getUtilised())));
+
+        long consumed = results.stream()
+                .filter(result -> result.getStatus() == UsageBatchConsumeResponse.Status.CONSUMED)
+                .count();
+        logger.info("Usage batch consumed: items={}, consumed={}, notConsumed={}",
+                items.size(), consumed, items.size() - consumed);
+
+        return new UsageBatchConsumeResponse(results);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * The current month's usage, answered from the {@link UsageReadCache} like {@link #checkUsage}.
+     */
     public UsageResponse getCurrentMonthUsage(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> NotFoundException.user(userId));
-
         LocalDate now = LocalDate.now();
         int year = now.getYear();
         int month = now.getMonthValue();
 
-        return usageRepository.findByUserIdAndYearAndMonth(userId, year, month)
-                .map(UsageResponse::fromEntity)
-                .orElseGet(() -> UsageResponse.defaultUsage(userId, year, month, user.getDefaultMonthlyTaskLimit()));
+        CachedUsage usage = readCache.get(userId, year, month, CachedUsage::rowResolved,
+                () -> loadCurrentUsage(userId, year, month));
+
+        UsageResponse response = UsageResponse.defaultUsage(userId, year, month, usage.monthlyLimit());
+        response.setId(usage.usageId());
+        applyLiveState(response, usage.state());
+        return response;
     }
 
     @Transactional(readOnly = true)
@@ -175,9 +273,12 @@ public class UsageService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> NotFoundException.user(userId));
 
-        return usageRepository.findByUserIdAndYearAndMonth(userId, year, month)
+        UsageResponse response = usageRepository.findByUserIdAndYearAndMonth(userId, year, month)
                 .map(UsageResponse::fromEntity)
                 .orElseThrow(NotFoundException::usage);
+
+        consumeStrategy.liveState(userId, year, month).ifPresent(counter -> applyLiveState(response, counter));
+        return response;
     }
 
     @Transactional(readOnly = true)
@@ -198,54 +299,73 @@ public class UsageService {
         int year = now.getYear();
         int month = now.getMonthValue();
 
-        usageRepository.findByUserIdAndYearAndMonth(userId, year, month)
-                .ifPresent(usage -> {
-                    usage.setMonthlyLimit(newLimit);
-                    usageRepository.save(usage);
-                    logger.info("Monthly limit updated: userId={}, year={}, month={}, newLimit={}",
-                            userId, year, month, newLimit);
-                });
-    }
-
-    private UserMonthlyUsage getOrCreateUsage(User user, int year, int month) {
-        return usageRepository.findByUserIdAndYearAndMonth(user.getId(), year, month)
-                .orElseGet(() -> createUsageRecord(user, year, month));
+        // Targeted update: saving the entity would also write back a utilised value that
+        // a concurrent consume or flush may already have moved past
+        boolean rowUpdated = usageRepository.updateMonthlyLimit(userId, year, month, newLimit) > 0;
+
+        // Next month's row may already be provisioned with the previous default limit
+        LocalDate next = now.plusMonths(1);
+        usageRepository.updateMonthlyLimit(userId, next.getYear(), next.getMonthValue(), newLimit);
+
+        // Only once the new limit is visible: a reader in between would cache the old one for
+        // the full TTL, and a rollback would leave the live counter on a limit never stored
+        afterCommit(() -> {
+            if (rowUpdated) {
+                consumeStrategy.limitChanged(userId, year, month, newLimit);
+                logger.info("Monthly limit updated: userId={}, year={}, month={}, newLimit={}",
+                        userId, year, month, newLimit);
+            }
+            // Also when there is no row: cached defaults follow the user's (changed) default limit
+            readCache.invalidate(userId, year, month);
+            readCache.invalidate(userId, next.getYear(), next.getMonthValue());
+        });
     }
 
-    private UserMonthlyUsage getOrCreateUsageWithLock(User user, int year, int month) {
-        return usageRepository.findByUserIdAndYearAndMonthWithLock(user.getId(), year, month)
-                .orElseGet(() -> createUsageRecord(user, year, month));
+    /**
+     * Run {@code action} once the current transaction has committed, or right away outside one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
-    private UserMonthlyUsage createUsageRecord(User user, int year, int month) {
-        UserMonthlyUsage usage = new UserMonthlyUsage();
-        usage.setId(cuidGenerator.generate());
-        usage.setUser(user);
-        usage.setYear(year);
-        usage.setMonth(month);
-        usage.setMonthlyLimit(user.getDefaultMonthlyTaskLimit());
-        usage.setUtilised(0);
+    /**
+     * The user-month as the read model caches it: the row (or the user's default limit if
+     * the row is not provisioned yet), overlaid with the live counter state.
+     */
+    private CachedUsage loadCurrentUsage(String userId, int year, int month) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> NotFoundException.user(userId));
 
-        return usageRepository.save(usage);
+        // Rows are provisioned ahead of the month (UsageRolloverJob); a user without one
+        // has used nothing yet and is on their default limit
+        Optional<UserMonthlyUsage> row = usageRepository.findByUserIdAndYearAndMonth(userId, year, month);
+        UsageCounterState state = consumeStrategy.liveState(userId, year, month)
+                .orElseGet(() -> row
+                        .map(usage -> new UsageCounterState(usage.getMonthlyLimit(), usage.getUtilised()))
+                        .orElseGet(() -> new UsageCounterState(user.getDefaultMonthlyTaskLimit(), 0)));
+        return new CachedUsage(state.monthlyLimit(), state.utilised(), true,
+                row.map(UserMonthlyUsage::getId).orElse(null));
     }
 
-    private String serializeConsumeResponse(UsageConsumeResponse response) {
-        return String.format("%d|%d|%d|%b",
-                response.getMonthlyLimit(),
-                response.getUtilised(),
-                response.getRemaining(),
-                response.isUnlimited()
-        );
+    private void invalidateCurrentMonth(String userId) {
+        LocalDate now = LocalDate.now();
+        readCache.invalidate(userId, now.getYear(), now.getMonthValue());
     }
 
-    private UsageConsumeResponse parseConsumeResponse(String cached) {
-        String[] parts = cached.split("\\|");
-        UsageConsumeResponse response = new UsageConsumeResponse();
-        response.setSuccess(true);
-        response.setMonthlyLimit(Integer.parseInt(parts[0]));
-        response.setUtilised(Integer.parseInt(parts[1]));
-        response.setRemaining(Integer.parseInt(parts[2]));
-        response.setUnlimited(Boolean.parseBoolean(parts[3]));
-        return response;
+    private static void applyLiveState(UsageResponse response, UsageCounterState counter) {
+        response.setMonthlyLimit(counter.monthlyLimit());
+        response.setUtilised(counter.utilised());
+        response.setUnlimited(counter.monthlyLimit() < 0);
+        response.setRemaining(counter.monthlyLimit() < 0
+                ? -1 : Math.max(0, counter.monthlyLimit() - counter.utilised()));
     }
 }
@@ -0,0 +1,146 @@
+package com.myapp.identityservice.service;
+
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import com.myapp.identityservice.service.RedisUsageCounter.DirtyCounter;
+import com.myapp.identityservice.service.RedisUsageCounter.UsageEventEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Copies Redis usage counters back to user_monthly_usage, and the audit entries of each
+ * charge (see {@link RedisUsageCounter}) into usage_events.
+ *
+ * Durability: Redis is the source of truth for the current month's counters and Postgres
+ * trails it by at most one flush interval. Writes are absolute values applied with GREATEST,
+ * so they are idempotent and safe to repeat or overlap across instances. A counter leaves the
+ * dirty set only after its value has committed, so a failed write, or an instance that dies
+ * mid-flush, leaves it to the next run on any instance; the counters are also flushed once
+ * more on shutdown. If Redis loses a counter (restart without persistence), the next consume
+ * re-seeds it from Postgres; consumption in the last unflushed interval is then not counted.
+ *
+ * Audit entries are copied before counters, so a flushed counter includes every entry copied
+ * before it. One instance at a time copies them, under a Redis lock; entries leave the stream
+ * only once they are in Postgres, and a repeated copy is skipped by its stream entry id.
+ */
+@Component
+@ConditionalOnProperty(name = "app.usage.consume-mode", havingValue = "redis", matchIfMissing = true)
+public class UsageWriteBehindFlusher {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageWriteBehindFlusher.class);
+    // Outlives a normal copy by far; if it lapses mid-copy, a second copier only repeats entries
+    private static final Duration EVENTS_LOCK_TTL = Duration.ofSeconds(30);
+
+    private final RedisUsageCounter usageCounter;
+    private final UsageBatchRepository usageBatchRepository;
+    private final UsageLedgerRepository ledgerRepository;
+    private final int batchSize;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter eventsCounter;
+    private final Counter eventFailuresCounter;
+
+    public UsageWriteBehindFlusher(RedisUsageCounter usageCounter,
+                                   UsageBatchRepository usageBatchRepository,
+                                   UsageLedgerRepository ledgerRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.usage.flush-batch-size:500}") int batchSize) {
+        this.usageCounter = usageCounter;
+        this.usageBatchRepository = usageBatchRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.batchSize = batchSize;
+        this.eventsCounter = Counter.builder("usage.flush.events")
+                .description("Usage audit entries copied from Redis to usage_events")
+                .register(meterRegistry);
+        this.eventFailuresCounter = Counter.builder("usage.flush.event-failures")
+                .description("Usage audit copies that failed and were left in Redis")
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("usage.flush.counters")
+                .description("Usage counters written from Redis to Postgres")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("usage.flush.failures")
+                .description("Usage flush batches that failed and were left dirty")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.usage.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        flushEvents();
+        flushCounters();
+    }
+
+    private void flushEvents() {
+        try {
+            if (!usageCounter.tryLockEvents(instanceId, EVENTS_LOCK_TTL)) {
+                return; // another instance is copying
+            }
+        } catch (RuntimeException e) {
+            eventFailuresCounter.increment();
+            logger.error("Usage audit copy could not take its lock: {}", e.getMessage());
+            return;
+        }
+        try {
+            List<UsageEventEntry> batch;
+            do {
+                batch = usageCounter.readEvents(batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                ledgerRepository.appendRecorded(batch);
+                usageCounter.deleteEvents(batch);
+                eventsCounter.increment(batch.size());
+            } while (batch.size() == batchSize);
+        } catch (RuntimeException e) {
+            // Entries stay in the stream and are copied by the next run
+            eventFailuresCounter.increment();
+            logger.error("Usage audit copy failed, entries left in Redis: {}", e.getMessage());
+        } finally {
+            try {
+                usageCounter.unlockEvents(instanceId);
+            } catch (RuntimeException e) {
+                logger.warn("Usage audit lock release failed, it expires in {}: {}", EVENTS_LOCK_TTL, e.getMessage());
+            }
+        }
+    }
+
+    private void flushCounters() {
+        List<DirtyCounter> batch;
+        do {
+            try {
+                batch = usageCounter.readDirty(batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                usageBatchRepository.raiseUtilised(batch);
+                usageCounter.clearDirty(batch);
+                flushedCounter.increment(batch.size());
+            } catch (RuntimeException e) {
+                // Counters stay dirty and are flushed by the next run
+                failedCounter.increment();
+                logger.error("Usage flush failed, counters left dirty: {}", e.getMessage());
+                return;
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Usage flush on shutdown failed: {}", e.getMessage());
+        }
+    }
+}
@@ -13,6 +13,7 @@ import com.myapp.identityservice.dto.response.UserResponse;
 import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.ConflictException;
 import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.repository.UserGroupRepository;
 import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
 import com.myapp.identityservice.repository.UserRepository;
 import com.myapp.identityservice.util.CuidGenerator;
@@ -36,15 +37,18 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final UserMonthlyUsageRepository usageRepository;
+    private final UserGroupRepository groupRepository;
     private final CuidGenerator cuidGenerator;
     private final EventPublisher eventPublisher;
 
     public UserService(UserRepository userRepository,
                       UserMonthlyUsageRepository usageRepository,
+                      UserGroupRepository groupRepository,
                       CuidGenerator cuidGenerator,
                       EventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.usageRepository = usageRepository;
+        this.groupRepository = groupRepository;
         this.cuidGenerator = cuidGenerator;
         this.eventPublisher = eventPublisher;
     }
@@ -167,13 +171,19 @@ public class UserService {
             user.setEmail(request.getEmail());
         }
 
-        if (request.getStatus() != null) {
+        boolean statusChanged = false;
+        if (request.getStatus() != null && request.getStatus() != user.getStatus()) {
             user.setStatus(request.getStatus());
+            statusChanged = true;
         }
 
         User savedUser = userRepository.save(user);
         logger.info("User updated: id={}", savedUser.getId());
 
+        if (statusChanged) {
+            refreshGroupFingerprints(savedUser.getId());
+        }
+
         if (nameChanged) {
             eventPublisher.publishUserNameUpdated(
                     savedUser.getId(), savedUser.getName(),
@@ -192,6 +202,8 @@ public class UserService {
         User savedUser = userRepository.save(user);
         logger.info("User deleted (soft): id={}", savedUser.getId());
 
+        refreshGroupFingerprints(savedUser.getId());
+
         return UserResponse.fromEntity(savedUser);
     }
 
@@ -244,6 +256,16 @@ public class UserService {
         logger.info("Subscription updated: userId={}, planId={}, limit={}", user.getId(), planId, monthlyLimit);
     }
 
+    /**
+     * Only ACTIVE users count towards a group's member-set fingerprint, so a status change
+     * must refresh every group the user belongs to. The status update is flushed first
+     * because the refresh is computed in SQL.
+     */
+    private void refreshGroupFingerprints(String userId) {
+        userRepository.flush();
+        groupRepository.refreshMemberFingerprintsForUser(userId);
+    }
+
     private String maskEmail(String email) {
         if (email == null || email.length() < 3) {
             return "***";
@@ -0,0 +1,41 @@
+package com.myapp.identityservice.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+
+/**
+ * Order-independent fingerprint of a group's member set.
+ *
+ * Each member contributes the first 64 bits of md5(userId); contributions are XORed together,
+ * so adding members in any order yields the same value. The SQL in UserGroupRepository and
+ * migration V10 computes the identical value with
+ * {@code BIT_XOR(CAST(CAST('x' || SUBSTR(MD5(user_id), 1, 16) AS BIT(64)) AS BIGINT))}.
+ *
+ * The fingerprint is only a lookup key: equal fingerprints must still be confirmed by
+ * comparing the actual member sets.
+ */
+public final class MemberSetFingerprint {
+
+    private MemberSetFingerprint() {
+    }
+
+    public static long of(Collection<String> userIds) {
+        long hash = 0L;
+        for (String userId : userIds) {
+            hash ^= memberHash(userId);
+        }
+        return hash;
+    }
+
+    static long memberHash(String userId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(userId.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.myapp.identityservice.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A fixed amount of quota spread over several independently updated stripes, so threads
+ * taking from the same quota mostly CAS on different cache lines. Takes never succeed for
+ * more than was put in: a take that no single stripe can cover gathers from all stripes and
+ * gives everything back if the total is still short.
+ *
+ * {@link #drain()} closes the quota. Units a concurrent gather gives back after its stripe was
+ * closed are still counted into the drained total, so nothing taken and returned is lost.
+ */
+public class StripedQuota {
+
+    // Stripe slots are spaced out to keep neighbouring stripes off the same cache line
+    private static final int PADDING = 16;
+
+    // A drained stripe; below any amount, so takes from it fail
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final AtomicIntegerArray slots;
+    private final int stripes;
+    private final AtomicInteger activeGathers = new AtomicInteger();
+    // Units given back by gathers to stripes that were already drained
+    private final AtomicInteger lateRefunds = new AtomicInteger();
+
+    public StripedQuota(int amount, int stripes) {
+        if (amount < 0 || stripes <= 0) {
+            throw new IllegalArgumentException("amount must be >= 0 and stripes > 0");
+        }
+        this.stripes = stripes;
+        this.slots = new AtomicIntegerArray(stripes * PADDING);
+        int share = amount / stripes;
+        for (int i = 0; i < stripes; i++) {
+            slots.set(i * PADDING, share);
+        }
+        slots.addAndGet(0, amount - share * stripes);
+    }
+
+    /**
+     * Take {@code amount} units if available.
+     */
+    public boolean tryAcquire(int amount) {
+        int home = (int) (Thread.currentThread().threadId() % stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (takeExactly((home + i) % stripes, amount)) {
+                return true;
+            }
+        }
+        return gather(home, amount);
+    }
+
+    /**
+     * Units not taken yet. Only a snapshot while other threads are taking.
+     */
+    public int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += Math.max(slots.get(i * PADDING), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Close every stripe and return what was left, including units that gathers running
+     * meanwhile give back. Later takes fail, and a repeated drain returns 0.
+     */
+    public int drain() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            int left = slots.getAndSet(i * PADDING, CLOSED);
+            if (left != CLOSED) {
+                total += left;
+            }
+        }
+        // A gather that starts from here on finds every stripe closed and takes nothing;
+        // one already running only has to give back what it took, so the wait is short
+        while (activeGathers.get() > 0) {
+            Thread.onSpinWait();
+        }
+        return total + lateRefunds.getAndSet(0);
+    }
+
+    private boolean takeExactly(int stripe, int amount) {
+        int index = stripe * PADDING;
+        while (true) {
+            int current = slots.get(index);
+            if (current < amount) {
+                return false;
+            }
+            if (slots.compareAndSet(index, current, current - amount)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean gather(int home, int amount) {
+        activeGathers.incrementAndGet();
+        try {
+            return gatherAll(home, amount);
+        } finally {
+            activeGathers.decrementAndGet();
+        }
+    }
+
+    private boolean gatherAll(int home, int amount) {
+        int[] taken = new int[stripes];
+        int total = 0;
+        for (int i = 0; i < stripes && total < amount; i++) {
+            int stripe = (home + i) % stripes;
+            int index = stripe * PADDING;
+            while (true) {
+                int current = slots.get(index);
+                int take = Math.min(current, amount - total);
+                if (take <= 0) {
+                    break;
+                }
+                if (slots.compareAndSet(index, current, current - take)) {
+                    taken[stripe] = take;
+                    total += take;
+                    break;
+                }
+            }
+        }
+        if (total == amount) {
+            return true;
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (taken[stripe] > 0) {
+                refund(stripe, taken[stripe]);
+            }
+        }
+        return false;
+    }
+
+    private void refund(int stripe, int amount) {
+        int index = stripe * PADDING;
+        while (true) {
+            int current = slots.get(index);
+            if (current == CLOSED) {
+                lateRefunds.addAndGet(amount);
+                return;
+            }
+            if (slots.compareAndSet(index, current, current + amount)) {
+                return;
+            }
+        }
+    }
+}
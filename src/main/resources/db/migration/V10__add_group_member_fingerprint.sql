@@ -0,0 +1,23 @@
+-- Migration V10: Member-set fingerprint for duplicate-group detection
+-- A duplicate group has the same name (case insensitive) and exactly the same set of ACTIVE members.
+-- Each group stores an order-independent fingerprint of that set so the duplicate check is one
+-- indexed lookup; full set comparison only happens when fingerprints collide.
+--
+-- member_set_hash = XOR over members of the first 64 bits of md5(user_id)
+-- (must match com.myapp.identityservice.util.MemberSetFingerprint)
+
+ALTER TABLE user_groups ADD COLUMN member_count INT DEFAULT 0 NOT NULL;
+ALTER TABLE user_groups ADD COLUMN member_set_hash BIGINT DEFAULT 0 NOT NULL;
+
+-- Backfill from the current-state membership table
+UPDATE user_groups g
+SET (member_count, member_set_hash) = (
+    SELECT COUNT(*), COALESCE(BIT_XOR(CAST(CAST('x' || SUBSTR(MD5(gm.user_id), 1, 16) AS BIT(64)) AS BIGINT)), 0)
+    FROM group_members gm
+    JOIN users u ON u.id = gm.user_id
+    WHERE gm.group_id = g.id AND u.status = 'ACTIVE'
+);
+
+CREATE INDEX idx_group_name_fingerprint
+ON user_groups (LOWER(name), member_set_hash, member_count)
+WHERE is_active = true;
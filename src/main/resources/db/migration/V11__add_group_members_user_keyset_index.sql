@@ -0,0 +1,8 @@
+-- Migration V11: Keyset index for user -> groups reads
+-- GET /users/{id}/groups pages through a user's current memberships ordered by
+-- (added_at DESC, group_id DESC). This index serves that order directly and supersedes
+-- the single-column user_id index for every other user_id lookup.
+
+CREATE INDEX idx_group_members_user_added ON group_members(user_id, added_at DESC, group_id DESC);
+
+DROP INDEX IF EXISTS idx_group_members_user_id;
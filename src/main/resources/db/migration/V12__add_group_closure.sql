@@ -0,0 +1,29 @@
+-- Migration V12: Closure table for the group hierarchy
+-- One row per (ancestor, descendant) pair, including each group with itself at depth 0.
+-- Subtree, ancestor-path and subtree-member questions become a single indexed lookup at any
+-- depth instead of walking parent_group_id level by level.
+
+CREATE TABLE group_closure (
+    ancestor_id VARCHAR(30) NOT NULL REFERENCES user_groups(id) ON DELETE CASCADE,
+    descendant_id VARCHAR(30) NOT NULL REFERENCES user_groups(id) ON DELETE CASCADE,
+    depth INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id)
+);
+
+-- Ancestor path (descendant -> ancestors); the primary key covers ancestor -> subtree
+CREATE INDEX idx_group_closure_descendant ON group_closure(descendant_id, depth);
+
+-- Backfill from parent_group_id
+INSERT INTO group_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE tree AS (
+    SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth
+    FROM user_groups
+    UNION ALL
+    SELECT t.ancestor_id, g.id, t.depth + 1
+    FROM tree t
+    JOIN user_groups g ON g.parent_group_id = t.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM tree;
+
+COMMENT ON TABLE group_closure IS 'Transitive closure of user_groups.parent_group_id, maintained on group create and move';
+COMMENT ON COLUMN group_closure.depth IS '0 for the group itself, 1 for direct children, and so on';
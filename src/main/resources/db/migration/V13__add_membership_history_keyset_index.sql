@@ -0,0 +1,8 @@
+-- Migration V13: Keyset index for group membership history
+-- History pages are ordered by (created_at DESC, id DESC) within a group and continue from a
+-- (created_at, id) cursor, so each page is a bounded index range scan instead of a full sort.
+-- The single-column group_id index is a prefix of the new one and is dropped.
+
+CREATE INDEX idx_membership_group_created ON user_group_memberships(group_id, created_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_membership_group_id;
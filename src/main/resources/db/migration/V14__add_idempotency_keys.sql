@@ -0,0 +1,15 @@
+-- Migration V14: Idempotency keys stored in Postgres
+-- Used by the Postgres usage consume mode (app.usage.consume-mode=postgres), which runs without
+-- Redis. A key is claimed in the same transaction as the usage update, so a concurrent retry
+-- with the same key blocks on the uncommitted row and then reads the recorded response.
+
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    user_id         VARCHAR(30)  NOT NULL,
+    response        VARCHAR(100),
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    expires_at      TIMESTAMPTZ  NOT NULL
+);
+
+-- Expired keys are deleted in bulk by a scheduled job
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys(expires_at);
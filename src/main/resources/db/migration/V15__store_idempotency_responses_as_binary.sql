@@ -0,0 +1,7 @@
+-- Migration V15: Binary idempotency responses
+-- Recorded responses become versioned binary entries (IdempotencyEntry). Responses recorded
+-- before this migration keep their limit|utilised|remaining|unlimited text as bytes; readers
+-- tell the two apart by the first byte.
+
+ALTER TABLE idempotency_keys
+    ALTER COLUMN response TYPE BYTEA USING convert_to(response, 'UTF8');
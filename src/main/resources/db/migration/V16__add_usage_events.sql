@@ -0,0 +1,37 @@
+-- Migration V16: Append-only usage ledger
+-- Every consume in the Postgres consume mode appends one row here instead of updating the
+-- user's user_monthly_usage row. UsageLedgerAggregator folds events into the row and records
+-- the last folded event id in ledger_position; live totals are the row plus the events after it.
+
+CREATE TABLE usage_events (
+    id              BIGSERIAL,
+    user_id         VARCHAR(30)  NOT NULL,
+    year            INT          NOT NULL,
+    month           INT          NOT NULL CHECK (month >= 1 AND month <= 12),
+    amount          INT          NOT NULL CHECK (amount > 0),
+    idempotency_key VARCHAR(255),
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (year, month, id)
+) PARTITION BY RANGE (year, month);
+
+-- Serves the unfolded-tail sums and per-user audit reads
+CREATE INDEX idx_usage_events_user ON usage_events (user_id, year, month, id);
+
+-- Catches events for a month whose partition has not been created yet
+CREATE TABLE usage_events_default PARTITION OF usage_events DEFAULT;
+
+-- Partitions for the current and next month; later months are created by UsageRolloverJob
+DO $$
+DECLARE
+    m DATE;
+BEGIN
+    FOR i IN 0..1 LOOP
+        m := (date_trunc('month', NOW()) + make_interval(months => i))::date;
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF usage_events FOR VALUES FROM (%s, %s) TO (%s, %s)',
+                to_char(m, '"usage_events_"YYYY_MM'),
+                extract(year FROM m), extract(month FROM m),
+                extract(year FROM m + INTERVAL '1 month'), extract(month FROM m + INTERVAL '1 month'));
+    END LOOP;
+END $$;
+
+ALTER TABLE user_monthly_usage ADD COLUMN ledger_position BIGINT NOT NULL DEFAULT 0;
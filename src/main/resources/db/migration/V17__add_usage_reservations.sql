@@ -0,0 +1,21 @@
+-- Migration V17: Usage reservations
+-- Quota held for a long-running task in the Postgres consume mode. A reservation counts as
+-- utilised until it is committed (converted into a usage_events row), released, or expires.
+-- Live totals only count rows with expires_at in the future, so an expired reservation stops
+-- holding quota on its own; a scheduled sweep deletes such rows in bulk.
+
+CREATE TABLE usage_reservations (
+    id          VARCHAR(30)  PRIMARY KEY,
+    user_id     VARCHAR(30)  NOT NULL,
+    year        INT          NOT NULL,
+    month       INT          NOT NULL CHECK (month >= 1 AND month <= 12),
+    amount      INT          NOT NULL CHECK (amount > 0),
+    expires_at  TIMESTAMPTZ  NOT NULL,
+    created_at  TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+-- Serves the outstanding-reservation sums in live totals
+CREATE INDEX idx_usage_reservations_user ON usage_reservations (user_id, year, month, expires_at);
+
+-- Serves the expiry sweep
+CREATE INDEX idx_usage_reservations_expires ON usage_reservations (expires_at);
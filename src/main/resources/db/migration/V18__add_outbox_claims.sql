@@ -0,0 +1,14 @@
+-- Migration V18: Outbox claims
+-- Delivery workers on any instance claim due events with FOR UPDATE SKIP LOCKED and mark them
+-- IN_FLIGHT, with claimed_by naming the claim and next_retry_at holding the lease expiry.
+-- Delivery happens after the claim has committed; results are written back only while the
+-- claim is still the event's. An IN_FLIGHT event whose lease has run out (its worker died or
+-- stalled) is due again and can be claimed by another worker.
+
+ALTER TABLE outbound_events ADD COLUMN claimed_by VARCHAR(36);
+
+-- The poll index must cover IN_FLIGHT so that expired leases are found
+DROP INDEX IF EXISTS idx_outbound_events_poll;
+CREATE INDEX idx_outbound_events_poll
+    ON outbound_events (next_retry_at)
+    WHERE status IN ('PENDING', 'FAILED', 'IN_FLIGHT');
@@ -0,0 +1,8 @@
+-- Migration V19: Usage events recorded from Redis
+-- In the Redis consume mode every charge is appended to a Redis stream and copied into
+-- usage_events by the write-behind flusher. source_id holds the stream entry id, so a copy
+-- that is repeated (e.g. after a failed stream delete) inserts nothing.
+
+ALTER TABLE usage_events ADD COLUMN source_id VARCHAR(40);
+
+CREATE UNIQUE INDEX idx_usage_events_source ON usage_events (year, month, source_id);
@@ -0,0 +1,20 @@
+-- Migration V20: Outbox ordering keys
+-- Events of one ordering key (see OutboxEventPoller.orderingKey) must be delivered in order.
+-- A claim only takes an event once every older event of its key is delivered or permanently
+-- failed, so order holds across batches, workers and instances. Events without a key (NULL)
+-- are not ordered.
+
+ALTER TABLE outbound_events ADD COLUMN ordering_key VARCHAR(50);
+
+UPDATE outbound_events SET ordering_key = CASE event_type
+        WHEN 'INVITATION_ACCEPTED' THEN payload ->> 'contextId'
+        WHEN 'USER_NAME_UPDATED' THEN payload ->> 'userId'
+        WHEN 'PENDING_USER_ACTION' THEN payload ->> 'targetUserId'
+        WHEN 'USER_ID_MIGRATED' THEN payload ->> 'oldUserId'
+    END
+WHERE status <> 'DELIVERED';
+
+-- Finds an event's older undelivered events of the same key at claim time
+CREATE INDEX idx_outbound_events_ordering
+    ON outbound_events (ordering_key, created_at)
+    WHERE status IN ('PENDING', 'FAILED', 'IN_FLIGHT');
@@ -0,0 +1,29 @@
+-- Migration V9: Materialized current-membership table
+-- user_group_memberships remains the append-only audit log. group_members holds one row per
+-- (group, user) whose latest logged action is ADDED, and is maintained in the same transaction
+-- as every log insert so membership reads cost O(current members) instead of O(history).
+
+CREATE TABLE group_members (
+    group_id VARCHAR(30) NOT NULL REFERENCES user_groups(id) ON DELETE CASCADE,
+    user_id VARCHAR(30) NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    membership_id VARCHAR(30) NOT NULL,
+    added_by VARCHAR(30) NOT NULL,
+    added_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (group_id, user_id)
+);
+
+-- Reverse lookup (user -> groups); the primary key already covers group -> users
+CREATE INDEX idx_group_members_user_id ON group_members(user_id);
+
+-- Backfill from the audit log: keep pairs whose latest action is ADDED
+INSERT INTO group_members (group_id, user_id, membership_id, added_by, added_at)
+SELECT group_id, user_id, id, performed_by, created_at
+FROM (
+    SELECT DISTINCT ON (group_id, user_id) group_id, user_id, id, action, performed_by, created_at
+    FROM user_group_memberships
+    ORDER BY group_id, user_id, created_at DESC, id DESC
+) latest
+WHERE action = 'ADDED';
+
+COMMENT ON TABLE group_members IS 'Current group membership derived from user_group_memberships. Rebuilt by GroupMembershipReconciler if it drifts from the log.';
+COMMENT ON COLUMN group_members.membership_id IS 'The user_group_memberships row (ADDED) that produced this membership';
@@ -0,0 +1,127 @@
+package com.myapp.identityservice.integration;
+
+import com.myapp.identityservice.domain.*;
+import com.myapp.identityservice.repository.UserGroupMembershipRepository;
+import com.myapp.identityservice.repository.UserGroupRepository;
+import com.myapp.identityservice.repository.UserRepository;
+import com.myapp.identityservice.util.CuidGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Saving a new entity with a pre-assigned id must cost exactly one INSERT, without the
+ * SELECT that merge() would issue first.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class EntityInsertStatementCountIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserGroupRepository groupRepository;
+
+    @Autowired
+    private UserGroupMembershipRepository membershipRepository;
+
+    @Autowired
+    private CuidGenerator cuidGenerator;
+
+    private Statistics statistics;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Saving a new user issues one INSERT and no SELECT")
+    void shouldInsertUserWithSingleStatement() {
+        User user = newUser();
+
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertFalse(user.isNew());
+    }
+
+    @Test
+    @DisplayName("Saving a group and a membership issues one INSERT each")
+    void shouldInsertOneStatementPerEntity() {
+        User user = newUser();
+        transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            UserGroup group = new UserGroup();
+            group.setId(cuidGenerator.generate());
+            group.setName("Statement Count Group");
+            group.setCreatedBy(user.getId());
+            groupRepository.save(group);
+
+            UserGroupMembership membership = new UserGroupMembership();
+            membership.setId(cuidGenerator.generate());
+            membership.setGroup(group);
+            membership.setUser(userRepository.getReferenceById(user.getId()));
+            membership.setAction(GroupMembershipAction.ADDED);
+            membership.setPerformedBy(user.getId());
+            membershipRepository.save(membership);
+        });
+
+        assertEquals(2, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Saving a loaded entity still updates it")
+    void shouldMergeLoadedEntity() {
+        User user = newUser();
+        transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+
+        User loaded = userRepository.findById(user.getId()).orElseThrow();
+        assertFalse(loaded.isNew());
+
+        loaded.setName("Renamed");
+        transactionTemplate.executeWithoutResult(status -> userRepository.save(loaded));
+
+        assertEquals("Renamed", userRepository.findById(user.getId()).orElseThrow().getName());
+    }
+
+    private User newUser() {
+        String id = cuidGenerator.generate();
+        User user = new User();
+        user.setId(id);
+        user.setAuthUserId(id);
+        user.setName("Statement Count " + id);
+        user.setEmail(id + "@statement-count.test");
+        user.setIdentityKey(id + "@statement-count.test");
+        user.setIdentityType(IdentityType.EMAIL);
+        user.setStatus(UserStatus.ACTIVE);
+        assertTrue(user.isNew());
+        return user;
+    }
+}
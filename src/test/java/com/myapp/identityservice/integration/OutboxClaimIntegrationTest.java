@@ -0,0 +1,249 @@
+package com.myapp.identityservice.integration;
+
+import com.myapp.identityservice.domain.OutboundEvent;
+import com.myapp.identityservice.domain.OutboundEvent.EventStatus;
+import com.myapp.identityservice.repository.OutboundEventRepository;
+import com.myapp.identityservice.repository.OutboxClaimRepository;
+import com.myapp.identityservice.repository.OutboxClaimRepository.ClaimedEvent;
+import com.myapp.identityservice.repository.OutboxClaimRepository.Failure;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent workers claim disjoint batches of due events, and a worker whose lease ran out
+ * cannot overwrite the result of the worker that took its events over. Events of one ordering
+ * key are claimed in order, each only after the one before it is settled.
+ *
+ * Events are created due in the future and claimed "from" further in the future, so pollers
+ * of other test contexts sharing the database leave them alone.
+ */
+@SpringBootTest(properties = "app.outbox.poll-interval-ms=3600000")
+@ActiveProfiles("test")
+class OutboxClaimIntegrationTest {
+
+    private static final int WORKERS = 8;
+
+    @Autowired
+    private OutboxClaimRepository claimRepository;
+
+    @Autowired
+    private OutboundEventRepository outboundEventRepository;
+
+    @Autowired
+    private CuidGenerator cuidGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Concurrent workers claim every due event exactly once")
+    void shouldClaimDisjointBatches() throws Exception {
+        Instant due = Instant.now().plus(1, ChronoUnit.HOURS);
+        Set<String> created = createEvents(60, due);
+        Instant claimAt = due.plusSeconds(60);
+
+        Map<String, Integer> claimCounts = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < WORKERS; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    List<ClaimedEvent> batch;
+                    do {
+                        batch = claimRepository.claim(UUID.randomUUID().toString(), claimAt,
+                                claimAt.plusSeconds(600), 5);
+                        batch.forEach(event -> claimCounts.merge(event.id(), 1, Integer::sum));
+                    } while (!batch.isEmpty());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (String id : created) {
+            assertEquals(1, claimCounts.getOrDefault(id, 0), "claims of " + id);
+            assertEquals(EventStatus.IN_FLIGHT, outboundEventRepository.findById(id).orElseThrow().getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("An expired lease is claimed again and the stale worker's result is dropped")
+    void shouldReclaimExpiredLease() {
+        Instant due = Instant.now().plus(2, ChronoUnit.HOURS);
+        String id = createEvents(1, due).iterator().next();
+        Instant first = due.plusSeconds(60);
+        Instant second = first.plusSeconds(120);
+
+        String staleClaim = UUID.randomUUID().toString();
+        assertTrue(claimIds(staleClaim, first, first.plusSeconds(60)).contains(id));
+        // Still leased to the first worker
+        assertFalse(claimIds(UUID.randomUUID().toString(), first.plusSeconds(30), first.plusSeconds(90)).contains(id));
+
+        String currentClaim = UUID.randomUUID().toString();
+        assertTrue(claimIds(currentClaim, second, second.plusSeconds(60)).contains(id));
+
+        assertEquals(0, claimRepository.markDelivered(staleClaim, List.of(id)));
+        ClaimedEvent claimed = new ClaimedEvent(id, "USER_NAME_UPDATED", "e", "{}", 0, 5, due);
+        assertEquals(1, claimRepository.markFailed(currentClaim, List.of(Failure.of(claimed, "boom", second))));
+
+        OutboundEvent event = outboundEventRepository.findById(id).orElseThrow();
+        assertEquals(EventStatus.FAILED, event.getStatus());
+        assertEquals(1, event.getRetryCount());
+        assertEquals("boom", event.getLastError());
+        assertNull(event.getClaimedBy());
+    }
+
+    @Test
+    @DisplayName("Released events are due again in their previous status")
+    void shouldReleaseUnattemptedEvents() {
+        Instant due = Instant.now().plus(3, ChronoUnit.HOURS);
+        String id = createEvents(1, due).iterator().next();
+        Instant claimAt = due.plusSeconds(60);
+        String claimId = UUID.randomUUID().toString();
+
+        assertTrue(claimIds(claimId, claimAt, claimAt.plusSeconds(600)).contains(id));
+        assertEquals(1, claimRepository.release(claimId, List.of(id), due));
+
+        OutboundEvent event = outboundEventRepository.findById(id).orElseThrow();
+        assertEquals(EventStatus.PENDING, event.getStatus());
+        assertEquals(0, event.getRetryCount());
+        assertNull(event.getClaimedBy());
+    }
+
+    @Test
+    @DisplayName("A key's events are claimed one at a time, in order, across claimers")
+    void shouldClaimKeyInOrder() throws Exception {
+        Instant due = Instant.now().plus(4, ChronoUnit.HOURS);
+        String key = cuidGenerator.generate();
+        List<String> ids = createKeyedEvents(key, 3, due);
+        Instant claimAt = due.plusSeconds(60);
+
+        // Two claimers at once take only the key's first event, and only one of them gets it
+        List<String> claimed = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Set<String>>> claimers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                claimers.add(executor.submit(() -> {
+                    start.await();
+                    return claimIds(UUID.randomUUID().toString(), claimAt, claimAt.plusSeconds(600));
+                }));
+            }
+            start.countDown();
+            for (Future<Set<String>> claimer : claimers) {
+                claimer.get().stream().filter(ids::contains).forEach(claimed::add);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of(ids.get(0)), claimed);
+
+        // The failed head holds the key back until its retry is due
+        String claimId = outboundEventRepository.findById(ids.get(0)).orElseThrow().getClaimedBy();
+        ClaimedEvent head = new ClaimedEvent(ids.get(0), "USER_NAME_UPDATED", "e", "{}", 0, 5, due);
+        Failure failure = Failure.of(head, "boom", claimAt);
+        assertEquals(1, claimRepository.markFailed(claimId, List.of(failure)));
+        assertTrue(keyClaims(ids, claimAt.plusSeconds(1)).isEmpty());
+
+        Instant retryAt = failure.nextRetryAt().plusSeconds(1);
+        String retryClaim = UUID.randomUUID().toString();
+        assertEquals(Set.of(ids.get(0)), keyClaims(retryClaim, ids, retryAt));
+        assertEquals(1, claimRepository.markDelivered(retryClaim, List.of(ids.get(0))));
+
+        // A permanently failed event no longer holds its key back
+        String nextClaim = UUID.randomUUID().toString();
+        assertEquals(Set.of(ids.get(1)), keyClaims(nextClaim, ids, retryAt));
+        ClaimedEvent last = new ClaimedEvent(ids.get(1), "USER_NAME_UPDATED", "e", "{}", 4, 5, due);
+        assertTrue(Failure.of(last, "poison", retryAt).isPermanent());
+        assertEquals(1, claimRepository.markFailed(nextClaim, List.of(Failure.of(last, "poison", retryAt))));
+
+        assertEquals(Set.of(ids.get(2)), keyClaims(ids, retryAt));
+    }
+
+    private Set<String> claimIds(String claimId, Instant now, Instant leaseUntil) {
+        return claimRepository.claim(claimId, now, leaseUntil, 1000).stream()
+                .map(ClaimedEvent::id)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> keyClaims(List<String> ids, Instant now) {
+        return keyClaims(UUID.randomUUID().toString(), ids, now);
+    }
+
+    private Set<String> keyClaims(String claimId, List<String> ids, Instant now) {
+        Set<String> claimed = new HashSet<>(claimIds(claimId, now, now.plusSeconds(600)));
+        claimed.retainAll(ids);
+        return claimed;
+    }
+
+    private Set<String> createEvents(int count, Instant nextRetryAt) {
+        List<OutboundEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = cuidGenerator.generate();
+            OutboundEvent event = new OutboundEvent();
+            event.setId(id);
+            event.setEventType("USER_NAME_UPDATED");
+            event.setEventId("USR_UPD:" + id);
+            event.setPayload("{\"userId\":\"" + id + "\",\"newDisplayName\":\"Name\"}");
+            event.setNextRetryAt(nextRetryAt);
+            events.add(event);
+        }
+        return outboundEventRepository.saveAll(events).stream()
+                .map(OutboundEvent::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Events of one key, created a second apart so their order does not depend on clock
+     * resolution.
+     */
+    private List<String> createKeyedEvents(String key, int count, Instant nextRetryAt) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = cuidGenerator.generate();
+            OutboundEvent event = new OutboundEvent();
+            event.setId(id);
+            event.setEventType("USER_NAME_UPDATED");
+            event.setEventId("USR_UPD:" + key + ":" + i);
+            event.setPayload("{\"userId\":\"" + key + "\",\"newDisplayName\":\"Name " + i + "\"}");
+            event.setOrderingKey(key);
+            event.setNextRetryAt(nextRetryAt);
+            outboundEventRepository.save(event);
+            jdbcTemplate.update("UPDATE outbound_events SET created_at = ? WHERE id = ?",
+                    Timestamp.from(Instant.now().minusSeconds(count - i)), id);
+            ids.add(id);
+        }
+        return ids;
+    }
+}
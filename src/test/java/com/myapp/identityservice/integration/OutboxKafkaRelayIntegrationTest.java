@@ -0,0 +1,138 @@
+package com.myapp.identityservice.integration;
+
+import com.myapp.identityservice.domain.OutboundEvent;
+import com.myapp.identityservice.domain.OutboundEvent.EventStatus;
+import com.myapp.identityservice.event.OutboxEventPublisher;
+import com.myapp.identityservice.event.OutboxKafkaRelay;
+import com.myapp.identityservice.repository.OutboundEventRepository;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * In Kafka mode, events committed to the outbox are relayed to their topics keyed by their
+ * ordering key, and their rows are marked delivered once the broker acknowledges them.
+ */
+// The scheduled poll only runs at startup; the test runs the relay itself
+@SpringBootTest(properties = {
+        "app.events.transport=kafka",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "app.outbox.poll-interval-ms=3600000"
+})
+@EmbeddedKafka(partitions = 3, topics = {
+        OutboxKafkaRelay.TOPIC_USER_NAME_UPDATED,
+        OutboxKafkaRelay.TOPIC_USER_ID_MIGRATED
+})
+@ActiveProfiles("test")
+class OutboxKafkaRelayIntegrationTest {
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private OutboxEventPublisher outboxEventPublisher;
+
+    @Autowired
+    private OutboxKafkaRelay relay;
+
+    @Autowired
+    private OutboundEventRepository outboundEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CuidGenerator cuidGenerator;
+
+    private Consumer<String, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-relay-test", "false", embeddedKafka);
+        consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+        embeddedKafka.consumeFromEmbeddedTopics(consumer,
+                OutboxKafkaRelay.TOPIC_USER_NAME_UPDATED, OutboxKafkaRelay.TOPIC_USER_ID_MIGRATED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    @DisplayName("Relays committed events to their topics in order and marks them delivered")
+    void shouldRelayCommittedEvents() {
+        String userId = cuidGenerator.generate();
+        String newUserId = cuidGenerator.generate();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxEventPublisher.publishUserNameUpdated(userId, "First", 1000L);
+            outboxEventPublisher.publishUserNameUpdated(userId, "Second", 2000L);
+            outboxEventPublisher.publishUserIdMigrated(userId, newUserId);
+        });
+
+        relay.pollAndRelay();
+
+        List<ConsumerRecord<String, String>> nameUpdates = new ArrayList<>();
+        List<ConsumerRecord<String, String>> migrations = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((nameUpdates.size() < 2 || migrations.isEmpty()) && System.currentTimeMillis() < deadline) {
+            ConsumerRecords<String, String> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1));
+            for (ConsumerRecord<String, String> record : records) {
+                if (!userId.equals(record.key())) {
+                    continue;
+                }
+                if (record.topic().equals(OutboxKafkaRelay.TOPIC_USER_NAME_UPDATED)) {
+                    nameUpdates.add(record);
+                } else {
+                    migrations.add(record);
+                }
+            }
+        }
+
+        assertEquals(2, nameUpdates.size());
+        // Same key, so same partition, in the order the events were written
+        assertEquals(nameUpdates.get(0).partition(), nameUpdates.get(1).partition());
+        assertEquals("USR_UPD:" + userId + ":1000", header(nameUpdates.get(0), OutboxKafkaRelay.HEADER_EVENT_ID));
+        assertEquals("USR_UPD:" + userId + ":2000", header(nameUpdates.get(1), OutboxKafkaRelay.HEADER_EVENT_ID));
+        assertTrue(nameUpdates.get(1).value().contains("\"newDisplayName\":\"Second\""));
+
+        assertEquals(1, migrations.size());
+        assertEquals("USER_ID_MIGRATED", header(migrations.get(0), OutboxKafkaRelay.HEADER_EVENT_TYPE));
+        assertTrue(migrations.get(0).value().contains("\"newUserId\":\"" + newUserId + "\""));
+
+        List<OutboundEvent> events = outboundEventRepository.findAll().stream()
+                .filter(event -> event.getPayload().contains(userId))
+                .toList();
+        assertEquals(3, events.size());
+        events.forEach(event -> assertEquals(EventStatus.DELIVERED, event.getStatus(), event.getEventId()));
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+}
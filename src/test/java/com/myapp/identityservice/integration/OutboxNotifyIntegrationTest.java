@@ -0,0 +1,53 @@
+package com.myapp.identityservice.integration;
+
+import com.myapp.identityservice.client.WowServiceClient;
+import com.myapp.identityservice.event.OutboxEventPublisher;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * A committed outbound event is delivered through the NOTIFY wake-up, long before the next
+ * scheduled poll.
+ */
+// The scheduled poll only runs at startup, so delivery within the timeout needs the wake-up
+@SpringBootTest(properties = {
+        "app.outbox.notify.enabled=true",
+        "app.outbox.poll-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class OutboxNotifyIntegrationTest {
+
+    @MockBean
+    private WowServiceClient wowServiceClient;
+
+    @Autowired
+    private OutboxEventPublisher outboxEventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CuidGenerator cuidGenerator;
+
+    @Test
+    @DisplayName("Delivers an event right after its transaction commits")
+    void shouldDeliverOnCommit() {
+        String userId = cuidGenerator.generate();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                outboxEventPublisher.publishUserNameUpdated(userId, "New Name", System.currentTimeMillis()));
+
+        verify(wowServiceClient, timeout(2000))
+                .notifyUserNameUpdated(eq(userId), eq("New Name"), startsWith("USR_UPD:" + userId));
+    }
+}
@@ -0,0 +1,448 @@
+package com.myapp.identityservice.integration;
+
+import com.myapp.identityservice.domain.IdentityType;
+import com.myapp.identityservice.domain.UsageEvent;
+import com.myapp.identityservice.domain.UsageReservation;
+import com.myapp.identityservice.domain.User;
+import com.myapp.identityservice.domain.UserStatus;
+import com.myapp.identityservice.dto.request.UsageBatchCheckRequest;
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchCheckResponse;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
+import com.myapp.identityservice.exception.ConflictException;
+import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.exception.UsageLimitExceededException;
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UsageEventRepository;
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import com.myapp.identityservice.repository.UsageReservationRepository;
+import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
+import com.myapp.identityservice.repository.UserRepository;
+import com.myapp.identityservice.service.UsageService;
+import com.myapp.identityservice.service.UsageCounterState;
+import com.myapp.identityservice.service.UsageLedgerAggregator;
+import com.myapp.identityservice.service.UsageReservationSweeper;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent consumes against the Postgres-only strategy must never overshoot the limit
+ * and must apply a repeated idempotency key exactly once. Every consume is recorded in the
+ * usage ledger, and folding the ledger into the row never changes the live total.
+ * Outstanding reservations count against the limit until committed, released or expired.
+ * A consume that cannot get the user-month's ledger lock in time fails with a conflict.
+ */
+// Folding is driven by the tests, not the schedule
+@SpringBootTest(properties = {
+        "app.usage.consume-mode=postgres",
+        "app.usage.ledger.fold-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class PostgresUsageConsumeIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private UsageService usageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UsageBatchRepository usageBatchRepository;
+
+    @Autowired
+    private UsageEventRepository usageEventRepository;
+
+    @Autowired
+    private UserMonthlyUsageRepository usageRepository;
+
+    @Autowired
+    private UsageLedgerAggregator ledgerAggregator;
+
+    @Autowired
+    private UsageReservationRepository reservationRepository;
+
+    @Autowired
+    private UsageReservationSweeper reservationSweeper;
+
+    @Autowired
+    private UsageLedgerRepository ledgerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CuidGenerator cuidGenerator;
+
+    @Test
+    @DisplayName("Concurrent consumes stop exactly at the monthly limit")
+    void shouldNeverOvershootLimit() throws Exception {
+        User user = createUser(100);
+
+        List<Object> outcomes = runConcurrently(200, i -> usageService.consumeUsage(user.getId(), 1, null));
+
+        long consumed = outcomes.stream().filter(UsageConsumeResponse.class::isInstance).count();
+        long rejected = outcomes.stream().filter(UsageLimitExceededException.class::isInstance).count();
+        assertEquals(100, consumed);
+        assertEquals(100, rejected);
+        assertEquals(new UsageCounterState(100, 100), currentState(user));
+    }
+
+    @Test
+    @DisplayName("Concurrent retries of one idempotency key are applied once")
+    void shouldApplyIdempotencyKeyOnce() throws Exception {
+        User user = createUser(100);
+        String key = "consume-" + cuidGenerator.generate();
+
+        List<Object> outcomes = runConcurrently(20, i -> usageService.consumeUsage(user.getId(), 5, key));
+
+        for (Object outcome : outcomes) {
+            UsageConsumeResponse response = assertInstanceOf(UsageConsumeResponse.class, outcome);
+            assertEquals(5, response.getUtilised());
+            assertEquals(95, response.getRemaining());
+        }
+        assertEquals(new UsageCounterState(100, 5), currentState(user));
+    }
+
+    @Test
+    @DisplayName("A rejected consume does not record its idempotency key")
+    void shouldNotRecordRejectedKey() {
+        User user = createUser(10);
+        String key = "consume-" + cuidGenerator.generate();
+
+        usageService.consumeUsage(user.getId(), 1, null);
+        assertThrows(UsageLimitExceededException.class, () -> usageService.consumeUsage(user.getId(), 20, key));
+        usageService.updateMonthlyLimit(user.getId(), 50);
+
+        UsageConsumeResponse retried = usageService.consumeUsage(user.getId(), 20, key);
+        assertEquals(21, retried.getUtilised());
+    }
+
+    @Test
+    @DisplayName("Consuming for an unknown user throws not found")
+    void shouldRejectUnknownUser() {
+        assertThrows(NotFoundException.class, () -> usageService.consumeUsage("no-such-user", 1, null));
+    }
+
+    @Test
+    @DisplayName("A batch applies items in order and reports each outcome")
+    void shouldConsumeBatchPerItem() {
+        User user = createUser(10);
+        User other = createUser(100);
+        String key = "batch-" + cuidGenerator.generate();
+
+        List<UsageBatchConsumeResponse.ItemResult> results = usageService.consumeUsageBatch(List.of(
+                new UsageBatchConsumeRequest.Item(user.getId(), 6, key),
+                new UsageBatchConsumeRequest.Item(user.getId(), 6, null),
+                new UsageBatchConsumeRequest.Item(user.getId(), 4, null),
+                new UsageBatchConsumeRequest.Item(user.getId(), 6, key),
+                new UsageBatchConsumeRequest.Item(other.getId(), 30, null),
+                new UsageBatchConsumeRequest.Item("no-such-user", 1, null))).getResults();
+
+        assertEquals(UsageBatchConsumeResponse.Status.CONSUMED, results.get(0).getStatus());
+        assertEquals(UsageBatchConsumeResponse.Status.LIMIT_EXCEEDED, results.get(1).getStatus());
+        assertEquals(UsageBatchConsumeResponse.Status.CONSUMED, results.get(2).getStatus());
+        assertEquals(0, results.get(2).getRemaining());
+        assertEquals(UsageBatchConsumeResponse.Status.DUPLICATE, results.get(3).getStatus());
+        assertEquals(6, results.get(3).getUtilised());
+        assertEquals(UsageBatchConsumeResponse.Status.CONSUMED, results.get(4).getStatus());
+        assertEquals(UsageBatchConsumeResponse.Status.NOT_FOUND, results.get(5).getStatus());
+        assertEquals(new UsageCounterState(10, 10), currentState(user));
+        assertEquals(new UsageCounterState(100, 30), currentState(other));
+
+        UsageConsumeResponse replayed = usageService.consumeUsage(user.getId(), 6, key);
+        assertEquals(6, replayed.getUtilised());
+    }
+
+    @Test
+    @DisplayName("Concurrent batches and single consumes stop exactly at the monthly limit")
+    void shouldNeverOvershootLimitWithBatches() throws Exception {
+        User first = createUser(50);
+        User second = createUser(100);
+
+        // 70 units of demand for first, in rows locked in different item orders
+        List<Object> outcomes = runConcurrently(40, i -> i % 4 == 0
+                ? usageService.consumeUsage(first.getId(), 1, null)
+                : usageService.consumeUsageBatch(i % 2 == 0
+                        ? List.of(new UsageBatchConsumeRequest.Item(first.getId(), 1, null),
+                                new UsageBatchConsumeRequest.Item(second.getId(), 2, null),
+                                new UsageBatchConsumeRequest.Item(first.getId(), 1, null))
+                        : List.of(new UsageBatchConsumeRequest.Item(second.getId(), 2, null),
+                                new UsageBatchConsumeRequest.Item(first.getId(), 1, null),
+                                new UsageBatchConsumeRequest.Item(first.getId(), 1, null))));
+
+        long consumedForFirst = 0;
+        for (Object outcome : outcomes) {
+            if (outcome instanceof UsageConsumeResponse) {
+                consumedForFirst++;
+            } else if (outcome instanceof UsageBatchConsumeResponse batch) {
+                consumedForFirst += batch.getResults().stream()
+                        .filter(r -> r.getUserId().equals(first.getId()))
+                        .filter(r -> r.getStatus() == UsageBatchConsumeResponse.Status.CONSUMED)
+                        .count();
+            } else {
+                assertInstanceOf(UsageLimitExceededException.class, outcome);
+            }
+        }
+        assertEquals(50, consumedForFirst);
+        assertEquals(new UsageCounterState(50, 50), currentState(first));
+        assertEquals(new UsageCounterState(100, 60), currentState(second));
+    }
+
+    @Test
+    @DisplayName("A batch check reads rows and default limits without creating rows")
+    void shouldCheckBatch() {
+        User used = createUser(10);
+        User fresh = createUser(25);
+        usageService.consumeUsage(used.getId(), 8, null);
+
+        List<UsageBatchCheckResponse.ItemResult> results = usageService.checkUsageBatch(List.of(
+                new UsageBatchCheckRequest.Item(used.getId(), 5),
+                new UsageBatchCheckRequest.Item(fresh.getId(), 5),
+                new UsageBatchCheckRequest.Item("no-such-user", 5))).getResults();
+
+        assertFalse(results.get(0).getAllowed());
+        assertEquals(2, results.get(0).getRemaining());
+        assertTrue(results.get(1).getAllowed());
+        assertEquals(25, results.get(1).getRemaining());
+        assertFalse(results.get(2).isFound());
+        LocalDate now = LocalDate.now();
+        assertTrue(usageBatchRepository.findState(fresh.getId(), now.getYear(), now.getMonthValue()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Each consume is appended to the ledger and folded into the row without changing the total")
+    void shouldRecordAndFoldLedger() {
+        User user = createUser(100);
+        String key = "ledger-" + cuidGenerator.generate();
+        LocalDate now = LocalDate.now();
+
+        usageService.consumeUsage(user.getId(), 3, key);
+        usageService.consumeUsage(user.getId(), 4, null);
+        usageService.consumeUsage(user.getId(), 3, key);
+
+        List<UsageEvent> events = usageEventRepository.findByUserIdAndYearAndMonthOrderByIdAsc(
+                user.getId(), now.getYear(), now.getMonthValue());
+        assertEquals(2, events.size());
+        assertEquals(3, events.get(0).getAmount());
+        assertEquals(key, events.get(0).getIdempotencyKey());
+        assertNull(events.get(1).getIdempotencyKey());
+        assertEquals(0, rowUtilised(user));
+        assertEquals(new UsageCounterState(100, 7), currentState(user));
+
+        assertTrue(ledgerAggregator.foldMonth(YearMonth.now()) >= 2);
+
+        assertEquals(7, rowUtilised(user));
+        assertEquals(new UsageCounterState(100, 7), currentState(user));
+        assertEquals(93, usageService.checkUsage(user.getId(), 1).getRemaining());
+    }
+
+    @Test
+    @DisplayName("Folding concurrently with consumes keeps the limit exact")
+    void shouldStayExactWhileFolding() throws Exception {
+        User user = createUser(60);
+
+        List<Object> outcomes = runConcurrently(100, i -> i % 10 == 0
+                ? ledgerAggregator.foldMonth(YearMonth.now())
+                : usageService.consumeUsage(user.getId(), 1, null));
+        ledgerAggregator.foldMonth(YearMonth.now());
+
+        long consumed = outcomes.stream().filter(UsageConsumeResponse.class::isInstance).count();
+        assertEquals(60, consumed);
+        assertEquals(60, rowUtilised(user));
+        assertEquals(new UsageCounterState(60, 60), currentState(user));
+    }
+
+    @Test
+    @DisplayName("A reservation holds quota until part of it is committed and the rest returned")
+    void shouldReserveAndCommitPart() {
+        User user = createUser(100);
+        usageService.consumeUsage(user.getId(), 10, null);
+
+        UsageReservationResponse reservation = usageService.reserveUsage(user.getId(), 50, null);
+        assertEquals(60, reservation.getUtilised());
+        assertEquals(40, reservation.getRemaining());
+        assertEquals(40, usageService.checkUsage(user.getId(), 1).getRemaining());
+        assertThrows(UsageLimitExceededException.class, () -> usageService.consumeUsage(user.getId(), 41, null));
+        assertThrows(UsageLimitExceededException.class, () -> usageService.reserveUsage(user.getId(), 41, null));
+
+        UsageConsumeResponse committed = usageService.commitReservation(user.getId(), reservation.getReservationId(), 20);
+        assertEquals(30, committed.getUtilised());
+        assertEquals(new UsageCounterState(100, 30), currentState(user));
+        assertThrows(NotFoundException.class,
+                () -> usageService.commitReservation(user.getId(), reservation.getReservationId(), 20));
+
+        ledgerAggregator.foldMonth(YearMonth.now());
+        assertEquals(30, rowUtilised(user));
+    }
+
+    @Test
+    @DisplayName("Released and expired reservations return their quota")
+    void shouldReturnReleasedAndExpiredReservations() {
+        User user = createUser(100);
+        UsageReservationResponse released = usageService.reserveUsage(user.getId(), 40, 60);
+        usageService.releaseReservation(user.getId(), released.getReservationId());
+        usageService.releaseReservation(user.getId(), released.getReservationId());
+        assertEquals(new UsageCounterState(100, 0), currentState(user));
+        assertThrows(NotFoundException.class,
+                () -> usageService.commitReservation(user.getId(), released.getReservationId(), null));
+
+        LocalDate now = LocalDate.now();
+        UsageReservation expired = new UsageReservation();
+        expired.setId(cuidGenerator.generate());
+        expired.setUserId(user.getId());
+        expired.setYear(now.getYear());
+        expired.setMonth(now.getMonthValue());
+        expired.setAmount(70);
+        expired.setExpiresAt(Instant.now().minusSeconds(1));
+        reservationRepository.save(expired);
+        UsageReservationResponse active = usageService.reserveUsage(user.getId(), 100, 60);
+        assertEquals(100, active.getUtilised());
+
+        reservationSweeper.releaseExpired();
+
+        assertFalse(reservationRepository.existsById(expired.getId()));
+        assertTrue(reservationRepository.existsById(active.getReservationId()));
+        assertThrows(NotFoundException.class,
+                () -> usageService.commitReservation(user.getId(), expired.getId(), null));
+    }
+
+    @Test
+    @DisplayName("Concurrent reservations and consumes stop exactly at the monthly limit")
+    void shouldNeverOvershootLimitWithReservations() throws Exception {
+        User user = createUser(60);
+
+        List<Object> outcomes = runConcurrently(80, i -> i % 2 == 0
+                ? usageService.reserveUsage(user.getId(), 1, 60)
+                : usageService.consumeUsage(user.getId(), 1, null));
+
+        int held = 0;
+        for (Object outcome : outcomes) {
+            if (outcome instanceof UsageReservationResponse reservation) {
+                held += reservation.getAmount();
+            } else if (outcome instanceof UsageConsumeResponse) {
+                held += 1;
+            } else {
+                assertInstanceOf(UsageLimitExceededException.class, outcome);
+            }
+        }
+        assertEquals(60, held);
+        assertEquals(new UsageCounterState(60, 60), currentState(user));
+    }
+
+    @Test
+    @DisplayName("A consume gives up with a conflict while another transaction holds the ledger lock")
+    void shouldConflictWhileLedgerLockHeld() throws Exception {
+        User user = createUser(10);
+        LocalDate now = LocalDate.now();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holding = holder.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                ledgerRepository.lock(user.getId(), now.getYear(), now.getMonthValue());
+                locked.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+            assertThrows(ConflictException.class, () -> usageService.consumeUsage(user.getId(), 1, null));
+
+            release.countDown();
+            holding.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            holder.shutdownNow();
+        }
+
+        assertEquals(1, usageService.consumeUsage(user.getId(), 1, null).getUtilised());
+        assertEquals(new UsageCounterState(10, 1), currentState(user));
+    }
+
+    private interface Task {
+        Object run(int index) throws Exception;
+    }
+
+    private List<Object> runConcurrently(int count, Task task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                Callable<Object> call = () -> {
+                    start.await();
+                    return task.run(index);
+                };
+                futures.add(executor.submit(call));
+            }
+            start.countDown();
+
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private UsageCounterState currentState(User user) {
+        LocalDate now = LocalDate.now();
+        return usageBatchRepository.findState(user.getId(), now.getYear(), now.getMonthValue()).orElseThrow();
+    }
+
+    private int rowUtilised(User user) {
+        LocalDate now = LocalDate.now();
+        return usageRepository.findByUserIdAndYearAndMonth(user.getId(), now.getYear(), now.getMonthValue())
+                .orElseThrow().getUtilised();
+    }
+
+    private User createUser(int monthlyLimit) {
+        String id = cuidGenerator.generate();
+        User user = new User();
+        user.setId(id);
+        user.setAuthUserId(id);
+        user.setName("Usage " + id);
+        user.setEmail(id + "@usage.test");
+        user.setIdentityKey(id + "@usage.test");
+        user.setIdentityType(IdentityType.EMAIL);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setDefaultMonthlyTaskLimit(monthlyLimit);
+        return userRepository.save(user);
+    }
+}
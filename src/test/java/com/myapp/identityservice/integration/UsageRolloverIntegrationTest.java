@@ -0,0 +1,78 @@
+package com.myapp.identityservice.integration;
+
+import com.myapp.identityservice.domain.IdentityType;
+import com.myapp.identityservice.domain.User;
+import com.myapp.identityservice.domain.UserStatus;
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UserRepository;
+import com.myapp.identityservice.service.UsageCounterState;
+import com.myapp.identityservice.service.UsageRolloverJob;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Month provisioning creates one row per active user with their default limit, in chunks,
+ * and leaves existing rows alone on a repeated run.
+ */
+@SpringBootTest(properties = "app.usage.rollover.chunk-size=2")
+@ActiveProfiles("test")
+class UsageRolloverIntegrationTest {
+
+    @Autowired
+    private UsageRolloverJob rolloverJob;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UsageBatchRepository usageBatchRepository;
+
+    @Autowired
+    private CuidGenerator cuidGenerator;
+
+    @Test
+    @DisplayName("Provisions every active user's row once, carrying the default limit")
+    void shouldProvisionActiveUsers() {
+        YearMonth month = YearMonth.now().plusMonths(1);
+        User first = createUser(40, UserStatus.ACTIVE);
+        User second = createUser(-1, UserStatus.ACTIVE);
+        User third = createUser(10, UserStatus.ACTIVE);
+        User inactive = createUser(40, UserStatus.INACTIVE);
+
+        int created = rolloverJob.provisionMonth(month);
+
+        assertTrue(created >= 3);
+        assertEquals(new UsageCounterState(40, 0), state(first, month));
+        assertEquals(new UsageCounterState(-1, 0), state(second, month));
+        assertEquals(new UsageCounterState(10, 0), state(third, month));
+        assertTrue(usageBatchRepository.findState(inactive.getId(), month.getYear(), month.getMonthValue()).isEmpty());
+
+        assertEquals(0, rolloverJob.provisionMonth(month));
+    }
+
+    private UsageCounterState state(User user, YearMonth month) {
+        return usageBatchRepository.findState(user.getId(), month.getYear(), month.getMonthValue()).orElseThrow();
+    }
+
+    private User createUser(int monthlyLimit, UserStatus status) {
+        String id = cuidGenerator.generate();
+        User user = new User();
+        user.setId(id);
+        user.setAuthUserId(id);
+        user.setName("Rollover " + id);
+        user.setEmail(id + "@rollover.test");
+        user.setIdentityKey(id + "@rollover.test");
+        user.setIdentityType(IdentityType.EMAIL);
+        user.setStatus(status);
+        user.setDefaultMonthlyTaskLimit(monthlyLimit);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,106 @@
+package com.myapp.identityservice.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.myapp.identityservice.domain.GroupMembershipAction;
+import com.myapp.identityservice.domain.UserStatus;
+import com.myapp.identityservice.dto.response.GroupMemberExportRow;
+import com.myapp.identityservice.dto.response.MembershipHistoryExportRow;
+import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.repository.GroupMemberRepository;
+import com.myapp.identityservice.repository.UserGroupMembershipRepository;
+import com.myapp.identityservice.repository.UserGroupRepository;
+import com.myapp.identityservice.service.GroupExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupExportServiceTest {
+
+    @Mock
+    private UserGroupRepository groupRepository;
+
+    @Mock
+    private GroupMemberRepository groupMemberRepository;
+
+    @Mock
+    private UserGroupMembershipRepository membershipRepository;
+
+    private ObjectMapper objectMapper;
+    private GroupExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new GroupExportService(groupRepository, groupMemberRepository, membershipRepository, objectMapper);
+    }
+
+    @Test
+    @DisplayName("Should write one JSON object per line and close the cursor")
+    void shouldWriteHistoryAsNdjson() throws Exception {
+        Instant createdAt = Instant.parse("2026-01-01T10:00:00Z");
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<MembershipHistoryExportRow> rows = Stream.of(
+                new MembershipHistoryExportRow("m1", "u1", "Alice", GroupMembershipAction.ADDED, "admin", createdAt),
+                new MembershipHistoryExportRow("m2", "u1", "Alice", GroupMembershipAction.REMOVED, "admin", createdAt))
+                .onClose(() -> closed.set(true));
+
+        when(groupRepository.existsById("group-id")).thenReturn(true);
+        when(membershipRepository.streamHistoryForExport("group-id")).thenReturn(rows);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = exportService.exportHistory("group-id", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, written);
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("m1", first.get("id").asText());
+        assertEquals("ADDED", first.get("action").asText());
+        assertEquals("2026-01-01T10:00:00Z", first.get("createdAt").asText());
+        assertEquals("REMOVED", objectMapper.readTree(lines[1]).get("action").asText());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    @DisplayName("Should stream members")
+    void shouldWriteMembersAsNdjson() throws Exception {
+        when(groupRepository.existsById("group-id")).thenReturn(true);
+        when(groupMemberRepository.streamMembersForExport("group-id")).thenReturn(Stream.of(
+                new GroupMemberExportRow("u1", "Alice", "alice@example.com", "+1234567890",
+                        UserStatus.ACTIVE, "admin", Instant.now())));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, exportService.exportMembers("group-id", out));
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+    }
+
+    @Test
+    @DisplayName("Should fail before writing anything for an unknown group")
+    void shouldThrowForUnknownGroup() {
+        when(groupRepository.existsById("missing")).thenReturn(false);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(NotFoundException.class, () -> exportService.exportHistory("missing", out));
+        assertEquals(0, out.size());
+        verify(membershipRepository, never()).streamHistoryForExport(any());
+    }
+}
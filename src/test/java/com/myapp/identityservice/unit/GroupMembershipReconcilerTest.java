@@ -0,0 +1,68 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.repository.GroupMemberRepository;
+import com.myapp.identityservice.repository.UserGroupRepository;
+import com.myapp.identityservice.service.GroupMembershipReconciler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupMembershipReconcilerTest {
+
+    @Mock
+    private GroupMemberRepository groupMemberRepository;
+
+    @Mock
+    private UserGroupRepository groupRepository;
+
+    private GroupMembershipReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        reconciler = new GroupMembershipReconciler(groupMemberRepository, groupRepository);
+    }
+
+    @Test
+    @DisplayName("Should rebuild drifted groups and refresh their member fingerprints")
+    void shouldRebuildDriftedGroupsAndRefreshFingerprints() {
+        when(groupMemberRepository.findGroupIdsOutOfSyncWithLog()).thenReturn(List.of("group-1"));
+        when(groupMemberRepository.insertFromLog("group-1")).thenReturn(3);
+
+        reconciler.reconcile();
+
+        InOrder inOrder = inOrder(groupMemberRepository, groupRepository);
+        inOrder.verify(groupMemberRepository).deleteByGroupId("group-1");
+        inOrder.verify(groupMemberRepository).insertFromLog("group-1");
+        inOrder.verify(groupRepository).refreshMemberFingerprint("group-1");
+    }
+
+    @Test
+    @DisplayName("Should leave groups alone when the current state matches the log")
+    void shouldDoNothingWithoutDrift() {
+        when(groupMemberRepository.findGroupIdsOutOfSyncWithLog()).thenReturn(List.of());
+
+        reconciler.reconcile();
+
+        verify(groupMemberRepository, never()).deleteByGroupId(anyString());
+        verifyNoInteractions(groupRepository);
+    }
+
+    @Test
+    @DisplayName("Should return the member count of a rebuilt group")
+    void shouldReturnRebuiltMemberCount() {
+        when(groupMemberRepository.insertFromLog("group-1")).thenReturn(2);
+
+        assertEquals(2, reconciler.rebuildGroup("group-1"));
+        verify(groupRepository).refreshMemberFingerprint("group-1");
+    }
+}
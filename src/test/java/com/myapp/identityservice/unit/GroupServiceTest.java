@@ -1,19 +1,32 @@
 package com.myapp.identityservice.unit;
 
 import com.myapp.identityservice.domain.*;
+import com.myapp.identityservice.dto.request.BulkAddUsersRequest;
+import com.myapp.identityservice.dto.request.BulkAddUsersToGroupsRequest;
 import com.myapp.identityservice.dto.request.CreateGroupWithUsersRequest;
+import com.myapp.identityservice.dto.request.MoveGroupRequest;
+import com.myapp.identityservice.dto.response.ApiResponse;
+import com.myapp.identityservice.dto.response.BulkAddUsersResponse;
+import com.myapp.identityservice.dto.response.BulkAddUsersToGroupsResponse;
 import com.myapp.identityservice.dto.response.CreateGroupWithUsersResponse;
+import com.myapp.identityservice.dto.response.GroupResponse;
 import com.myapp.identityservice.dto.response.MembershipResponse;
+import com.myapp.identityservice.dto.response.UserResponse;
 import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.ConflictException;
 import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.repository.GroupClosureRepository;
 import com.myapp.identityservice.repository.GroupInvitationRepository;
+import com.myapp.identityservice.repository.GroupMemberRepository;
+import com.myapp.identityservice.repository.GroupMembershipBatchRepository;
 import com.myapp.identityservice.repository.UserGroupMembershipRepository;
 import com.myapp.identityservice.repository.UserGroupRepository;
 import com.myapp.identityservice.repository.UserRepository;
 import com.myapp.identityservice.service.GroupService;
-import com.myapp.identityservice.service.UserService;
+import com.myapp.identityservice.service.ParallelTransactionRunner;
 import com.myapp.identityservice.util.CuidGenerator;
+import com.myapp.identityservice.util.KeysetCursor;
+import com.myapp.identityservice.util.MemberSetFingerprint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -22,14 +35,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +64,9 @@ class GroupServiceTest {
     @Mock
     private UserGroupMembershipRepository membershipRepository;
 
+    @Mock
+    private GroupMemberRepository groupMemberRepository;
+
     @Mock
     private GroupInvitationRepository invitationRepository;
 
@@ -48,7 +74,13 @@ class GroupServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private UserService userService;
+    private GroupClosureRepository closureRepository;
+
+    @Mock
+    private GroupMembershipBatchRepository membershipBatchRepository;
+
+    @Mock
+    private ParallelTransactionRunner transactionRunner;
 
     @Mock
     private CuidGenerator cuidGenerator;
@@ -133,13 +165,10 @@ class GroupServiceTest {
                 g.setUpdatedAt(Instant.now());
                 return g;
             });
-            when(userService.findByPhone("+1234567890")).thenReturn(testUser);
-            when(membershipRepository.isUserInGroup(any(), any())).thenReturn(false);
-            when(membershipRepository.save(any())).thenAnswer(inv -> {
-                UserGroupMembership m = inv.getArgument(0);
-                m.setCreatedAt(Instant.now());
-                return m;
-            });
+            when(userRepository.findByPhoneIn(any())).thenReturn(List.of(testUser));
+            when(groupMemberRepository.findMemberUserIds(eq("new-group-id"), any())).thenReturn(List.of());
+            when(groupMemberRepository.findActiveMemberIds("new-group-id")).thenReturn(List.of());
+            when(groupRepository.findDuplicateCandidates(any(), any(), anyLong(), anyInt())).thenReturn(List.of());
 
             CreateGroupWithUsersResponse result = groupService.createGroupWithUsers(request, "admin-user-id");
 
@@ -147,6 +176,10 @@ class GroupServiceTest {
             assertNotNull(result.getGroup());
             assertEquals("new-group-id", result.getGroup().getId());
             assertEquals(1, result.getUsers().getAdded());
+            verify(membershipBatchRepository).insertAddedMemberships(argThat(list ->
+                    list.size() == 1 && "membership-id".equals(list.get(0).getId())));
+            verify(groupRepository).refreshMemberFingerprint("new-group-id");
+            verify(membershipRepository, never()).save(any());
         }
 
         @Test
@@ -186,6 +219,8 @@ class GroupServiceTest {
             assertNotNull(result);
             assertNotNull(result.getGroup());
             assertEquals("child-group-id", result.getGroup().getId());
+            verify(closureRepository).lockHierarchyShared(anyLong());
+            verify(closureRepository).insertGroup("child-group-id", "parent-group-id");
         }
 
         @Test
@@ -205,6 +240,117 @@ class GroupServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("List Groups Tests")
+    class ListGroupsTests {
+
+        @Test
+        @DisplayName("Should load child counts with the page instead of per group")
+        void shouldLoadChildCountsWithPage() {
+            UserGroup otherGroup = new UserGroup();
+            otherGroup.setId("other-group-id");
+            otherGroup.setName("Other Group");
+            otherGroup.setActive(true);
+
+            List<Object[]> rows = List.of(
+                    new Object[]{testGroup, 3L, 2L},
+                    new Object[]{otherGroup, 0L, 0L});
+            when(groupRepository.findPageWithChildCounts(eq(true), isNull(), any()))
+                    .thenReturn(new PageImpl<>(rows, PageRequest.of(0, 20), 2));
+
+            ApiResponse<List<GroupResponse>> result = groupService.listGroups(1, 20, true, null);
+
+            assertEquals(2, result.getData().size());
+            assertEquals(3, result.getData().get(0).get_count().getChildGroups());
+            assertEquals(2, result.getData().get(0).get_count().getActiveChildGroups());
+            assertEquals(0, result.getData().get(1).get_count().getChildGroups());
+            verify(groupRepository, never()).countChildGroups(any());
+            verify(groupRepository, never()).countActiveChildGroups(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("User Groups Tests")
+    class UserGroupsTests {
+
+        private GroupMember membership(UserGroup group, Instant addedAt) {
+            GroupMember member = new GroupMember();
+            member.setGroupId(group.getId());
+            member.setUserId("test-user-id");
+            member.setGroup(group);
+            member.setAddedAt(addedAt);
+            return member;
+        }
+
+        @Test
+        @DisplayName("Should return all current groups from the current-state table")
+        void shouldReturnAllGroupsWithoutLimit() {
+            when(groupMemberRepository.findActiveGroupsOfUser(eq("test-user-id"), any()))
+                    .thenReturn(List.of(membership(testGroup, Instant.now())));
+
+            ApiResponse<List<GroupResponse>> result = groupService.getUserGroups("test-user-id", null, null);
+
+            assertEquals(1, result.getData().size());
+            assertEquals("test-group-id", result.getData().get(0).getId());
+            assertNull(result.getCursor());
+            verify(membershipRepository, never()).findByUserIdWithGroupOrderByCreatedAtDesc(any());
+            verify(groupRepository, never()).findById(any());
+            verify(userRepository, never()).existsById(any());
+        }
+
+        @Test
+        @DisplayName("Should page with a keyset cursor")
+        void shouldPageWithKeysetCursor() {
+            UserGroup second = new UserGroup();
+            second.setId("second-group-id");
+            second.setActive(true);
+            UserGroup third = new UserGroup();
+            third.setId("third-group-id");
+            third.setActive(true);
+            Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+            when(groupMemberRepository.findActiveGroupsOfUser(eq("test-user-id"), any()))
+                    .thenReturn(List.of(
+                            membership(testGroup, now),
+                            membership(second, now.minusSeconds(60)),
+                            membership(third, now.minusSeconds(120))));
+
+            ApiResponse<List<GroupResponse>> firstPage = groupService.getUserGroups("test-user-id", null, 2);
+
+            assertEquals(2, firstPage.getData().size());
+            assertTrue(firstPage.getCursor().isHasMore());
+            KeysetCursor cursor = KeysetCursor.decode(firstPage.getCursor().getNextCursor());
+            assertEquals(now.minusSeconds(60), cursor.timestamp());
+            assertEquals("second-group-id", cursor.id());
+
+            when(groupMemberRepository.findActiveGroupsOfUserAfter(
+                    eq("test-user-id"), eq(now.minusSeconds(60)), eq("second-group-id"), any()))
+                    .thenReturn(List.of(membership(third, now.minusSeconds(120))));
+
+            ApiResponse<List<GroupResponse>> secondPage = groupService.getUserGroups(
+                    "test-user-id", firstPage.getCursor().getNextCursor(), 2);
+
+            assertEquals(1, secondPage.getData().size());
+            assertFalse(secondPage.getCursor().isHasMore());
+            assertNull(secondPage.getCursor().getNextCursor());
+        }
+
+        @Test
+        @DisplayName("Should throw not found for unknown user with no groups")
+        void shouldThrowNotFoundForUnknownUser() {
+            when(groupMemberRepository.findActiveGroupsOfUser(eq("missing-user"), any())).thenReturn(List.of());
+            when(userRepository.existsById("missing-user")).thenReturn(false);
+
+            assertThrows(NotFoundException.class, () -> groupService.getUserGroups("missing-user", null, null));
+        }
+
+        @Test
+        @DisplayName("Should reject a malformed cursor")
+        void shouldRejectMalformedCursor() {
+            assertThrows(BadRequestException.class, () -> groupService.getUserGroups("test-user-id", "not-a-cursor", 10));
+        }
+    }
+
     @Nested
     @DisplayName("Add User to Group Tests")
     class AddUserToGroupTests {
@@ -227,6 +373,7 @@ class GroupServiceTest {
             assertNotNull(result);
             assertEquals(GroupMembershipAction.ADDED, result.getAction());
             assertEquals("admin-user-id", result.getPerformedBy());
+            verify(groupMemberRepository).apply(argThat(m -> m.getAction() == GroupMembershipAction.ADDED));
         }
 
         @Test
@@ -251,6 +398,28 @@ class GroupServiceTest {
                     () -> groupService.addUserToGroup("test-group-id", "test-user-id", "admin-user-id"));
         }
 
+        @Test
+        @DisplayName("Should throw conflict when fingerprint match has identical members")
+        void shouldThrowConflictForDuplicateGroup() {
+            UserGroup otherGroup = new UserGroup();
+            otherGroup.setId("other-group-id");
+            otherGroup.setName("Test Group");
+            otherGroup.setActive(true);
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(userRepository.findById("test-user-id")).thenReturn(Optional.of(testUser));
+            when(membershipRepository.isUserInGroup("test-user-id", "test-group-id")).thenReturn(false);
+            when(groupMemberRepository.findActiveMemberIds("test-group-id")).thenReturn(List.of());
+            when(groupRepository.findDuplicateCandidates(eq("Test Group"), eq("test-group-id"),
+                    eq(MemberSetFingerprint.of(List.of("test-user-id"))), eq(1)))
+                    .thenReturn(List.of(otherGroup));
+            when(groupMemberRepository.findActiveMemberIds("other-group-id")).thenReturn(List.of("test-user-id"));
+
+            assertThrows(ConflictException.class,
+                    () -> groupService.addUserToGroup("test-group-id", "test-user-id", "admin-user-id"));
+            verify(membershipRepository, never()).save(any());
+        }
+
         @Test
         @DisplayName("Should throw exception when user already in group")
         void shouldThrowExceptionWhenUserAlreadyInGroup() {
@@ -263,6 +432,135 @@ class GroupServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Bulk Add Users Tests")
+    class BulkAddUsersTests {
+
+        private BulkAddUsersRequest.UserInfo userInfo(String name, String phone) {
+            BulkAddUsersRequest.UserInfo userInfo = new BulkAddUsersRequest.UserInfo();
+            userInfo.setName(name);
+            userInfo.setPhone(phone);
+            return userInfo;
+        }
+
+        @Test
+        @DisplayName("Should resolve all users with set-based lookups and batch writes")
+        void shouldBulkAddUsersWithBatchedWrites() {
+            User existingMember = new User();
+            existingMember.setId("member-id");
+            existingMember.setPhone("+1987654321");
+            existingMember.setStatus(UserStatus.ACTIVE);
+
+            User inactiveUser = new User();
+            inactiveUser.setId("inactive-id");
+            inactiveUser.setPhone("+1555000111");
+            inactiveUser.setStatus(UserStatus.INACTIVE);
+
+            BulkAddUsersRequest request = new BulkAddUsersRequest();
+            request.setUsers(List.of(
+                    userInfo("Test User", "+1 234 567 890"),
+                    userInfo("Member", "+1987654321"),
+                    userInfo("Inactive", "+1555000111"),
+                    userInfo("New Person", "+1444555666"),
+                    userInfo("Test User Again", "+1234567890")));
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(cuidGenerator.generate()).thenReturn("membership-id", "invitation-id");
+            when(userRepository.findByPhoneIn(any())).thenReturn(List.of(testUser, existingMember, inactiveUser));
+            when(groupMemberRepository.findMemberUserIds(eq("test-group-id"), any())).thenReturn(List.of("member-id"));
+            when(invitationRepository.findPendingIdentifiers(eq("test-group-id"), any(), any())).thenReturn(List.of());
+            when(groupMemberRepository.findActiveMemberIds("test-group-id")).thenReturn(List.of("member-id"));
+            when(groupRepository.findDuplicateCandidates(any(), any(), anyLong(), anyInt())).thenReturn(List.of());
+
+            BulkAddUsersResponse result = groupService.bulkAddUsers("test-group-id", request, "admin-user-id");
+
+            assertEquals(1, result.getAdded());
+            assertEquals(2, result.getAlreadyMembers());
+            assertEquals(1, result.getInvited());
+            assertEquals(1, result.getDetails().getSkipped().size());
+            assertEquals("test-group-id", result.getDetails().getInvited().get(0).getInvitation().getGroupId());
+
+            verify(userRepository, times(1)).findByPhoneIn(any());
+            verify(membershipBatchRepository).insertAddedMemberships(argThat(list -> list.size() == 1));
+            verify(membershipBatchRepository).insertInvitations(argThat(list ->
+                    list.size() == 1 && "+1444555666".equals(list.get(0).getIdentifier())));
+            verify(groupRepository).refreshMemberFingerprint("test-group-id");
+            verify(membershipRepository, never()).save(any());
+            verify(invitationRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should not write anything when the result would duplicate another group")
+        void shouldNotWriteWhenDuplicateGroupDetected() {
+            UserGroup otherGroup = new UserGroup();
+            otherGroup.setId("other-group-id");
+            otherGroup.setName("Test Group");
+
+            BulkAddUsersRequest request = new BulkAddUsersRequest();
+            request.setUsers(List.of(userInfo("Test User", "+1234567890")));
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(cuidGenerator.generate()).thenReturn("membership-id");
+            when(userRepository.findByPhoneIn(any())).thenReturn(List.of(testUser));
+            when(groupMemberRepository.findMemberUserIds(eq("test-group-id"), any())).thenReturn(List.of());
+            when(groupMemberRepository.findActiveMemberIds("test-group-id")).thenReturn(List.of());
+            when(groupRepository.findDuplicateCandidates(any(), any(), anyLong(), anyInt())).thenReturn(List.of(otherGroup));
+            when(groupMemberRepository.findActiveMemberIds("other-group-id")).thenReturn(List.of("test-user-id"));
+
+            assertThrows(ConflictException.class,
+                    () -> groupService.bulkAddUsers("test-group-id", request, "admin-user-id"));
+
+            verifyNoInteractions(membershipBatchRepository);
+        }
+
+        @Test
+        @DisplayName("Should report an invitation written concurrently by another import as skipped")
+        void shouldSkipInvitationNotInserted() {
+            BulkAddUsersRequest request = new BulkAddUsersRequest();
+            request.setUsers(List.of(
+                    userInfo("First", "+1444555666"),
+                    userInfo("Second", "+1444555777")));
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(cuidGenerator.generate()).thenReturn("invitation-1", "invitation-2");
+            when(userRepository.findByPhoneIn(any())).thenReturn(List.of());
+            when(invitationRepository.findPendingIdentifiers(eq("test-group-id"), any(), any())).thenReturn(List.of());
+            when(membershipBatchRepository.insertInvitations(any())).thenReturn(Set.of("invitation-2"));
+
+            BulkAddUsersResponse result = groupService.bulkAddUsers("test-group-id", request, "admin-user-id");
+
+            assertEquals(1, result.getInvited());
+            assertEquals("invitation-1", result.getDetails().getInvited().get(0).getInvitation().getId());
+            assertEquals(1, result.getDetails().getSkipped().size());
+            assertEquals("+1444555777", result.getDetails().getSkipped().get(0).getIdentifier());
+            assertEquals("Invitation already exists for this group", result.getDetails().getSkipped().get(0).getReason());
+        }
+
+        @Test
+        @DisplayName("Should process a repeated group once, under a lock on its row")
+        @SuppressWarnings("unchecked")
+        void shouldProcessRepeatedGroupOnce() {
+            BulkAddUsersToGroupsRequest request = new BulkAddUsersToGroupsRequest();
+            request.setGroupIds(List.of("group-1", "group-2", "group-1"));
+            request.setUsers(List.of());
+
+            when(transactionRunner.runEach(anyList(), any(), any())).thenAnswer(invocation -> {
+                List<String> groupIds = invocation.getArgument(0);
+                Function<String, BulkAddUsersToGroupsResponse.GroupResult> task = invocation.getArgument(1);
+                return groupIds.stream().map(task).toList();
+            });
+            when(groupRepository.findByIdForUpdate(any())).thenReturn(Optional.empty());
+
+            BulkAddUsersToGroupsResponse result = groupService.bulkAddUsersToGroups(request, "admin-user-id");
+
+            assertEquals(2, result.getTotalGroupsProcessed());
+            verify(transactionRunner).runEach(eq(List.of("group-1", "group-2")), any(), any());
+            verify(groupRepository).findByIdForUpdate("group-1");
+            verify(groupRepository).findByIdForUpdate("group-2");
+            verify(groupRepository, never()).findById(any());
+        }
+    }
+
     @Nested
     @DisplayName("Remove User from Group Tests")
     class RemoveUserFromGroupTests {
@@ -284,6 +582,7 @@ class GroupServiceTest {
 
             assertNotNull(result);
             assertEquals(GroupMembershipAction.REMOVED, result.getAction());
+            verify(groupMemberRepository).apply(argThat(m -> m.getAction() == GroupMembershipAction.REMOVED));
         }
 
         @Test
@@ -298,6 +597,169 @@ class GroupServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Current Members Tests")
+    class CurrentMembersTests {
+
+        @Test
+        @DisplayName("Should read members from current-state table without replaying history")
+        void shouldReadMembersFromCurrentStateTable() {
+            when(groupRepository.existsById("test-group-id")).thenReturn(true);
+            when(groupMemberRepository.findActiveMembers("test-group-id")).thenReturn(List.of(testUser));
+
+            List<UserResponse> members = groupService.getGroupMembers("test-group-id");
+
+            assertEquals(1, members.size());
+            assertEquals("test-user-id", members.get(0).getId());
+            verify(membershipRepository, never()).findByGroupIdWithUserOrderByCreatedAtDesc(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Group Hierarchy Tests")
+    class GroupHierarchyTests {
+
+        private UserGroup group(String id) {
+            UserGroup group = new UserGroup();
+            group.setId(id);
+            group.setName(id);
+            group.setActive(true);
+            return group;
+        }
+
+        @Test
+        @DisplayName("Should move a subtree by rewriting its closure rows")
+        void shouldMoveGroupUnderNewParent() {
+            UserGroup newParent = group("new-parent-id");
+            MoveGroupRequest request = new MoveGroupRequest();
+            request.setParentGroupId("new-parent-id");
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(groupRepository.findById("new-parent-id")).thenReturn(Optional.of(newParent));
+            when(closureRepository.isDescendant("test-group-id", "new-parent-id")).thenReturn(false);
+            when(groupRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+            GroupResponse result = groupService.moveGroup("test-group-id", request);
+
+            assertEquals("new-parent-id", result.getParentGroupId());
+            assertSame(newParent, testGroup.getParentGroup());
+            verify(closureRepository).lockHierarchy(anyLong());
+            verify(closureRepository).detachSubtree("test-group-id");
+            verify(closureRepository).attachSubtree("test-group-id", "new-parent-id");
+        }
+
+        @Test
+        @DisplayName("Should reject moving a group under its own descendant")
+        void shouldRejectMoveIntoOwnSubtree() {
+            MoveGroupRequest request = new MoveGroupRequest();
+            request.setParentGroupId("grandchild-id");
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(groupRepository.findById("grandchild-id")).thenReturn(Optional.of(group("grandchild-id")));
+            when(closureRepository.isDescendant("test-group-id", "grandchild-id")).thenReturn(true);
+
+            assertThrows(BadRequestException.class, () -> groupService.moveGroup("test-group-id", request));
+            verify(closureRepository, never()).detachSubtree(any());
+            verify(groupRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should reject a move that would give the new parent two children of the same name")
+        void shouldRejectMoveOntoSameNamedSibling() {
+            MoveGroupRequest request = new MoveGroupRequest();
+            request.setParentGroupId("new-parent-id");
+
+            when(groupRepository.findById("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(groupRepository.findById("new-parent-id")).thenReturn(Optional.of(group("new-parent-id")));
+            when(closureRepository.isDescendant("test-group-id", "new-parent-id")).thenReturn(false);
+            when(groupRepository.existsByNameAndParentGroupId("Test Group", "new-parent-id")).thenReturn(true);
+
+            assertThrows(ConflictException.class, () -> groupService.moveGroup("test-group-id", request));
+            verify(closureRepository, never()).detachSubtree(any());
+            verify(groupRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should list the subtree with depth from one closure query")
+        void shouldListSubtreeWithDepth() {
+            GroupClosure self = new GroupClosure();
+            self.setDescendant(testGroup);
+            self.setDepth(0);
+            GroupClosure grandchild = new GroupClosure();
+            grandchild.setDescendant(group("grandchild-id"));
+            grandchild.setDepth(2);
+
+            when(closureRepository.findSubtree("test-group-id", false)).thenReturn(List.of(self, grandchild));
+
+            List<GroupResponse> result = groupService.getSubtree("test-group-id", false);
+
+            assertEquals(2, result.size());
+            assertEquals(0, result.get(0).getDepth());
+            assertEquals("grandchild-id", result.get(1).getId());
+            assertEquals(2, result.get(1).getDepth());
+            verify(groupRepository, never()).findByParentGroupIdAndIsActiveTrue(any());
+        }
+
+        @Test
+        @DisplayName("Should deactivate a whole subtree in one statement")
+        void shouldDeleteSubtree() {
+            when(groupRepository.existsById("test-group-id")).thenReturn(true);
+            when(closureRepository.deactivateSubtree(eq("test-group-id"), any())).thenReturn(4);
+
+            assertEquals(4, groupService.deleteSubtree("test-group-id"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Group History Tests")
+    class GroupHistoryTests {
+
+        private UserGroupMembership historyRow(String id, Instant createdAt) {
+            UserGroupMembership membership = new UserGroupMembership();
+            membership.setId(id);
+            membership.setGroup(testGroup);
+            membership.setUser(testUser);
+            membership.setAction(GroupMembershipAction.ADDED);
+            membership.setPerformedBy("admin-user-id");
+            membership.setCreatedAt(createdAt);
+            return membership;
+        }
+
+        @Test
+        @DisplayName("Should return one page of history with a cursor to the next")
+        void shouldPageHistory() {
+            Instant now = Instant.parse("2026-01-01T10:00:00Z");
+            when(groupRepository.existsById("test-group-id")).thenReturn(true);
+            when(membershipRepository.findHistoryPage(eq("test-group-id"), isNull(), any()))
+                    .thenReturn(List.of(historyRow("m3", now), historyRow("m2", now), historyRow("m1", now.minusSeconds(5))));
+
+            ApiResponse<List<MembershipResponse>> page = groupService.getGroupHistory("test-group-id", null, null, 2);
+
+            assertEquals(2, page.getData().size());
+            assertTrue(page.getCursor().isHasMore());
+            KeysetCursor cursor = KeysetCursor.decode(page.getCursor().getNextCursor());
+            assertEquals(now, cursor.timestamp());
+            assertEquals("m2", cursor.id());
+            verify(membershipRepository, never()).findByGroupIdWithUserOrderByCreatedAtDesc(any());
+        }
+
+        @Test
+        @DisplayName("Should embed only the first history page in group details")
+        void shouldEmbedFirstHistoryPageInGroupDetails() {
+            when(groupRepository.findByIdWithParentAndChildren("test-group-id")).thenReturn(Optional.of(testGroup));
+            when(membershipRepository.findHistoryPage(eq("test-group-id"), isNull(), any()))
+                    .thenReturn(List.of(historyRow("m1", Instant.now())));
+            when(groupMemberRepository.findActiveMembers("test-group-id")).thenReturn(List.of(testUser));
+
+            GroupResponse result = groupService.getGroupById("test-group-id");
+
+            assertEquals(1, result.getMemberships().size());
+            assertNotNull(result.getMembershipsCursor());
+            assertFalse(result.getMembershipsCursor().isHasMore());
+            verify(membershipRepository, never()).findByGroupIdWithUserOrderByCreatedAtDesc(any());
+        }
+    }
+
     @Nested
     @DisplayName("Delete Group Tests")
     class DeleteGroupTests {
@@ -0,0 +1,188 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.exception.ConflictException;
+import com.myapp.identityservice.idempotency.IdempotencyEntry;
+import com.myapp.identityservice.idempotency.IdempotencyNearCache;
+import com.myapp.identityservice.idempotency.IdempotencyStore;
+import com.myapp.identityservice.idempotency.IdempotentExecutor;
+import com.myapp.identityservice.service.UsageConsumeResultCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentExecutorTest {
+
+    private static final UsageConsumeResultCodec CODEC = UsageConsumeResultCodec.INSTANCE;
+
+    @Mock
+    private IdempotencyStore store;
+
+    private IdempotentExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new IdempotentExecutor(store, new IdempotencyNearCache(100, 5000),
+                new SimpleMeterRegistry(), 60_000, 30_000, 500);
+    }
+
+    @Test
+    @DisplayName("Should run the operation once and store its result")
+    void shouldRunOnceAndStoreResult() {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class))).thenReturn(Optional.empty());
+        when(store.complete(eq("scope:key-1"), any(UUID.class), any(byte[].class), any(Duration.class)))
+                .thenReturn(true);
+        AtomicInteger runs = new AtomicInteger();
+
+        UsageConsumeResponse first = executor.execute("scope", "key-1", CODEC, () -> {
+            runs.incrementAndGet();
+            return UsageConsumeResponse.from(100, 60);
+        });
+        // Answered from the near-cache
+        UsageConsumeResponse second = executor.execute("scope", "key-1", CODEC, () -> {
+            runs.incrementAndGet();
+            return UsageConsumeResponse.from(100, 70);
+        });
+
+        assertEquals(1, runs.get());
+        assertEquals(60, first.getUtilised());
+        assertEquals(60, second.getUtilised());
+        verify(store, times(1)).claim(eq("scope:key-1"), any(UUID.class), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Should return the stored result of a completed key without running the operation")
+    void shouldReplayCompletedKey() {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class)))
+                .thenReturn(Optional.of(IdempotencyEntry.completed(CODEC.encode(UsageConsumeResponse.from(100, 60)))));
+
+        UsageConsumeResponse result = executor.execute("scope", "key-1", CODEC, () -> fail("must not run"));
+
+        assertEquals(100, result.getMonthlyLimit());
+        assertEquals(60, result.getUtilised());
+    }
+
+    @Test
+    @DisplayName("Should wait for an in-flight key held elsewhere and return its result")
+    void shouldWaitForInFlightKey() {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class)))
+                .thenReturn(Optional.of(IdempotencyEntry.inFlight(UUID.randomUUID())))
+                .thenReturn(Optional.of(IdempotencyEntry.inFlight(UUID.randomUUID())))
+                .thenReturn(Optional.of(IdempotencyEntry.completed(CODEC.encode(UsageConsumeResponse.from(100, 60)))));
+
+        UsageConsumeResponse result = executor.execute("scope", "key-1", CODEC, () -> fail("must not run"));
+
+        assertEquals(60, result.getUtilised());
+        verify(store, times(3)).claim(eq("scope:key-1"), any(UUID.class), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Should report a conflict when an in-flight key does not complete in time")
+    void shouldConflictWhenInFlightTooLong() {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class)))
+                .thenReturn(Optional.of(IdempotencyEntry.inFlight(UUID.randomUUID())));
+
+        assertThrows(ConflictException.class,
+                () -> executor.execute("scope", "key-1", CODEC, () -> fail("must not run")));
+    }
+
+    @Test
+    @DisplayName("Should release the key when the operation fails so a retry runs again")
+    void shouldReleaseOnFailure() {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class))).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> executor.execute("scope", "key-1", CODEC, () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        verify(store).release(eq("scope:key-1"), any(UUID.class));
+        verify(store, never()).complete(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should run without deduplication when there is no key or the store is unavailable")
+    void shouldRunDirectlyWithoutKeyOrStore() {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class)))
+                .thenThrow(new QueryTimeoutException("redis down"));
+
+        assertEquals(1, executor.execute("scope", null, CODEC, () -> UsageConsumeResponse.from(10, 1)).getUtilised());
+        assertEquals(2, executor.execute("scope", "key-1", CODEC, () -> UsageConsumeResponse.from(10, 2)).getUtilised());
+        verify(store, times(1)).claim(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should let concurrent callers on one instance share the first caller's run")
+    void shouldCoalesceLocalCallers() throws Exception {
+        when(store.claim(eq("scope:key-1"), any(UUID.class), any(Duration.class))).thenReturn(Optional.empty());
+        when(store.complete(eq("scope:key-1"), any(UUID.class), any(byte[].class), any(Duration.class)))
+                .thenReturn(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<UsageConsumeResponse> first = pool.submit(() -> executor.execute("scope", "key-1", CODEC, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                awaitQuietly(release);
+                return UsageConsumeResponse.from(100, 60);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<UsageConsumeResponse> second = pool.submit(() -> executor.execute("scope", "key-1", CODEC, () -> {
+                runs.incrementAndGet();
+                return UsageConsumeResponse.from(100, 70);
+            }));
+            release.countDown();
+
+            assertEquals(60, first.get(5, TimeUnit.SECONDS).getUtilised());
+            assertEquals(60, second.get(5, TimeUnit.SECONDS).getUtilised());
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should read consume results stored before the binary format")
+    void shouldDecodeLegacyConsumeResult() {
+        UsageConsumeResponse legacy = UsageConsumeResultCodec.fromStoredEntry(
+                "100|60|40|false".getBytes(StandardCharsets.UTF_8));
+        UsageConsumeResponse current = UsageConsumeResultCodec.fromStoredEntry(
+                UsageConsumeResultCodec.toStoredEntry(UsageConsumeResponse.from(-1, 1050)));
+
+        assertEquals(60, legacy.getUtilised());
+        assertEquals(40, legacy.getRemaining());
+        assertTrue(current.isUnlimited());
+        assertEquals(1050, current.getUtilised());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
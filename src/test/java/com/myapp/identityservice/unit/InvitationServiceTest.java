@@ -8,6 +8,7 @@ import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.ConflictException;
 import com.myapp.identityservice.exception.NotFoundException;
 import com.myapp.identityservice.repository.GroupInvitationRepository;
+import com.myapp.identityservice.repository.GroupMemberRepository;
 import com.myapp.identityservice.repository.UserGroupMembershipRepository;
 import com.myapp.identityservice.repository.UserGroupRepository;
 import com.myapp.identityservice.repository.UserRepository;
@@ -50,6 +51,9 @@ class InvitationServiceTest {
     @Mock
     private UserGroupMembershipRepository membershipRepository;
 
+    @Mock
+    private GroupMemberRepository groupMemberRepository;
+
     @Mock
     private CuidGenerator cuidGenerator;
 
@@ -291,6 +295,7 @@ class InvitationServiceTest {
             assertTrue(result.isUserCreated());
             assertEquals(2, result.getInvitationsResolved());
             verify(membershipRepository, times(2)).save(any());
+            verify(groupMemberRepository, times(2)).apply(any());
         }
 
         @Test
@@ -0,0 +1,128 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.service.LeasingUsageConsumeStrategy;
+import com.myapp.identityservice.service.RedisUsageConsumeStrategy;
+import com.myapp.identityservice.service.RedisUsageCounter.LeaseGrant;
+import com.myapp.identityservice.service.UsageCounterState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeasingUsageConsumeStrategyTest {
+
+    @Mock
+    private RedisUsageConsumeStrategy delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LeasingUsageConsumeStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        strategy = new LeasingUsageConsumeStrategy(delegate, meterRegistry, 20, 60_000, 4);
+    }
+
+    @Test
+    @DisplayName("Should lease a block once and serve following consumes locally")
+    void shouldServeFromLease() {
+        when(delegate.lease(eq("user-1"), eq(2026), eq(10), eq(20), any()))
+                .thenReturn(grant(20, 100, 30));
+
+        UsageConsumeResponse first = strategy.consume("user-1", 2026, 10, 1, null);
+        UsageConsumeResponse second = strategy.consume("user-1", 2026, 10, 1, null);
+        UsageConsumeResponse third = strategy.consume("user-1", 2026, 10, 3, null);
+
+        assertEquals(31, first.getUtilised());
+        assertEquals(32, second.getUtilised());
+        assertEquals(35, third.getUtilised());
+        assertEquals(65, third.getRemaining());
+        verify(delegate, times(1)).lease(anyString(), anyInt(), anyInt(), anyInt(), any());
+        verify(delegate, never()).consume(anyString(), anyInt(), anyInt(), anyInt(), any());
+        assertEquals(2.0, meterRegistry.counter("usage.lease.hits").count());
+        assertEquals(1.0, meterRegistry.counter("usage.lease.misses").count());
+    }
+
+    @Test
+    @DisplayName("Should settle a drained lease with its used units and lease again")
+    void shouldRenewDrainedLease() {
+        LeaseGrant first = grant(20, 100, 0);
+        when(delegate.lease(eq("user-1"), eq(2026), eq(10), eq(20), any()))
+                .thenReturn(first)
+                .thenReturn(grant(20, 100, 20));
+        when(delegate.settle(first, 18)).thenReturn(true);
+
+        strategy.consume("user-1", 2026, 10, 18, null);
+        UsageConsumeResponse renewed = strategy.consume("user-1", 2026, 10, 5, null);
+
+        verify(delegate).settle(first, 18);
+        assertEquals(25, renewed.getUtilised());
+        assertEquals(2.0, meterRegistry.counter("usage.lease.returned").count());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the counter when the remaining quota cannot cover the amount")
+    void shouldFallBackWhenGrantTooSmall() {
+        LeaseGrant small = grant(3, 100, 97);
+        when(delegate.lease(eq("user-1"), eq(2026), eq(10), eq(20), any())).thenReturn(small);
+        when(delegate.consume("user-1", 2026, 10, 5, null))
+                .thenReturn(UsageConsumeResponse.from(100, 100));
+
+        strategy.consume("user-1", 2026, 10, 5, null);
+
+        verify(delegate).settle(small, 0);
+        verify(delegate).consume("user-1", 2026, 10, 5, null);
+    }
+
+    @Test
+    @DisplayName("Should bypass leases for consumes with an idempotency key")
+    void shouldBypassLeaseForIdempotentConsume() {
+        when(delegate.consume("user-1", 2026, 10, 1, "key-1")).thenReturn(UsageConsumeResponse.from(100, 1));
+
+        strategy.consume("user-1", 2026, 10, 1, "key-1");
+
+        verify(delegate, never()).lease(anyString(), anyInt(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should report quota leased here as still available")
+    void shouldSubtractOwnUnusedLeaseFromLiveState() {
+        when(delegate.lease(eq("user-1"), eq(2026), eq(10), eq(20), any())).thenReturn(grant(20, 100, 30));
+        strategy.consume("user-1", 2026, 10, 5, null);
+        when(delegate.liveState("user-1", 2026, 10)).thenReturn(Optional.of(new UsageCounterState(100, 50)));
+
+        UsageCounterState state = strategy.liveState("user-1", 2026, 10).orElseThrow();
+
+        assertEquals(35, state.utilised());
+    }
+
+    @Test
+    @DisplayName("Should settle held leases when a limit changes")
+    void shouldSettleLeaseOnLimitChange() {
+        LeaseGrant lease = grant(20, 100, 0);
+        when(delegate.lease(eq("user-1"), eq(2026), eq(10), eq(20), any())).thenReturn(lease);
+        when(delegate.settle(lease, 4)).thenReturn(true);
+        strategy.consume("user-1", 2026, 10, 4, null);
+
+        strategy.limitChanged("user-1", 2026, 10, 10);
+
+        verify(delegate).limitChanged("user-1", 2026, 10, 10);
+        verify(delegate).settle(lease, 4);
+    }
+
+    private static LeaseGrant grant(int granted, int limit, int committedBefore) {
+        return new LeaseGrant("user-1", 2026, 10, "user-1:2026:10:lease:" + granted,
+                granted, limit, committedBefore);
+    }
+}
@@ -0,0 +1,168 @@
+package com.myapp.identityservice.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myapp.identityservice.client.WowServiceClient;
+import com.myapp.identityservice.client.WowServiceClient.BatchAck;
+import com.myapp.identityservice.client.WowServiceClient.BatchEvent;
+import com.myapp.identityservice.domain.OutboundEvent.EventStatus;
+import com.myapp.identityservice.event.OutboxEventPoller;
+import com.myapp.identityservice.repository.OutboxClaimRepository;
+import com.myapp.identityservice.repository.OutboxClaimRepository.ClaimedEvent;
+import com.myapp.identityservice.repository.OutboxClaimRepository.Failure;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxEventPollerTest {
+
+    private static final Instant CREATED = Instant.parse("2026-10-01T00:00:00Z");
+
+    @Mock
+    private OutboxClaimRepository claimRepository;
+
+    @Mock
+    private WowServiceClient wowServiceClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxEventPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        poller = poller(false);
+    }
+
+    @Test
+    @DisplayName("Should deliver each key's events in order while keys are delivered in parallel")
+    void shouldKeepPerKeyOrder() {
+        List<ClaimedEvent> events = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            events.add(nameUpdated("event-" + i, "user-" + (i % 4), i));
+        }
+        when(claimRepository.claim(anyString(), any(), any(), eq(50))).thenReturn(events, List.of());
+        List<String> deliveries = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> deliveries.add(invocation.getArgument(0) + "|" + invocation.getArgument(2)))
+                .when(wowServiceClient).notifyUserNameUpdated(anyString(), anyString(), anyString());
+
+        poller.pollAndDeliver();
+
+        Map<String, List<String>> byUser = deliveries.stream().collect(Collectors.groupingBy(
+                delivery -> delivery.split("\\|")[0],
+                Collectors.mapping(delivery -> delivery.split("\\|")[1], Collectors.toList())));
+        assertEquals(4, byUser.size());
+        byUser.forEach((userId, eventIds) -> {
+            List<String> expected = events.stream()
+                    .filter(event -> event.payload().contains("\"" + userId + "\""))
+                    .map(ClaimedEvent::eventId)
+                    .toList();
+            assertEquals(expected, eventIds, "order of " + userId);
+        });
+
+        ArgumentCaptor<Collection<String>> delivered = idsCaptor();
+        verify(claimRepository).markDelivered(anyString(), delivered.capture());
+        assertEquals(40, delivered.getValue().size());
+        assertEquals(4, meterRegistry.find("outbox.delivery.lag").timers().size());
+    }
+
+    @Test
+    @DisplayName("Should defer a key's later events behind its failed event and deliver other keys")
+    void shouldDeferEventsBehindFailure() {
+        ClaimedEvent a1 = nameUpdated("a1", "user-a", 0);
+        ClaimedEvent a2 = nameUpdated("a2", "user-a", 1);
+        ClaimedEvent b1 = nameUpdated("b1", "user-b", 2);
+        when(claimRepository.claim(anyString(), any(), any(), eq(50))).thenReturn(List.of(a1, a2, b1), List.of());
+        // Lenient: the other events are delivered through the same method with other arguments
+        lenient().doThrow(new RestClientException("503")).when(wowServiceClient)
+                .notifyUserNameUpdated("user-a", "Name", "a1");
+
+        poller.pollAndDeliver();
+
+        ArgumentCaptor<List<Failure>> failures = failuresCaptor();
+        verify(claimRepository).markFailed(anyString(), failures.capture());
+        Failure failure = failures.getValue().get(0);
+        assertEquals("id-a1", failure.id());
+        assertEquals(EventStatus.FAILED, failure.status());
+        assertEquals(1, failure.retryCount());
+
+        verify(claimRepository).release(anyString(), eq(List.of("id-a2")), eq(failure.nextRetryAt()));
+        verify(claimRepository).markDelivered(anyString(), eq(List.of("id-b1")));
+        verify(wowServiceClient, never()).notifyUserNameUpdated("user-a", "Name", "a2");
+    }
+
+    @Test
+    @DisplayName("Should send a partition's events in batches and settle each by its acknowledgement")
+    void shouldSettleBatchByAcks() {
+        poller = poller(true);
+        List<ClaimedEvent> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            events.add(nameUpdated("event-" + i, "user-1", i));
+        }
+        events.add(nameUpdated("other-0", "user-2", 5));
+        events.add(nameUpdated("other-1", "user-2", 6));
+        events.add(nameUpdated("other-2", "user-2", 7));
+        when(claimRepository.claim(anyString(), any(), any(), eq(50))).thenReturn(events, List.of());
+        when(wowServiceClient.deliverBatch(anyList())).thenAnswer(invocation -> {
+            List<BatchEvent> batch = invocation.getArgument(0);
+            return batch.stream().collect(Collectors.toMap(BatchEvent::eventId,
+                    event -> new BatchAck(event.eventId(), !event.eventId().equals("event-1"), "rejected")));
+        });
+
+        poller.pollAndDeliver();
+
+        verify(wowServiceClient, never()).notifyUserNameUpdated(anyString(), anyString(), anyString());
+        ArgumentCaptor<Collection<String>> delivered = idsCaptor();
+        verify(claimRepository).markDelivered(anyString(), delivered.capture());
+        // event-1 is rejected, so user-1's later events wait for its retry; user-2 is unaffected
+        assertTrue(delivered.getValue().containsAll(List.of("id-event-0", "id-other-0", "id-other-1", "id-other-2")));
+        assertEquals(4, delivered.getValue().size());
+        ArgumentCaptor<List<Failure>> failures = failuresCaptor();
+        verify(claimRepository).markFailed(anyString(), failures.capture());
+        assertEquals("id-event-1", failures.getValue().get(0).id());
+        assertEquals("rejected", failures.getValue().get(0).error());
+        verify(claimRepository).release(anyString(), eq(List.of("id-event-2", "id-event-3", "id-event-4")),
+                eq(failures.getValue().get(0).nextRetryAt()));
+    }
+
+    private OutboxEventPoller poller(boolean batchDelivery) {
+        return new OutboxEventPoller(claimRepository, wowServiceClient, new ObjectMapper(),
+                transactionManager, meterRegistry, 50, 120, 5, 60, 4, 4, batchDelivery, 2, 262144);
+    }
+
+    private static ClaimedEvent nameUpdated(String eventId, String userId, int order) {
+        return new ClaimedEvent("id-" + eventId, "USER_NAME_UPDATED", eventId,
+                "{\"userId\":\"" + userId + "\",\"newDisplayName\":\"Name\"}", 0, 5, CREATED.plusSeconds(order));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Collection<String>> idsCaptor() {
+        return ArgumentCaptor.forClass(Collection.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Failure>> failuresCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
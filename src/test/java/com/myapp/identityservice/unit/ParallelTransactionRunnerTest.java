@@ -0,0 +1,102 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.service.ParallelTransactionRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelTransactionRunnerTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+    }
+
+    @Test
+    @DisplayName("Should return results in input order regardless of completion order")
+    void shouldKeepInputOrder() {
+        ParallelTransactionRunner runner = new ParallelTransactionRunner(transactionManager, 10, 0);
+
+        List<String> results = runner.runEach(List.of(300, 10, 150, 0),
+                delay -> {
+                    sleep(delay);
+                    return "task-" + delay;
+                },
+                (delay, e) -> "failed-" + delay);
+
+        assertEquals(List.of("task-300", "task-10", "task-150", "task-0"), results);
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should roll back only the failing task and map it through the error handler")
+    void shouldIsolateFailures() {
+        ParallelTransactionRunner runner = new ParallelTransactionRunner(transactionManager, 10, 0);
+
+        List<String> results = runner.runEach(List.of("a", "boom", "c"),
+                input -> {
+                    if (input.equals("boom")) {
+                        throw new IllegalStateException("exploded");
+                    }
+                    return input.toUpperCase();
+                },
+                (input, e) -> "error: " + e.getMessage());
+
+        assertEquals(List.of("A", "error: exploded", "C"), results);
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Should never run more tasks at once than the configured limit")
+    void shouldBoundConcurrency() {
+        ParallelTransactionRunner runner = new ParallelTransactionRunner(transactionManager, 4, 0);
+        assertEquals(2, runner.getMaxConcurrency());
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        runner.runEach(List.of(1, 2, 3, 4, 5, 6, 7, 8),
+                input -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(50);
+                    running.decrementAndGet();
+                    return input;
+                },
+                (input, e) -> input);
+
+        assertTrue(peak.get() <= 2, "peak concurrency was " + peak.get());
+    }
+
+    @Test
+    @DisplayName("Should cap a configured limit at the connection pool size")
+    void shouldCapConfiguredLimitAtPoolSize() {
+        assertEquals(10, new ParallelTransactionRunner(transactionManager, 10, 50).getMaxConcurrency());
+        assertEquals(3, new ParallelTransactionRunner(transactionManager, 10, 3).getMaxConcurrency());
+        assertEquals(1, new ParallelTransactionRunner(transactionManager, 1, 0).getMaxConcurrency());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
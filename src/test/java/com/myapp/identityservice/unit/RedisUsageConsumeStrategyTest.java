@@ -0,0 +1,262 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageConsumeResponse;
+import com.myapp.identityservice.dto.response.UsageReservationResponse;
+import com.myapp.identityservice.exception.BadRequestException;
+import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.exception.UsageLimitExceededException;
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
+import com.myapp.identityservice.service.RedisUsageConsumeStrategy;
+import com.myapp.identityservice.service.RedisUsageCounter;
+import com.myapp.identityservice.service.RedisUsageCounter.BatchItem;
+import com.myapp.identityservice.service.RedisUsageCounter.ConsumeResult;
+import com.myapp.identityservice.service.RedisUsageCounter.LeaseGrant;
+import com.myapp.identityservice.service.RedisUsageCounter.Status;
+import com.myapp.identityservice.service.UsageCounterState;
+import com.myapp.identityservice.util.CuidGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisUsageConsumeStrategyTest {
+
+    @Mock
+    private RedisUsageCounter usageCounter;
+
+    @Mock
+    private UserMonthlyUsageRepository usageRepository;
+
+    @Mock
+    private UsageBatchRepository usageBatchRepository;
+
+    @Mock
+    private CuidGenerator cuidGenerator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RedisUsageConsumeStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        strategy = new RedisUsageConsumeStrategy(usageCounter, usageRepository, usageBatchRepository,
+                cuidGenerator, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should consume in a single script call when the counter is seeded")
+    void shouldConsumeFromSeededCounter() {
+        when(usageCounter.consume("user-1", 2026, 10, 10, null, null))
+                .thenReturn(new ConsumeResult(Status.CONSUMED, 100, 60));
+
+        UsageConsumeResponse result = strategy.consume("user-1", 2026, 10, 10, null);
+
+        assertTrue(result.isSuccess());
+        assertEquals(60, result.getUtilised());
+        assertEquals(40, result.getRemaining());
+        verify(usageCounter, times(1)).consume(anyString(), anyInt(), anyInt(), anyInt(), any(), any());
+        verifyNoInteractions(usageRepository, usageBatchRepository);
+    }
+
+    @Test
+    @DisplayName("Should seed the counter from the provisioned row on first consume")
+    void shouldSeedCounterOnFirstConsume() {
+        when(usageCounter.consume("user-1", 2026, 10, 10, null, null))
+                .thenReturn(new ConsumeResult(Status.NOT_SEEDED, 0, 0));
+        when(usageBatchRepository.findState("user-1", 2026, 10)).thenReturn(Optional.of(new UsageCounterState(100, 50)));
+        when(usageCounter.consume("user-1", 2026, 10, 10, null, new UsageCounterState(100, 50)))
+                .thenReturn(new ConsumeResult(Status.CONSUMED, 100, 60));
+
+        UsageConsumeResponse result = strategy.consume("user-1", 2026, 10, 10, null);
+
+        assertEquals(60, result.getUtilised());
+        verifyNoInteractions(usageRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should create the month's row when it was not provisioned")
+    void shouldCreateRowWhenNotProvisioned() {
+        when(usageCounter.consume("user-1", 2026, 10, 10, null, null))
+                .thenReturn(new ConsumeResult(Status.NOT_SEEDED, 0, 0));
+        when(cuidGenerator.generate()).thenReturn("usage-id");
+        when(usageBatchRepository.findState("user-1", 2026, 10))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new UsageCounterState(100, 0)));
+        when(usageCounter.consume("user-1", 2026, 10, 10, null, new UsageCounterState(100, 0)))
+                .thenReturn(new ConsumeResult(Status.CONSUMED, 100, 10));
+
+        UsageConsumeResponse result = strategy.consume("user-1", 2026, 10, 10, null);
+
+        assertEquals(10, result.getUtilised());
+        verify(usageRepository).insertIfAbsent("usage-id", "user-1", 2026, 10);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should throw not found when seeding for an unknown user")
+    void shouldThrowWhenSeedingUnknownUser() {
+        when(usageCounter.consume("missing", 2026, 10, 10, null, null))
+                .thenReturn(new ConsumeResult(Status.NOT_SEEDED, 0, 0));
+        when(cuidGenerator.generate()).thenReturn("usage-id");
+        when(usageBatchRepository.findState("missing", 2026, 10)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> strategy.consume("missing", 2026, 10, 10, null));
+    }
+
+    @Test
+    @DisplayName("Should throw limit exceeded with the counter state")
+    void shouldThrowWhenLimitExceeded() {
+        when(usageCounter.consume("user-1", 2026, 10, 60, null, null))
+                .thenReturn(new ConsumeResult(Status.LIMIT_EXCEEDED, 100, 50));
+
+        UsageLimitExceededException ex = assertThrows(UsageLimitExceededException.class,
+                () -> strategy.consume("user-1", 2026, 10, 60, null));
+
+        assertEquals(50, ex.getRemaining());
+        assertEquals(60, ex.getRequested());
+    }
+
+    @Test
+    @DisplayName("Should replay the recorded result for a repeated idempotency key")
+    void shouldReplayDuplicate() {
+        when(usageCounter.consume("user-1", 2026, 10, 10, "key-1", null))
+                .thenReturn(new ConsumeResult(Status.DUPLICATE, 100, 60));
+
+        UsageConsumeResponse result = strategy.consume("user-1", 2026, 10, 10, "key-1");
+
+        assertTrue(result.isSuccess());
+        assertEquals(100, result.getMonthlyLimit());
+        assertEquals(60, result.getUtilised());
+        assertEquals(40, result.getRemaining());
+        assertFalse(result.isUnlimited());
+    }
+
+    @Test
+    @DisplayName("Should push limit changes to the live counter")
+    void shouldPushLimitChanges() {
+        strategy.limitChanged("user-1", 2026, 10, 500);
+
+        verify(usageCounter).updateLimit("user-1", 2026, 10, 500);
+    }
+
+    @Test
+    @DisplayName("Should seed unseeded counters of a batch together and replay only their items")
+    void shouldSeedBatchTogether() {
+        List<UsageBatchConsumeRequest.Item> items = List.of(
+                new UsageBatchConsumeRequest.Item("user-1", 10, null),
+                new UsageBatchConsumeRequest.Item("user-2", 5, "key-2"),
+                new UsageBatchConsumeRequest.Item("missing", 1, null),
+                new UsageBatchConsumeRequest.Item("user-1", 95, null));
+        when(usageCounter.consumeBatch(2026, 10, List.of(
+                new BatchItem("user-1", 10, null, null),
+                new BatchItem("user-2", 5, "key-2", null),
+                new BatchItem("missing", 1, null, null),
+                new BatchItem("user-1", 95, null, null))))
+                .thenReturn(List.of(
+                        new ConsumeResult(Status.CONSUMED, 100, 60),
+                        new ConsumeResult(Status.NOT_SEEDED, 0, 0),
+                        new ConsumeResult(Status.NOT_SEEDED, 0, 0),
+                        new ConsumeResult(Status.LIMIT_EXCEEDED, 100, 60)));
+        when(usageBatchRepository.findStates(2026, 10, Set.of("user-2", "missing")))
+                .thenReturn(Map.of("user-2", new UsageCounterState(50, 0)));
+        when(usageCounter.consumeBatch(2026, 10, List.of(
+                new BatchItem("user-2", 5, "key-2", new UsageCounterState(50, 0)))))
+                .thenReturn(List.of(new ConsumeResult(Status.CONSUMED, 50, 5)));
+
+        List<UsageBatchConsumeResponse.ItemResult> results = strategy.consumeBatch(2026, 10, items);
+
+        assertEquals(UsageBatchConsumeResponse.Status.CONSUMED, results.get(0).getStatus());
+        assertEquals(40, results.get(0).getRemaining());
+        assertEquals(UsageBatchConsumeResponse.Status.CONSUMED, results.get(1).getStatus());
+        assertEquals(45, results.get(1).getRemaining());
+        assertEquals("key-2", results.get(1).getIdempotencyKey());
+        assertEquals(UsageBatchConsumeResponse.Status.NOT_FOUND, results.get(2).getStatus());
+        assertNull(results.get(2).getUtilised());
+        assertEquals(UsageBatchConsumeResponse.Status.LIMIT_EXCEEDED, results.get(3).getStatus());
+        verify(usageBatchRepository).insertIfAbsent(eq(2026), eq(10), eq(List.of("missing")), any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should report batch duplicates with their recorded result")
+    void shouldReplayBatchDuplicate() {
+        List<UsageBatchConsumeRequest.Item> items = List.of(new UsageBatchConsumeRequest.Item("user-1", 10, "key-1"));
+        when(usageCounter.consumeBatch(2026, 10, List.of(new BatchItem("user-1", 10, "key-1", null))))
+                .thenReturn(List.of(new ConsumeResult(Status.DUPLICATE, 100, 60)));
+
+        UsageBatchConsumeResponse.ItemResult result = strategy.consumeBatch(2026, 10, items).get(0);
+
+        assertEquals(UsageBatchConsumeResponse.Status.DUPLICATE, result.getStatus());
+        assertEquals(60, result.getUtilised());
+        assertEquals(40, result.getRemaining());
+        verifyNoInteractions(usageBatchRepository);
+    }
+
+    @Test
+    @DisplayName("Should hold the whole amount of a reservation or reject it")
+    void shouldReserveAllOrNothing() {
+        Instant expiresAt = Instant.now().plusSeconds(900);
+        when(usageCounter.reserve("user-1", 2026, 10, 30, expiresAt, null))
+                .thenReturn(Optional.of(new LeaseGrant("user-1", 2026, 10, "user-1:2026:10:r1:30", 30, 100, 60)));
+        when(usageCounter.reserve("user-1", 2026, 10, 50, expiresAt, null))
+                .thenReturn(Optional.of(new LeaseGrant("user-1", 2026, 10, "user-1:2026:10:r2:0", 0, 100, 90)));
+
+        UsageReservationResponse reservation = strategy.reserve("user-1", 2026, 10, 30, expiresAt);
+
+        assertEquals("user-1:2026:10:r1:30", reservation.getReservationId());
+        assertEquals(90, reservation.getUtilised());
+        assertEquals(10, reservation.getRemaining());
+        UsageLimitExceededException e = assertThrows(UsageLimitExceededException.class,
+                () -> strategy.reserve("user-1", 2026, 10, 50, expiresAt));
+        assertEquals(10, e.getRemaining());
+    }
+
+    @Test
+    @DisplayName("Should commit part of a reservation and report the state after it")
+    void shouldCommitPartOfReservation() {
+        LeaseGrant reservation = new LeaseGrant("user-1", 2026, 10, "user-1:2026:10:r1:30", 30, 0, 0);
+        when(usageCounter.commitReservation(eq(reservation), eq(12), any(Instant.class))).thenReturn(true);
+        when(usageCounter.read("user-1", 2026, 10)).thenReturn(Optional.of(new UsageCounterState(100, 72)));
+
+        UsageConsumeResponse result = strategy.commitReservation("user-1", "user-1:2026:10:r1:30", 12);
+
+        assertEquals(72, result.getUtilised());
+        assertEquals(28, result.getRemaining());
+    }
+
+    @Test
+    @DisplayName("Should reject commits over the reservation, of other users, or of settled reservations")
+    void shouldRejectInvalidCommits() {
+        when(usageCounter.commitReservation(any(LeaseGrant.class), eq(30), any(Instant.class))).thenReturn(false);
+
+        assertThrows(BadRequestException.class,
+                () -> strategy.commitReservation("user-1", "user-1:2026:10:r1:30", 31));
+        assertThrows(NotFoundException.class,
+                () -> strategy.commitReservation("user-2", "user-1:2026:10:r1:30", 10));
+        assertThrows(NotFoundException.class,
+                () -> strategy.commitReservation("user-1", "not-a-reservation", 10));
+        assertThrows(NotFoundException.class,
+                () -> strategy.commitReservation("user-1", "user-1:2026:10:r1:30", null));
+        verify(usageCounter, never()).read(anyString(), anyInt(), anyInt());
+    }
+}
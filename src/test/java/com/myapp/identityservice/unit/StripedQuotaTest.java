@@ -0,0 +1,102 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.util.StripedQuota;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedQuotaTest {
+
+    @Test
+    @DisplayName("Should take amounts larger than a single stripe by gathering across stripes")
+    void shouldGatherAcrossStripes() {
+        StripedQuota quota = new StripedQuota(10, 4);
+
+        assertTrue(quota.tryAcquire(7));
+        assertEquals(3, quota.available());
+        assertFalse(quota.tryAcquire(4));
+        assertEquals(3, quota.available());
+        assertTrue(quota.tryAcquire(3));
+        assertEquals(0, quota.available());
+    }
+
+    @Test
+    @DisplayName("Should return the untaken remainder on drain and refuse later takes")
+    void shouldDrain() {
+        StripedQuota quota = new StripedQuota(20, 8);
+        quota.tryAcquire(5);
+
+        assertEquals(15, quota.drain());
+        assertFalse(quota.tryAcquire(1));
+    }
+
+    @Test
+    @DisplayName("Should never hand out more than it holds under concurrent takes")
+    void shouldNeverOverGrant() throws Exception {
+        StripedQuota quota = new StripedQuota(1000, 8);
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int amount = 1 + t % 3;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        if (quota.tryAcquire(amount)) {
+                            taken.addAndGet(amount);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000, taken.get() + quota.available());
+        assertTrue(taken.get() <= 1000);
+    }
+
+    @Test
+    @DisplayName("Should count units given back by concurrent gathers into the drained total")
+    void shouldAccountForGathersRacingDrain() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            StripedQuota quota = new StripedQuota(64, 8);
+            AtomicInteger taken = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    // Larger than a stripe, so takes gather and often give back partial takes
+                    int amount = 9 + t * 5;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 50; i++) {
+                            if (quota.tryAcquire(amount)) {
+                                taken.addAndGet(amount);
+                            }
+                        }
+                    }));
+                }
+                int drained = quota.drain();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+                assertEquals(64, taken.get() + drained, "round " + round);
+                assertEquals(0, quota.available());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.service.UsageReadCache;
+import com.myapp.identityservice.service.UsageReadCache.CachedUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageReadCacheTest {
+
+    @Test
+    @DisplayName("Should evict a batch when full of live entries and keep caching new ones")
+    void shouldEvictInBatchesWhenFull() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UsageReadCache cache = new UsageReadCache(meterRegistry, 60_000, 100, "postgres");
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            load(cache, "user-" + i, loads);
+        }
+        assertEquals(100, meterRegistry.get("usage.read-cache.size").gauge().value());
+
+        load(cache, "user-new", loads);
+        // A tenth was evicted for the new entry, so the next misses are cached without scanning
+        assertEquals(10, meterRegistry.get("usage.read-cache.evictions").counter().count());
+        assertEquals(91, meterRegistry.get("usage.read-cache.size").gauge().value());
+
+        int before = loads.get();
+        load(cache, "user-new", loads);
+        assertEquals(before, loads.get());
+    }
+
+    private static void load(UsageReadCache cache, String userId, AtomicInteger loads) {
+        cache.get(userId, 2026, 10, usage -> true, () -> {
+            loads.incrementAndGet();
+            return new CachedUsage(100, 1, true, null);
+        });
+    }
+}
@@ -3,16 +3,24 @@ package com.myapp.identityservice.unit;
 import com.myapp.identityservice.domain.User;
 import com.myapp.identityservice.domain.UserMonthlyUsage;
 import com.myapp.identityservice.domain.UserStatus;
+import com.myapp.identityservice.dto.request.UsageBatchCheckRequest;
+import com.myapp.identityservice.dto.request.UsageBatchConsumeRequest;
+import com.myapp.identityservice.dto.response.UsageBatchCheckResponse;
+import com.myapp.identityservice.dto.response.UsageBatchConsumeResponse;
 import com.myapp.identityservice.dto.response.UsageCheckResponse;
 import com.myapp.identityservice.dto.response.UsageConsumeResponse;
 import com.myapp.identityservice.dto.response.UsageResponse;
 import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.NotFoundException;
 import com.myapp.identityservice.exception.UsageLimitExceededException;
+import com.myapp.identityservice.idempotency.IdempotencyNearCache;
 import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
 import com.myapp.identityservice.repository.UserRepository;
+import com.myapp.identityservice.service.UsageConsumeStrategy;
+import com.myapp.identityservice.service.UsageCounterState;
+import com.myapp.identityservice.service.UsageReadCache;
 import com.myapp.identityservice.service.UsageService;
-import com.myapp.identityservice.util.CuidGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -20,13 +28,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
-
-import java.time.Duration;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,13 +51,7 @@ class UsageServiceTest {
     private UserMonthlyUsageRepository usageRepository;
 
     @Mock
-    private StringRedisTemplate redisTemplate;
-
-    @Mock
-    private ValueOperations<String, String> valueOperations;
-
-    @Mock
-    private CuidGenerator cuidGenerator;
+    private UsageConsumeStrategy consumeStrategy;
 
     private UsageService usageService;
 
@@ -57,8 +60,9 @@ class UsageServiceTest {
 
     @BeforeEach
     void setUp() {
-        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        usageService = new UsageService(userRepository, usageRepository, redisTemplate, cuidGenerator);
+        usageService = new UsageService(userRepository, usageRepository, consumeStrategy,
+                new IdempotencyNearCache(100, 5000),
+                new UsageReadCache(new SimpleMeterRegistry(), 60_000, 1000, "postgres"), 900, 3600);
 
         testUser = new User();
         testUser.setId("test-user-id");
@@ -132,6 +136,33 @@ class UsageServiceTest {
             assertEquals(-1, result.getRemaining());
         }
 
+        @Test
+        @DisplayName("Should answer from the default limit without creating a row")
+        void shouldAnswerFromDefaultLimitWithoutRow() {
+            when(userRepository.findById("test-user-id")).thenReturn(Optional.of(testUser));
+            when(usageRepository.findByUserIdAndYearAndMonth(anyString(), anyInt(), anyInt()))
+                    .thenReturn(Optional.empty());
+
+            UsageCheckResponse result = usageService.checkUsage("test-user-id", 25);
+
+            assertTrue(result.isAllowed());
+            assertEquals(100, result.getRemaining());
+            verify(usageRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should answer from the live counter without touching the database")
+        void shouldAnswerFromCounter() {
+            when(consumeStrategy.liveState(eq("test-user-id"), anyInt(), anyInt()))
+                    .thenReturn(Optional.of(new UsageCounterState(100, 90)));
+
+            UsageCheckResponse result = usageService.checkUsage("test-user-id", 25);
+
+            assertFalse(result.isAllowed());
+            assertEquals(10, result.getRemaining());
+            verifyNoInteractions(userRepository, usageRepository);
+        }
+
         @Test
         @DisplayName("Should throw exception for invalid amount")
         void shouldThrowExceptionForInvalidAmount() {
@@ -155,12 +186,8 @@ class UsageServiceTest {
         @Test
         @DisplayName("Should consume usage successfully")
         void shouldConsumeUsageSuccessfully() {
-            when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
-            when(valueOperations.get(anyString())).thenReturn(null);
-            when(userRepository.findById("test-user-id")).thenReturn(Optional.of(testUser));
-            when(usageRepository.findByUserIdAndYearAndMonthWithLock(anyString(), anyInt(), anyInt()))
-                    .thenReturn(Optional.of(testUsage));
-            when(usageRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+            when(consumeStrategy.consume(eq("test-user-id"), anyInt(), anyInt(), eq(10), isNull()))
+                    .thenReturn(UsageConsumeResponse.from(100, 60));
 
             UsageConsumeResponse result = usageService.consumeUsage("test-user-id", 10, null);
 
@@ -168,41 +195,58 @@ class UsageServiceTest {
             assertEquals(100, result.getMonthlyLimit());
             assertEquals(60, result.getUtilised());
             assertEquals(40, result.getRemaining());
+            verifyNoInteractions(userRepository, usageRepository);
         }
 
         @Test
         @DisplayName("Should throw exception when limit exceeded")
         void shouldThrowExceptionWhenLimitExceeded() {
-            when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
-            when(valueOperations.get(anyString())).thenReturn(null);
-            when(userRepository.findById("test-user-id")).thenReturn(Optional.of(testUser));
-            when(usageRepository.findByUserIdAndYearAndMonthWithLock(anyString(), anyInt(), anyInt()))
-                    .thenReturn(Optional.of(testUsage));
+            when(consumeStrategy.consume(eq("test-user-id"), anyInt(), anyInt(), eq(60), isNull()))
+                    .thenThrow(new UsageLimitExceededException(100, 50, 60));
 
             assertThrows(UsageLimitExceededException.class,
                     () -> usageService.consumeUsage("test-user-id", 60, null));
         }
 
         @Test
-        @DisplayName("Should throw exception when lock not acquired")
-        void shouldThrowExceptionWhenLockNotAcquired() {
-            when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        @DisplayName("Should consume from the current month")
+        void shouldConsumeFromCurrentMonth() {
+            LocalDate now = LocalDate.now();
+            when(consumeStrategy.consume("test-user-id", now.getYear(), now.getMonthValue(), 10, "key-1"))
+                    .thenReturn(UsageConsumeResponse.from(100, 60));
 
-            assertThrows(BadRequestException.class,
-                    () -> usageService.consumeUsage("test-user-id", 10, null));
+            usageService.consumeUsage("test-user-id", 10, "key-1");
+
+            verify(consumeStrategy).consume("test-user-id", now.getYear(), now.getMonthValue(), 10, "key-1");
+        }
+
+        @Test
+        @DisplayName("Should answer a repeated idempotency key from the near-cache")
+        void shouldReplayRepeatedKeyFromNearCache() {
+            when(consumeStrategy.consume(eq("test-user-id"), anyInt(), anyInt(), eq(10), eq("key-1")))
+                    .thenReturn(UsageConsumeResponse.from(100, 60));
+
+            usageService.consumeUsage("test-user-id", 10, "key-1");
+            UsageConsumeResponse replayed = usageService.consumeUsage("test-user-id", 10, "key-1");
+
+            assertEquals(100, replayed.getMonthlyLimit());
+            assertEquals(60, replayed.getUtilised());
+            assertEquals(40, replayed.getRemaining());
+            verify(consumeStrategy, times(1)).consume(eq("test-user-id"), anyInt(), anyInt(), eq(10), eq("key-1"));
+        }
+
+        @Test
+        @DisplayName("Should throw exception for invalid amount")
+        void shouldThrowExceptionForInvalidAmount() {
+            assertThrows(BadRequestException.class, () -> usageService.consumeUsage("test-user-id", 0, null));
+            verifyNoInteractions(consumeStrategy);
         }
 
         @Test
         @DisplayName("Should allow unlimited usage")
         void shouldAllowUnlimitedUsage() {
-            testUsage.setMonthlyLimit(-1);
-
-            when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
-            when(valueOperations.get(anyString())).thenReturn(null);
-            when(userRepository.findById("test-user-id")).thenReturn(Optional.of(testUser));
-            when(usageRepository.findByUserIdAndYearAndMonthWithLock(anyString(), anyInt(), anyInt()))
-                    .thenReturn(Optional.of(testUsage));
-            when(usageRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+            when(consumeStrategy.consume(eq("test-user-id"), anyInt(), anyInt(), eq(1000), isNull()))
+                    .thenReturn(UsageConsumeResponse.from(-1, 1050));
 
             UsageConsumeResponse result = usageService.consumeUsage("test-user-id", 1000, null);
 
@@ -212,6 +256,134 @@ class UsageServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Batch Usage Tests")
+    class BatchUsageTests {
+
+        @Test
+        @DisplayName("Should answer batch checks from live counters, rows and default limits")
+        void shouldCheckBatchFromEachSource() {
+            User newUser = new User();
+            newUser.setId("new-user-id");
+            newUser.setDefaultMonthlyTaskLimit(30);
+            LocalDate now = LocalDate.now();
+            when(consumeStrategy.liveStates(eq(now.getYear()), eq(now.getMonthValue()), anyCollection()))
+                    .thenReturn(Map.of("live-user-id", new UsageCounterState(100, 95)));
+            when(usageRepository.findByUserIdInAndYearAndMonth(
+                    Set.of("test-user-id", "new-user-id", "missing"), now.getYear(), now.getMonthValue()))
+                    .thenReturn(List.of(testUsage));
+            when(userRepository.findByIdIn(argThat(ids -> Set.copyOf(ids).equals(Set.of("new-user-id", "missing")))))
+                    .thenReturn(List.of(newUser));
+
+            UsageBatchCheckResponse result = usageService.checkUsageBatch(List.of(
+                    new UsageBatchCheckRequest.Item("live-user-id", 10),
+                    new UsageBatchCheckRequest.Item("test-user-id", 10),
+                    new UsageBatchCheckRequest.Item("new-user-id", 10),
+                    new UsageBatchCheckRequest.Item("missing", 10)));
+
+            List<UsageBatchCheckResponse.ItemResult> items = result.getResults();
+            assertFalse(items.get(0).getAllowed());
+            assertEquals(5, items.get(0).getRemaining());
+            assertTrue(items.get(1).getAllowed());
+            assertEquals(50, items.get(1).getRemaining());
+            assertTrue(items.get(2).getAllowed());
+            assertEquals(30, items.get(2).getRemaining());
+            assertFalse(items.get(3).isFound());
+            verify(usageRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should consume batches for the current month through the strategy")
+        void shouldConsumeBatchThroughStrategy() {
+            LocalDate now = LocalDate.now();
+            List<UsageBatchConsumeRequest.Item> items = List.of(
+                    new UsageBatchConsumeRequest.Item("test-user-id", 10, "key-1"),
+                    new UsageBatchConsumeRequest.Item("test-user-id", 60, null));
+            when(consumeStrategy.consumeBatch(now.getYear(), now.getMonthValue(), items)).thenReturn(List.of(
+                    UsageBatchConsumeResponse.ItemResult.consumed("test-user-id", "key-1", 100, 60),
+                    UsageBatchConsumeResponse.ItemResult.limitExceeded("test-user-id", null, 100, 60)));
+
+            UsageBatchConsumeResponse result = usageService.consumeUsageBatch(items);
+
+            assertEquals(2, result.getResults().size());
+            assertEquals(UsageBatchConsumeResponse.Status.LIMIT_EXCEEDED, result.getResults().get(1).getStatus());
+        }
+
+        @Test
+        @DisplayName("Should reject a batch containing an invalid amount")
+        void shouldRejectInvalidBatchAmount() {
+            List<UsageBatchConsumeRequest.Item> items = List.of(
+                    new UsageBatchConsumeRequest.Item("test-user-id", 10, null),
+                    new UsageBatchConsumeRequest.Item("test-user-id", 0, null));
+
+            assertThrows(BadRequestException.class, () -> usageService.consumeUsageBatch(items));
+            verifyNoInteractions(consumeStrategy);
+        }
+    }
+
+    @Nested
+    @DisplayName("Update Monthly Limit Tests")
+    class UpdateMonthlyLimitTests {
+
+        @Test
+        @DisplayName("Should update the row and the live counter")
+        void shouldUpdateRowAndCounter() {
+            when(usageRepository.updateMonthlyLimit(eq("test-user-id"), anyInt(), anyInt(), eq(500))).thenReturn(1);
+
+            usageService.updateMonthlyLimit("test-user-id", 500);
+
+            verify(consumeStrategy).limitChanged(eq("test-user-id"), anyInt(), anyInt(), eq(500));
+            verify(usageRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should also update next month's provisioned row")
+        void shouldUpdateNextMonthRow() {
+            LocalDate next = LocalDate.now().plusMonths(1);
+            when(usageRepository.updateMonthlyLimit(eq("test-user-id"), anyInt(), anyInt(), eq(500))).thenReturn(0);
+
+            usageService.updateMonthlyLimit("test-user-id", 500);
+
+            verify(usageRepository).updateMonthlyLimit("test-user-id", next.getYear(), next.getMonthValue(), 500);
+        }
+
+        @Test
+        @DisplayName("Should leave the counter alone when the month has no usage row")
+        void shouldSkipCounterWithoutRow() {
+            when(usageRepository.updateMonthlyLimit(eq("test-user-id"), anyInt(), anyInt(), eq(500))).thenReturn(0);
+
+            usageService.updateMonthlyLimit("test-user-id", 500);
+
+            verify(consumeStrategy, never()).limitChanged(anyString(), anyInt(), anyInt(), anyInt());
+        }
+
+        @Test
+        @DisplayName("Should update the live counter and read cache only after the commit")
+        void shouldApplyAfterCommit() {
+            when(consumeStrategy.liveState(eq("test-user-id"), anyInt(), anyInt()))
+                    .thenReturn(Optional.of(new UsageCounterState(100, 90)))
+                    .thenReturn(Optional.of(new UsageCounterState(500, 90)));
+            when(usageRepository.updateMonthlyLimit(eq("test-user-id"), anyInt(), anyInt(), eq(500))).thenReturn(1);
+            assertFalse(usageService.checkUsage("test-user-id", 25).isAllowed());
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                usageService.updateMonthlyLimit("test-user-id", 500);
+
+                // Not committed yet: the counter is untouched and the cached old limit still served
+                verify(consumeStrategy, never()).limitChanged(anyString(), anyInt(), anyInt(), anyInt());
+                assertFalse(usageService.checkUsage("test-user-id", 25).isAllowed());
+
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            verify(consumeStrategy).limitChanged(eq("test-user-id"), anyInt(), anyInt(), eq(500));
+            assertTrue(usageService.checkUsage("test-user-id", 25).isAllowed());
+        }
+    }
+
     @Nested
     @DisplayName("Get Monthly Usage Tests")
     class GetMonthlyUsageTests {
@@ -253,4 +425,62 @@ class UsageServiceTest {
                     () -> usageService.getMonthlyUsage("test-user-id", 2024, 13));
         }
     }
+
+    @Nested
+    @DisplayName("Read Cache Tests")
+    class ReadCacheTests {
+
+        @Test
+        @DisplayName("Should answer repeated checks and current-month reads from the read cache")
+        void shouldAnswerRepeatedReadsFromCache() {
+            when(userRepository.findById("test-user-id")).thenReturn(Optional.of(testUser));
+            when(usageRepository.findByUserIdAndYearAndMonth(anyString(), anyInt(), anyInt()))
+                    .thenReturn(Optional.of(testUsage));
+
+            UsageResponse current = usageService.getCurrentMonthUsage("test-user-id");
+            UsageCheckResponse first = usageService.checkUsage("test-user-id", 25);
+            UsageCheckResponse second = usageService.checkUsage("test-user-id", 60);
+            UsageResponse again = usageService.getCurrentMonthUsage("test-user-id");
+
+            assertEquals("test-usage-id", again.getId());
+            assertEquals(current.getUtilised(), again.getUtilised());
+            assertTrue(first.isAllowed());
+            assertFalse(second.isAllowed());
+            verify(userRepository, times(1)).findById("test-user-id");
+            verify(consumeStrategy, times(1)).liveState(eq("test-user-id"), anyInt(), anyInt());
+        }
+
+        @Test
+        @DisplayName("Should write consumes through to the cached state")
+        void shouldWriteConsumesThrough() {
+            when(consumeStrategy.liveState(eq("test-user-id"), anyInt(), anyInt()))
+                    .thenReturn(Optional.of(new UsageCounterState(100, 50)));
+            when(consumeStrategy.consume(eq("test-user-id"), anyInt(), anyInt(), eq(30), isNull()))
+                    .thenReturn(UsageConsumeResponse.from(100, 80));
+
+            usageService.checkUsage("test-user-id", 1);
+            usageService.consumeUsage("test-user-id", 30, null);
+            UsageCheckResponse result = usageService.checkUsage("test-user-id", 25);
+
+            assertFalse(result.isAllowed());
+            assertEquals(20, result.getRemaining());
+            verify(consumeStrategy, times(1)).liveState(eq("test-user-id"), anyInt(), anyInt());
+        }
+
+        @Test
+        @DisplayName("Should reload after a limit change")
+        void shouldReloadAfterLimitChange() {
+            when(consumeStrategy.liveState(eq("test-user-id"), anyInt(), anyInt()))
+                    .thenReturn(Optional.of(new UsageCounterState(100, 90)))
+                    .thenReturn(Optional.of(new UsageCounterState(500, 90)));
+            when(usageRepository.updateMonthlyLimit(eq("test-user-id"), anyInt(), anyInt(), eq(500))).thenReturn(1);
+
+            assertFalse(usageService.checkUsage("test-user-id", 25).isAllowed());
+            usageService.updateMonthlyLimit("test-user-id", 500);
+            UsageCheckResponse result = usageService.checkUsage("test-user-id", 25);
+
+            assertTrue(result.isAllowed());
+            assertEquals(410, result.getRemaining());
+        }
+    }
 }
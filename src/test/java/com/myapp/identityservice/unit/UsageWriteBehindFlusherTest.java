@@ -0,0 +1,106 @@
+package com.myapp.identityservice.unit;
+
+import com.myapp.identityservice.repository.UsageBatchRepository;
+import com.myapp.identityservice.repository.UsageLedgerRepository;
+import com.myapp.identityservice.service.RedisUsageCounter;
+import com.myapp.identityservice.service.RedisUsageCounter.DirtyCounter;
+import com.myapp.identityservice.service.RedisUsageCounter.UsageEventEntry;
+import com.myapp.identityservice.service.UsageWriteBehindFlusher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsageWriteBehindFlusherTest {
+
+    @Mock
+    private RedisUsageCounter usageCounter;
+
+    @Mock
+    private UsageBatchRepository usageBatchRepository;
+
+    @Mock
+    private UsageLedgerRepository ledgerRepository;
+
+    private UsageWriteBehindFlusher flusher;
+
+    @BeforeEach
+    void setUp() {
+        flusher = new UsageWriteBehindFlusher(usageCounter, usageBatchRepository, ledgerRepository,
+                new SimpleMeterRegistry(), 500);
+    }
+
+    @Test
+    @DisplayName("Should copy audit entries to usage_events before flushing counters")
+    void shouldCopyEventsThenCounters() {
+        List<UsageEventEntry> events = List.of(
+                new UsageEventEntry("1760000000000-0", "user-1", 2026, 10, 5, "key-1", Instant.now()),
+                new UsageEventEntry("1760000000000-1", "user-1", 2026, 10, 3, null, Instant.now()));
+        List<DirtyCounter> counters = List.of(new DirtyCounter("user-1", 2026, 10, 8));
+        when(usageCounter.tryLockEvents(anyString(), any())).thenReturn(true);
+        when(usageCounter.readEvents(500)).thenReturn(events);
+        when(usageCounter.readDirty(500)).thenReturn(counters);
+
+        flusher.flush();
+
+        InOrder inOrder = inOrder(ledgerRepository, usageCounter, usageBatchRepository);
+        inOrder.verify(ledgerRepository).appendRecorded(events);
+        inOrder.verify(usageCounter).deleteEvents(events);
+        inOrder.verify(usageCounter).unlockEvents(anyString());
+        inOrder.verify(usageBatchRepository).raiseUtilised(counters);
+        inOrder.verify(usageCounter).clearDirty(counters);
+    }
+
+    @Test
+    @DisplayName("Should leave counters dirty when they cannot be written")
+    void shouldKeepCountersDirtyOnFailure() {
+        List<DirtyCounter> counters = List.of(new DirtyCounter("user-1", 2026, 10, 8));
+        when(usageCounter.tryLockEvents(anyString(), any())).thenReturn(false);
+        when(usageCounter.readDirty(500)).thenReturn(counters);
+        doThrow(new DataAccessResourceFailureException("down")).when(usageBatchRepository).raiseUtilised(counters);
+
+        flusher.flush();
+
+        verify(usageCounter, never()).clearDirty(any());
+    }
+
+    @Test
+    @DisplayName("Should leave audit entries in Redis when they cannot be written")
+    void shouldKeepEventsOnFailure() {
+        List<UsageEventEntry> events = List.of(
+                new UsageEventEntry("1760000000000-0", "user-1", 2026, 10, 5, null, Instant.now()));
+        when(usageCounter.tryLockEvents(anyString(), any())).thenReturn(true);
+        when(usageCounter.readEvents(500)).thenReturn(events);
+        doThrow(new DataAccessResourceFailureException("down")).when(ledgerRepository).appendRecorded(events);
+
+        flusher.flush();
+
+        verify(usageCounter, never()).deleteEvents(any());
+        verify(usageCounter).unlockEvents(anyString());
+        verify(usageCounter).readDirty(500);
+    }
+
+    @Test
+    @DisplayName("Should not copy audit entries while another instance holds the lock")
+    void shouldSkipEventsWhenLocked() {
+        when(usageCounter.tryLockEvents(anyString(), any())).thenReturn(false);
+
+        flusher.flush();
+
+        verify(usageCounter, never()).readEvents(anyInt());
+        verify(usageCounter, never()).unlockEvents(anyString());
+        verify(usageCounter).readDirty(500);
+    }
+}
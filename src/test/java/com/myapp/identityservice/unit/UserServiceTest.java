@@ -8,6 +8,7 @@ import com.myapp.identityservice.dto.response.UserResponse;
 import com.myapp.identityservice.exception.BadRequestException;
 import com.myapp.identityservice.exception.ConflictException;
 import com.myapp.identityservice.exception.NotFoundException;
+import com.myapp.identityservice.repository.UserGroupRepository;
 import com.myapp.identityservice.repository.UserMonthlyUsageRepository;
 import com.myapp.identityservice.repository.UserRepository;
 import com.myapp.identityservice.service.UserService;
@@ -38,6 +39,9 @@ class UserServiceTest {
     @Mock
     private UserMonthlyUsageRepository usageRepository;
 
+    @Mock
+    private UserGroupRepository groupRepository;
+
     @Mock
     private CuidGenerator cuidGenerator;
 
@@ -250,6 +254,7 @@ class UserServiceTest {
             UserResponse result = userService.updateUser("test-user-id", request);
 
             assertEquals(UserStatus.INACTIVE, result.getStatus());
+            verify(groupRepository).refreshMemberFingerprintsForUser("test-user-id");
         }
     }
 
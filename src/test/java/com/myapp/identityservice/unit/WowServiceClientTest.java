@@ -0,0 +1,98 @@
+package com.myapp.identityservice.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myapp.identityservice.client.WowServiceClient;
+import com.myapp.identityservice.client.WowServiceClient.BatchAck;
+import com.myapp.identityservice.client.WowServiceClient.BatchEvent;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Batch delivery against a stub wow-service that acknowledges every event except those
+ * whose eventId starts with "bad".
+ */
+class WowServiceClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private WowServiceClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/internal/events/batch", exchange -> {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            requests.add(request);
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (JsonNode event : request.get("events")) {
+                String eventId = event.get("eventId").asText();
+                boolean accepted = !eventId.startsWith("bad");
+                results.add(accepted
+                        ? Map.of("eventId", eventId, "accepted", true)
+                        : Map.of("eventId", eventId, "accepted", false, "error", "unknown context"));
+            }
+            byte[] body = objectMapper.writeValueAsBytes(Map.of("results", results));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        client = new WowServiceClient("http://localhost:" + server.getAddress().getPort(), "test-key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should send events in one request and return each acknowledgement by eventId")
+    void shouldDeliverBatch() {
+        List<BatchEvent> events = List.of(
+                new BatchEvent("USR_UPD:u1:1", "USER_NAME_UPDATED", Map.of("userId", "u1", "newDisplayName", "A")),
+                new BatchEvent("bad:1", "INVITATION_ACCEPTED", Map.of("contextId", "c1")),
+                new BatchEvent("UID_MIG:u2:u3", "USER_ID_MIGRATED", Map.of("oldUserId", "u2", "newUserId", "u3")));
+
+        Map<String, BatchAck> acks = client.deliverBatch(events);
+
+        assertEquals(1, requests.size());
+        JsonNode sent = requests.get(0).get("events");
+        assertEquals(3, sent.size());
+        assertEquals("USR_UPD:u1:1", sent.get(0).get("eventId").asText());
+        assertEquals("u1", sent.get(0).get("payload").get("userId").asText());
+        assertEquals("USER_ID_MIGRATED", sent.get(2).get("eventType").asText());
+
+        assertTrue(acks.get("USR_UPD:u1:1").accepted());
+        assertTrue(acks.get("UID_MIG:u2:u3").accepted());
+        assertFalse(acks.get("bad:1").accepted());
+        assertEquals("unknown context", acks.get("bad:1").error());
+    }
+
+    @Test
+    @DisplayName("Should fail the whole batch when wow-service returns an error status")
+    void shouldFailOnErrorStatus() {
+        server.removeContext("/internal/events/batch");
+        server.createContext("/internal/events/batch", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+
+        assertThrows(RuntimeException.class, () -> client.deliverBatch(
+                List.of(new BatchEvent("e1", "USER_NAME_UPDATED", Map.of("userId", "u1")))));
+    }
+}